@@ -0,0 +1,61 @@
+package org.lttng.flightbox.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.replay.ReplayExporter;
+import org.lttng.flightbox.replay.ReplayTraceReader;
+import org.lttng.flightbox.replay.ReplayWriter;
+import org.lttng.flightbox.stub.StubTraceReader;
+import org.lttng.flightbox.stub.SyntheticTraceGenerator;
+import org.lttng.flightbox.stub.SyntheticTraceReader;
+
+/*
+ * Traces of the benchmarks. The workload is generated, it is read as is,
+ * from a replay file or from a stub trace, so that benchmarks run
+ * without LTTng. Paths are relative to the project directory.
+ */
+public class BenchTraces {
+
+	public static final int EVENTS = 200000;
+	public static final String INVENTORY = "tests/stub/" + SyntheticTraceGenerator.DEFAULT_INVENTORY;
+
+	public static final String SYNTHETIC = "synthetic";
+	public static final String REPLAY = "replay";
+	public static final String STUB = "stub";
+
+	public static SyntheticTraceGenerator makeGenerator() {
+		SyntheticTraceGenerator generator = new SyntheticTraceGenerator();
+		generator.setCpus(4);
+		generator.setTasks(64);
+		generator.setEvents(EVENTS);
+		generator.setSeed(1);
+		return generator;
+	}
+
+	/* the file of the trace for the source, null when generated */
+	public static File makeTraceFile(SyntheticTraceGenerator generator, String source) throws IOException, JniException {
+		File file;
+		if (source.equals(REPLAY)) {
+			file = File.createTempFile("bench", ReplayWriter.SUFFIX);
+			ReplayExporter.export(new SyntheticTraceReader(generator), file);
+		} else if (source.equals(STUB)) {
+			file = File.createTempFile("bench", ".xml");
+			generator.writeStub(file, new File(INVENTORY).getAbsolutePath());
+		} else {
+			return null;
+		}
+		file.deleteOnExit();
+		return file;
+	}
+
+	public static TraceReader makeReader(SyntheticTraceGenerator generator, String source, File file) {
+		if (source.equals(REPLAY))
+			return new ReplayTraceReader(file.getPath());
+		if (source.equals(STUB))
+			return new StubTraceReader(file.getPath());
+		return new SyntheticTraceReader(generator);
+	}
+}
@@ -0,0 +1,98 @@
+package org.lttng.flightbox.bench;
+
+import java.io.File;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.lttng.flightbox.graph.ExecGraph;
+import org.lttng.flightbox.graph.ExecGraphManager;
+import org.lttng.flightbox.graph.ExecSubgraph;
+import org.lttng.flightbox.graph.ExecVertex;
+import org.lttng.flightbox.graph.ExecVertex.ExecType;
+import org.lttng.flightbox.graph.ExecutionTaskListener;
+import org.lttng.flightbox.graph.TaskGraphExtractor;
+import org.lttng.flightbox.io.ModelBuilder;
+import org.lttng.flightbox.model.SystemModel;
+import org.lttng.flightbox.model.Task;
+import org.lttng.flightbox.stub.SyntheticTraceGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Growth of the execution graph, and critical path of the task with
+ * the most vertices of the graph of a synthetic trace
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecGraphBenchmark {
+
+	static final int VERTICES = 10000;
+	static final int TASKS = 64;
+
+	private ExecVertex[] vertices;
+	private ExecGraph graph;
+	private ExecVertex start;
+	private ExecVertex end;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Random random = new Random(1);
+		Task[] tasks = new Task[TASKS];
+		for (int i = 0; i < TASKS; i++) {
+			tasks[i] = new Task();
+			tasks[i].setProcessId(i + 1);
+		}
+		vertices = new ExecVertex[VERTICES];
+		for (int i = 0; i < VERTICES; i++) {
+			vertices[i] = new ExecVertex(tasks[random.nextInt(TASKS)], i * 10, ExecType.UNKNOWN);
+		}
+
+		SyntheticTraceGenerator generator = BenchTraces.makeGenerator();
+		File file = BenchTraces.makeTraceFile(generator, BenchTraces.REPLAY);
+		SystemModel model = new SystemModel();
+		ExecutionTaskListener listener = new ExecutionTaskListener();
+		model.addTaskListener(listener);
+		ModelBuilder.build(BenchTraces.makeReader(generator, BenchTraces.REPLAY, file), model, null);
+		file.delete();
+		ExecGraphManager manager = listener.getGraphManager();
+		graph = manager.getGraph();
+		SortedSet<ExecVertex> longest = null;
+		for (ExecVertex v: graph.vertexSet()) {
+			SortedSet<ExecVertex> set = manager.getVertexSetForTask(v.getTask());
+			if (longest == null || set.size() > longest.size())
+				longest = set;
+		}
+		start = longest.first();
+		end = longest.last();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VERTICES)
+	public ExecGraphManager appendVertex() {
+		ExecGraphManager manager = new ExecGraphManager();
+		for (int i = 0; i < VERTICES; i++) {
+			manager.appendVertex(vertices[i]);
+		}
+		return manager;
+	}
+
+	@Benchmark
+	public ExecSubgraph getCriticalPath() {
+		return TaskGraphExtractor.getCriticalPath(graph, start, end);
+	}
+}
@@ -0,0 +1,83 @@
+package org.lttng.flightbox.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.lttng.flightbox.interval.IntervalTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Build of an interval tree and stabbing queries, by time and by range
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntervalTreeBenchmark {
+
+	static final int INTERVALS = 10000;
+	static final int QUERIES = 1000;
+	static final long DURATION = 1000000000L;
+
+	private long[] begins;
+	private long[] ends;
+	private long[] queries;
+	private IntervalTree<Integer> tree;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(1);
+		begins = new long[INTERVALS];
+		ends = new long[INTERVALS];
+		for (int i = 0; i < INTERVALS; i++) {
+			begins[i] = (long) (random.nextDouble() * DURATION);
+			ends[i] = begins[i] + (long) (random.nextDouble() * DURATION / 100);
+		}
+		queries = new long[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = (long) (random.nextDouble() * DURATION);
+		}
+		tree = build();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INTERVALS)
+	public IntervalTree<Integer> build() {
+		IntervalTree<Integer> t = new IntervalTree<Integer>();
+		for (int i = 0; i < INTERVALS; i++) {
+			t.addInterval(begins[i], ends[i], i);
+		}
+		t.build();
+		return t;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void stab(Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(tree.get(queries[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void stabRange(Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(tree.get(queries[i], queries[i] + DURATION / 1000));
+		}
+	}
+}
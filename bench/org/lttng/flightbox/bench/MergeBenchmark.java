@@ -0,0 +1,113 @@
+package org.lttng.flightbox.bench;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.LoserTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * k-way merge of the tracefiles: a PriorityQueue ordered through JniTime 
+ * objects, as JniTrace.readNextEvent did, and the LoserTree over 
+ * primitive timestamps. Scores are per merge of all the streams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeBenchmark {
+
+	static final int EVENTS = 200000;
+
+	@Param({ "2", "8", "32" })
+	public int streams;
+
+	private long[][] times;
+
+	static class Cursor implements Comparable<Cursor> {
+		long[] times;
+		int pos;
+		int index;
+		JniTime time = new JniTime();
+		@Override
+		public int compareTo(Cursor other) {
+			int cmp = time.compareTo(other.time);
+			if (cmp == 0 && index != other.index)
+				cmp = 1;
+			return cmp;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(streams);
+		times = new long[streams][EVENTS / streams];
+		for (int i = 0; i < streams; i++) {
+			long ts = 0;
+			for (int j = 0; j < times[i].length; j++) {
+				ts += random.nextInt(1000);
+				times[i][j] = ts;
+			}
+		}
+		if (heap() != tree())
+			throw new RuntimeException("merge results differ");
+	}
+
+	@Benchmark
+	public long heap() {
+		PriorityQueue<Cursor> heap = new PriorityQueue<Cursor>(times.length);
+		for (int i = 0; i < times.length; i++) {
+			Cursor c = new Cursor();
+			c.times = times[i];
+			c.index = i;
+			c.time.setTime(c.times[0]);
+			heap.add(c);
+		}
+		long sum = 0;
+		Cursor c;
+		while ((c = heap.poll()) != null) {
+			sum += c.time.getTime();
+			c.pos++;
+			if (c.pos < c.times.length) {
+				c.time.setTime(c.times[c.pos]);
+				heap.add(c);
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long tree() {
+		LoserTree tree = new LoserTree(times.length);
+		int[] pos = new int[times.length];
+		for (int i = 0; i < times.length; i++)
+			tree.set(i, times[i][0]);
+		tree.build();
+		long sum = 0;
+		int w;
+		while ((w = tree.getWinner()) >= 0) {
+			sum += tree.getKey(w);
+			pos[w]++;
+			if (pos[w] < times[w].length)
+				tree.update(w, times[w][pos[w]]);
+			else
+				tree.remove(w);
+		}
+		return sum;
+	}
+}
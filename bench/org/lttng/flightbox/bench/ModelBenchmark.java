@@ -0,0 +1,75 @@
+package org.lttng.flightbox.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.lttng.flightbox.graph.ExecutionTaskListener;
+import org.lttng.flightbox.io.ModelBuilder;
+import org.lttng.flightbox.model.SystemModel;
+import org.lttng.flightbox.stub.SyntheticTraceGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Cost of the handlers of TraceEventHandlerModel, per event of the
+ * trace. The trace is read from a replay file, compare with
+ * TraceReaderBenchmark.dispatchAll for the cost of reading alone.
+ * With recycle, the model reuses the states popped by the tasks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean recycle;
+
+	private SyntheticTraceGenerator generator;
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		generator = BenchTraces.makeGenerator();
+		file = BenchTraces.makeTraceFile(generator, BenchTraces.REPLAY);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchTraces.EVENTS)
+	public SystemModel buildModel() throws Exception {
+		SystemModel model = new SystemModel();
+		model.setRecycleStates(recycle);
+		ModelBuilder.build(BenchTraces.makeReader(generator, BenchTraces.REPLAY, file), model, null);
+		return model;
+	}
+
+	/* with the listener that builds the execution graph */
+	@Benchmark
+	@OperationsPerInvocation(BenchTraces.EVENTS)
+	public SystemModel buildModelAndGraph() throws Exception {
+		SystemModel model = new SystemModel();
+		model.setRecycleStates(recycle);
+		model.addTaskListener(new ExecutionTaskListener());
+		ModelBuilder.build(BenchTraces.makeReader(generator, BenchTraces.REPLAY, file), model, null);
+		return model;
+	}
+}
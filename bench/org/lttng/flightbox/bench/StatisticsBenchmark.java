@@ -0,0 +1,79 @@
+package org.lttng.flightbox.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.lttng.flightbox.model.Task.TaskState;
+import org.lttng.flightbox.statistics.BucketSeries;
+import org.lttng.flightbox.statistics.ResourceUsage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Accumulation of intervals in buckets, as done for the cpu usage of
+ * each cpu and task
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatisticsBenchmark {
+
+	static final int INTERVALS = 10000;
+	static final int BUCKETS = 1000;
+	static final int IDS = 64;
+	static final long DURATION = 1000000000L;
+
+	private double[] starts;
+	private double[] ends;
+	private TaskState[] modes;
+	private BucketSeries series;
+	private ResourceUsage<Integer> usage;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(1);
+		TaskState[] states = { TaskState.USER, TaskState.SYSCALL, TaskState.IRQ };
+		starts = new double[INTERVALS];
+		ends = new double[INTERVALS];
+		modes = new TaskState[INTERVALS];
+		for (int i = 0; i < INTERVALS; i++) {
+			/* up to ten buckets long */
+			starts[i] = random.nextDouble() * DURATION;
+			ends[i] = Math.min(DURATION, starts[i] + random.nextDouble() * DURATION / BUCKETS * 10);
+			modes[i] = states[random.nextInt(states.length)];
+		}
+		series = new BucketSeries(0, DURATION, BUCKETS);
+		usage = new ResourceUsage<Integer>(0L, DURATION, BUCKETS);
+		for (int i = 0; i < INTERVALS; i++) {
+			usage.addInterval(starts[i], ends[i], i % IDS, modes[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INTERVALS)
+	public BucketSeries addInterval() {
+		for (int i = 0; i < INTERVALS; i++) {
+			series.addInterval(starts[i], ends[i], modes[i]);
+		}
+		return series;
+	}
+
+	/* sum of the series of all ids */
+	@Benchmark
+	public BucketSeries getTotal() {
+		return usage.getTotal();
+	}
+}
@@ -0,0 +1,102 @@
+package org.lttng.flightbox.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.lttng.flightbox.io.ITraceHookCallback;
+import org.lttng.flightbox.io.TraceEventHandlerBase;
+import org.lttng.flightbox.io.TraceEventHandlerCounter;
+import org.lttng.flightbox.io.TraceHook;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.stub.SyntheticTraceGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Cost of reading an event and dispatching it to the hooks, by source
+ * of the trace. The time is per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TraceReaderBenchmark {
+
+	@Param({ BenchTraces.SYNTHETIC, BenchTraces.REPLAY, BenchTraces.STUB })
+	public String source;
+
+	@Param({ "false", "true" })
+	public boolean pipelined;
+
+	private SyntheticTraceGenerator generator;
+	private File file;
+
+	/* counts the kernel events the model uses, other channels are disabled */
+	static class KernelCounter extends TraceEventHandlerBase {
+		int count;
+		KernelCounter() {
+			super(0);
+			String[] names = { "sched_schedule", "sched_try_wakeup", "syscall_entry", "syscall_exit" };
+			for (String name: names) {
+				hooks.add(new TraceHook("kernel", name, new ITraceHookCallback() {
+					public void handleEvent(TraceReader reader, JniEvent event) {
+						count++;
+					}
+				}));
+			}
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		generator = BenchTraces.makeGenerator();
+		file = BenchTraces.makeTraceFile(generator, source);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (file != null)
+			file.delete();
+	}
+
+	private TraceReader makeReader() {
+		TraceReader reader = BenchTraces.makeReader(generator, source, file);
+		reader.setPipelined(pipelined);
+		return reader;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchTraces.EVENTS)
+	public int dispatchAll() throws Exception {
+		TraceReader reader = makeReader();
+		TraceEventHandlerCounter counter = new TraceEventHandlerCounter();
+		reader.register(counter);
+		reader.process();
+		return counter.getCount();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchTraces.EVENTS)
+	public int dispatchKernel() throws Exception {
+		TraceReader reader = makeReader();
+		KernelCounter counter = new KernelCounter();
+		reader.register(counter);
+		reader.process();
+		return counter.count;
+	}
+}
@@ -0,0 +1,86 @@
+package org.lttng.flightbox.bench;
+
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.lttng.flightbox.state.VersionizedStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * History of a stack: push at increasing times, then queries of the
+ * top at a time and of the items between two times
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VersionizedStackBenchmark {
+
+	static final int ITEMS = 10000;
+	static final int QUERIES = 1000;
+	static final long STEP = 100;
+
+	private Long[] times;
+	private Long[] queries;
+	private VersionizedStack<Integer> stack;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(1);
+		times = new Long[ITEMS];
+		for (int i = 0; i < ITEMS; i++) {
+			times[i] = i * STEP;
+		}
+		queries = new Long[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = (long) (random.nextDouble() * ITEMS * STEP);
+		}
+		stack = new VersionizedStack<Integer>();
+		for (int i = 0; i < ITEMS; i++) {
+			stack.push(i, times[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITEMS)
+	public VersionizedStack<Integer> push() {
+		VersionizedStack<Integer> s = new VersionizedStack<Integer>();
+		for (int i = 0; i < ITEMS; i++) {
+			s.push(i, times[i]);
+		}
+		return s;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void peek(Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(stack.peek(queries[i]));
+		}
+	}
+
+	/* ranges of ten items */
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getRange(Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			SortedSet<?> range = stack.getRange(queries[i], queries[i] + 10 * STEP);
+			bh.consume(range.size());
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.lttng.flightbox.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.linuxtools.lttng.jni.common.LoserTree;
+import org.junit.Test;
+
+public class TestLoserTree {
+
+	static long[][] makeStreams(int k, int n, int range, long seed) {
+		Random rand = new Random(seed);
+		long[][] streams = new long[k][];
+		for (int i = 0; i < k; i++) {
+			int len = rand.nextInt(n + 1);
+			streams[i] = new long[len];
+			long ts = 0;
+			for (int j = 0; j < len; j++) {
+				ts += rand.nextInt(range);
+				streams[i][j] = ts;
+			}
+		}
+		return streams;
+	}
+
+	@Test
+	public void testEmpty() {
+		LoserTree tree = new LoserTree(0);
+		tree.build();
+		assertEquals(-1, tree.getWinner());
+		tree = new LoserTree(3);
+		tree.build();
+		assertEquals(-1, tree.getWinner());
+	}
+
+	@Test
+	public void testTieBreakOnIndex() {
+		LoserTree tree = new LoserTree(3);
+		tree.set(2, 10);
+		tree.set(1, 10);
+		tree.set(0, 20);
+		tree.build();
+		assertEquals(1, tree.getWinner());
+		tree.update(1, 10);
+		assertEquals(1, tree.getWinner());
+		tree.remove(1);
+		assertEquals(2, tree.getWinner());
+		tree.update(2, 30);
+		assertEquals(0, tree.getWinner());
+	}
+
+	@Test
+	public void testMerge() {
+		for (int k = 1; k < 20; k++) {
+			long[][] streams = makeStreams(k, 50, 5, k);
+			int[] pos = new int[k];
+			LoserTree tree = new LoserTree(k);
+			int total = 0;
+			for (int i = 0; i < k; i++) {
+				if (streams[i].length > 0)
+					tree.set(i, streams[i][0]);
+				total += streams[i].length;
+			}
+			tree.build();
+			long lastTs = -1;
+			int lastLeaf = -1;
+			int count = 0;
+			int w;
+			while ((w = tree.getWinner()) >= 0) {
+				long ts = streams[w][pos[w]];
+				assertEquals(ts, tree.getKey(w));
+				assertTrue(ts > lastTs || (ts == lastTs && w >= lastLeaf));
+				lastTs = ts;
+				lastLeaf = w;
+				count++;
+				pos[w]++;
+				if (pos[w] < streams[w].length)
+					tree.update(w, streams[w][pos[w]]);
+				else
+					tree.remove(w);
+			}
+			assertEquals(total, count);
+		}
+	}
+
+	@Test
+	public void testUpdateNonWinner() {
+		LoserTree tree = new LoserTree(4);
+		for (int i = 0; i < 4; i++)
+			tree.set(i, 10 * (i + 1));
+		tree.build();
+		assertEquals(0, tree.getWinner());
+		tree.update(3, 5);
+		assertEquals(3, tree.getWinner());
+		tree.remove(2);
+		assertEquals(3, tree.getWinner());
+		tree.update(3, 100);
+		assertEquals(0, tree.getWinner());
+	}
+}
@@ -0,0 +1,61 @@
+package org.lttng.flightbox.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.lttng.flightbox.MainBatch;
+import org.lttng.flightbox.MainBatch.Result;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.stub.StubTraceReader;
+
+public class TestMainBatch {
+
+	static String[] testTraces = new String[] {	"trace_fork_exit_simple",
+												"trace_fork_exit_wait",
+												"trace_cpm1",
+												"trace_statedump_interleaved"};
+
+	@Test
+	public void testBatchStub() throws Exception {
+		File outDir = new File(System.getProperty("java.io.tmpdir"), "flightbox-batch-" + System.nanoTime());
+		List<String> paths = new ArrayList<String>();
+		for (String trace: testTraces) {
+			paths.add(new File(Path.getTestStubDir(), trace + ".xml").getPath());
+		}
+		paths.add(new File(Path.getTestStubDir(), "trace_missing.xml").getPath());
+
+		MainBatch.Analysis analysis = MainBatch.makeAnalysis("blocking", new ArrayList<String>(), 100);
+		MainBatch batch = new MainBatch(analysis, outDir, 2) {
+			@Override
+			protected TraceReader makeReader(String tracePath) {
+				return new StubTraceReader(tracePath);
+			}
+		};
+		List<Result> results = batch.run(paths);
+
+		assertEquals(paths.size(), results.size());
+		for (int i = 0; i < testTraces.length; i++) {
+			Result r = results.get(i);
+			assertEquals(paths.get(i), r.tracePath);
+			assertNull(r.error);
+			assertNotNull(r.report);
+			assertTrue(r.events > 0);
+			assertTrue(r.getPeakHeap() > 0);
+			assertTrue(new File(outDir, r.name + ".txt").exists());
+		}
+		assertNotNull(results.get(testTraces.length).error);
+		assertTrue(new File(outDir, MainBatch.SUMMARY).exists());
+
+		for (File f: outDir.listFiles()) {
+			f.delete();
+		}
+		outDir.delete();
+	}
+}
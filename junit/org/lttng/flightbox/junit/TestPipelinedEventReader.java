@@ -0,0 +1,105 @@
+package org.lttng.flightbox.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.junit.Test;
+import org.lttng.flightbox.io.PipelinedEventReader;
+import org.lttng.flightbox.junit.stub.TestStubs;
+import org.lttng.flightbox.stub.StubTraceReader;
+
+public class TestPipelinedEventReader {
+
+	static String[] testTraces = new String[] {	"trace_fork_exit_simple",
+												"trace_cpm1",
+												"trace_statedump_interleaved"};
+
+	public String describe(JniEvent event) {
+		return event.getTimestampNs() + " " + event.getParentTracefile().getTracefileName() 
+			+ event.getParentTracefile().getCpuNumber() + " " 
+			+ event.getMarkersMap().get(event.getEventMarkerId()).getName() + " "
+			+ new TreeMap<String, Object>(event.parseAllFields()) + "\n";
+	}
+
+	public String readSequential(JniTrace trace) {
+		StringBuilder str = new StringBuilder();
+		JniEvent event;
+		while ((event = trace.readNextEvent()) != null) {
+			str.append(describe(event));
+		}
+		return str.toString();
+	}
+
+	public String readPipelined(JniTrace trace, int batchSize, int queueDepth) {
+		return readPipelined(trace, batchSize, queueDepth, null);
+	}
+
+	public String readPipelined(JniTrace trace, int batchSize, int queueDepth, Map<String, Set<String>> hookedEvents) {
+		StringBuilder str = new StringBuilder();
+		PipelinedEventReader reader = new PipelinedEventReader(trace, batchSize, queueDepth);
+		reader.setHookedEvents(hookedEvents);
+		reader.start();
+		JniEvent event;
+		while ((event = reader.readNextEvent()) != null) {
+			str.append(describe(event));
+		}
+		reader.stop();
+		return str.toString();
+	}
+
+	@Test
+	public void testSameOrder() {
+		for (String name: testTraces) {
+			String path = new File(Path.getTestStubDir(), name + ".xml").getPath();
+			String expected = readSequential(StubTraceReader.getJniTrace(path));
+			assertTrue(expected.length() > 0);
+			assertEquals(name, expected, readPipelined(StubTraceReader.getJniTrace(path), 1, 1));
+			assertEquals(name, expected, readPipelined(StubTraceReader.getJniTrace(path), 3, 2));
+			assertEquals(name, expected, readPipelined(StubTraceReader.getJniTrace(path), 
+					PipelinedEventReader.DEFAULT_BATCH_SIZE, PipelinedEventReader.DEFAULT_QUEUE_DEPTH));
+		}
+	}
+
+	@Test
+	public void testEnabledTracefiles() {
+		String path = new File(Path.getTestStubDir(), TestStubs.traceFile).getPath();
+		JniTrace trace = StubTraceReader.getJniTrace(path);
+		trace.setEnabledTracefiles(Collections.singleton("kernel"));
+		String events = readPipelined(trace, 2, 1);
+		assertEquals(8, events.split("\n").length);
+	}
+
+	@Test
+	public void testHookedEvents() {
+		String path = new File(Path.getTestStubDir(), "trace_fork_exit_simple.xml").getPath();
+		Map<String, Set<String>> hooked = new HashMap<String, Set<String>>();
+		hooked.put("kernel", Collections.singleton("process_fork"));
+		String[] events = readPipelined(StubTraceReader.getJniTrace(path), 2, 1, hooked).split("\n");
+		assertEquals(11, events.length);
+		for (String event: events) {
+			/* batches are recycled, fields are still those of their event */
+			if (event.contains("process_fork"))
+				assertTrue(event, event.contains("child_pid"));
+			else
+				assertTrue(event, event.endsWith("{}"));
+		}
+	}
+
+	@Test
+	public void testStopBeforeEnd() {
+		String path = new File(Path.getTestStubDir(), "trace_cpm1.xml").getPath();
+		PipelinedEventReader reader = new PipelinedEventReader(StubTraceReader.getJniTrace(path), 1, 1);
+		reader.start();
+		assertTrue(reader.readNextEvent() != null);
+		reader.stop();
+	}
+}
@@ -150,7 +150,7 @@ public class TestTraceReader {
 			hooks.add(new TraceHook());
 		}
 		public void handle_all_event(TraceReader reader, JniEvent event) {
-			TimeKeeper instance = TimeKeeper.getInstance();
+			TimeKeeper instance = reader.getSession().getTimeKeeper();
 			assertEquals(event.getEventTime().getTime(), instance.getCurrentTime());
 		}
 	}
@@ -0,0 +1,249 @@
+package org.lttng.flightbox.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.junit.Test;
+import org.lttng.flightbox.io.FieldRef;
+import org.lttng.flightbox.io.ITraceHookCallback;
+import org.lttng.flightbox.io.ReaderProfile;
+import org.lttng.flightbox.io.TraceEventHandlerBase;
+import org.lttng.flightbox.io.TraceEventHandlerCounter;
+import org.lttng.flightbox.io.TraceHook;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.junit.stub.TestStubs;
+import org.lttng.flightbox.stub.StubTraceReader;
+
+public class TestTraceReaderDispatch {
+
+	class ScheduleCounter extends TraceEventHandlerBase {
+		int count = 0;
+		int seenByCounter = -1;
+		TraceEventHandlerCounter counter;
+		public ScheduleCounter(Integer priority, TraceEventHandlerCounter c) {
+			super(priority);
+			counter = c;
+			hooks.add(new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+				public void handleEvent(TraceReader reader, JniEvent event) {
+					count++;
+					seenByCounter = counter.getCount();
+				}
+			}));
+		}
+	}
+
+	class ScheduleFields extends TraceEventHandlerBase {
+		int mismatch = 0;
+		long pidSum = 0;
+		final FieldRef nextPid;
+		public ScheduleFields() {
+			super();
+			TraceHook hook = new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+				public void handleEvent(TraceReader reader, JniEvent event) {
+					long pid = nextPid.getLong(event);
+					if (pid != (Long) event.parseFieldByName("next_pid"))
+						mismatch++;
+					pidSum += pid;
+				}
+			});
+			nextPid = hook.addField("next_pid");
+			hooks.add(hook);
+		}
+	}
+
+	class TimeRecorder extends TraceEventHandlerBase {
+		ArrayList<Long> times = new ArrayList<Long>();
+		public TimeRecorder() {
+			super();
+			hooks.add(new TraceHook(new ITraceHookCallback() {
+				public void handleEvent(TraceReader reader, JniEvent event) {
+					times.add(event.getTimestampNs());
+				}
+			}));
+		}
+	}
+
+	@Test
+	public void testEventAndCatchAllHooks() throws JniException {
+		File file = new File(Path.getTestStubDir(), TestStubs.traceFile);
+		StubTraceReader reader = new StubTraceReader(file.getPath());
+		TraceEventHandlerCounter counter = new TraceEventHandlerCounter(1);
+		ScheduleCounter sched = new ScheduleCounter(2, counter);
+		reader.register(counter);
+		reader.register(sched);
+		reader.process();
+		assertFalse(reader.isCancel());
+		assertEquals(11, counter.getCount());
+		assertEquals(4, sched.count);
+		/* the catch-all hook has higher priority, it saw the last event first */
+		assertEquals(11, sched.seenByCounter);
+	}
+
+	@Test
+	public void testFieldRef() throws JniException {
+		File file = new File(Path.getTestStubDir(), TestStubs.traceFile);
+		StubTraceReader reader = new StubTraceReader(file.getPath());
+		ScheduleFields fields = new ScheduleFields();
+		reader.register(fields);
+		reader.process();
+		assertEquals(0, fields.mismatch);
+		assertTrue(fields.pidSum > 0);
+	}
+
+	@Test
+	public void testProcessWindow() throws JniException {
+		String path = new File(Path.getTestStubDir(), "trace_cpm1.xml").getPath();
+		TimeRecorder all = new TimeRecorder();
+		StubTraceReader reader = new StubTraceReader(path);
+		reader.register(all);
+		reader.process();
+		int n = all.times.size();
+		assertTrue(n > 4);
+		long start = all.times.get(n / 4);
+		long end = all.times.get(3 * n / 4);
+		ArrayList<Long> expected = new ArrayList<Long>();
+		for (Long t: all.times) {
+			if (t >= start && t <= end)
+				expected.add(t);
+		}
+		for (boolean pipelined: new boolean[] { false, true }) {
+			TimeRecorder window = new TimeRecorder();
+			reader = new StubTraceReader(path);
+			reader.setPipelined(pipelined);
+			reader.register(window);
+			reader.process(start, end);
+			assertEquals(expected, window.times);
+		}
+	}
+
+	@Test
+	public void testProfile() throws JniException {
+		File file = new File(Path.getTestStubDir(), TestStubs.traceFile);
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ReaderProfile profile = new ReaderProfile();
+		profile.setSamplePeriod(2);
+		final boolean[] registered = new boolean[] { false };
+		TraceEventHandlerCounter counter = new TraceEventHandlerCounter(1);
+		ScheduleCounter sched = new ScheduleCounter(2, counter);
+		StubTraceReader reader = new StubTraceReader(file.getPath());
+		reader.setProfile(profile);
+		reader.register(counter);
+		reader.register(sched);
+		reader.register(new TraceEventHandlerBase() {
+			{
+				hooks.add(new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+					public void handleEvent(TraceReader reader, JniEvent event) {
+						registered[0] = server.isRegistered(profile.getObjectName());
+					}
+				}));
+			}
+		});
+		reader.process();
+		assertTrue(registered[0]);
+		assertNull(profile.getObjectName());
+		assertEquals(11, profile.getEventCount());
+		long calls = 0;
+		for (long n: profile.getHookInvocations()) {
+			calls += n;
+		}
+		assertEquals(counter.getCount() + 2 * sched.count, calls);
+		assertEquals(3, profile.getHookNames().length);
+		assertTrue(profile.getTable().contains("TraceEventHandlerCounter *"));
+	}
+
+	@Test
+	public void testProfileUnregisteredOnError() throws JniException {
+		File file = new File(Path.getTestStubDir(), TestStubs.traceFile);
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ReaderProfile profile = new ReaderProfile();
+		final ObjectName[] name = new ObjectName[1];
+		StubTraceReader reader = new StubTraceReader(file.getPath());
+		reader.setProfile(profile);
+		reader.register(new TraceEventHandlerBase() {
+			{
+				hooks.add(new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+					public void handleEvent(TraceReader reader, JniEvent event) {
+						name[0] = profile.getObjectName();
+					}
+				}));
+			}
+			@Override
+			public void handleComplete(TraceReader reader) {
+				throw new IllegalStateException("handler failed");
+			}
+		});
+		try {
+			reader.process();
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		assertNotNull(name[0]);
+		assertFalse(server.isRegistered(name[0]));
+		assertNull(profile.getObjectName());
+	}
+
+	@Test
+	public void testHookedChannels() {
+		File file = new File(Path.getTestStubDir(), TestStubs.traceFile);
+		StubTraceReader reader = new StubTraceReader(file.getPath());
+		TraceEventHandlerCounter counter = new TraceEventHandlerCounter(1);
+		reader.register(new ScheduleCounter(2, counter));
+		assertEquals(Collections.singleton("kernel"), reader.getHookedChannels());
+		reader.register(counter);
+		assertNull(reader.getHookedChannels());
+	}
+
+	@Test
+	public void testEnabledTracefiles() {
+		File file = new File(Path.getTestStubDir(), TestStubs.traceFile);
+		JniTrace trace = StubTraceReader.getJniTrace(file.getPath());
+		trace.setEnabledTracefiles(Collections.singleton("kernel"));
+		int count = 0;
+		long last = 0;
+		JniEvent event;
+		while ((event = trace.readNextEvent()) != null) {
+			assertEquals("kernel", event.getParentTracefile().getTracefileName());
+			assertEquals(event.getEventTime().getTime(), event.getTimestampNs());
+			assertTrue(event.getTimestampNs() >= last);
+			last = event.getTimestampNs();
+			count++;
+		}
+		assertEquals(8, count);
+	}
+
+	@Test
+	public void testReflectiveHook() throws JniException {
+		File file = new File(Path.getTestStubDir(), TestStubs.traceFile);
+		StubTraceReader reader = new StubTraceReader(file.getPath());
+		ForkCounter fork = new ForkCounter();
+		reader.register(fork);
+		reader.process();
+		assertEquals(2, fork.count);
+	}
+
+	public static class ForkCounter extends TraceEventHandlerBase {
+		public int count = 0;
+		public ForkCounter() {
+			super();
+			hooks.add(new TraceHook("kernel", "process_fork"));
+		}
+		public void handle_kernel_process_fork(TraceReader reader, JniEvent event) {
+			count++;
+		}
+	}
+}
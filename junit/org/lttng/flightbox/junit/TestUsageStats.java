@@ -33,6 +33,21 @@ public class TestUsageStats {
 		assertEquals(0.3, stats.getStats(0L).getIntervalByTime(15).getTime(mode), p);
 	}
 	
+	@Test
+	public void testExtendTo() {
+		ResourceUsage<Long> stats = new ResourceUsage<Long>(0L, 30L, 10);
+		TaskState mode = TaskState.USER;
+		stats.addInterval(10L, 20L, 0L, mode);
+		stats.extendTo(100);
+		stats.addInterval(90L, 100L, 1L, mode);
+		assertEquals(120, stats.getEnd(), p);
+		assertEquals(10, stats.getStats(0L).size());
+		assertEquals(12, stats.getStats(0L).getBinDuration(), p);
+		assertEquals(stats.getStats(0L).getBinDuration(), stats.getStats(1L).getBinDuration(), p);
+		assertEquals(20, stats.getTotal().getSum().getTime(mode), p);
+		assertEquals(10, stats.getStats(0L).getSum(0, 24).getTime(mode), p);
+	}
+
 	@Test
 	public void testAddIntervalAvg() {
 		ResourceUsage<Long> stats = new ResourceUsage<Long>(0L, 30L, 100);
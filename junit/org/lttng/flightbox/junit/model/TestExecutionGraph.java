@@ -45,7 +45,7 @@ public class TestExecutionGraph {
 		}
 		ModelBuilder.buildFromStubTrace(trace, model);
 		
-		ExecGraph execGraph = ExecGraphManager.getInstance().getGraph();
+		ExecGraph execGraph = listener.getGraphManager().getGraph();
 		GraphUtils.saveGraphDefault(execGraph, name);
 	}
 	
@@ -61,7 +61,7 @@ public class TestExecutionGraph {
 
 		ModelBuilder.buildFromStubTrace(trace, model);
 		
-		ExecGraphManager graphManager = ExecGraphManager.getInstance();
+		ExecGraphManager graphManager = listener.getGraphManager();
 		WeightedGraph<ExecVertex, ExecEdge> execGraph = graphManager.getGraph();
 		Task master = model.getLatestTaskByPID(1);
 		SortedSet<ExecVertex> set = graphManager.getVertexSetForTask(master);
@@ -1,6 +1,7 @@
 package org.lttng.flightbox.junit.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.TreeSet;
@@ -83,4 +84,46 @@ public class TestFileDescriptors {
 		}
 		assertEquals(0, fdSet.historySize());
 	}
+
+	private SocketInet makeSocket(int fd, long ts, long ptr) {
+		SocketInet sock = new SocketInet();
+		sock.setFd(fd);
+		sock.setStartTime(ts);
+		sock.setPointer(ptr);
+		return sock;
+	}
+
+	@Test
+	public void testFindSocketByPointer() {
+		FileDescriptorSet fdSet = new FileDescriptorSet();
+		int n = 1000;
+		for (int i = 0; i < n; i++) {
+			fdSet.add(makeSocket(i + 3, i, 0xffff880000000000L + i * 64));
+		}
+		for (int i = 0; i < n; i++) {
+			SocketInet sock = fdSet.findSocketByPointer(0xffff880000000000L + i * 64);
+			assertEquals(i + 3, sock.getFd());
+		}
+		assertNull(fdSet.findSocketByPointer(0xffff880000000000L + 1));
+
+		// close, then the pointer is reused by another socket
+		long ptr = 0xffff880000000000L;
+		SocketInet first = fdSet.findSocketByPointer(ptr);
+		fdSet.close(first);
+		assertNull(fdSet.findSocketByPointer(ptr));
+		SocketInet second = makeSocket(n + 3, n, ptr);
+		fdSet.add(second);
+		assertEquals(second, fdSet.findSocketByPointer(ptr));
+		fdSet.close(first);
+		assertEquals(second, fdSet.findSocketByPointer(ptr));
+
+		// the fd number is reused
+		SocketInet third = makeSocket(n + 3, n + 1, ptr + 8);
+		fdSet.add(third);
+		assertNull(fdSet.findSocketByPointer(ptr));
+		assertEquals(third, fdSet.findSocketByPointer(ptr + 8));
+
+		fdSet.remove(third);
+		assertNull(fdSet.findSocketByPointer(ptr + 8));
+	}
 }
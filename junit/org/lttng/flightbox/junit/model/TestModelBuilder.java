@@ -0,0 +1,363 @@
+package org.lttng.flightbox.junit.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.jdom.Document;
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.lttng.flightbox.cpu.TraceEventHandlerProcess;
+import org.lttng.flightbox.io.CheckpointIndex;
+import org.lttng.flightbox.io.ITraceEventHandler;
+import org.lttng.flightbox.io.ITraceFollowHandler;
+import org.lttng.flightbox.io.ITraceHookCallback;
+import org.lttng.flightbox.io.ModelBuilder;
+import org.lttng.flightbox.io.TraceEventHandlerModel;
+import org.lttng.flightbox.io.TraceEventHandlerBase;
+import org.lttng.flightbox.io.TraceEventHandlerModelMeta;
+import org.lttng.flightbox.io.TraceHook;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.model.AbstractTaskListener;
+import org.lttng.flightbox.model.Processor;
+import org.lttng.flightbox.model.SystemModel;
+import org.lttng.flightbox.model.Task;
+import org.lttng.flightbox.model.Task.TaskState;
+import org.lttng.flightbox.model.state.StateInfo;
+import org.lttng.flightbox.statistics.ResourceUsage;
+import org.lttng.flightbox.stub.StubJniTrace;
+import org.lttng.flightbox.stub.StubTraceReader;
+
+public class TestModelBuilder {
+
+	static String[] testTraces = new String[] {	"trace_fork_exit_simple", 
+												"trace_fork_exit_wait",
+												"trace_cpm1",
+												"trace_statedump_interleaved"};
+
+	class RecordingTaskListener extends AbstractTaskListener {
+		StringBuilder str = new StringBuilder();
+		@Override
+		public void pushState(Task task, StateInfo nextState) {
+			str.append("push " + task + " " + nextState + " " + nextState.getStartTime() + "\n");
+		}
+		@Override
+		public void popState(Task task, StateInfo nextState) {
+			str.append("pop " + task + " " + nextState + "\n");
+		}
+	}
+
+	@Test
+	public void testSinglePassEqualsTwoPass() throws JniException {
+		for (String name: testTraces) {
+			String trace = "tests/stub/" + name + ".xml";
+
+			SystemModel twoPass = new SystemModel();
+			RecordingTaskListener twoPassEvents = new RecordingTaskListener();
+			twoPass.addTaskListener(twoPassEvents);
+			buildTwoPass(trace, twoPass);
+
+			SystemModel singlePass = new SystemModel();
+			RecordingTaskListener singlePassEvents = new RecordingTaskListener();
+			singlePass.addTaskListener(singlePassEvents);
+			ModelBuilder.buildFromStubTrace(trace, singlePass);
+
+			assertTrue(dumpModel(twoPass).length() > 0);
+			assertEquals(name, dumpModel(twoPass), dumpModel(singlePass));
+			assertEquals(name, twoPassEvents.str.toString(), singlePassEvents.str.toString());
+		}
+	}
+
+	@Test
+	public void testPipelinedEqualsSequential() throws JniException {
+		for (String name: testTraces) {
+			String trace = "tests/stub/" + name + ".xml";
+
+			SystemModel sequential = new SystemModel();
+			RecordingTaskListener sequentialEvents = new RecordingTaskListener();
+			sequential.addTaskListener(sequentialEvents);
+			ModelBuilder.buildFromStubTrace(trace, sequential);
+
+			SystemModel pipelined = new SystemModel();
+			RecordingTaskListener pipelinedEvents = new RecordingTaskListener();
+			pipelined.addTaskListener(pipelinedEvents);
+			TraceReader reader = new StubTraceReader(trace);
+			reader.setPipelined(true);
+			ModelBuilder.build(reader, pipelined, null);
+
+			assertEquals(name, dumpModel(sequential), dumpModel(pipelined));
+			assertEquals(name, sequentialEvents.str.toString(), pipelinedEvents.str.toString());
+		}
+	}
+
+	@Test
+	public void testWindowFromCheckpoint() throws JniException, IOException {
+		for (String name: testTraces) {
+			String trace = "tests/stub/" + name + ".xml";
+			File indexFile = File.createTempFile(name, CheckpointIndex.SUFFIX);
+			indexFile.deleteOnExit();
+
+			SystemModel full = new SystemModel();
+			ModelBuilder.buildWithCheckpoints(new StubTraceReader(trace), full, null, indexFile, 1, Long.MAX_VALUE);
+
+			CheckpointIndex index = CheckpointIndex.open(indexFile);
+			assertTrue(name, index.size() > 0);
+			for (int i = 0; i < index.size(); i++) {
+				SystemModel window = new SystemModel();
+				ModelBuilder.buildWindow(new StubTraceReader(trace), window, null, indexFile, index.getTimestamp(i), Long.MAX_VALUE);
+				assertEquals(name + " " + i, dumpCurrent(full), dumpCurrent(window));
+			}
+			index.close();
+			indexFile.delete();
+		}
+	}
+
+	/* records the number of events read when the first schedule is handled */
+	class ScheduleRecorder extends TraceEventHandlerBase {
+		long readAtFirst = -1;
+		public ScheduleRecorder() {
+			hooks.add(new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+				public void handleEvent(TraceReader reader, JniEvent event) {
+					if (readAtFirst < 0)
+						readAtFirst = reader.getEventCount();
+				}
+			}));
+		}
+	}
+
+	@Test
+	public void testDeferralBounded() throws JniException {
+		/* held until statedump_end, schedules inside the statedump too */
+		ScheduleRecorder recorder = new ScheduleRecorder();
+		TraceReader reader = new StubTraceReader("tests/stub/trace_statedump_interleaved.xml");
+		ModelBuilder.build(reader, new SystemModel(), new ITraceEventHandler[] { recorder });
+		assertEquals(5, recorder.readAtFirst);
+		assertFalse(reader.isDeferredOverflow());
+
+		/* without statedump_end, held until the end of the trace */
+		recorder = new ScheduleRecorder();
+		ModelBuilder.build(new StubTraceReader("tests/stub/trace_statedump_truncated.xml"), new SystemModel(),
+				new ITraceEventHandler[] { recorder });
+		assertEquals(6, recorder.readAtFirst);
+
+		/* unless the deferred events exceed the bound */
+		recorder = new ScheduleRecorder();
+		reader = new StubTraceReader("tests/stub/trace_statedump_truncated.xml");
+		reader.setMaxDeferredBytes(1);
+		ModelBuilder.build(reader, new SystemModel(), new ITraceEventHandler[] { recorder });
+		assertEquals(3, recorder.readAtFirst);
+		assertTrue(reader.isDeferredOverflow());
+
+		/* not held at all without statedump */
+		recorder = new ScheduleRecorder();
+		SystemModel model = new SystemModel();
+		ModelBuilder.build(new StubTraceReader("tests/stub/trace_no_statedump.xml"), model,
+				new ITraceEventHandler[] { recorder });
+		assertEquals(1, recorder.readAtFirst);
+		assertTrue(model.getLatestTaskByPID(2) != null);
+	}
+
+	/* trace that has step more events each time it is opened */
+	class GrowingStubTraceReader extends StubTraceReader {
+		Document doc;
+		Document inventory;
+		int size;
+		int step;
+		public GrowingStubTraceReader(String tracePath, int step) throws Exception {
+			super(tracePath);
+			SAXBuilder builder = new SAXBuilder(false);
+			doc = builder.build(new File(tracePath));
+			inventory = builder.build(new File(new File(tracePath).getParentFile(), doc.getRootElement().getAttributeValue("inventory")));
+			this.step = step;
+		}
+		@Override
+		protected JniTrace openTrace() {
+			size += step;
+			Document part = (Document) doc.clone();
+			List events = part.getRootElement().getChild("events").getChildren("event");
+			while (events.size() > size)
+				events.remove(events.size() - 1);
+			StubJniTrace trace = new StubJniTrace();
+			trace.setEventsSource(part, inventory);
+			return trace;
+		}
+		int getTotal() {
+			return doc.getRootElement().getChild("events").getChildren("event").size();
+		}
+	}
+
+	class FollowCanceller extends TraceEventHandlerBase implements ITraceFollowHandler {
+		int updates;
+		int total;
+		public FollowCanceller(int total) {
+			this.total = total;
+			hooks.add(new TraceHook(new ITraceHookCallback() {
+				public void handleEvent(TraceReader reader, JniEvent event) {
+				}
+			}));
+		}
+		@Override
+		public void handleUpdate(TraceReader reader, JniTrace trace) {
+			updates++;
+			if (reader.getEventCount() >= total)
+				reader.cancel();
+		}
+	}
+
+	@Test
+	public void testFollowGrowingTrace() throws Exception {
+		for (String name: testTraces) {
+			String trace = "tests/stub/" + name + ".xml";
+
+			SystemModel full = new SystemModel();
+			RecordingTaskListener fullEvents = new RecordingTaskListener();
+			full.addTaskListener(fullEvents);
+			ModelBuilder.buildFromStubTrace(trace, full);
+
+			SystemModel followed = new SystemModel();
+			RecordingTaskListener followedEvents = new RecordingTaskListener();
+			followed.addTaskListener(followedEvents);
+			GrowingStubTraceReader reader = new GrowingStubTraceReader(trace, 3);
+			FollowCanceller canceller = new FollowCanceller(reader.getTotal());
+			ModelBuilder.follow(reader, followed, new ITraceEventHandler[] { canceller }, 1);
+
+			assertTrue(name, canceller.updates > 0);
+			assertEquals(name, reader.getTotal(), reader.getEventCount());
+			assertEquals(name, dumpModel(full), dumpModel(followed));
+			assertEquals(name, fullEvents.str.toString(), followedEvents.str.toString());
+		}
+	}
+
+	@Test
+	public void testFollowCpuUsage() throws Exception {
+		String trace = "tests/stub/trace_fork_exit_wait.xml";
+
+		TraceEventHandlerProcess full = new TraceEventHandlerProcess();
+		TraceReader reader = new StubTraceReader(trace);
+		reader.register(full);
+		reader.process();
+
+		/* the first open ends with the statedump, before any schedule */
+		TraceEventHandlerProcess followed = new TraceEventHandlerProcess();
+		GrowingStubTraceReader growing = new GrowingStubTraceReader(trace, 3);
+		FollowCanceller canceller = new FollowCanceller(growing.getTotal());
+		growing.register(followed);
+		growing.register(canceller);
+		growing.follow(1);
+
+		ResourceUsage<Long> fullStats = full.getUsageStats();
+		ResourceUsage<Long> followedStats = followed.getUsageStats();
+		assertTrue(fullStats.getTotal().getSum().getTime(TaskState.USER) > 0);
+		assertEquals(fullStats.idSet(), followedStats.idSet());
+		for (Long pid: fullStats.idSet()) {
+			assertEquals("pid " + pid, fullStats.getStats(pid).getSum().getTime(TaskState.USER),
+					followedStats.getStats(pid).getSum().getTime(TaskState.USER), 1e-6);
+		}
+	}
+
+	@Test
+	public void testConcurrentBuilds() throws Exception {
+		final int rounds = 4;
+		final String[] expected = new String[testTraces.length];
+		for (int i = 0; i < testTraces.length; i++) {
+			SystemModel model = new SystemModel();
+			ModelBuilder.buildFromStubTrace("tests/stub/" + testTraces[i] + ".xml", model);
+			expected[i] = dumpModel(model);
+		}
+		final String[][] results = new String[rounds][testTraces.length];
+		Thread[] threads = new Thread[rounds * testTraces.length];
+		for (int r = 0; r < rounds; r++) {
+			for (int i = 0; i < testTraces.length; i++) {
+				final int round = r;
+				final int index = i;
+				threads[r * testTraces.length + i] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							SystemModel model = new SystemModel();
+							ModelBuilder.buildFromStubTrace("tests/stub/" + testTraces[index] + ".xml", model);
+							results[round][index] = dumpModel(model);
+						} catch (JniException e) {
+							e.printStackTrace();
+						}
+					}
+				};
+			}
+		}
+		for (Thread t: threads) {
+			t.start();
+		}
+		for (Thread t: threads) {
+			t.join();
+		}
+		for (int r = 0; r < rounds; r++) {
+			for (int i = 0; i < testTraces.length; i++) {
+				assertEquals(testTraces[i], expected[i], results[r][i]);
+			}
+		}
+	}
+
+	public void buildTwoPass(String trace, SystemModel model) throws JniException {
+		TraceEventHandlerModelMeta handlerMeta = new TraceEventHandlerModelMeta();
+		handlerMeta.setModel(model);
+		TraceReader readerMeta = new StubTraceReader(trace);
+		readerMeta.register(handlerMeta);
+		readerMeta.process();
+
+		TraceEventHandlerModel handler = new TraceEventHandlerModel();
+		handler.setModel(model);
+		TraceReader readerTrace = new StubTraceReader(trace);
+		readerTrace.register(handler);
+		readerTrace.process();
+	}
+
+	public String dumpModel(SystemModel model) {
+		StringBuilder str = new StringBuilder();
+		str.append("cpus " + model.getProcessors().size() + "\n");
+		str.append(model.getSyscallTable().dumpTable());
+		str.append(model.getInterruptTable().dumpTable());
+		str.append(model.getSoftIRQTable().dumpTable());
+		TreeMap<Integer, List<Task>> tasks = new TreeMap<Integer, List<Task>>(model.getTasks());
+		for (List<Task> set: tasks.values()) {
+			for (Task t: set) {
+				str.append(t + " cmd=" + t.getCmd() + " tgid=" + t.getThreadGroupId());
+				str.append(" parent=" + t.getParentProcess());
+				str.append(" start=" + t.getStartTime() + " end=" + t.getEndTime());
+				str.append(" exit=" + t.getExitStatus() + " kernel=" + t.isKernelThread());
+				str.append(" fds=" + t.getFileDescriptors().size() + "\n");
+				for (StateInfo info: t.getStates()) {
+					str.append("  " + info + " " + info.getStartTime() + " " + info.getEndTime() + "\n");
+				}
+			}
+		}
+		for (Task t: new TreeMap<Integer, Task>(model.getLatestTasks()).values()) {
+			str.append("latest " + t + " " + t.getStartTime() + "\n");
+		}
+		return str.toString();
+	}
+
+	public String dumpCurrent(SystemModel model) {
+		StringBuilder str = new StringBuilder();
+		str.append(model.getSyscallTable().dumpTable());
+		for (Processor p: model.getProcessors()) {
+			str.append("cpu " + p.getId() + " " + p.getCurrentTask() + "\n");
+		}
+		for (Task t: new TreeMap<Integer, Task>(model.getLatestTasks()).values()) {
+			str.append(t + " cmd=" + t.getCmd() + " parent=" + t.getParentProcess());
+			str.append(" start=" + t.getStartTime() + " end=" + t.getEndTime());
+			str.append(" fds=" + t.getOpenedFileDescriptors().size() + "\n");
+			for (StateInfo info: t.getStates()) {
+				str.append("  " + info + " " + info.getStartTime() + " " + info.getEndTime() + "\n");
+			}
+		}
+		return str.toString();
+	}
+}
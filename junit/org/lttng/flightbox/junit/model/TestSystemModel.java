@@ -1,9 +1,12 @@
 package org.lttng.flightbox.junit.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.List;
 import java.util.TreeSet;
 
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
@@ -13,6 +16,7 @@ import org.lttng.flightbox.junit.Path;
 import org.lttng.flightbox.model.ITaskListener;
 import org.lttng.flightbox.model.Processor;
 import org.lttng.flightbox.model.ProcessorListener;
+import org.lttng.flightbox.model.SocketInet;
 import org.lttng.flightbox.model.SystemModel;
 import org.lttng.flightbox.model.Task;
 import org.lttng.flightbox.model.state.StateInfo;
@@ -100,4 +104,142 @@ public class TestSystemModel {
 		TreeSet<Task> taskSet = model.getTaskByCmdBasename("inception");
 		assertEquals(3, taskSet.size());
 	} 
+
+	@Test
+	public void testTasksByPid() {
+		SystemModel model = new SystemModel();
+		Task t1 = new Task(42, 10);
+		Task t2 = new Task(42, 30);
+		Task t3 = new Task(42, 20);
+		model.addTask(t1);
+		model.addTask(t2);
+		model.addTask(t3);
+		model.addTask(new Task(42, 20));
+		List<Task> history = model.getTasks().get(42);
+		assertEquals(3, history.size());
+		assertEquals(t1, history.get(0));
+		assertEquals(t3, history.get(1));
+		assertEquals(t2, history.get(2));
+		assertEquals(t2, model.getLatestTaskByPID(42));
+		assertEquals(20, model.getLatestTasks().get(42).getStartTime());
+
+		model.removeTask(t2);
+		assertEquals(t3, model.getLatestTaskByPID(42));
+		assertNull(model.getLatestTasks().get(42));
+		assertEquals(1, model.getTasks().size());
+		assertEquals(0, model.getLatestTasks().size());
+		model.removeTask(t1);
+		model.removeTask(t3);
+		assertNull(model.getLatestTaskByPID(42));
+		assertEquals(0, model.getTasks().size());
+	}
+
+	@Test
+	public void testManyPids() {
+		SystemModel model = new SystemModel();
+		int n = 5000;
+		for (int pid = 0; pid < n; pid++) {
+			model.addTask(new Task(pid, pid));
+		}
+		assertEquals(n, model.getTasks().size());
+		assertEquals(n, model.getLatestTasks().size());
+		for (int pid = 0; pid < n; pid += 2) {
+			model.removeTask(model.getLatestTaskByPID(pid));
+		}
+		assertEquals(n / 2, model.getTasks().size());
+		for (int pid = 0; pid < n; pid++) {
+			Task task = model.getLatestTaskByPID(pid);
+			if (pid % 2 == 0) {
+				assertNull(task);
+			} else {
+				assertEquals(pid, task.getProcessId());
+				assertEquals(task, model.getLatestTasks().get(pid));
+			}
+		}
+		int count = 0;
+		for (List<Task> tasks: model.getTasks().values()) {
+			count += tasks.size();
+		}
+		assertEquals(n / 2, count);
+	}
+
+	@Test
+	public void testTaskByCmd() {
+		SystemModel model = new SystemModel();
+		Task parent = new Task(10, 0);
+		parent.setCmd("/bin/bash");
+		model.addTask(parent);
+		Task child = new Task(11, 5);
+		model.addTask(child);
+		child.setCmd(parent.getCmd());
+		assertEquals(2, model.getTaskByCmd("/bin/bash", false).size());
+		assertEquals(2, model.getTaskByCmdBasename("bash").size());
+
+		// exec after fork
+		child.setCmd("/usr/bin/wget");
+		assertEquals(parent, model.getLatestTaskByCmd("/bin/bash"));
+		assertEquals(1, model.getTaskByCmdBasename("bash").size());
+		assertEquals(child, model.getLatestTaskByCmdBasename("wget"));
+		assertEquals(child, model.getLatestTaskByCmdBasename("bin/wget"));
+		assertNull(model.getLatestTaskByCmdBasename("/sbin/wget"));
+		assertNull(model.getLatestTaskByCmd("wget"));
+
+		model.removeTask(child);
+		child.setCmd("/usr/bin/curl");
+		assertEquals(0, model.getTaskByCmdBasename("wget").size());
+		assertEquals(0, model.getTaskByCmdBasename("curl").size());
+	}
+
+	@Test
+	public void testFindComplementSocket() {
+		SystemModel model = new SystemModel();
+		SocketInet client = new SocketInet(0x0A000001L, 40000, 0x0A000002L, 80);
+		SocketInet server = new SocketInet(0x0A000002L, 80, 0x0A000001L, 40000);
+		SocketInet unset = new SocketInet();
+		model.addSocket(client);
+		model.addSocket(server);
+		model.addSocket(unset);
+		assertEquals(server, model.findComplementSocket(client));
+		assertEquals(client, model.findComplementSocket(server));
+		assertNull(model.findComplementSocket(unset));
+
+		// closed sockets are still resolvable
+		model.closeSocket(server);
+		assertEquals(server, model.findComplementSocket(client));
+
+		// until the connection is reused
+		SocketInet reused = new SocketInet(0x0A000002L, 80, 0x0A000001L, 40000);
+		model.addSocket(reused);
+		assertEquals(reused, model.findComplementSocket(client));
+		model.closeSocket(server);
+		assertEquals(reused, model.findComplementSocket(client));
+	}
+
+	@Test
+	public void testFindComplementSocketAfterFork() {
+		SystemModel model = new SystemModel();
+		Task parent = new Task(1, 10);
+		Task child = new Task(2, 20);
+		model.addTask(parent);
+		model.addTask(child);
+		SocketInet client = new SocketInet(0x0A000001L, 40000, 0x0A000002L, 80);
+		model.addSocket(client);
+
+		// accept, then fork: the child inherits a copy of the socket
+		SocketInet accepted = new SocketInet(0x0A000002L, 80, 0x0A000001L, 40000);
+		parent.addFileDescriptor(accepted);
+		model.addSocket(accepted);
+		SocketInet inherited = new SocketInet(0x0A000002L, 80, 0x0A000001L, 40000);
+		child.addFileDescriptor(inherited);
+		model.addSocket(inherited);
+
+		// the parent closes its copy, the child still holds the connection
+		model.closeSocket(accepted);
+		assertSame(inherited, model.findComplementSocket(client));
+		assertSame(child, model.findComplementSocket(client).getOwner());
+
+		// once both are closed, the last one closed
+		model.closeSocket(inherited);
+		assertSame(inherited, model.findComplementSocket(client));
+	}
 }
@@ -9,6 +9,7 @@ import java.util.HashMap;
 
 import org.junit.Test;
 import org.lttng.flightbox.io.TimeKeeper;
+import org.lttng.flightbox.model.ITaskListener;
 import org.lttng.flightbox.model.StateInfoFactory;
 import org.lttng.flightbox.model.SystemModel;
 import org.lttng.flightbox.model.Task;
@@ -115,6 +116,69 @@ public class TestTask {
 		assertEquals("test-file", ((SyscallInfo)listener.currStateInfo).getField(Field.FILENAME));
 	}
 
+	@Test
+	public void testTaskStateStack() {
+		Task t1 = new Task(1, 10L);
+		int depth = 100;
+		for (int i = 0; i < depth; i++) {
+			SyscallInfo info = (SyscallInfo) StateInfoFactory.makeStateInfo(TaskState.SYSCALL);
+			info.setSyscallId(i);
+			t1.pushState(info);
+		}
+		assertEquals(depth, t1.getStates().size());
+		assertEquals(depth - 1, ((SyscallInfo) t1.peekState()).getSyscallId());
+		assertEquals(depth - 3, ((SyscallInfo) t1.peekState(-2)).getSyscallId());
+		assertEquals(0, ((SyscallInfo) t1.peekState(1 - depth)).getSyscallId());
+		assertNull(t1.peekState(-depth));
+		assertNull(t1.peekState(1));
+		assertEquals(0, ((SyscallInfo) t1.getStates().get(0)).getSyscallId());
+		for (int i = depth - 1; i >= 0; i--) {
+			assertEquals(i, ((SyscallInfo) t1.popState()).getSyscallId());
+		}
+		assertNull(t1.popState());
+		assertNull(t1.peekState());
+	}
+
+	@Test
+	public void testRecycleStates() {
+		SystemModel model = new SystemModel();
+		model.setRecycleStates(true);
+		Task t1 = new Task(1, 10L);
+		model.addTask(t1);
+
+		SyscallInfo syscall = (SyscallInfo) model.makeStateInfo(TaskState.SYSCALL);
+		syscall.setSyscallId(42);
+		t1.pushState(syscall);
+		t1.popState();
+		SyscallInfo reused = (SyscallInfo) model.makeStateInfo(TaskState.SYSCALL);
+		assertTrue(reused == syscall);
+		assertEquals(0, reused.getSyscallId());
+
+		// the waiting syscall is referenced by the wait state
+		t1.pushState(reused);
+		WaitInfo wait = (WaitInfo) model.makeStateInfo(TaskState.WAIT);
+		wait.setWaitingSyscall(reused);
+		t1.pushState(wait);
+		t1.popState();
+		t1.popState();
+		assertFalse(model.makeStateInfo(TaskState.SYSCALL) == reused);
+		assertTrue(model.makeStateInfo(TaskState.WAIT) == wait);
+
+		// a listener that does not tell what it keeps disables recycling
+		model.addTaskListener(new ITaskListener() {
+			public void pushState(Task task, StateInfo nextState) {
+			}
+			public void popState(Task task, StateInfo nextState) {
+			}
+			public void setModel(SystemModel model) {
+			}
+		});
+		StateInfo irq = model.makeStateInfo(TaskState.IRQ);
+		t1.pushState(irq);
+		t1.popState();
+		assertFalse(model.makeStateInfo(TaskState.IRQ) == irq);
+	}
+
 	class BlockingListener extends AbstractTaskListener {
 		public HashMap<Task, WaitInfo> blockingInfo = new HashMap<Task, WaitInfo>();
 		@Override
@@ -134,7 +198,7 @@ public class TestTask {
 	public void testTaskDetectBlocking() {
 		Task t1 = new Task(1, 10);
 		Task t2 = new Task(1, 10);
-		TimeKeeper time = TimeKeeper.getInstance();
+		TimeKeeper time = new TimeKeeper();
 		time.setCurrentTime(10);
 
 		BlockingListener listener = new BlockingListener();
@@ -0,0 +1,108 @@
+package org.lttng.flightbox.junit.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.TreeMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.junit.Test;
+import org.lttng.flightbox.io.ModelBuilder;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.junit.model.TestModelBuilder;
+import org.lttng.flightbox.model.SystemModel;
+import org.lttng.flightbox.replay.ReplayExporter;
+import org.lttng.flightbox.replay.ReplayJniTrace;
+import org.lttng.flightbox.replay.ReplayTraceReader;
+import org.lttng.flightbox.replay.ReplayWriter;
+import org.lttng.flightbox.stub.StubTraceReader;
+
+public class TestReplay {
+
+	static String[] testTraces = new String[] {	"trace_fork_exit_simple",
+												"trace_fork_exit_wait",
+												"trace_cpm1",
+												"trace_statedump_interleaved"};
+
+	public String dumpEvents(JniTrace trace) {
+		StringBuilder str = new StringBuilder();
+		JniEvent event;
+		while ((event = trace.readNextEvent()) != null) {
+			str.append(event.getTimestampNs() + " " + event.getParentTracefile().getTracefileName());
+			str.append(" " + event.getParentTracefile().getCpuNumber());
+			str.append(" " + event.requestEventMarker().getName());
+			str.append(" " + new TreeMap<String, Object>(event.parseAllFields()) + "\n");
+		}
+		trace.closeTrace();
+		return str.toString();
+	}
+
+	@Test
+	public void testExportReplay() throws Exception {
+		TestModelBuilder dump = new TestModelBuilder();
+		for (String name: testTraces) {
+			String trace = "tests/stub/" + name + ".xml";
+			File file = File.createTempFile(name, ReplayWriter.SUFFIX);
+			file.deleteOnExit();
+			ReplayExporter.export(new StubTraceReader(trace), file);
+			assertTrue(name, ReplayTraceReader.isReplayFile(file.getPath()));
+
+			assertEquals(name, dumpEvents(StubTraceReader.getJniTrace(trace)), dumpEvents(new ReplayJniTrace(file)));
+
+			SystemModel expected = new SystemModel();
+			ModelBuilder.buildFromStubTrace(trace, expected);
+			SystemModel replayed = new SystemModel();
+			ModelBuilder.build(new ReplayTraceReader(file.getPath()), replayed, null);
+			assertEquals(name, dump.dumpModel(expected), dump.dumpModel(replayed));
+
+			TraceReader pipelined = new ReplayTraceReader(file.getPath());
+			pipelined.setPipelined(true);
+			SystemModel replayedPipelined = new SystemModel();
+			ModelBuilder.build(pipelined, replayedPipelined, null);
+			assertEquals(name, dump.dumpModel(expected), dump.dumpModel(replayedPipelined));
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSeekBlocks() throws Exception {
+		File file = File.createTempFile("seek", ReplayWriter.SUFFIX);
+		file.deleteOnExit();
+		ReplayWriter writer = new ReplayWriter(file);
+		writer.setBlockSize(3);
+		int s0 = writer.addStream("kernel", 0);
+		int s1 = writer.addStream("kernel", 1);
+		int type = writer.addType("kernel", "sched_schedule", new String[] { "cmd", "next_pid" },
+				new byte[] { ReplayWriter.STRING, ReplayWriter.LONG });
+		for (int i = 0; i < 10; i++) {
+			writer.append(i * 10, i % 2 == 0 ? s0 : s1, type, new Object[] { "cmd" + i, (long) i });
+		}
+		writer.close(2, 0, 90);
+
+		ReplayJniTrace trace = new ReplayJniTrace(file);
+		assertEquals(2, trace.getCpuNumber());
+		assertEquals(90L, trace.getEndTime().getTime());
+		trace.seekToTime(new JniTime(35));
+		JniEvent event = trace.readNextEvent();
+		assertEquals(40L, event.getTimestampNs());
+		assertEquals("cmd4", event.parseFieldByName("cmd"));
+		assertEquals(4L, event.parseFieldByName("next_pid"));
+		assertNull(event.parseFieldByName("prev_pid"));
+		int count = 1;
+		while (trace.readNextEvent() != null)
+			count++;
+		assertEquals(6, count);
+
+		/* tracefiles are read on their own */
+		trace.seekToTime(new JniTime(60));
+		JniEvent odd = trace.getTracefilesMap().get("kernel_1").getCurrentEvent();
+		assertEquals(70L, odd.getTimestampNs());
+		assertEquals(1L, odd.getParentTracefile().getCpuNumber());
+		trace.closeTrace();
+		file.delete();
+	}
+}
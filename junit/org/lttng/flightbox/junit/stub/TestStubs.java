@@ -3,13 +3,17 @@ package org.lttng.flightbox.junit.stub;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
 import org.eclipse.linuxtools.lttng.jni.common.JniTime;
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.jdom.Document;
+import org.jdom.input.SAXBuilder;
 import org.junit.Test;
 import org.lttng.flightbox.io.TraceEventHandlerCounter;
 import org.lttng.flightbox.junit.Path;
@@ -97,5 +101,74 @@ public class TestStubs {
 		}
 		assertNotNull(e);
 	}
-	
+
+	public StubJniTrace makeTrace(String events) throws Exception {
+		SAXBuilder builder = new SAXBuilder(false);
+		Document doc = builder.build(new StringReader("<trace cpus=\"2\"><events>" + events + "</events></trace>"));
+		Document inventory = builder.build(new File(Path.getTestStubDir(), "inventory-linux-2.6.35.xml"));
+		StubJniTrace trace = new StubJniTrace();
+		trace.setEventsSource(doc, inventory);
+		return trace;
+	}
+
+	@Test
+	public void testStubSameTimeByStream() throws Exception {
+		StubJniTrace trace = makeTrace(
+				"<event ts=\"1\" cpu=\"1\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"1\" next_pid=\"2\"/>" +
+				"<event ts=\"2\" cpu=\"0\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"3\" next_pid=\"4\"/>" +
+				"<event ts=\"2\" cpu=\"1\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"2\" next_pid=\"1\"/>" +
+				"<event ts=\"2\" cpu=\"0\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"4\" next_pid=\"3\"/>");
+		assertEquals(2L, trace.getEndTime().getTime());
+		long[] expected = new long[] { 1, 1, 2, 1, 2, 0 };
+		JniEvent ev;
+		for (int i = 0; i < expected.length; i += 2) {
+			ev = trace.readNextEvent();
+			assertEquals(expected[i], ev.getTimestampNs());
+			assertEquals(expected[i + 1], ev.getParentTracefile().getCpuNumber());
+		}
+		/* stream of cpu 1 is first, events of cpu 0 keep their order */
+		ev = trace.readNextEvent();
+		assertEquals(0L, ev.getParentTracefile().getCpuNumber());
+		assertEquals(4L, ((Long)ev.parseFieldByName("prev_pid")).longValue());
+		assertNull(trace.readNextEvent());
+	}
+
+	@Test
+	public void testStubTracefilesShareCursor() throws Exception {
+		StubJniTrace trace = makeTrace(
+				"<event ts=\"1\" cpu=\"1\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"1\" next_pid=\"2\"/>" +
+				"<event ts=\"2\" cpu=\"0\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"3\" next_pid=\"4\"/>" +
+				"<event ts=\"2\" cpu=\"1\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"2\" next_pid=\"1\"/>" +
+				"<event ts=\"3\" cpu=\"0\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"4\" next_pid=\"3\"/>");
+		JniTracefile[] tracefiles = trace.getMergedTracefiles();
+		JniTracefile cpu1 = tracefiles[0];
+		JniTracefile cpu0 = tracefiles[1];
+		/* events of cpu 1 are kept while cpu 0 is read to the end */
+		assertEquals(3L, ((Long) cpu0.getCurrentEvent().parseFieldByName("prev_pid")).longValue());
+		assertEquals(JniEvent.EOK, cpu0.readNextEvent());
+		assertEquals(4L, ((Long) cpu0.getCurrentEvent().parseFieldByName("prev_pid")).longValue());
+		assertEquals(JniEvent.ERANGE, cpu0.readNextEvent());
+		assertEquals(1L, cpu1.getCurrentEvent().getTimestampNs());
+		/* seek forward in the shared cursor, then back with its own */
+		assertEquals(JniEvent.EOK, cpu1.seekToTime(new JniTime(2)));
+		assertEquals(2L, ((Long) cpu1.getCurrentEvent().parseFieldByName("prev_pid")).longValue());
+		assertEquals(JniEvent.EOK, cpu1.seekToTime(new JniTime(0)));
+		assertEquals(1L, cpu1.getCurrentEvent().getTimestampNs());
+		assertEquals(JniEvent.EOK, cpu1.readNextEvent());
+		assertEquals(2L, cpu1.getCurrentEvent().getTimestampNs());
+		assertEquals(JniEvent.ERANGE, cpu1.readNextEvent());
+	}
+
+	@Test
+	public void testStubUnsorted() throws Exception {
+		Exception e = null;
+		try {
+			makeTrace(
+				"<event ts=\"2\" cpu=\"0\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"1\" next_pid=\"2\"/>" +
+				"<event ts=\"1\" cpu=\"0\" channel=\"kernel\" name=\"sched_schedule\" prev_pid=\"2\" next_pid=\"1\"/>");
+		} catch (Exception x) {
+			e = x;
+		}
+		assertNotNull(e);
+	}
 }
@@ -0,0 +1,155 @@
+package org.lttng.flightbox.junit.stub;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.junit.Test;
+import org.lttng.flightbox.dep.BlockingItem;
+import org.lttng.flightbox.dep.BlockingTaskListener;
+import org.lttng.flightbox.io.ModelBuilder;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.junit.Path;
+import org.lttng.flightbox.junit.model.TestModelBuilder;
+import org.lttng.flightbox.model.FileDescriptor;
+import org.lttng.flightbox.model.SocketInet;
+import org.lttng.flightbox.model.SystemModel;
+import org.lttng.flightbox.model.Task;
+import org.lttng.flightbox.stub.StubTraceReader;
+import org.lttng.flightbox.stub.SyntheticTraceGenerator;
+import org.lttng.flightbox.stub.SyntheticTraceReader;
+
+public class TestSyntheticTrace {
+
+	public static SyntheticTraceGenerator makeGenerator(long events) {
+		SyntheticTraceGenerator generator = new SyntheticTraceGenerator();
+		generator.setCpus(2);
+		generator.setTasks(16);
+		generator.setEvents(events);
+		return generator;
+	}
+
+	public String dumpEvents(JniTrace trace) {
+		StringBuilder str = new StringBuilder();
+		JniEvent event;
+		while ((event = trace.readNextEvent()) != null) {
+			TreeMap<String, Object> fields = new TreeMap<String, Object>(event.parseAllFields());
+			/* not in stub traces */
+			fields.remove("name");
+			str.append(event.getTimestampNs() + " " + event.getParentTracefile().getTracefileName());
+			str.append(" " + event.getParentTracefile().getCpuNumber());
+			str.append(" " + event.requestEventMarker().getName());
+			str.append(" " + fields + "\n");
+		}
+		trace.closeTrace();
+		return str.toString();
+	}
+
+	@Test
+	public void testDeterministic() {
+		SyntheticTraceGenerator generator = makeGenerator(5000);
+		String dump = dumpEvents(generator.makeTrace());
+		assertEquals(dump, dumpEvents(generator.makeTrace()));
+		assertEquals(5000, dump.split("\n").length);
+		generator.setSeed(2);
+		assertFalse(dump.equals(dumpEvents(generator.makeTrace())));
+	}
+
+	@Test
+	public void testWriteStub() throws Exception {
+		SyntheticTraceGenerator generator = makeGenerator(2000);
+		File file = File.createTempFile("synthetic", ".xml");
+		file.deleteOnExit();
+		File inventory = new File(Path.getTestStubDir(), SyntheticTraceGenerator.DEFAULT_INVENTORY);
+		generator.writeStub(file, inventory.getAbsolutePath());
+		assertEquals(dumpEvents(generator.makeTrace()), dumpEvents(StubTraceReader.getJniTrace(file.getPath())));
+		file.delete();
+	}
+
+	@Test
+	public void testSeek() {
+		SyntheticTraceGenerator generator = makeGenerator(2000);
+		String dump = dumpEvents(generator.makeTrace());
+		JniTrace trace = generator.makeTrace();
+		trace.seekToTime(new JniTime(100000));
+		String tail = dumpEvents(trace);
+		assertTrue(tail.length() > 0);
+		assertTrue(dump.endsWith(tail));
+		assertTrue(Long.parseLong(tail.substring(0, tail.indexOf(' '))) >= 100000);
+	}
+
+	@Test
+	public void testBuildModel() throws Exception {
+		TestModelBuilder dump = new TestModelBuilder();
+		SyntheticTraceGenerator generator = makeGenerator(50000);
+		SystemModel model = new SystemModel();
+		ModelBuilder.build(new SyntheticTraceReader(generator), model, null);
+		assertEquals(2, model.getProcessors().size());
+		assertTrue(model.getTasks().size() > generator.getTasks());
+
+		int exited = 0;
+		int sockets = 0;
+		int peers = 0;
+		for (List<Task> tasks: model.getTasks().values()) {
+			for (Task task: tasks) {
+				if (task.getEndTime() > 0)
+					exited++;
+				for (FileDescriptor fd: task.getFileDescriptors().values()) {
+					if (fd instanceof SocketInet && ((SocketInet) fd).getIp().isSet()) {
+						sockets++;
+						if (model.findComplementSocket((SocketInet) fd) != null)
+							peers++;
+					}
+				}
+			}
+		}
+		assertTrue(exited > 0);
+		assertTrue(sockets > 0);
+		assertTrue(peers > 0);
+
+		/* tracefiles read on their own give the same model */
+		TraceReader pipelined = new SyntheticTraceReader(generator);
+		pipelined.setPipelined(true);
+		SystemModel pipelinedModel = new SystemModel();
+		ModelBuilder.build(pipelined, pipelinedModel, null);
+		assertEquals(dump.dumpModel(model), dump.dumpModel(pipelinedModel));
+	}
+
+	public String dumpBlocking(SystemModel model) {
+		StringBuilder str = new StringBuilder();
+		for (List<Task> tasks: new TreeMap<Integer, List<Task>>(model.getTasks()).values()) {
+			for (Task task: tasks) {
+				for (BlockingItem item: model.getBlockingModel().getBlockingItemsForTask(task)) {
+					str.append(task + " " + item.getStartTime() + " " + item.getEndTime());
+					str.append(" " + item.getWaitingSyscall() + " " + item.getWakeUp() + "\n");
+				}
+			}
+		}
+		return str.toString();
+	}
+
+	@Test
+	public void testRecycleStates() throws Exception {
+		TestModelBuilder dump = new TestModelBuilder();
+		SyntheticTraceGenerator generator = makeGenerator(50000);
+		SystemModel model = new SystemModel();
+		model.addTaskListener(new BlockingTaskListener());
+		ModelBuilder.build(new SyntheticTraceReader(generator), model, null);
+
+		SystemModel recycled = new SystemModel();
+		recycled.setRecycleStates(true);
+		recycled.addTaskListener(new BlockingTaskListener());
+		ModelBuilder.build(new SyntheticTraceReader(generator), recycled, null);
+
+		assertTrue(recycled.getStateInfoFactory().getReusedCount() > 0);
+		assertEquals(dump.dumpModel(model), dump.dumpModel(recycled));
+		assertEquals(dumpBlocking(model), dumpBlocking(recycled));
+	}
+}
@@ -15,6 +15,7 @@ package org.eclipse.linuxtools.lttng.jni;
 import java.util.HashMap;
 
 import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer;
 import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
 import org.eclipse.linuxtools.lttng.jni.exception.JniEventException;
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
@@ -60,6 +61,11 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
     // in java
     private Jni_C_Pointer_And_Library_Id tracefilePtr = new Jni_C_Pointer_And_Library_Id();
     private JniTime eventTime = null;
+    // Same time as eventTime, kept as a primitive for the hot paths
+    private long timestampNs = 0;
+
+    // Raw content of the current event, copied on demand and reused between events
+    private JniPayload payload = null;
 
     // These methods need a tracefile pointer, instead of a event pointer
     protected native int      ltt_readNextEvent(int libId, long tracefilePtr);
@@ -106,6 +112,7 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
 
         tracefilePtr = oldEvent.tracefilePtr;
         eventTime = oldEvent.eventTime;
+        timestampNs = oldEvent.timestampNs;
     }
     
     /**
@@ -243,6 +250,9 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
      */
     public int positionToFirstEvent() {
         eventState = ltt_positionToFirstEvent(tracefilePtr.getLibraryId(), tracefilePtr.getPointer());
+        if (payload != null) {
+            payload.invalidate();
+        }
         
         return eventState;
     }
@@ -274,6 +284,30 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
         return dataContent;
     }
     
+    /**
+     * Obtain the payload of the current event, to decode its fields in java.<p>
+     * 
+     * The raw data is copied from LTT once per event, on the first call. 
+     * The returned object is reused for the next events of this tracefile, it is only valid 
+     * until the event moves.
+     * 
+     * @return The payload of the current event
+     * 
+     * @see org.eclipse.linuxtools.lttng.jni.JniPayload
+     */
+    public JniPayload requestEventPayload() {
+        if (payload == null) {
+            payload = new JniPayload();
+        }
+        if (payload.isLoaded() == false) {
+            long dataSize = getEventDataSize();
+            byte[] dataContent = payload.reserve((int) dataSize);
+            ltt_getDataContent(thisEventPtr.getLibraryId(), thisEventPtr.getPointer(), dataSize, dataContent);
+            payload.load(requestEventMarker(), getParentTracefile());
+        }
+        return payload;
+    }
+    
     /**
      * Obtain an event source.<p>
      * 
@@ -322,6 +356,48 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
         return JniParser.parseField(this, fieldName);
     }
     
+    /**
+     * Parse a field already resolved from the event marker.<p>
+     * 
+     * The field is decoded from the payload when its layout is known, else parsed by LTT.
+     * 
+     * @param markerField   The marker field, from requestEventMarker().
+     * 
+     * @return Object that contain the parsed payload
+     * 
+     * @see org.eclipse.linuxtools.lttng.jni.JniPayload#isDecodable(JniMarkerField)
+     */
+    public Object parseField(JniMarkerField markerField) {
+        if (JniPayload.isDecodable(markerField)) {
+            return requestEventPayload().getObject(markerField);
+        }
+        return JniParser.parseField(this, markerField);
+    }
+    
+    /**
+     * Parse a numeric field already resolved from the event marker, without boxing when it is decodable.<p>
+     * 
+     * @param markerField   The marker field, from requestEventMarker().
+     * 
+     * @return The value of the field, the address for a pointer
+     */
+    public long parseLongField(JniMarkerField markerField) {
+        if (JniPayload.isDecodable(markerField) && markerField.getType() != JniMarkerField.LTT_TYPE_STRING) {
+            return requestEventPayload().getLong(markerField);
+        }
+        return toLong(markerField.getField(), parseField(markerField));
+    }
+    
+    protected static long toLong(String fieldName, Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Jni_C_Pointer) {
+            return ((Jni_C_Pointer) value).getPointer();
+        }
+        throw new RuntimeException("Error: field " + fieldName + " is not numeric: " + value); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    
     /**
      * Method to parse all the event payload.<p>
      * 
@@ -332,6 +408,19 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
     public HashMap<String, Object> parseAllFields() {
         return JniParser.parseAllFields(this);
     }
+    
+    /**
+     * Method to decode all the event payload in java.<p>
+     * 
+     * Same result as parseAllFields(), with a single copy of the payload from LTT.
+     * 
+     * @return HashMap<String, Object> which is the parsedContent objects and their name as key.
+     * 
+     * @see org.eclipse.linuxtools.lttng.jni.JniParser 
+     */
+    public HashMap<String, Object> decodeAllFields() {
+        return JniParser.decodeAllFields(this);
+    }
 
     /* 
      * This function populates the event data with data from LTT
@@ -341,13 +430,28 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
      */
     private void populateEventInformation() {
     	// We need to save the time, as it is not a primitive (can't be dynamically called in getter)
-    	eventTime.setTime(ltt_getNanosencondsTime(thisEventPtr.getLibraryId(), thisEventPtr.getPointer()));
+    	timestampNs = ltt_getNanosencondsTime(thisEventPtr.getLibraryId(), thisEventPtr.getPointer());
+    	eventTime.setTime(timestampNs);
+    	if (payload != null) {
+    	    payload.invalidate();
+    	}
     }
     
     public JniTime getEventTime() {
         return eventTime;
     }
     
+    /**
+     * Time of the event, in nanoseconds.<p>
+     * 
+     * Same value as getEventTime().getTime(), without dereferencing a JniTime.
+     * 
+     * @return The timestamp of the event
+     */
+    public long getTimestampNs() {
+        return timestampNs;
+    }
+    
     // *** To get better performance, all getter belows call LTT directly ****
     //     That way, we can avoid copying data into memory
     public int getEventMarkerId() {
@@ -407,7 +511,7 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
     
 	public boolean equals(JniEvent other) {
 		if (other != null) {
-			return (this.getEventTime().equals(other.getEventTime())
+			return (this.getTimestampNs() == other.getTimestampNs()
 				&&	this.parentTracefile.equals(other.parentTracefile));
 		}
 		return false;
@@ -430,7 +534,9 @@ public abstract class JniEvent extends Jni_C_Common implements Comparable<JniEve
 		// Test against null before performing anything
 		if (other != null) {
 			// Compare the timestamp first
-			eventComparaison = this.getEventTime().compareTo(other.getEventTime());
+			long thisTime = this.getTimestampNs();
+			long otherTime = other.getTimestampNs();
+			eventComparaison = (thisTime < otherTime) ? -1 : ((thisTime == otherTime) ? 0 : 1);
 
 			// If timestamp is equal, compare the parent trace file ("event type")
 			if ((eventComparaison == 0)
@@ -135,6 +135,7 @@ public abstract class JniMarker extends Jni_C_Common
         // the maker field fill itself with LTT data while being constructed
         try {
             JniMarkerField newMarkerField = allocateNewJniMarkerField( new Jni_C_Pointer_And_Library_Id(thisMarkerPtr.getLibraryId(), markerFieldPtr));
+            newMarkerField.setPosition(markerFieldsArrayList.size());
             markerFieldsArrayList.add(newMarkerField);
             markerFieldsHashMap.put(markerFieldName, newMarkerField);
             
@@ -29,6 +29,29 @@ public abstract class JniMarkerField extends Jni_C_Common
     private String field = ""; //$NON-NLS-1$
     private String format = ""; //$NON-NLS-1$
     
+    // Field types, as defined in enum ltt_type of LTT
+    public static final int LTT_TYPE_SIGNED_INT   = 0;
+    public static final int LTT_TYPE_UNSIGNED_INT = 1;
+    public static final int LTT_TYPE_POINTER      = 2;
+    public static final int LTT_TYPE_STRING       = 3;
+    public static final int LTT_TYPE_COMPACT      = 4;
+    public static final int LTT_TYPE_NONE         = 5;
+    
+    // Field attributes, as defined by LTT
+    public static final long LTT_ATTRIBUTE_NETWORK_BYTE_ORDER = (1 << 1);
+    
+    // Layout of the field in the event payload, fetched on first use
+    private boolean isLayoutPopulated = false;
+    private int type = LTT_TYPE_NONE;
+    private long offset = 0;
+    private long size = 0;
+    private long alignment = 0;
+    private long attributes = 0;
+    private boolean isStaticOffset = false;
+    
+    // Position of the field in the marker, set when the marker adds it
+    private int position = -1;
+    
     // Native access method
     protected native String ltt_getField(int libId, long markerFieldPtr);
     protected native int ltt_getType(int libId, long markerFieldPtr);
@@ -57,6 +80,15 @@ public abstract class JniMarkerField extends Jni_C_Common
         thisMarkerFieldPtr = oldMarkerField.getMarkerFieldPtr();
         field = oldMarkerField.getField();
         format = oldMarkerField.getFormat();
+        
+        isLayoutPopulated = oldMarkerField.isLayoutPopulated;
+        type = oldMarkerField.type;
+        offset = oldMarkerField.offset;
+        size = oldMarkerField.size;
+        alignment = oldMarkerField.alignment;
+        attributes = oldMarkerField.attributes;
+        isStaticOffset = oldMarkerField.isStaticOffset;
+        position = oldMarkerField.position;
     }
 
     /**
@@ -89,13 +121,93 @@ public abstract class JniMarkerField extends Jni_C_Common
         }
     }
 
+    /* 
+     * This function populates the layout of the field with data from LTT
+     * 
+     * The layout is only needed to decode the payload in java, so it is 
+     * not fetched when the marker field is created.
+     */
+    private void populateLayoutInformation() {
+        if (isLayoutPopulated == false) {
+            type = ltt_getType(thisMarkerFieldPtr.getLibraryId(), thisMarkerFieldPtr.getPointer());
+            offset = ltt_getOffset(thisMarkerFieldPtr.getLibraryId(), thisMarkerFieldPtr.getPointer());
+            size = ltt_getSize(thisMarkerFieldPtr.getLibraryId(), thisMarkerFieldPtr.getPointer());
+            alignment = ltt_getAlignment(thisMarkerFieldPtr.getLibraryId(), thisMarkerFieldPtr.getPointer());
+            attributes = ltt_getAttributes(thisMarkerFieldPtr.getLibraryId(), thisMarkerFieldPtr.getPointer());
+            isStaticOffset = (ltt_getStatic_offset(thisMarkerFieldPtr.getLibraryId(), thisMarkerFieldPtr.getPointer()) != 0);
+            isLayoutPopulated = true;
+        }
+    }
+
     public String getField() {
         return field;
     }
+    
+    /**
+     * Position of the field in the marker, same as in getMarkerFieldsArrayList().<p>
+     * 
+     * @return The position of the field, or -1 if it was not added by a marker
+     */
+    public int getPosition() {
+        return position;
+    }
+    
+    void setPosition(int newPosition) {
+        position = newPosition;
+    }
 
     public String getFormat() {
         return format;
     }
+    
+    /**
+     * Type of the field, as one of the LTT_TYPE_* constants.<p>
+     * 
+     * @return The type of the field
+     */
+    public int getType() {
+        populateLayoutInformation();
+        return type;
+    }
+    
+    /**
+     * Offset of the field in the payload.<p>
+     * 
+     * Only meaningful if the offset is static, see isStaticOffset().
+     * 
+     * @return The offset of the field, in bytes
+     */
+    public long getOffset() {
+        populateLayoutInformation();
+        return offset;
+    }
+    
+    public long getSize() {
+        populateLayoutInformation();
+        return size;
+    }
+    
+    public long getAlignment() {
+        populateLayoutInformation();
+        return alignment;
+    }
+    
+    public long getAttributes() {
+        populateLayoutInformation();
+        return attributes;
+    }
+    
+    /**
+     * Tell if the offset of the field is known for every event.<p>
+     * 
+     * The offset of a field that follows a string depends on the string length.
+     * 
+     * @return True if the offset is the same for all events of the marker
+     */
+    public boolean isStaticOffset() {
+        populateLayoutInformation();
+        return isStaticOffset;
+    }
 
     /**
      * Pointer to the marker_field C structure.<p>
@@ -37,7 +37,8 @@ public abstract class JniParser extends Jni_C_Common
     //    We either need to create a new object type or to use a "non-primitive" type that have "Setter()" functions
     //    Another (ugly) hack would be to pass an array to modify the reference's reference.
     // ***
-    private static ParsedObjectContent parsedData = new ParsedObjectContent();
+    // Each call parses into its own ParsedObjectContent, events of different traces can be parsed 
+    //    by different threads at the same time.
     
     /*
      * Default constructor is forbidden
@@ -68,6 +69,7 @@ public abstract class JniParser extends Jni_C_Common
         JniMarkerField tmpField = eventToParse.requestEventMarker().getMarkerFieldsArrayList().get(fieldPosition);
         
         // Call the parsing function in C. The result will be put in parsedData object
+        ParsedObjectContent parsedData = new ParsedObjectContent();
         ltt_getParsedData(eventToParse.getEventPtr().getLibraryId(), parsedData, eventToParse.getEventPtr().getPointer(), tmpField.getMarkerFieldPtr().getPointer());
         
         return parsedData.getData();
@@ -95,6 +97,7 @@ public abstract class JniParser extends Jni_C_Common
             return null;
         }
         
+        ParsedObjectContent parsedData = new ParsedObjectContent();
         ltt_getParsedData(eventToParse.getEventPtr().getLibraryId(), parsedData, eventToParse.getEventPtr().getPointer(), tmpField.getMarkerFieldPtr().getPointer());
         
         return parsedData.getData();
@@ -102,6 +105,27 @@ public abstract class JniParser extends Jni_C_Common
     
     
     
+    /**
+     * Method to parse a single field already resolved from the event marker.<p>
+     *
+     * Avoid the lookup by name when the caller kept the marker field.
+     *
+     * @param   eventToParse    The jni event we want to parse.
+     * @param   markerField     The marker field we want to parse, from the event marker.
+     *
+     * @return                  An Object that contain the JniEvent payload parsed by the C
+     *
+     * @see org.eclipse.linuxtools.lttng.jni.JniMarker
+     */
+    static public Object parseField(JniEvent eventToParse, JniMarkerField markerField) {
+
+        ParsedObjectContent parsedData = new ParsedObjectContent();
+        ltt_getParsedData(eventToParse.getEventPtr().getLibraryId(), parsedData, eventToParse.getEventPtr().getPointer(), markerField.getMarkerFieldPtr().getPointer());
+
+        return parsedData.getData();
+    }
+
+
     /**
      * Method to parse all fields at once.<p>
      * 
@@ -133,6 +157,7 @@ public abstract class JniParser extends Jni_C_Common
 		
         JniMarkerField      newMarkerField  = null;
         Iterator<String>    iterator        = markerFieldData.keySet().iterator();
+        ParsedObjectContent parsedData      = new ParsedObjectContent();
         
         while ( iterator.hasNext() ) {
             newMarkerField = markerFieldData.get(iterator.next());
@@ -146,6 +171,26 @@ public abstract class JniParser extends Jni_C_Common
     }
     
     
+    /**
+     * Method to decode all fields at once.<p>
+     * 
+     * The payload is copied once from LTT and decoded in java. If one of the field can't be decoded
+     * (i.e. compact field), the parsing is done on C side, as with parseAllFields().
+     * 
+     * @param   eventToParse    The jni event we want to parse.  
+     * @return                  An HashMap of Object that contain the is the JniEvent's payload
+     * 
+     * @see org.eclipse.linuxtools.lttng.jni.JniPayload
+     */
+    static public HashMap<String, Object> decodeAllFields(JniEvent eventToParse) {
+        HashMap<String, Object> decodedDataMap = eventToParse.requestEventPayload().getAllFields();
+        if ( decodedDataMap == null ) {
+            return parseAllFields(eventToParse);
+        }
+        return decodedDataMap;
+    }
+    
+    
     /* 
      * Add a parsed String value to the Array<br>
      * <br>
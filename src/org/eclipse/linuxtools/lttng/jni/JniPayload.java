@@ -0,0 +1,309 @@
+package org.eclipse.linuxtools.lttng.jni;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer;
+
+/**
+ * <b><u>JniPayload</u></b><p>
+ *
+ * Raw content (payload) of the current event of a tracefile, decoded in java.<p>
+ *
+ * The payload is copied once per event with a single call to LTT, into a buffer that is reused
+ * from one event to the next. Fields are then decoded from the buffer using the layout of the
+ * JniMarkerField (type, size, offset and alignment) and the byte order of the tracefile,
+ * instead of calling LTT once for each field.<p>
+ *
+ * Offsets of fields that follow a string are computed for each event, aligned relative to the start
+ * of the payload, as done by LTT for the marker fields.<p>
+ *
+ * Fields of type LTT_TYPE_COMPACT or of unknown type can't be decoded, see isDecodable().
+ *
+ * @see org.eclipse.linuxtools.lttng.jni.JniEvent#requestEventPayload()
+ */
+public class JniPayload {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+    private static final ByteOrder REVERSED_ORDER = (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+
+    private static final byte[] NO_CONTENT = new byte[0];
+    private static final int[] NO_OFFSETS = new int[0];
+
+    // Allocated by the first reserve(), events that never copy their payload don't pay for it
+    private byte[] content = NO_CONTENT;
+    private ByteBuffer buffer = null;
+    private int size = 0;
+    private boolean isLoaded = false;
+
+    private JniMarker marker = null;
+    private ByteOrder order = ByteOrder.nativeOrder();
+    private long tracefileAlignment = 0;
+
+    // Offsets of the fields of the current marker, computed on demand for each event
+    private int[] offsets = NO_OFFSETS;
+    private boolean isOffsetsComputed = false;
+
+    /**
+     * Tell if a field can be decoded from the payload.<p>
+     *
+     * @param markerField   The field to decode
+     *
+     * @return True if the type and size of the field are supported
+     */
+    public static boolean isDecodable(JniMarkerField markerField) {
+        long fieldSize = markerField.getSize();
+        switch (markerField.getType()) {
+        case JniMarkerField.LTT_TYPE_SIGNED_INT:
+        case JniMarkerField.LTT_TYPE_UNSIGNED_INT:
+            return fieldSize == 1 || fieldSize == 2 || fieldSize == 4 || fieldSize == 8;
+        case JniMarkerField.LTT_TYPE_POINTER:
+            return fieldSize == 4 || fieldSize == 8;
+        case JniMarkerField.LTT_TYPE_STRING:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tell if all the fields of a marker can be decoded from the payload.<p>
+     *
+     * @param eventMarker   The marker of the event
+     *
+     * @return True if the marker has field information and all its fields are decodable
+     */
+    public static boolean isDecodable(JniMarker eventMarker) {
+        if (eventMarker == null || eventMarker.getMarkerFieldsArrayList() == null) {
+            return false;
+        }
+        ArrayList<JniMarkerField> fields = eventMarker.getMarkerFieldsArrayList();
+        for (int i = 0; i < fields.size(); i++) {
+            if (!isDecodable(fields.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Detached copy of the payload.<p>
+     *
+     * The copy stays valid after the event moves, it can be decoded from another thread.
+     *
+     * @return A copy of the current payload
+     */
+    public JniPayload copy() {
+        JniPayload newPayload = new JniPayload();
+        newPayload.content = new byte[size];
+        System.arraycopy(content, 0, newPayload.content, 0, size);
+        newPayload.buffer = ByteBuffer.wrap(newPayload.content);
+        newPayload.size = size;
+        newPayload.marker = marker;
+        newPayload.order = order;
+        newPayload.tracefileAlignment = tracefileAlignment;
+        newPayload.isLoaded = isLoaded;
+        return newPayload;
+    }
+
+    /*
+     * Reserve room for the next payload and invalidate the current one.
+     *
+     * @return The buffer to fill with the payload
+     */
+    byte[] reserve(int newSize) {
+        if (newSize > content.length || buffer == null) {
+            content = new byte[Math.max(newSize, Math.max(256, content.length * 2))];
+            buffer = ByteBuffer.wrap(content);
+        }
+        size = newSize;
+        isLoaded = false;
+        return content;
+    }
+
+    /*
+     * Mark the payload as filled for the given event.
+     */
+    void load(JniMarker newMarker, JniTracefile tracefile) {
+        marker = newMarker;
+        order = tracefile.getIsBytesOrderReversed() ? REVERSED_ORDER : ByteOrder.nativeOrder();
+        tracefileAlignment = tracefile.getAlignement();
+        isOffsetsComputed = false;
+        isLoaded = true;
+    }
+
+    /*
+     * The event moved, the payload must be copied again before use.
+     */
+    void invalidate() {
+        isLoaded = false;
+    }
+
+    boolean isLoaded() {
+        return isLoaded;
+    }
+
+    /**
+     * Size of the payload of the current event.<p>
+     *
+     * @return The size of the payload, in bytes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Decode an integer or pointer field.<p>
+     *
+     * Unsigned values are zero extended, signed values are sign extended.
+     *
+     * @param markerField   The field to decode, from the marker of the current event
+     *
+     * @return The value of the field
+     */
+    public long getLong(JniMarkerField markerField) {
+        int offset = getFieldOffset(markerField);
+        int fieldSize = (int) markerField.getSize();
+        boolean isSigned = (markerField.getType() == JniMarkerField.LTT_TYPE_SIGNED_INT);
+        buffer.order(getFieldOrder(markerField));
+        switch (fieldSize) {
+        case 1:
+            return isSigned ? buffer.get(offset) : (buffer.get(offset) & 0xFFL);
+        case 2:
+            return isSigned ? buffer.getShort(offset) : (buffer.getShort(offset) & 0xFFFFL);
+        case 4:
+            return isSigned ? buffer.getInt(offset) : (buffer.getInt(offset) & 0xFFFFFFFFL);
+        case 8:
+            return buffer.getLong(offset);
+        default:
+            throw new IllegalArgumentException("Unsupported field size " + fieldSize + " for " + markerField.getField()); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    /**
+     * Decode a string field.<p>
+     *
+     * @param markerField   The field to decode, from the marker of the current event
+     *
+     * @return The string, without the terminating null character
+     */
+    public String getString(JniMarkerField markerField) {
+        int offset = getFieldOffset(markerField);
+        return new String(content, offset, stringLength(offset), UTF8);
+    }
+
+    /**
+     * Decode a field into the same objects LTT returns.<p>
+     *
+     * Integers are returned as Long, pointers as Jni_C_Pointer and strings as String.
+     *
+     * @param markerField   The field to decode, from the marker of the current event
+     *
+     * @return The value of the field
+     */
+    public Object getObject(JniMarkerField markerField) {
+        switch (markerField.getType()) {
+        case JniMarkerField.LTT_TYPE_STRING:
+            return getString(markerField);
+        case JniMarkerField.LTT_TYPE_POINTER:
+            if (markerField.getSize() == 4) {
+                return new Jni_C_Pointer((int) getLong(markerField));
+            }
+            return new Jni_C_Pointer(getLong(markerField));
+        default:
+            return Long.valueOf(getLong(markerField));
+        }
+    }
+
+    /**
+     * Decode all the fields of the current event.<p>
+     *
+     * @return An HashMap of the decoded fields, with their name as key, or null if a field can't be decoded
+     */
+    public HashMap<String, Object> getAllFields() {
+        ArrayList<JniMarkerField> fields = marker.getMarkerFieldsArrayList();
+        HashMap<String, Object> values = new HashMap<String, Object>();
+        for (int i = 0; i < fields.size(); i++) {
+            JniMarkerField markerField = fields.get(i);
+            if (!isDecodable(markerField)) {
+                return null;
+            }
+            values.put(markerField.getField(), getObject(markerField));
+        }
+        return values;
+    }
+
+    /*
+     * Byte order of a field, network order fields are big endian.
+     */
+    private ByteOrder getFieldOrder(JniMarkerField markerField) {
+        if ((markerField.getAttributes() & JniMarkerField.LTT_ATTRIBUTE_NETWORK_BYTE_ORDER) != 0) {
+            return ByteOrder.BIG_ENDIAN;
+        }
+        return order;
+    }
+
+    private int getFieldOffset(JniMarkerField markerField) {
+        if (markerField.isStaticOffset()) {
+            return (int) markerField.getOffset();
+        }
+        computeOffsets();
+        int position = markerField.getPosition();
+        if (position < 0) {
+            position = marker.getMarkerFieldsArrayList().indexOf(markerField);
+        }
+        return offsets[position];
+    }
+
+    /*
+     * Offsets of the fields that follow a string, walking the fields in order.
+     */
+    private void computeOffsets() {
+        if (isOffsetsComputed) {
+            return;
+        }
+        ArrayList<JniMarkerField> fields = marker.getMarkerFieldsArrayList();
+        if (offsets.length < fields.size()) {
+            offsets = new int[fields.size()];
+        }
+        int current = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            JniMarkerField markerField = fields.get(i);
+            int offset;
+            if (markerField.isStaticOffset()) {
+                offset = (int) markerField.getOffset();
+            } else {
+                offset = current + align(current, markerField.getAlignment(), tracefileAlignment);
+            }
+            offsets[i] = offset;
+            if (markerField.getType() == JniMarkerField.LTT_TYPE_STRING) {
+                current = offset + stringLength(offset) + 1;
+            } else {
+                current = offset + (int) markerField.getSize();
+            }
+        }
+        isOffsetsComputed = true;
+    }
+
+    /*
+     * Padding needed before a field, same as ltt_align() in LTT.
+     */
+    static int align(long drift, long sizeOfType, long hasAlignment) {
+        if (hasAlignment == 0 || sizeOfType == 0) {
+            return 0;
+        }
+        long alignment = Math.min(hasAlignment, sizeOfType);
+        return (int) ((alignment - drift) & (alignment - 1));
+    }
+
+    private int stringLength(int offset) {
+        int end = offset;
+        while (end < size && content[end] != 0) {
+            end++;
+        }
+        return end - offset;
+    }
+}
@@ -11,11 +11,15 @@ package org.eclipse.linuxtools.lttng.jni;
  *   William Bourque (wbourque@gmail.com) - Initial API and implementation
  *******************************************************************************/
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.LoserTree;
 import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
 import org.eclipse.linuxtools.lttng.jni.exception.JniOpenTraceFailedException;
@@ -68,8 +72,15 @@ public abstract class JniTrace extends Jni_C_Common {
     
     // This Map holds a reference to the tracefiles owned by this trace
     private HashMap<String, JniTracefile> tracefilesMap = null;
-    // The priority queue (similar to heap) hold events 
-    private PriorityQueue<JniEvent> eventsHeap = null;
+    // The tournament tree merges the current event of each enabled tracefile by time
+    private LoserTree eventsTree = null;
+    // Tracefiles in the tree, by leaf index
+    private JniTracefile[] mergedTracefiles = null;
+    // Leaf index of the tracefiles in the tree
+    private IdentityHashMap<JniTracefile, Integer> mergedIndexes = null;
+    
+    // Names of the tracefiles merged into the events heap, null for all of them
+    private Set<String> enabledTracefiles = null;
     
     // This variable will hold the content of the "last" event we read
     private JniEvent currentEvent = null;  
@@ -181,7 +192,6 @@ public abstract class JniTrace extends Jni_C_Common {
         tracefilesMap = new HashMap<String, JniTracefile>(oldTrace.tracefilesMap.size());
         ltt_feedAllTracefiles(thisTracePtr.getLibraryId(), thisTracePtr.getPointer());
         
-        eventsHeap = new PriorityQueue<JniEvent>( oldTrace.eventsHeap.size());
         populateEventHeap();
         
         printLttDebug = oldTrace.printLttDebug;
@@ -297,9 +307,9 @@ public abstract class JniTrace extends Jni_C_Common {
             tracefilesMap.clear();
             tracefilesMap = null;
             
-            // Clear the eventsHeap and make it points to null
-            eventsHeap.clear();
-            eventsHeap = null;
+            // Clear the eventsTree and make it points to null
+            eventsTree = null;
+            mergedTracefiles = null;
             
             // Nullify the pointer
             thisTracePtr = new Jni_C_Pointer_And_Library_Id();
@@ -361,10 +371,6 @@ public abstract class JniTrace extends Jni_C_Common {
         endTime = new JniTime();
         ltt_feedTracefileTimeRange(thisTracePtr.getLibraryId(), thisTracePtr.getPointer(), new JniTime(), endTime);
         
-        if (eventsHeap == null) {
-            eventsHeap = new PriorityQueue<JniEvent>(tracefilesMap.size());
-        }
-        
         // Populate the heap with events
         populateEventHeap();
     }
@@ -375,20 +381,62 @@ public abstract class JniTrace extends Jni_C_Common {
      */
     private void populateEventHeap() {
         currentEvent = null;
-        eventsHeap.clear();
         
-        Object new_key = null;
         JniTracefile tmpTracefile = null;
+        ArrayList<JniTracefile> merged = new ArrayList<JniTracefile>();
         
-        Iterator<String> iterator = tracefilesMap.keySet().iterator();
+        // Sort by key (name and cpu), so ties between tracefiles are broken the same way on every run
+        Iterator<String> iterator = new TreeSet<String>(tracefilesMap.keySet()).iterator();
         while( iterator.hasNext() ) {
-            new_key = iterator.next();
-            
-            tmpTracefile = tracefilesMap.get(new_key);
-            if ( tmpTracefile.getCurrentEvent().getEventState() == EOK ) {
-                eventsHeap.add( tmpTracefile.getCurrentEvent() );
+            tmpTracefile = tracefilesMap.get(iterator.next());
+            if ( isTracefileEnabled(tmpTracefile.getTracefileName()) ) {
+                merged.add(tmpTracefile);
+            }
+        }
+        
+        mergedTracefiles = merged.toArray(new JniTracefile[merged.size()]);
+        mergedIndexes = new IdentityHashMap<JniTracefile, Integer>(mergedTracefiles.length);
+        for (int i = 0; i < mergedTracefiles.length; i++) {
+            mergedIndexes.put(mergedTracefiles[i], i);
+        }
+        buildEventsTree();
+    }
+    
+    /*
+     * Build the eventsTree from the current event of each merged tracefile
+     */
+    private void buildEventsTree() {
+        eventsTree = new LoserTree(mergedTracefiles.length);
+        for (int i = 0; i < mergedTracefiles.length; i++) {
+            if ( mergedTracefiles[i].getCurrentEvent().getEventState() == EOK ) {
+                eventsTree.set(i, mergedTracefiles[i].getCurrentEvent().getTimestampNs());
             }
         }
+        eventsTree.build();
+    }
+    
+    /*
+     * Position of a tracefile in the eventsTree, -1 if it is not merged
+     */
+    private int getMergedIndex(JniTracefile tracefile) {
+        Integer leaf = mergedIndexes.get(tracefile);
+        return (leaf == null) ? -1 : leaf.intValue();
+    }
+    
+    /*
+     * Put back the current event of a tracefile in the eventsTree, or remove the tracefile if it has none
+     */
+    private void updateMergedTracefile(JniTracefile tracefile) {
+        int leaf = getMergedIndex(tracefile);
+        if ( leaf < 0 ) {
+            return;
+        }
+        if ( tracefile.getCurrentEvent().getEventState() == EOK ) {
+            eventsTree.update(leaf, tracefile.getCurrentEvent().getTimestampNs());
+        }
+        else {
+            eventsTree.remove(leaf);
+        }
     }
     
     /* 
@@ -433,7 +481,11 @@ public abstract class JniTrace extends Jni_C_Common {
      * @see org.eclipse.linuxtools.lttng.jni.JniEvent
      */
     public JniEvent findNextEvent() {
-        return eventsHeap.peek();
+        int winner = eventsTree.getWinner();
+        if ( winner < 0 ) {
+            return null;
+        }
+        return mergedTracefiles[winner].getCurrentEvent();
     }
     
     /**
@@ -444,40 +496,36 @@ public abstract class JniTrace extends Jni_C_Common {
      * @see org.eclipse.linuxtools.lttng.jni.JniEvent
      */
     public JniEvent readNextEvent() {
-        // Get the "next" event on the top of the heap but DO NOT remove it
-        JniEvent tmpEvent = eventsHeap.peek();
+        // Get the "next" event on the top of the tree but DO NOT remove it
+        int winner = eventsTree.getWinner();
         
-        // If the event is null, it was the last one in the trace we can leave the function
-        if (tmpEvent == null) {
+        // If there is no winner, it was the last one in the trace we can leave the function
+        if ( winner < 0 ) {
             return null;
         }
+        JniEvent tmpEvent = mergedTracefiles[winner].getCurrentEvent();
         
-        // Otherwise, we need to make sure the timestamp of the event we got is not the same as the last "NextEvent" we requested 
-        // NOTE : JniEvent.compareTo() compare by timestamp AND type, as 2 events of different type could have the same timestamp.
-//        if( currentEvent != null ){
+        // Otherwise, we need to make sure the event we got is not the same as the last "NextEvent" we requested 
         if (tmpEvent.equals(currentEvent)) {
-            // Remove the event on top as it is the same currentEventTimestamp
-            eventsHeap.poll();
-            
             // Read the next event for this particular event type
             tmpEvent.readNextEvent();
             
-            // If the event state is sane (not Out of Range), put it back in the heap
+            // If the event state is sane (not Out of Range), replay its match, otherwise the tracefile is done
             if ( tmpEvent.getEventState() == EOK ) {
-                eventsHeap.add(tmpEvent);
+                eventsTree.update(winner, tmpEvent.getTimestampNs());
+            }
+            else {
+                eventsTree.remove(winner);
             }
             
             // Pick the top event again
-            tmpEvent = eventsHeap.peek();
-            
-            // Save the event we just read as the "current event"
-            currentEvent = tmpEvent;
-        }
-        // If the event on top has different timestamp than the currentTimestamp, just save this timestamp as current
-        else {
-            currentEvent = tmpEvent;
+            winner = eventsTree.getWinner();
+            tmpEvent = (winner < 0) ? null : mergedTracefiles[winner].getCurrentEvent();
         }
         
+        // Save the event we just read as the "current event"
+        currentEvent = tmpEvent;
+        
         return tmpEvent;
     }
     
@@ -508,16 +556,12 @@ public abstract class JniTrace extends Jni_C_Common {
             currentEvent = returnedEvent; 
         }
         else {
-        	// Remove from the event related to this tracefile from the event heap, if it exists.
-        	// WARNING : This only safe as long getCurrentEvent() never return "null" in any case.
-        	eventsHeap.remove(targetTracefile.getCurrentEvent() );
-        	
         	// If status EOK, we can return the event, otherwise something wrong happen (out of range, read error, etc...)
         	if ( targetTracefile.readNextEvent() == EOK) {
         	    returnedEvent = targetTracefile.getCurrentEvent();
-        		// Add back to the heap the read event
-        		eventsHeap.add(returnedEvent);
         	}
+        	// Update the tree with the read event, or take the tracefile out of it
+        	updateMergedTracefile(targetTracefile);
         	// Save the event we read... 
         	// Note : might be null if the read failed and it's ok
         	currentEvent = targetTracefile.getCurrentEvent(); 
@@ -540,16 +584,13 @@ public abstract class JniTrace extends Jni_C_Common {
         // Invalidate the last read event
         currentEvent = null;
         
-        Object tracefile_name = null;
-    	Iterator<String> iterator = tracefilesMap.keySet().iterator();
-    	
-    	while (iterator.hasNext() ) {
-    	    // We seek to the given event for ALL tracefiles
-    	    tracefile_name = iterator.next();
-    		seekToTime(seekTime, tracefilesMap.get(tracefile_name));
-    	}
-    	
-    	populateEventHeap();
+        // We seek to the given event for ALL enabled tracefiles, they are the merged ones
+        // The tree is built once all of them are positioned
+        for (int i = 0; i < mergedTracefiles.length; i++) {
+            mergedTracefiles[i].seekToTime(seekTime);
+        }
+        
+        buildEventsTree();
     }
 	
     /**
@@ -567,16 +608,10 @@ public abstract class JniTrace extends Jni_C_Common {
         // Invalidate the current read event
         currentEvent = null;
         
-        // Remove from the event related to this tracefile from the event heap, if it exists.
-        // WARNING : This is only safe as long getCurrentEvent() never return "null" in any case.
-        eventsHeap.remove(targetTracefile.getCurrentEvent() );
-        
         // Perform the actual seek on the tracefile
-        // Add the event to the heap if it succeed
-        if ( targetTracefile.seekToTime(seekTime) == EOK) {
-        	// Add back to the heap the read event
-            eventsHeap.add(targetTracefile.getCurrentEvent());
-        }
+        // Update the tree with the event it points to, or take the tracefile out of it if it failed
+        targetTracefile.seekToTime(seekTime);
+        updateMergedTracefile(targetTracefile);
     }
 	
     /**
@@ -723,6 +758,41 @@ public abstract class JniTrace extends Jni_C_Common {
         return tracefilesMap;
     }        
     
+    /**
+     * Restrict the events returned by readNextEvent() to some tracefiles.<p>
+     * 
+     * Other tracefiles are left out of the events heap, so their events are never read nor decoded.
+     * The selection applies from the current position, it should be set before reading the trace.
+     * 
+     * @param tracefileNames    Names of the tracefiles to read (i.e. "kernel"), or null for all of them
+     */
+    public void setEnabledTracefiles(Set<String> tracefileNames) {
+        enabledTracefiles = tracefileNames;
+        if ( (eventsTree != null) && (tracefilesMap != null) ) {
+            populateEventHeap();
+        }
+    }
+    
+    public Set<String> getEnabledTracefiles() {
+        return enabledTracefiles;
+    }
+    
+    public boolean isTracefileEnabled(String tracefileName) {
+        return (enabledTracefiles == null) || enabledTracefiles.contains(tracefileName);
+    }
+    
+    /**
+     * Tracefiles merged by readNextEvent(), in merge order.<p>
+     * 
+     * When two events have the same timestamp, the event of the first tracefile is returned first.
+     * Each tracefile is positioned on its next event, reading them directly bypasses readNextEvent().
+     * 
+     * @return The enabled tracefiles, in merge order
+     */
+    public JniTracefile[] getMergedTracefiles() {
+        return mergedTracefiles;
+    }
+    
     /**
      * The timestamp of the last read event.<p>
      * 
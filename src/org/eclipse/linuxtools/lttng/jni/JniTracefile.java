@@ -88,6 +88,9 @@ public abstract class JniTracefile extends Jni_C_Common
     // This map will hold markers_info owned by this tracefile
     private HashMap<Integer, JniMarker> tracefileMarkersMap = null;        
 
+    // Dense index given by the reader dispatching events of this tracefile, -1 if none
+    private int     tracefileIndex = -1;
+
     // Native access functions
     protected native boolean  ltt_getIsCpuOnline(int libId, long tracefilePtr);
     protected native String   ltt_getTracefilepath(int libId, long tracefilePtr);
@@ -297,6 +300,14 @@ public abstract class JniTracefile extends Jni_C_Common
         return cpuNumber;
     }
 
+    public int getTracefileIndex() {
+        return tracefileIndex;
+    }
+
+    public void setTracefileIndex(int newIndex) {
+        tracefileIndex = newIndex;
+    }
+
     public long getTid() {
         return tid;
     }
@@ -0,0 +1,144 @@
+package org.eclipse.linuxtools.lttng.jni.common;
+
+/**
+ * <b><u>LoserTree</u></b><p>
+ * 
+ * Tournament tree used to merge sorted streams, such as the tracefiles of a trace.<p>
+ * 
+ * Each stream is a leaf, identified by its index, with the key (timestamp) of its current element.
+ * The winner is the leaf with the smallest key, ties going to the smallest index.
+ * Replacing the key of the winner replays a single path of the tree,
+ * which costs log2(n) comparisons of primitive longs.
+ */
+public class LoserTree {
+
+    private final int size;
+    private final long[] keys;
+    private final boolean[] present;
+    
+    // tree[0] is the winner, tree[1..size-1] hold the loser of each match
+    private final int[] tree;
+    
+    /**
+     * Constructor.<p>
+     * 
+     * All leaves are empty until set() and build() are called.
+     * 
+     * @param newSize   Number of streams to merge
+     */
+    public LoserTree(int newSize) {
+        size = newSize;
+        keys = new long[newSize];
+        present = new boolean[newSize];
+        tree = new int[Math.max(newSize, 1)];
+        tree[0] = -1;
+    }
+    
+    /**
+     * Set the key of a leaf, without updating the tree.<p>
+     * 
+     * build() must be called before the next getWinner().
+     */
+    public void set(int leaf, long key) {
+        keys[leaf] = key;
+        present[leaf] = true;
+    }
+    
+    /**
+     * Empty a leaf, without updating the tree.
+     */
+    public void clear(int leaf) {
+        present[leaf] = false;
+    }
+    
+    /**
+     * Play all the matches, in O(n).
+     */
+    public void build() {
+        if (size == 0) {
+            return;
+        }
+        int[] winners = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            winners[size + i] = i;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            int left = winners[2 * node];
+            int right = winners[2 * node + 1];
+            if (beats(left, right)) {
+                winners[node] = left;
+                tree[node] = right;
+            } else {
+                winners[node] = right;
+                tree[node] = left;
+            }
+        }
+        tree[0] = (size == 1) ? 0 : winners[1];
+    }
+    
+    /**
+     * Replace the key of a leaf and update the winner.<p>
+     * 
+     * This is the fast path when the leaf is the current winner, any other leaf rebuilds the tree.
+     */
+    public void update(int leaf, long key) {
+        set(leaf, key);
+        replay(leaf);
+    }
+    
+    /**
+     * Empty a leaf and update the winner.
+     */
+    public void remove(int leaf) {
+        clear(leaf);
+        replay(leaf);
+    }
+    
+    /**
+     * @return The leaf with the smallest key, or -1 if all leaves are empty.
+     */
+    public int getWinner() {
+        int winner = tree[0];
+        if ((winner < 0) || !present[winner]) {
+            return -1;
+        }
+        return winner;
+    }
+    
+    public long getKey(int leaf) {
+        return keys[leaf];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private void replay(int leaf) {
+        if (leaf != tree[0]) {
+            build();
+            return;
+        }
+        int winner = leaf;
+        for (int node = (leaf + size) >> 1; node > 0; node >>= 1) {
+            if (beats(tree[node], winner)) {
+                int tmp = tree[node];
+                tree[node] = winner;
+                winner = tmp;
+            }
+        }
+        tree[0] = winner;
+    }
+    
+    private boolean beats(int a, int b) {
+        if (!present[a]) {
+            return false;
+        }
+        if (!present[b]) {
+            return true;
+        }
+        if (keys[a] != keys[b]) {
+            return keys[a] < keys[b];
+        }
+        return a < b;
+    }
+}
@@ -0,0 +1,381 @@
+package org.lttng.flightbox;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.lttng.flightbox.MainDependency.CmdOptions;
+import org.lttng.flightbox.histogram.HistogramPainter;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.replay.ReplayTraceReader;
+
+/*
+ * Analyze many traces with a pool of workers. Each trace is read by its
+ * own TraceReader, a report is written per trace in the output directory
+ * with a summary of all traces, including the throughput and memory
+ * used by each trace.
+ */
+public class MainBatch {
+
+	static Options options;
+	static String moduleHistogram = "histogram";
+	static String[] moduleList = new String[] { MainDependency.moduleDependency, MainDependency.moduleBlocking,
+		MainDependency.moduleCriticalPath, moduleHistogram };
+
+	public static final long DEFAULT_HEAP_PER_TRACE = 512;
+	public static final String SUMMARY = "summary.txt";
+
+	/* analysis run on each trace, returns its report */
+	public interface Analysis {
+		public String analyze(TraceReader reader, File outDir, String name) throws Exception;
+	}
+
+	public static class Result {
+		public String name;
+		public String tracePath;
+		public String report;
+		public Throwable error;
+		public long events;
+		public long elapsedNs;
+		/* bytes allocated by the worker, -1 if unknown */
+		public long allocated = -1;
+		/* heap used by the whole JVM while the trace was analyzed */
+		volatile long peakHeap;
+
+		public long getPeakHeap() {
+			return peakHeap;
+		}
+
+		public double getEventsPerSecond() {
+			if (elapsedNs == 0)
+				return 0;
+			return events * 1000000000.0 / elapsedNs;
+		}
+	}
+
+	private final Analysis analysis;
+	private final File outDir;
+	private final int workers;
+	private final List<Result> running;
+	private final MemoryMXBean memoryBean;
+
+	public MainBatch(Analysis analysis, File outDir, int workers) {
+		this.analysis = analysis;
+		this.outDir = outDir;
+		this.workers = workers;
+		this.running = new CopyOnWriteArrayList<Result>();
+		this.memoryBean = ManagementFactory.getMemoryMXBean();
+	}
+
+	public static void main(String[] args) throws IOException {
+		options = new Options();
+		options.addOption("h", "help", false, "this help");
+		options.addOption("m", "module", true, "analysis module " + Arrays.toString(moduleList));
+		options.addOption("d", "outdir", true, "directory of the reports");
+		options.addOption("j", "jobs", true, "number of traces analyzed at the same time");
+		options.addOption("x", "heap-per-trace", true, "heap needed by a trace, in MB, to size the workers (default " + DEFAULT_HEAP_PER_TRACE + ")");
+		options.addOption("c", "cmd", true, "filter by command");
+		options.addOption("w", "width", true, "histogram width");
+
+		CommandLineParser parser = new PosixParser();
+		CommandLine cmd = null;
+		try {
+			cmd = parser.parse(options, args);
+		} catch (ParseException e) {
+			System.out.println("Error parsing arguments");
+			printUsage();
+			System.exit(1);
+		}
+		if (cmd.hasOption("help") || cmd.getArgs().length == 0 || !cmd.hasOption("module")) {
+			printUsage();
+			System.exit(cmd.hasOption("help") ? 0 : 1);
+		}
+
+		String moduleName = cmd.getOptionValue("module");
+		if (!Arrays.asList(moduleList).contains(moduleName)) {
+			System.out.println("Unknown analysis module " + moduleName);
+			printUsage();
+			System.exit(1);
+		}
+		File outDir = new File(cmd.getOptionValue("outdir", System.getProperty("user.dir")));
+		long heapPerTrace = DEFAULT_HEAP_PER_TRACE;
+		if (cmd.hasOption("heap-per-trace"))
+			heapPerTrace = Long.parseLong(cmd.getOptionValue("heap-per-trace"));
+		int workers = getDefaultWorkers(heapPerTrace);
+		if (cmd.hasOption("jobs"))
+			workers = Integer.parseInt(cmd.getOptionValue("jobs"));
+		List<String> cmdFilter = new ArrayList<String>();
+		if (cmd.hasOption("cmd"))
+			cmdFilter = Arrays.asList(cmd.getOptionValue("cmd").split(","));
+		int width = 800;
+		if (cmd.hasOption("width"))
+			width = Integer.parseInt(cmd.getOptionValue("width"));
+
+		List<String> traces = findTraces(cmd.getArgs());
+		if (traces.isEmpty()) {
+			System.out.println("Error: no trace found");
+			System.exit(1);
+		}
+		System.out.println("Analyzing " + traces.size() + " traces with " + workers + " workers");
+		MainBatch batch = new MainBatch(makeAnalysis(moduleName, cmdFilter, width), outDir, workers);
+		List<Result> results = batch.run(traces);
+		System.out.print(formatTable(results));
+		System.out.println("Summary written to " + new File(outDir, SUMMARY));
+	}
+
+	public static Analysis makeAnalysis(final String moduleName, final List<String> cmdFilter, final int width) {
+		if (moduleName.equals(moduleHistogram)) {
+			return new Analysis() {
+				@Override
+				public String analyze(TraceReader reader, File outDir, String name) throws Exception {
+					int[] samples = MainHistogram.computeRaw(reader, width);
+					HistogramPainter painter = new HistogramPainter();
+					painter.setWidth(width);
+					painter.paint(samples);
+					File image = new File(outDir, name + ".png");
+					painter.save(image.getPath());
+					return "Histogram written to " + image + "\n";
+				}
+			};
+		}
+		return new Analysis() {
+			@Override
+			public String analyze(TraceReader reader, File outDir, String name) throws Exception {
+				CmdOptions opts = new MainDependency().new CmdOptions();
+				opts.tracePath = reader.getTracePath();
+				opts.moduleName = moduleName;
+				opts.cmdFilter = cmdFilter;
+				opts.pidFilter = new ArrayList<Integer>();
+				opts.verbose = false;
+				opts.profile = false;
+				opts.dotOutputPrefix = "graph-";
+				opts.outputDir = new File(outDir, name).getPath();
+				if (moduleName.equals(MainDependency.moduleCriticalPath))
+					return MainDependency.executionGraphReport(opts, reader);
+				return MainDependency.dependencyReport(opts, reader);
+			}
+		};
+	}
+
+	/*
+	 * Workers are bounded by the number of cores and by the heap
+	 * available for heapPerTrace MB per trace
+	 */
+	public static int getDefaultWorkers(long heapPerTrace) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		long maxHeap = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+		int byHeap = (int) Math.min(Integer.MAX_VALUE, maxHeap / Math.max(1, heapPerTrace));
+		return Math.max(1, Math.min(cores, byHeap));
+	}
+
+	/*
+	 * Arguments are trace directories, replay files, or directories that
+	 * contain them. A trace directory has metadata tracefiles.
+	 */
+	public static List<String> findTraces(String[] paths) {
+		ArrayList<String> traces = new ArrayList<String>();
+		for (String path: paths) {
+			File dir = new File(path);
+			if (isTrace(dir)) {
+				traces.add(dir.getPath());
+				continue;
+			}
+			File[] children = dir.listFiles();
+			if (children == null) {
+				System.err.println("Error: can't read directory " + path);
+				continue;
+			}
+			Arrays.sort(children);
+			for (File child: children) {
+				if (isTrace(child))
+					traces.add(child.getPath());
+			}
+		}
+		return traces;
+	}
+
+	private static boolean isTrace(File dir) {
+		if (ReplayTraceReader.isReplayFile(dir.getPath()))
+			return true;
+		File[] files = dir.listFiles();
+		if (files == null)
+			return false;
+		for (File f: files) {
+			if (f.isFile() && f.getName().startsWith("metadata_"))
+				return true;
+		}
+		return false;
+	}
+
+	protected TraceReader makeReader(String tracePath) {
+		return ReplayTraceReader.makeReader(tracePath);
+	}
+
+	/*
+	 * Analyze the traces, results are in the same order as tracePaths.
+	 * An error on a trace is reported in its result, other traces are
+	 * analyzed anyway.
+	 */
+	public List<Result> run(List<String> tracePaths) throws IOException {
+		outDir.mkdirs();
+		ArrayList<Result> results = new ArrayList<Result>();
+		Set<String> names = new HashSet<String>();
+		for (String path: tracePaths) {
+			Result result = new Result();
+			result.tracePath = path;
+			result.name = new File(path).getName();
+			for (int i = 1; !names.add(result.name); i++) {
+				result.name = new File(path).getName() + "-" + i;
+			}
+			results.add(result);
+		}
+
+		Thread monitor = new Thread("batch-heap-monitor") {
+			@Override
+			public void run() {
+				while (!isInterrupted()) {
+					long used = memoryBean.getHeapMemoryUsage().getUsed();
+					for (Result r: running) {
+						if (used > r.peakHeap)
+							r.peakHeap = used;
+					}
+					try {
+						sleep(50);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+		monitor.setDaemon(true);
+		monitor.start();
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, workers));
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		for (final Result result: results) {
+			futures.add(pool.submit(new Runnable() {
+				@Override
+				public void run() {
+					analyze(result);
+				}
+			}));
+		}
+		pool.shutdown();
+		try {
+			for (Future<?> f: futures) {
+				f.get();
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Error while waiting for the workers", e);
+		} finally {
+			monitor.interrupt();
+		}
+		writeSummary(results);
+		return results;
+	}
+
+	private void analyze(Result result) {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocBean = null;
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			allocBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (!allocBean.isThreadAllocatedMemorySupported() || !allocBean.isThreadAllocatedMemoryEnabled())
+				allocBean = null;
+		}
+		long threadId = Thread.currentThread().getId();
+		long alloc1 = allocBean == null ? 0 : allocBean.getThreadAllocatedBytes(threadId);
+		result.peakHeap = memoryBean.getHeapMemoryUsage().getUsed();
+		running.add(result);
+		long t1 = System.nanoTime();
+		TraceReader reader = null;
+		try {
+			reader = makeReader(result.tracePath);
+			result.report = analysis.analyze(reader, outDir, result.name);
+			FileWriter writer = new FileWriter(new File(outDir, result.name + ".txt"));
+			writer.write(result.report == null ? "" : result.report);
+			writer.close();
+		} catch (Throwable t) {
+			result.error = t;
+		} finally {
+			result.elapsedNs = System.nanoTime() - t1;
+			running.remove(result);
+			if (reader != null)
+				result.events = reader.getEventCount();
+			if (allocBean != null)
+				result.allocated = allocBean.getThreadAllocatedBytes(threadId) - alloc1;
+		}
+	}
+
+	private void writeSummary(List<Result> results) throws IOException {
+		StringBuilder str = new StringBuilder();
+		str.append(formatTable(results));
+		for (Result r: results) {
+			str.append("\n=== " + r.name + " (" + r.tracePath + ")\n");
+			if (r.error != null) {
+				str.append("Error: " + r.error + "\n");
+			} else if (r.report != null) {
+				str.append(r.report);
+			}
+		}
+		FileWriter writer = new FileWriter(new File(outDir, SUMMARY));
+		writer.write(str.toString());
+		writer.close();
+	}
+
+	public static String formatTable(List<Result> results) {
+		StringBuilder str = new StringBuilder();
+		String fmt = "%1$-30s%2$12s%3$12s%4$14s%5$14s%6$14s%7$8s\n";
+		str.append(String.format(fmt, "trace", "events", "time (ms)", "events/s", "alloc (MB)", "heap (MB)", "status"));
+		long events = 0;
+		long failed = 0;
+		for (Result r: results) {
+			events += r.events;
+			if (r.error != null)
+				failed++;
+			str.append(String.format(fmt, r.name, r.events, r.elapsedNs / 1000000,
+					String.format("%.0f", r.getEventsPerSecond()),
+					r.allocated < 0 ? "?" : String.valueOf(r.allocated / (1024 * 1024)),
+					String.valueOf(r.getPeakHeap() / (1024 * 1024)),
+					r.error == null ? "ok" : "failed"));
+		}
+		str.append(String.format("%d traces, %d failed, %d events, peak heap %d MB of %d MB\n",
+				results.size(), failed, events, getPeakHeap() / (1024 * 1024),
+				Runtime.getRuntime().maxMemory() / (1024 * 1024)));
+		return str.toString();
+	}
+
+	/* peak heap of the JVM since it started */
+	public static long getPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	private static void printUsage() {
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.printHelp("MainBatch [options] trace_dir...", options);
+	}
+}
@@ -34,9 +34,12 @@ import org.lttng.flightbox.graph.ExecutionTaskListener;
 import org.lttng.flightbox.graph.TaskGraphExtractor;
 import org.lttng.flightbox.io.ITraceEventHandler;
 import org.lttng.flightbox.io.ModelBuilder;
+import org.lttng.flightbox.io.ReaderProfile;
+import org.lttng.flightbox.io.TraceReader;
 import org.lttng.flightbox.model.LoggingTaskListener;
 import org.lttng.flightbox.model.SystemModel;
 import org.lttng.flightbox.model.Task;
+import org.lttng.flightbox.replay.ReplayTraceReader;
 import org.lttng.flightbox.statistics.ResourceUsage;
 
 public class MainDependency {
@@ -56,6 +59,7 @@ public class MainDependency {
 		public Boolean verbose;
 		public String dotOutputPrefix;
 		public String outputDir;
+		public Boolean profile;
 	}
 	
 	public static void main(String[] args) throws IOException {
@@ -68,6 +72,7 @@ public class MainDependency {
 		options.addOption("o", "output", true, "graph output file");
 		options.addOption("d", "outdir", true, "directory to output all graphs");
 		options.addOption("v", "verbose", false, "verbose output");
+		options.addOption("P", "profile", false, "print time spent in each hook");
 
 		MainDependency dep = new MainDependency();
 		
@@ -101,8 +106,15 @@ public class MainDependency {
 	}
 
 	private static void doExecutionGraphAnalysis(CmdOptions opts) throws IOException {
+		TraceReader reader = makeReader(opts);
+		System.out.print(executionGraphReport(opts, reader));
+		printProfile(reader);
+	}
+
+	/* write the graph of each task in the output directory */
+	public static String executionGraphReport(CmdOptions opts, TraceReader reader) throws IOException {
 		SystemModel model = new SystemModel();
-		ExecutionTaskListener taskListener = new ExecutionTaskListener();
+		ExecutionTaskListener taskListener = new ExecutionTaskListener(reader.getSession().getGraphManager());
 		model.addTaskListener(taskListener);
 		if (opts.verbose) {
 			LoggingTaskListener loggingTaskListener = new LoggingTaskListener();
@@ -113,7 +125,7 @@ public class MainDependency {
 		ITraceEventHandler[] handlers = new ITraceEventHandler[] { handlerProcess };
 		
 		try {
-			ModelBuilder.buildFromTrace(opts.tracePath, model, handlers);
+			ModelBuilder.build(reader, model, handlers);
 		} catch (JniException e) {
 			System.out.println("Error while reading the trace");
 			System.out.println(e.getMessage());
@@ -125,7 +137,7 @@ public class MainDependency {
 		int processed = 0;
 		File dir = new File(opts.outputDir);
 		dir.mkdirs();
-		ExecGraphManager graphManager = ExecGraphManager.getInstance();
+		ExecGraphManager graphManager = taskListener.getGraphManager();
 		ExecGraph execGraph = graphManager.getGraph();
 		if (execGraph == null) {
 			throw new RuntimeException("Execution graph can't be recovered");
@@ -146,10 +158,10 @@ public class MainDependency {
 			}
 			FileWriter writer = new FileWriter(new File(dir, opts.dotOutputPrefix + t.getProcessId() + ".dot"));
 			dotExporter.export(writer, taskExecGraph);
+			writer.close();
 			processed++;
 		}
-		System.out.println("Tasks skipped: " + skipped);
-		System.out.println("Tasks processed: " + processed);
+		return "Tasks skipped: " + skipped + "\nTasks processed: " + processed + "\n";
 	}
 
 	private static void processArgs(CommandLine cmd, CmdOptions opts) {
@@ -199,6 +211,7 @@ public class MainDependency {
 		if (cmd.hasOption("verbose")) {
 			opts.verbose = true;
 		}
+		opts.profile = cmd.hasOption("profile");
 
 		if (cmd.hasOption("module")) {
 			opts.moduleName = cmd.getOptionValue("module");
@@ -208,19 +221,35 @@ public class MainDependency {
 		}
 		
 		opts.traceFile = new File(opts.tracePath);
-		if (!opts.traceFile.isDirectory() || !opts.traceFile.canRead()) {
+		if ((!opts.traceFile.isDirectory() || !opts.traceFile.canRead()) && !ReplayTraceReader.isReplayFile(opts.tracePath)) {
 			System.out.println("Error: can't read directory " + opts.tracePath);
 		}
 	}
 
+	public static TraceReader makeReader(CmdOptions opts) {
+		TraceReader reader = ReplayTraceReader.makeReader(opts.tracePath);
+		if (opts.profile)
+			reader.setProfile(new ReaderProfile());
+		return reader;
+	}
+
+	private static void printProfile(TraceReader reader) {
+		if (reader.getProfile() != null)
+			System.out.print(reader.getProfile().getTable());
+	}
+
 	public static SystemModel buildSystemModelFromTrace(String tracePath, ITraceEventHandler[] handlers) {
+		return buildSystemModelFromTrace(ReplayTraceReader.makeReader(tracePath), handlers);
+	}
+
+	public static SystemModel buildSystemModelFromTrace(TraceReader reader, ITraceEventHandler[] handlers) {
 		SystemModel model = new SystemModel();
 		BlockingTaskListener listener = new BlockingTaskListener();
 		listener.setModel(model);
 		model.addTaskListener(listener);
 		
 		try {
-			ModelBuilder.buildFromTrace(tracePath, model, handlers);
+			ModelBuilder.build(reader, model, handlers);
 		} catch (JniException e) {
 			System.out.println("Error while reading the trace");
 			System.out.println(e.getMessage());
@@ -229,10 +258,16 @@ public class MainDependency {
 	}
 	
 	public static void doDependencyAnalysis(CmdOptions opts) {
+		TraceReader reader = makeReader(opts);
+		System.out.println(dependencyReport(opts, reader));
+		printProfile(reader);
+	}
+
+	public static String dependencyReport(CmdOptions opts, TraceReader reader) {
 		TraceEventHandlerProcess handlerProcess = new TraceEventHandlerProcess();
 		ITraceEventHandler[] handlers = new ITraceEventHandler[] { handlerProcess };
 		
-		SystemModel model = buildSystemModelFromTrace(opts.tracePath, handlers);
+		SystemModel model = buildSystemModelFromTrace(reader, handlers);
 		BlockingModel bm = model.getBlockingModel();
 		Set<Task> tasks = getFilterTasks(opts.pidFilter, opts.cmdFilter, model);
 
@@ -255,7 +290,7 @@ public class MainDependency {
 				BlockingReport.printCpuAccounting(str, t, model, cpuStats);
 			}
 		}
-		System.out.println(str.toString());
+		return str.toString();
 	}
 
 	public static void doBlockingAnalysis(CmdOptions opts) {
@@ -267,7 +302,7 @@ public class MainDependency {
 	public static Set<Task> getFilterTasks(List<Integer> pidFilter, List<String> cmdFilter, SystemModel model) {
 		TreeSet<Task> tasks = new TreeSet<Task>();
 		if (pidFilter.isEmpty() && cmdFilter.isEmpty()) {
-			for (Set<Task> t: model.getTasks().values()) {
+			for (List<Task> t: model.getTasks().values()) {
 				tasks.addAll(t);
 			}
 			return tasks;
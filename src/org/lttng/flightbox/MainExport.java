@@ -0,0 +1,68 @@
+package org.lttng.flightbox;
+
+import java.io.File;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.replay.ReplayExporter;
+import org.lttng.flightbox.replay.ReplayWriter;
+
+/*
+ * Convert a trace to a replay file, that other commands read in place
+ * of the trace directory
+ */
+public class MainExport {
+
+	static Options options;
+
+	public static void main(String[] args) throws JniException {
+		options = new Options();
+		options.addOption("h", "help", false, "this help");
+		options.addOption("t", "trace", true, "trace path");
+		options.addOption("o", "output", true, "replay file (default <trace>" + ReplayWriter.SUFFIX + ")");
+
+		CommandLineParser parser = new PosixParser();
+		CommandLine cmd = null;
+		try {
+			cmd = parser.parse(options, args);
+		} catch (ParseException e) {
+			System.out.println("Error parsing arguments");
+			printUsage();
+			System.exit(1);
+		}
+		if (cmd.hasOption("help")) {
+			printUsage();
+			System.exit(0);
+		}
+		if (!cmd.hasOption("trace")) {
+			printUsage();
+			System.exit(1);
+		}
+		String tracePath = cmd.getOptionValue("trace");
+		File traceDir = new File(tracePath);
+		if (!traceDir.isDirectory()) {
+			System.out.println("Error: can't read directory " + tracePath);
+			System.exit(1);
+		}
+		File output = new File(cmd.getOptionValue("output", traceDir.getAbsoluteFile().getParent() + File.separator + traceDir.getName() + ReplayWriter.SUFFIX));
+
+		long t1 = System.currentTimeMillis();
+		ReplayExporter exporter = new ReplayExporter(output);
+		TraceReader reader = new TraceReader(tracePath);
+		reader.register(exporter);
+		reader.process();
+		long t2 = System.currentTimeMillis();
+		System.out.println(exporter.getCount() + " events written to " + output + " (" + output.length() + " bytes) in " + (t2 - t1) + " ms");
+	}
+
+	private static void printUsage() {
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.printHelp("MainExport -t trace_dir [-o file" + ReplayWriter.SUFFIX + "]", options);
+	}
+}
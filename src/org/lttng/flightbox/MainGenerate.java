@@ -0,0 +1,94 @@
+package org.lttng.flightbox;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.lttng.flightbox.replay.ReplayExporter;
+import org.lttng.flightbox.replay.ReplayWriter;
+import org.lttng.flightbox.stub.SyntheticTraceGenerator;
+import org.lttng.flightbox.stub.SyntheticTraceReader;
+
+/*
+ * Generate a synthetic trace, written as a replay file, or as a stub
+ * trace when the output ends with .xml
+ */
+public class MainGenerate {
+
+	static Options options;
+
+	public static void main(String[] args) throws JniException {
+		options = new Options();
+		options.addOption("h", "help", false, "this help");
+		options.addOption("o", "output", true, "output file (" + ReplayWriter.SUFFIX + " or .xml)");
+		options.addOption("e", "events", true, "number of events (default 1000000)");
+		options.addOption("c", "cpus", true, "number of cpus (default 4)");
+		options.addOption("n", "tasks", true, "number of tasks (default 64)");
+		options.addOption("s", "seed", true, "seed of the workload (default 1)");
+		options.addOption("i", "inventory", true, "inventory of a stub trace (default " + SyntheticTraceGenerator.DEFAULT_INVENTORY + ")");
+
+		CommandLineParser parser = new PosixParser();
+		CommandLine cmd = null;
+		try {
+			cmd = parser.parse(options, args);
+		} catch (ParseException e) {
+			System.out.println("Error parsing arguments");
+			printUsage();
+			System.exit(1);
+		}
+		if (cmd.hasOption("help")) {
+			printUsage();
+			System.exit(0);
+		}
+		if (!cmd.hasOption("output")) {
+			printUsage();
+			System.exit(1);
+		}
+
+		SyntheticTraceGenerator generator = new SyntheticTraceGenerator();
+		try {
+			if (cmd.hasOption("events"))
+				generator.setEvents(Long.parseLong(cmd.getOptionValue("events")));
+			if (cmd.hasOption("cpus"))
+				generator.setCpus(Integer.parseInt(cmd.getOptionValue("cpus")));
+			if (cmd.hasOption("tasks"))
+				generator.setTasks(Integer.parseInt(cmd.getOptionValue("tasks")));
+			if (cmd.hasOption("seed"))
+				generator.setSeed(Long.parseLong(cmd.getOptionValue("seed")));
+		} catch (NumberFormatException e) {
+			System.out.println("Error: " + e.getMessage());
+			printUsage();
+			System.exit(1);
+		}
+		if (generator.getCpus() < 1 || generator.getTasks() < 1 || generator.getEvents() < 0) {
+			System.out.println("Error: cpus and tasks must be positive");
+			System.exit(1);
+		}
+
+		File output = new File(cmd.getOptionValue("output"));
+		long t1 = System.currentTimeMillis();
+		if (output.getName().endsWith(".xml")) {
+			try {
+				generator.writeStub(output, cmd.getOptionValue("inventory", SyntheticTraceGenerator.DEFAULT_INVENTORY));
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
+				System.exit(1);
+			}
+		} else {
+			ReplayExporter.export(new SyntheticTraceReader(generator), output);
+		}
+		long t2 = System.currentTimeMillis();
+		System.out.println(generator + " written to " + output + " (" + output.length() + " bytes) in " + (t2 - t1) + " ms");
+	}
+
+	private static void printUsage() {
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.printHelp("MainGenerate -o file [-e events] [-c cpus] [-n tasks] [-s seed] [-i inventory]", options);
+	}
+}
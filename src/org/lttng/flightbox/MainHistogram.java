@@ -14,7 +14,9 @@ import org.lttng.flightbox.histogram.HistogramPainter;
 import org.lttng.flightbox.histogram.QueryStateHistory;
 import org.lttng.flightbox.histogram.TraceEventHandlerHistogram;
 import org.lttng.flightbox.histogram.TraceEventHandlerHistogramSHT;
+import org.lttng.flightbox.io.ReaderProfile;
 import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.replay.ReplayTraceReader;
 
 import statehistory.StateHistorySystem;
 import statehistory.common.AttributeNotFoundException;
@@ -39,6 +41,7 @@ public class MainHistogram {
 		options.addOption("w", "width", true, "histogram width");
         options.addOption("r", "rebuild", false, "rebuild the state history, don't use cache");
         options.addOption("v", "verbose", false, "verbose mode");
+        options.addOption("P", "profile", false, "print time spent in each hook");
 
 		CommandLineParser parser = new PosixParser();
 		CommandLine cmd = parser.parse(options, args);
@@ -46,6 +49,7 @@ public class MainHistogram {
 		boolean useHistory = cmd.hasOption("s") || cmd.hasOption("state");
 		boolean rebuildHistory = cmd.hasOption("r") || cmd.hasOption("rebuild");
 		boolean verbose = cmd.hasOption("v") || cmd.hasOption("verbose");
+		boolean profile = cmd.hasOption("P") || cmd.hasOption("profile");
 		String imagePath = null;
 		String tracePath = null;
 		File traceDir = null;
@@ -70,8 +74,8 @@ public class MainHistogram {
 		if (cmd.hasOption("trace")) {
 			tracePath = cmd.getOptionValue("trace");
 			traceDir = new File(tracePath);
-			if (!traceDir.isDirectory()) {
-				throw new IOException("The trace path must be a directory");
+			if (!traceDir.isDirectory() && !ReplayTraceReader.isReplayFile(tracePath)) {
+				throw new IOException("The trace path must be a directory or a replay file");
 			}
 		} else {
 			printUsage();
@@ -86,14 +90,14 @@ public class MainHistogram {
 		    File shsFile = getHistoryFile(traceDir);
             rebuildHistory = !shsFile.exists() || rebuildHistory;
 		    if (rebuildHistory) {
-		        computeHistory(shsFile, tracePath);
+		        computeHistory(shsFile, tracePath, profile);
 		    }
 		    t2 = System.currentTimeMillis();
 		    shs = new StateHistorySystem(shsFile.getPath());
 	        samples = computeFromHistoryCache(shsFile, imageWidth, shs);
 		} else {
 		    t2 = System.currentTimeMillis();
-		    samples = computeRaw(tracePath, imageWidth);
+		    samples = computeRaw(tracePath, imageWidth, profile);
 		}
 		
 		t3 = System.currentTimeMillis();
@@ -113,10 +117,18 @@ public class MainHistogram {
 
 	}
 
-	private static int[] computeRaw(String tracePath, int imageWidth) throws JniException {
+	private static int[] computeRaw(String tracePath, int imageWidth, boolean profile) throws JniException {
+        TraceReader traceReader = ReplayTraceReader.makeReader(tracePath);
+        if (profile)
+            traceReader.setProfile(new ReaderProfile());
+        int[] samples = computeRaw(traceReader, imageWidth);
+        printProfile(traceReader);
+        return samples;
+	}
+
+	public static int[] computeRaw(TraceReader traceReader, int imageWidth) throws JniException {
         TraceEventHandlerHistogram handler = new TraceEventHandlerHistogram();
         handler.setNbSamples(imageWidth);
-        TraceReader traceReader = new TraceReader(tracePath);
         traceReader.register(handler);
         traceReader.process();
         return handler.getSamples();
@@ -128,8 +140,10 @@ public class MainHistogram {
         return QueryStateHistory.getSamples(shs, attributeQuark, imageWidth);
     }
 
-    private static void computeHistory(File shsFile, String tracePath) throws JniException, IOException {
-        TraceReader traceReader = new TraceReader(tracePath);
+    private static void computeHistory(File shsFile, String tracePath, boolean profile) throws JniException, IOException {
+        TraceReader traceReader = ReplayTraceReader.makeReader(tracePath);
+        if (profile)
+            traceReader.setProfile(new ReaderProfile());
         traceReader.loadTrace();
         Long startTime = traceReader.getStartTime();
         StateHistorySystem shs = new StateHistorySystem(shsFile.getPath(), startTime);
@@ -137,6 +151,12 @@ public class MainHistogram {
         handler.setStateHistorySystem(shs);
         traceReader.register(handler);
         traceReader.process();
+        printProfile(traceReader);
+    }
+
+    private static void printProfile(TraceReader traceReader) {
+        if (traceReader.getProfile() != null)
+            System.out.print(traceReader.getProfile().getTable());
     }
 
     private static void printHistoryTreeStats(StateHistorySystem shs) {
@@ -5,6 +5,9 @@ import java.util.TreeMap;
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
 import org.lttng.flightbox.io.EventData;
+import org.lttng.flightbox.io.FieldRef;
+import org.lttng.flightbox.io.ITraceFollowHandler;
+import org.lttng.flightbox.io.ITraceHookCallback;
 import org.lttng.flightbox.io.TraceEventHandlerBase;
 import org.lttng.flightbox.io.TraceHook;
 import org.lttng.flightbox.io.TraceReader;
@@ -16,7 +19,7 @@ import org.lttng.flightbox.statistics.ResourceUsage;
  * Provides the current task running on a CPU according to scheduling events
  */
 
-public class TraceEventHandlerProcess extends TraceEventHandlerBase {
+public class TraceEventHandlerProcess extends TraceEventHandlerBase implements ITraceFollowHandler {
 
 	int count;
 	JniTrace trace;
@@ -30,13 +33,48 @@ public class TraceEventHandlerProcess extends TraceEventHandlerBase {
 	private double start;
 	private double end;
 	private TraceReader traceReader;
+	private final FieldRef schedPrevPid;
+	private final FieldRef schedNextPid;
+	private final FieldRef forkParentPid;
+	private final FieldRef forkChildPid;
+	private final FieldRef execFilename;
+	private final FieldRef statePid;
+	private final FieldRef stateName;
 
 	public TraceEventHandlerProcess() {
 		super();
-		hooks.add(new TraceHook("kernel", "sched_schedule"));
-		hooks.add(new TraceHook("kernel", "process_fork"));
-		hooks.add(new TraceHook("fs", "exec"));
-		hooks.add(new TraceHook("task_state", "process_state"));
+		TraceHook hook;
+		hook = new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_sched_schedule(reader, event);
+			}
+		});
+		schedPrevPid = hook.addField("prev_pid");
+		schedNextPid = hook.addField("next_pid");
+		hooks.add(hook);
+		hook = new TraceHook("kernel", "process_fork", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_process_fork(reader, event);
+			}
+		});
+		forkParentPid = hook.addField("parent_pid");
+		forkChildPid = hook.addField("child_pid");
+		hooks.add(hook);
+		hook = new TraceHook("fs", "exec", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fs_exec(reader, event);
+			}
+		});
+		execFilename = hook.addField("filename");
+		hooks.add(hook);
+		hook = new TraceHook("task_state", "process_state", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_task_state_process_state(reader, event);
+			}
+		});
+		statePid = hook.addField("pid");
+		stateName = hook.addField("name");
+		hooks.add(hook);
 	}
 
 	@Override
@@ -58,9 +96,9 @@ public class TraceEventHandlerProcess extends TraceEventHandlerBase {
 
 		count++;
 		Long cpu = event.getParentTracefile().getCpuNumber();
-		double eventTs = event.getEventTime().getTime();
-		Long prev_pid = (Long) event.parseFieldByName("prev_pid");
-		Long next_pid = (Long) event.parseFieldByName("next_pid");
+		double eventTs = event.getTimestampNs();
+		Long prev_pid = schedPrevPid.getLong(event);
+		Long next_pid = schedNextPid.getLong(event);
 
 		// FIXME: how to get the cmd of the process?
 		double t = 0;
@@ -83,17 +121,17 @@ public class TraceEventHandlerProcess extends TraceEventHandlerBase {
 
 		procStats.addInterval(t, eventTs, prev_pid, TaskState.USER);
 		// update history to keep track of previous event
-		eventHistory.get(prev_pid).update(event);
-		eventHistory.get(next_pid).update(event);
-		cpuHistory.get(cpu).update(event);
+		eventHistory.get(prev_pid).update(event, schedPrevPid);
+		eventHistory.get(next_pid).update(event, schedNextPid);
+		cpuHistory.get(cpu).update(event, schedNextPid);
 	}
 
 	public void handle_task_state_process_state(TraceReader reader, JniEvent event) {
 			Task proc = new Task();
-			double eventTs = event.getEventTime().getTime();
-			Long pid = (Long) event.parseFieldByName("pid");
+			double eventTs = event.getTimestampNs();
+			Long pid = statePid.getLong(event);
 			proc.setProcessId(pid.intValue());
-			proc.setCmd((String) event.parseFieldByName("name"));
+			proc.setCmd(stateName.getString(event));
 			procInfo.put(pid, proc);
 			/* FIXME: adding empty interval should not be required */
 			procStats.addInterval(eventTs, eventTs, pid, TaskState.USER);
@@ -102,7 +140,7 @@ public class TraceEventHandlerProcess extends TraceEventHandlerBase {
 	public void handle_fs_exec(TraceReader reader, JniEvent event) {
 			Long cpu = event.getParentTracefile().getCpuNumber();
 			Long pid = (Long) cpuHistory.get(cpu).get("next_pid");
-			String filename = (String) event.parseFieldByName("filename");
+			String filename = execFilename.getString(event);
 			Task proc = new Task();
 			proc.setProcessId(pid.intValue());
 			proc.setCmd(filename);
@@ -110,14 +148,22 @@ public class TraceEventHandlerProcess extends TraceEventHandlerBase {
 	}
 
 	public void handle_kernel_process_fork(TraceReader reader, JniEvent event) {
-		Long parent_pid = (Long) event.parseFieldByName("parent_pid");
-		Long child_pid = (Long) event.parseFieldByName("child_pid");
+		Long parent_pid = forkParentPid.getLong(event);
+		Long child_pid = forkChildPid.getLong(event);
 		Task proc = new Task();
 		proc.setProcessId(child_pid.intValue());
 		proc.setCmd(procInfo.get(parent_pid).getCmd());
 		procInfo.put(child_pid, proc);
 	}
 
+	/* the trace is followed, stats extend to its new end */
+	@Override
+	public void handleUpdate(TraceReader reader, JniTrace trace) {
+		this.trace = trace;
+		end = Math.max(end, trace.getEndTime().getTime());
+		procStats.extendTo(end);
+	}
+
 	@Override
 	public void handleComplete(TraceReader reader) {
 		// finish intervals until trace end
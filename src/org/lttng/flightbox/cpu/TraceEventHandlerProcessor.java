@@ -2,6 +2,7 @@ package org.lttng.flightbox.cpu;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.lttng.flightbox.io.ITraceHookCallback;
 import org.lttng.flightbox.io.TraceEventHandlerBase;
 import org.lttng.flightbox.io.TraceHook;
 import org.lttng.flightbox.io.TraceReader;
@@ -14,8 +15,16 @@ public class TraceEventHandlerProcessor extends TraceEventHandlerBase {
 
 	public TraceEventHandlerProcessor() {
 		super();
-		hooks.add(new TraceHook("pm", "idle_entry"));
-		hooks.add(new TraceHook("pm", "idle_exit"));
+		hooks.add(new TraceHook("pm", "idle_entry", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_pm_idle_entry(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("pm", "idle_exit", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_pm_idle_exit(reader, event);
+			}
+		}));
 	}
 	
 	public void handleInit(TraceReader reader, JniTrace trace) {
@@ -5,6 +5,8 @@ import java.util.HashMap;
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
 import org.lttng.flightbox.io.EventData;
+import org.lttng.flightbox.io.FieldRef;
+import org.lttng.flightbox.io.ITraceHookCallback;
 import org.lttng.flightbox.io.TraceEventHandlerBase;
 import org.lttng.flightbox.io.TraceHook;
 import org.lttng.flightbox.io.TraceReader;
@@ -20,10 +22,19 @@ public class TraceEventHandlerStats extends TraceEventHandlerBase {
 	ResourceUsage<Long> cpuStats;
 	private double start;
 	private double end;
+	private final FieldRef prevPidRef;
+	private final FieldRef nextPidRef;
 	
 	public TraceEventHandlerStats() {
 		super();
-		hooks.add(new TraceHook("kernel", "sched_schedule"));
+		TraceHook hook = new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_sched_schedule(reader, event);
+			}
+		});
+		prevPidRef = hook.addField("prev_pid");
+		nextPidRef = hook.addField("next_pid");
+		hooks.add(hook);
 	}
 	
 	@Override
@@ -39,9 +50,8 @@ public class TraceEventHandlerStats extends TraceEventHandlerBase {
 	public void handle_kernel_sched_schedule(TraceReader reader, JniEvent event) {
 		count++;
 		Long cpu = event.getParentTracefile().getCpuNumber();
-		long eventTs = event.getEventTime().getTime();
-		Long prev_pid = (Long) event.parseFieldByName("prev_pid");
-		Long next_pid = (Long) event.parseFieldByName("next_pid");
+		long eventTs = event.getTimestampNs();
+		long prev_pid = prevPidRef.getLong(event);
 		
 		double t = 0;
 		if (cpuHistory.containsKey(cpu)) { // we have a previous event
@@ -54,7 +64,7 @@ public class TraceEventHandlerStats extends TraceEventHandlerBase {
 			cpuStats.addInterval(t, eventTs, cpu, TaskState.USER);
 		}
 		// update history to keep track of previous event
-		cpuHistory.get(cpu).update(event);
+		cpuHistory.get(cpu).update(event, nextPidRef);
 	}
 
 	@Override
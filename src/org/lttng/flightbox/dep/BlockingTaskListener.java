@@ -1,5 +1,7 @@
 package org.lttng.flightbox.dep;
 
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.TreeSet;
 
 import org.lttng.flightbox.model.AbstractTaskListener;
@@ -54,4 +56,10 @@ public class BlockingTaskListener extends AbstractTaskListener {
 		}
 		return m;
 	}
+
+	/* BlockingItem keeps the wakeup and the waiting syscall, WaitInfo retains them */
+	@Override
+	public Set<TaskState> getRetainedStates() {
+		return EnumSet.noneOf(TaskState.class);
+	}
 }
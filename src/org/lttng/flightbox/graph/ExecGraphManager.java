@@ -8,27 +8,18 @@ import java.util.TreeSet;
 import org.lttng.flightbox.model.Task;
 
 /*
- * Shared instance of a graph
+ * Execution graph of an analysis, see AnalysisSession
  */
 public class ExecGraphManager {
 
-	/* singleton */
-	private static ExecGraphManager instance = null;
-	
 	private ExecGraph graph;
 	private Map<Task, TreeSet<ExecVertex>> taskVertex;
 	
-	private ExecGraphManager() {
+	public ExecGraphManager() {
 		graph = new ExecGraph(ExecEdge.class);
 		taskVertex = new HashMap<Task, TreeSet<ExecVertex>>();
 	}
 	
-	public static ExecGraphManager getInstance() {
-		if (instance == null)
-			instance = new ExecGraphManager();
-		return instance;
-	}
-	
 	public void appendVertex(ExecVertex v) {
 		graph.addVertex(v);
 		Task t = v.getTask();
@@ -1,5 +1,7 @@
 package org.lttng.flightbox.graph;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.lttng.flightbox.model.Task;
 
 public class ExecVertex implements Comparable<ExecVertex> {
@@ -9,7 +11,7 @@ public class ExecVertex implements Comparable<ExecVertex> {
 	}
 	
 	private String label;
-	private static int count = 0;
+	private static final AtomicInteger count = new AtomicInteger();
 	private int id;
 	private long ts;
 	private ExecType type;
@@ -17,7 +19,7 @@ public class ExecVertex implements Comparable<ExecVertex> {
 	private boolean resolved;
 
 	public ExecVertex() {
-		this(count++);
+		this(count.getAndIncrement());
 	}
 	public ExecVertex(int id) {
 		this(id, 0);
@@ -29,7 +31,7 @@ public class ExecVertex implements Comparable<ExecVertex> {
 		setResolved(true);
 	}
 	public ExecVertex(Task task, long ts, ExecType exe) {
-		setId(count++);
+		setId(count.getAndIncrement());
 		setTask(task);
 		setTimestamp(ts);
 		setType(exe);
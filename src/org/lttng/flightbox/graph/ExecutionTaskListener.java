@@ -1,7 +1,9 @@
 package org.lttng.flightbox.graph;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -17,13 +19,23 @@ import org.lttng.flightbox.model.state.WaitInfo;
 
 public class ExecutionTaskListener extends AbstractTaskListener {
 
+	private final ExecGraphManager graphManager;
+
 	public ExecutionTaskListener() {
+		this(new ExecGraphManager());
+	}
+
+	public ExecutionTaskListener(ExecGraphManager graphManager) {
+		this.graphManager = graphManager;
+	}
+
+	public ExecGraphManager getGraphManager() {
+		return graphManager;
 	}
 	
 	@Override
 	public void pushState(Task task, StateInfo nextState) {
 		TaskState taskState = nextState.getTaskState();
-		ExecGraphManager graphManager = ExecGraphManager.getInstance();
 		ExecGraph graph = graphManager.getGraph();
 		
 		switch (taskState) {
@@ -54,7 +66,6 @@ public class ExecutionTaskListener extends AbstractTaskListener {
 	public void popState(Task task, StateInfo nextState) {
 		StateInfo currState = task.peekState();
 		TaskState taskState = currState.getTaskState();
-		ExecGraphManager graphManager = ExecGraphManager.getInstance();
 		switch (taskState) {
 		case EXIT :
 			ExitInfo exit = (ExitInfo) currState;
@@ -87,7 +98,6 @@ public class ExecutionTaskListener extends AbstractTaskListener {
 		
 		/* the task was waiting directly on a local process
 		 * either for process exit or a kernel thread (which is always in SYSCALL state) */
-		ExecGraphManager graphManager = ExecGraphManager.getInstance();
 		ExecGraph graph = graphManager.getGraph();
 		switch (state.getTaskState()) {
 		case EXIT:
@@ -130,4 +140,9 @@ public class ExecutionTaskListener extends AbstractTaskListener {
 		}
 	}
 
+	/* states are only read while they are popped */
+	@Override
+	public Set<TaskState> getRetainedStates() {
+		return EnumSet.noneOf(TaskState.class);
+	}
 }
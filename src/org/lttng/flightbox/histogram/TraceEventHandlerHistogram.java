@@ -2,6 +2,7 @@ package org.lttng.flightbox.histogram;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.lttng.flightbox.io.ITraceHookCallback;
 import org.lttng.flightbox.io.TraceEventHandlerBase;
 import org.lttng.flightbox.io.TraceHook;
 import org.lttng.flightbox.io.TraceReader;
@@ -16,7 +17,11 @@ public class TraceEventHandlerHistogram extends TraceEventHandlerBase {
 
 	public TraceEventHandlerHistogram() {
 		super();
-		hooks.add(new TraceHook());
+		hooks.add(new TraceHook(new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_all_event(reader, event);
+			}
+		}));
 	}
 
 	@Override
@@ -33,7 +38,7 @@ public class TraceEventHandlerHistogram extends TraceEventHandlerBase {
 	}
 
 	public void handle_all_event(TraceReader reader, JniEvent event) {
-		long t = event.getEventTime().getTime();
+		long t = event.getTimestampNs();
 		int x = (int) ((t - start) * nbSamples / duration);
 		samples[x]++;
 	}
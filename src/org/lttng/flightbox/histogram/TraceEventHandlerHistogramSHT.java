@@ -2,6 +2,7 @@ package org.lttng.flightbox.histogram;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.lttng.flightbox.io.ITraceHookCallback;
 import org.lttng.flightbox.io.TraceEventHandlerBase;
 import org.lttng.flightbox.io.TraceHook;
 import org.lttng.flightbox.io.TraceReader;
@@ -17,7 +18,11 @@ public class TraceEventHandlerHistogramSHT extends TraceEventHandlerBase {
 
 	public TraceEventHandlerHistogramSHT() {
 		super();
-		hooks.add(new TraceHook());
+		hooks.add(new TraceHook(new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_all_event(reader, event);
+			}
+		}));
 	}
 
 	@Override
@@ -41,7 +46,7 @@ public class TraceEventHandlerHistogramSHT extends TraceEventHandlerBase {
 	public void handle_all_event(TraceReader reader, JniEvent event) {
 		if (shs == null)
 			return;
-		long t = event.getEventTime().getTime();
+		long t = event.getTimestampNs();
 		shs.incrementAttribute(t, attributeId);
 	}
 
@@ -0,0 +1,40 @@
+package org.lttng.flightbox.io;
+
+import org.lttng.flightbox.graph.ExecGraphManager;
+import org.lttng.flightbox.model.SystemModel;
+
+/*
+ * State of one analysis: current time, execution graph and model of
+ * the trace. Each TraceReader owns its session, nothing is shared
+ * between readers, hence independent traces can be analyzed on
+ * separate threads. A session is used by one thread at a time.
+ */
+public class AnalysisSession {
+
+	private final TimeKeeper timeKeeper;
+	private ExecGraphManager graphManager;
+	private SystemModel model;
+
+	public AnalysisSession() {
+		timeKeeper = new TimeKeeper();
+	}
+
+	public TimeKeeper getTimeKeeper() {
+		return timeKeeper;
+	}
+
+	/* created on first use, most analyses don't need a graph */
+	public ExecGraphManager getGraphManager() {
+		if (graphManager == null)
+			graphManager = new ExecGraphManager();
+		return graphManager;
+	}
+
+	public void setModel(SystemModel model) {
+		this.model = model;
+	}
+
+	public SystemModel getModel() {
+		return model;
+	}
+}
@@ -0,0 +1,106 @@
+package org.lttng.flightbox.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.lttng.flightbox.model.ModelCheckpoint;
+
+/*
+ * Model checkpoints of a trace, stored in a file next to it. The file
+ * starts with a header, followed by the checkpoints in time order, and
+ * ends with a table of their timestamps and offsets:
+ *
+ *   header:     magic, version
+ *   checkpoint: timestamp, length, data
+ *   table:      count, (timestamp, offset) * count
+ *   trailer:    table offset, magic
+ *
+ * Only the table is read when the index is opened, a checkpoint is read
+ * by seeking to its offset.
+ */
+public class CheckpointIndex {
+
+	public static final int MAGIC = 0x46424350;
+	public static final int VERSION = 1;
+	public static final String SUFFIX = ".ckpt";
+
+	private final RandomAccessFile file;
+	private final long[] timestamps;
+	private final long[] offsets;
+
+	private CheckpointIndex(RandomAccessFile file, long[] timestamps, long[] offsets) {
+		this.file = file;
+		this.timestamps = timestamps;
+		this.offsets = offsets;
+	}
+
+	/* file of the checkpoints of the trace at tracePath */
+	public static File getIndexFile(String tracePath) {
+		File trace = new File(tracePath).getAbsoluteFile();
+		return new File(trace.getParentFile(), trace.getName() + SUFFIX);
+	}
+
+	public static CheckpointIndex open(File indexFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+		try {
+			if (file.length() < 20 || file.readInt() != MAGIC)
+				throw new IOException("Not a checkpoint index: " + indexFile);
+			if (file.readInt() != VERSION)
+				throw new IOException("Unsupported checkpoint index version: " + indexFile);
+			file.seek(file.length() - 12);
+			long tableOffset = file.readLong();
+			if (file.readInt() != MAGIC)
+				throw new IOException("Incomplete checkpoint index: " + indexFile);
+			file.seek(tableOffset);
+			int count = file.readInt();
+			long[] timestamps = new long[count];
+			long[] offsets = new long[count];
+			for (int i = 0; i < count; i++) {
+				timestamps[i] = file.readLong();
+				offsets[i] = file.readLong();
+			}
+			return new CheckpointIndex(file, timestamps, offsets);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	public int size() {
+		return timestamps.length;
+	}
+
+	public long getTimestamp(int i) {
+		return timestamps[i];
+	}
+
+	/* index of the latest checkpoint at or before ts, -1 if none */
+	public int findBefore(long ts) {
+		int low = 0;
+		int high = timestamps.length - 1;
+		int found = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (timestamps[mid] <= ts) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return found;
+	}
+
+	public ModelCheckpoint read(int i) throws IOException {
+		file.seek(offsets[i]);
+		long timestamp = file.readLong();
+		byte[] data = new byte[file.readInt()];
+		file.readFully(data);
+		return new ModelCheckpoint(timestamp, data);
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,66 @@
+package org.lttng.flightbox.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.lttng.flightbox.model.ModelCheckpoint;
+
+/*
+ * Write checkpoints in the format of CheckpointIndex. The table of
+ * checkpoints is written by close(), an index that is not closed
+ * can't be opened.
+ */
+public class CheckpointWriter {
+
+	private final DataOutputStream out;
+	private long offset;
+	private long[] timestamps;
+	private long[] offsets;
+	private int count;
+
+	public CheckpointWriter(File indexFile) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+		timestamps = new long[64];
+		offsets = new long[64];
+		out.writeInt(CheckpointIndex.MAGIC);
+		out.writeInt(CheckpointIndex.VERSION);
+		offset = 8;
+	}
+
+	public void append(ModelCheckpoint checkpoint) throws IOException {
+		if (count == timestamps.length) {
+			long[] grown = new long[count * 2];
+			System.arraycopy(timestamps, 0, grown, 0, count);
+			timestamps = grown;
+			grown = new long[count * 2];
+			System.arraycopy(offsets, 0, grown, 0, count);
+			offsets = grown;
+		}
+		timestamps[count] = checkpoint.getTimestamp();
+		offsets[count] = offset;
+		count++;
+		byte[] data = checkpoint.getData();
+		out.writeLong(checkpoint.getTimestamp());
+		out.writeInt(data.length);
+		out.write(data);
+		offset += 12 + data.length;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public void close() throws IOException {
+		out.writeInt(count);
+		for (int i = 0; i < count; i++) {
+			out.writeLong(timestamps[i]);
+			out.writeLong(offsets[i]);
+		}
+		out.writeLong(offset);
+		out.writeInt(CheckpointIndex.MAGIC);
+		out.close();
+	}
+}
@@ -24,12 +24,27 @@ public class EventData {
 			Object o = event.parseFieldByName(fieldName);
 			values.put(fieldName, o);
 		}
-		ts = event.getEventTime().getTime();
+		ts = event.getTimestampNs();
 		cpu = event.getParentTracefile().getCpuNumber();
 		name = markers.getName();
 		type = event.getParentTracefile().getTracefileName();
 	}
 	
+	/*
+	 * Same as update(JniEvent), but keeps only the given fields 
+	 * instead of parsing the whole payload
+	 */
+	public void update(JniEvent event, FieldRef... fields) {
+		values.clear();
+		for (FieldRef field: fields) {
+			values.put(field.getName(), field.get(event));
+		}
+		ts = event.getTimestampNs();
+		cpu = event.getParentTracefile().getCpuNumber();
+		name = event.requestEventMarker().getName();
+		type = event.getParentTracefile().getTracefileName();
+	}
+	
 	public Long getTime() {
 		return ts;
 	}
@@ -0,0 +1,184 @@
+package org.lttng.flightbox.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniMarkerField;
+import org.eclipse.linuxtools.lttng.jni.JniPayload;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer;
+
+/*
+ * Detached event whose fields were decoded by a worker thread, into
+ * the slot arrays of its batch, one slot by field position. Numeric
+ * fields are kept as long, strings as objects. Records are reused
+ * with their batch, they are only valid until the reader moves past
+ * the batch, see PipelinedEventReader. Only for events whose fields
+ * are all decodable, see JniPayload.isDecodable(JniMarker). Events
+ * of markers without hooks are recorded without their fields.
+ */
+public class EventRecord extends JniEvent {
+
+	private long timestampNs;
+	private int markerId;
+	private JniMarker marker;
+	private HashMap<Integer, JniMarker> markersMap;
+	private JniTracefile tracefile;
+	private long dataSize;
+	private long[] longs;
+	private Object[] objects;
+	/* slot of the first field, and number of fields decoded */
+	private int offset;
+	private int fieldCount;
+	private JniTime eventTime;
+
+	EventRecord() {
+	}
+
+	/* record the event without its fields */
+	void set(JniEvent event, JniMarker eventMarker) {
+		timestampNs = event.getTimestampNs();
+		markerId = event.getEventMarkerId();
+		markersMap = event.getMarkersMap();
+		marker = eventMarker;
+		tracefile = event.getParentTracefile();
+		dataSize = event.getEventDataSize();
+		longs = null;
+		objects = null;
+		offset = 0;
+		fieldCount = 0;
+		eventTime = null;
+	}
+
+	/* record the event and decode all the fields of its marker at offset */
+	void set(JniEvent event, JniMarker eventMarker, long[] longSlots, Object[] objectSlots, int slot) {
+		JniPayload payload = event.requestEventPayload();
+		ArrayList<JniMarkerField> fields = eventMarker.getMarkerFieldsArrayList();
+		timestampNs = event.getTimestampNs();
+		markerId = event.getEventMarkerId();
+		markersMap = event.getMarkersMap();
+		marker = eventMarker;
+		tracefile = event.getParentTracefile();
+		dataSize = payload.getSize();
+		longs = longSlots;
+		objects = objectSlots;
+		offset = slot;
+		fieldCount = fields.size();
+		eventTime = null;
+		for (int i = 0; i < fieldCount; i++) {
+			JniMarkerField field = fields.get(i);
+			if (field.getType() == JniMarkerField.LTT_TYPE_STRING)
+				objects[slot + i] = payload.getString(field);
+			else
+				longs[slot + i] = payload.getLong(field);
+		}
+	}
+
+	@Override
+	public long getTimestampNs() {
+		return timestampNs;
+	}
+
+	@Override
+	public JniTime getEventTime() {
+		if (eventTime == null)
+			eventTime = new JniTime(timestampNs);
+		return eventTime;
+	}
+
+	@Override
+	public int getEventMarkerId() {
+		return markerId;
+	}
+
+	@Override
+	public HashMap<Integer, JniMarker> getMarkersMap() {
+		return markersMap;
+	}
+
+	@Override
+	public JniMarker requestEventMarker() {
+		return marker;
+	}
+
+	@Override
+	public JniTracefile getParentTracefile() {
+		return tracefile;
+	}
+
+	@Override
+	public long getEventDataSize() {
+		return dataSize;
+	}
+
+	private int slotOf(JniMarkerField field) {
+		if (fieldCount == 0)
+			return -1;
+		int position = field.getPosition();
+		if (position < 0)
+			position = marker.getMarkerFieldsArrayList().indexOf(field);
+		if (position < 0 || position >= fieldCount)
+			return -1;
+		return offset + position;
+	}
+
+	@Override
+	public Object parseField(JniMarkerField field) {
+		int slot = slotOf(field);
+		if (slot < 0)
+			return null;
+		switch (field.getType()) {
+		case JniMarkerField.LTT_TYPE_STRING:
+			return objects[slot];
+		case JniMarkerField.LTT_TYPE_POINTER:
+			if (field.getSize() == 4)
+				return new Jni_C_Pointer((int) longs[slot]);
+			return new Jni_C_Pointer(longs[slot]);
+		default:
+			return Long.valueOf(longs[slot]);
+		}
+	}
+
+	@Override
+	public long parseLongField(JniMarkerField field) {
+		int slot = slotOf(field);
+		if (slot < 0 || field.getType() == JniMarkerField.LTT_TYPE_STRING)
+			return toLong(field.getField(), parseField(field));
+		return longs[slot];
+	}
+
+	@Override
+	public Object parseFieldByName(String fieldName) {
+		if (fieldCount == 0)
+			return null;
+		JniMarkerField field = marker.getMarkerFieldsHashMap().get(fieldName);
+		if (field == null)
+			return null;
+		return parseField(field);
+	}
+
+	@Override
+	public Object parseFieldById(int fieldId) {
+		if (fieldId < 0 || fieldId >= fieldCount)
+			return null;
+		return parseField(marker.getMarkerFieldsArrayList().get(fieldId));
+	}
+
+	@Override
+	public HashMap<String, Object> parseAllFields() {
+		HashMap<String, Object> all = new HashMap<String, Object>();
+		for (int i = 0; i < fieldCount; i++) {
+			JniMarkerField field = marker.getMarkerFieldsArrayList().get(i);
+			all.put(field.getField(), parseField(field));
+		}
+		return all;
+	}
+
+	@Override
+	public HashMap<String, Object> decodeAllFields() {
+		return parseAllFields();
+	}
+}
@@ -0,0 +1,134 @@
+package org.lttng.flightbox.io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniMarkerField;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer;
+
+/*
+ * Detached copy of an event, that remains valid after the trace moved
+ * to the next event. The payload is parsed once when the copy is made,
+ * and kept as arrays of names and values. The tracefile is shared with
+ * the event, only its name, cpu and index are used once it moved.
+ */
+public class EventSnapshot extends JniEvent {
+
+	private final long timestampNs;
+	private final int markerId;
+	private final HashMap<Integer, JniMarker> markersMap;
+	private final JniTracefile tracefile;
+	private final String[] names;
+	private final Object[] values;
+	private final long dataSize;
+	private JniTime eventTime;
+
+	public EventSnapshot(JniEvent event) {
+		timestampNs = event.getTimestampNs();
+		markerId = event.getEventMarkerId();
+		markersMap = event.getMarkersMap();
+		tracefile = event.getParentTracefile();
+		dataSize = event.getEventDataSize();
+		HashMap<String, Object> fields = event.decodeAllFields();
+		int n = fields == null ? 0 : fields.size();
+		names = new String[n];
+		values = new Object[n];
+		if (fields != null) {
+			int i = 0;
+			for (Map.Entry<String, Object> entry: fields.entrySet()) {
+				names[i] = entry.getKey();
+				values[i] = entry.getValue();
+				i++;
+			}
+		}
+	}
+
+	/* estimate of the memory held by the snapshot, in bytes */
+	public long getMemorySize() {
+		long bytes = 96 + 2 * (16 + 4 * names.length);
+		for (Object value: values) {
+			if (value instanceof String)
+				bytes += 40 + 2 * ((String) value).length();
+			else if (value instanceof Jni_C_Pointer)
+				bytes += 24;
+			else
+				bytes += 16;
+		}
+		return bytes;
+	}
+
+	@Override
+	public JniTime getEventTime() {
+		if (eventTime == null)
+			eventTime = new JniTime(timestampNs);
+		return eventTime;
+	}
+
+	@Override
+	public long getTimestampNs() {
+		return timestampNs;
+	}
+
+	@Override
+	public int getEventMarkerId() {
+		return markerId;
+	}
+
+	@Override
+	public HashMap<Integer, JniMarker> getMarkersMap() {
+		return markersMap;
+	}
+
+	@Override
+	public long getEventDataSize() {
+		return dataSize;
+	}
+
+	@Override
+	public JniMarker requestEventMarker() {
+		return markersMap.get(markerId);
+	}
+
+	@Override
+	public JniTracefile getParentTracefile() {
+		return tracefile;
+	}
+
+	@Override
+	public Object parseFieldByName(String fieldName) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(fieldName))
+				return values[i];
+		}
+		return null;
+	}
+
+	/* fields were parsed when the copy was made */
+	@Override
+	public Object parseField(JniMarkerField markerField) {
+		return parseFieldByName(markerField.getField());
+	}
+
+	@Override
+	public long parseLongField(JniMarkerField markerField) {
+		return toLong(markerField.getField(), parseFieldByName(markerField.getField()));
+	}
+
+	@Override
+	public HashMap<String, Object> parseAllFields() {
+		HashMap<String, Object> fields = new HashMap<String, Object>();
+		for (int i = 0; i < names.length; i++) {
+			fields.put(names[i], values[i]);
+		}
+		return fields;
+	}
+
+	@Override
+	public HashMap<String, Object> decodeAllFields() {
+		return parseAllFields();
+	}
+}
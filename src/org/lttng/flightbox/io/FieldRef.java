@@ -0,0 +1,119 @@
+package org.lttng.flightbox.io;
+
+import java.util.HashMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniMarkerField;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer;
+
+/*
+ * Pre-resolved reference to a field of an event payload.
+ *
+ * A FieldRef is obtained from TraceHook.addField() at registration time.
+ * Markers are per tracefile, the marker field is looked up once for each
+ * tracefile index and marker id, on the first event, instead of by name 
+ * for every event. When the layout of the field is known, it is decoded 
+ * from the payload copied once per event, or read from the slot a 
+ * pipelined worker decoded it into. Events without marker field 
+ * information (i.e. stub events) are parsed by name, and snapshots 
+ * return the values they parsed.
+ */
+
+public class FieldRef {
+
+	/* resolved to no marker field */
+	private static final Object NONE = new Object();
+
+	private final String name;
+	/* marker fields by tracefile index and marker id */
+	private Object[][] fields;
+
+	public FieldRef(String name) {
+		this.name = name;
+		reset();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Object get(JniEvent event) {
+		JniMarkerField field = resolve(event);
+		if (field == null)
+			return event.parseFieldByName(name);
+		return event.parseField(field);
+	}
+
+	public long getLong(JniEvent event) {
+		JniMarkerField field = resolve(event);
+		if (field != null)
+			return event.parseLongField(field);
+		Object o = event.parseFieldByName(name);
+		if (o instanceof Number)
+			return ((Number) o).longValue();
+		if (o instanceof Jni_C_Pointer)
+			return ((Jni_C_Pointer) o).getPointer();
+		throw new RuntimeException("Error: field " + name + " is not numeric: " + o);
+	}
+
+	public int getInt(JniEvent event) {
+		return (int) getLong(event);
+	}
+
+	public String getString(JniEvent event) {
+		Object o = get(event);
+		if (o == null)
+			return null;
+		return o.toString();
+	}
+
+	/* forget the marker fields, they belong to the trace that was open */
+	void reset() {
+		fields = new Object[0][];
+	}
+
+	private JniMarkerField resolve(JniEvent event) {
+		int index = event.getParentTracefile().getTracefileIndex();
+		int id = event.getEventMarkerId();
+		if (index >= 0 && index < fields.length && id >= 0 && id < fields[index].length) {
+			Object field = fields[index][id];
+			if (field != null)
+				return field == NONE ? null : (JniMarkerField) field;
+		}
+		JniMarkerField field = lookup(event.requestEventMarker());
+		if (index >= 0 && id >= 0)
+			put(index, id, field == null ? NONE : field);
+		return field;
+	}
+
+	private JniMarkerField lookup(JniMarker marker) {
+		if (marker == null)
+			return null;
+		HashMap<String, JniMarkerField> markerFields = marker.getMarkerFieldsHashMap();
+		if (markerFields == null)
+			return null;
+		return markerFields.get(name);
+	}
+
+	private void put(int index, int id, Object field) {
+		if (index >= fields.length) {
+			Object[][] grown = new Object[index + 1][];
+			System.arraycopy(fields, 0, grown, 0, fields.length);
+			for (int i = fields.length; i < grown.length; i++)
+				grown[i] = new Object[0];
+			fields = grown;
+		}
+		if (id >= fields[index].length) {
+			Object[] grown = new Object[id + 1];
+			System.arraycopy(fields[index], 0, grown, 0, fields[index].length);
+			fields[index] = grown;
+		}
+		fields[index][id] = field;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,13 @@
+package org.lttng.flightbox.io;
+
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+
+/*
+ * Handlers notified while a trace is followed, see TraceReader.follow()
+ */
+public interface ITraceFollowHandler extends ITraceEventHandler {
+
+	/* called when the trace is reopened, before its new events are dispatched */
+	public void handleUpdate(TraceReader reader, JniTrace trace);
+
+}
@@ -0,0 +1,13 @@
+package org.lttng.flightbox.io;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+
+/*
+ * Typed entry point bound to a TraceHook at registration time, so that
+ * dispatching an event is a plain interface call instead of Method.invoke.
+ */
+public interface ITraceHookCallback {
+
+	public void handleEvent(TraceReader reader, JniEvent event);
+
+}
@@ -1,7 +1,10 @@
 package org.lttng.flightbox.io;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
-import org.lttng.flightbox.cpu.TraceEventHandlerProcess;
+import org.lttng.flightbox.model.ModelCheckpoint;
 import org.lttng.flightbox.model.SystemModel;
 import org.lttng.flightbox.stub.StubTraceReader;
 
@@ -10,42 +13,121 @@ public class ModelBuilder {
 	public static void buildFromTrace(String tracePath, SystemModel model) throws JniException {
 		buildFromTrace(tracePath, model, null);
 	}
-	
+
 	public static void buildFromStubTrace(String xmlTracePath, SystemModel model) throws JniException {
-		// read metadata and statedump
-		TraceEventHandlerModelMeta handlerMeta = new TraceEventHandlerModelMeta();
-		handlerMeta.setModel(model);
-		TraceReader readerMeta = new StubTraceReader(xmlTracePath);
-		readerMeta.register(handlerMeta);
-		readerMeta.process();
-	
-		// read all trace events
-		TraceEventHandlerModel handler = new TraceEventHandlerModel();
-		handler.setModel(model);
-		TraceReader readerTrace = new StubTraceReader(xmlTracePath);
-		readerTrace.register(handler);
-		readerTrace.process();
+		build(new StubTraceReader(xmlTracePath), model, null);
 	}
-	
-	
+
 	public static void buildFromTrace(String tracePath, SystemModel model, ITraceEventHandler[] handlers) throws JniException {
-		// read metadata and statedump
-		TraceEventHandlerModelMeta handlerMeta = new TraceEventHandlerModelMeta();
-		handlerMeta.setModel(model);
-		TraceReader readerMeta = new TraceReader(tracePath);
-		readerMeta.register(handlerMeta);
-		readerMeta.process();
-	
-		// read all trace events
+		build(new TraceReader(tracePath), model, handlers);
+	}
+
+	/*
+	 * Read the trace once. Until statedump_end, only metadata and
+	 * statedump hooks run, and other events are replayed after it.
+	 * The events held are bounded by reader.setMaxDeferredBytes(), and
+	 * none are held if the trace has no statedump, see
+	 * TraceEventHandlerModelMeta.handleInit().
+	 */
+	public static void build(TraceReader reader, SystemModel model, ITraceEventHandler[] handlers) throws JniException {
+		register(reader, model, handlers, true);
+		reader.process();
+	}
+
+	/*
+	 * Build the model and save checkpoints of it in indexFile, see
+	 * TraceEventHandlerCheckpoint for the intervals.
+	 */
+	public static void buildWithCheckpoints(TraceReader reader, SystemModel model, ITraceEventHandler[] handlers,
+			File indexFile, long eventInterval, long timeInterval) throws JniException {
+		TraceEventHandlerModel handler = register(reader, model, handlers, true);
+		TraceEventHandlerCheckpoint handlerCheckpoint = new TraceEventHandlerCheckpoint(handler.getHooks(), indexFile);
+		handlerCheckpoint.setModel(model);
+		handlerCheckpoint.setEventInterval(eventInterval);
+		handlerCheckpoint.setTimeInterval(timeInterval);
+		reader.register(handlerCheckpoint);
+		reader.process();
+	}
+
+	/*
+	 * Build the model from a trace that is still written, see
+	 * TraceReader.follow(). Returns when the reader is cancelled.
+	 */
+	public static void follow(TraceReader reader, SystemModel model, ITraceEventHandler[] handlers, long pollInterval) throws JniException {
+		register(reader, model, handlers, true);
+		reader.follow(pollInterval);
+	}
+
+	public static void buildWindow(TraceReader reader, SystemModel model, ITraceEventHandler[] handlers,
+			long start, long end) throws JniException {
+		buildWindow(reader, model, handlers, CheckpointIndex.getIndexFile(reader.getTracePath()), start, end);
+	}
+
+	/*
+	 * Build the model up to end. The model is restored from the latest
+	 * checkpoint before start, and only the events after the checkpoint
+	 * are read. Without checkpoint, the trace is read from the beginning.
+	 * Handlers see every event that is read.
+	 */
+	public static void buildWindow(TraceReader reader, SystemModel model, ITraceEventHandler[] handlers,
+			File indexFile, long start, long end) throws JniException {
+		ModelCheckpoint checkpoint = findCheckpoint(indexFile, start);
+		if (checkpoint == null) {
+			register(reader, model, handlers, true);
+			reader.process(0, end);
+			return;
+		}
+		TraceEventHandlerModel handler = register(reader, model, handlers, false);
+		handler.setCheckpoint(checkpoint);
+		reader.process(checkpoint.getTimestamp(), end);
+	}
+
+	private static ModelCheckpoint findCheckpoint(File indexFile, long start) {
+		if (indexFile == null || !indexFile.exists())
+			return null;
+		CheckpointIndex index = null;
+		try {
+			index = CheckpointIndex.open(indexFile);
+			int i = index.findBefore(start);
+			if (i < 0)
+				return null;
+			return index.read(i);
+		} catch (IOException e) {
+			System.err.println("Error: can't read checkpoints from " + indexFile + ", reading the whole trace");
+			e.printStackTrace();
+			return null;
+		} finally {
+			if (index != null) {
+				try {
+					index.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/*
+	 * The statedump is not needed when the model is restored from a
+	 * checkpoint, symbol tables and tasks are already in it.
+	 */
+	private static TraceEventHandlerModel register(TraceReader reader, SystemModel model, ITraceEventHandler[] handlers, boolean statedump) {
+		TraceEventHandlerModelMeta handlerMeta = null;
+		if (statedump) {
+			handlerMeta = new TraceEventHandlerModelMeta();
+			handlerMeta.setModel(model);
+			reader.register(handlerMeta);
+		}
+
 		TraceEventHandlerModel handler = new TraceEventHandlerModel();
 		handler.setModel(model);
-		TraceReader readerTrace = new TraceReader(tracePath);
-		readerTrace.register(handler);
+		reader.register(handler);
 		if (handlers != null) {
 			for (ITraceEventHandler hand: handlers) {
-				readerTrace.register(hand);
+				reader.register(hand);
 			}
 		}
-		readerTrace.process();
+		if (handlerMeta != null)
+			reader.setExclusiveHandler(handlerMeta);
+		return handler;
 	}
 }
@@ -0,0 +1,299 @@
+package org.lttng.flightbox.io;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniPayload;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Constant;
+import org.eclipse.linuxtools.lttng.jni.common.LoserTree;
+
+/*
+ * Reads the tracefiles of a trace on one worker thread each. Workers
+ * decode the fields of hooked events into the primitive slots of a
+ * batch, in bounded queues. readNextEvent() merges the batches in the
+ * same order as JniTrace.readNextEvent(), on the calling thread.
+ *
+ * Batches are given back to their worker once the reader moved past
+ * them, with their records and slots, so an event returned by
+ * readNextEvent() is only valid until a batch later. Events to keep
+ * must be copied, see EventSnapshot.
+ *
+ * Native decoding of a tracefile overlaps with the processing of the
+ * events already read. The trace must not be read by other means
+ * between start() and stop().
+ */
+
+public class PipelinedEventReader {
+
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	public static final int DEFAULT_QUEUE_DEPTH = 4;
+
+	/* how the events of a marker are recorded */
+	private static final int UNHOOKED = 0;
+	private static final int DECODED = 1;
+	private static final int SNAPSHOT = 2;
+
+	private static final Batch endOfStream = new Batch(0);
+
+	private final JniTrace trace;
+	private final int batchSize;
+	private final int queueDepth;
+	private Map<String, Set<String>> hookedEvents;
+	private JniTracefile[] tracefiles;
+	private DecodeWorker[] workers;
+	private Batch[] batches;
+	/* batches read entirely, their last event may still be in use */
+	private Batch[] retired;
+	private int[] batchPos;
+	private LoserTree tree;
+	private ReaderProfile profile;
+
+	public PipelinedEventReader(JniTrace trace) {
+		this(trace, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_DEPTH);
+	}
+
+	public PipelinedEventReader(JniTrace trace, int batchSize, int queueDepth) {
+		this.trace = trace;
+		this.batchSize = batchSize;
+		this.queueDepth = queueDepth;
+	}
+
+	/* record the depth of the queues, may be null */
+	public void setProfile(ReaderProfile profile) {
+		this.profile = profile;
+	}
+
+	/*
+	 * Event names by channel whose fields are decoded, the others are
+	 * recorded without fields. Null, the default, decodes every event.
+	 * Read by the workers, it must not change after start().
+	 */
+	public void setHookedEvents(Map<String, Set<String>> hookedEvents) {
+		this.hookedEvents = hookedEvents;
+	}
+
+	public void start() {
+		tracefiles = trace.getMergedTracefiles();
+		if (tracefiles == null)
+			tracefiles = new JniTracefile[0];
+		workers = new DecodeWorker[tracefiles.length];
+		batches = new Batch[tracefiles.length];
+		retired = new Batch[tracefiles.length];
+		batchPos = new int[tracefiles.length];
+		tree = new LoserTree(tracefiles.length);
+		for (int i = 0; i < tracefiles.length; i++) {
+			workers[i] = new DecodeWorker(tracefiles[i]);
+			workers[i].start();
+		}
+		for (int i = 0; i < tracefiles.length; i++) {
+			if (nextBatch(i))
+				tree.set(i, batches[i].events[0].getTimestampNs());
+		}
+		tree.build();
+	}
+
+	public JniEvent readNextEvent() {
+		int winner = tree.getWinner();
+		if (winner < 0)
+			return null;
+		JniEvent event = batches[winner].events[batchPos[winner]++];
+		if (batchPos[winner] < batches[winner].count || nextBatch(winner)) {
+			tree.update(winner, batches[winner].events[batchPos[winner]].getTimestampNs());
+		} else {
+			tree.remove(winner);
+		}
+		return event;
+	}
+
+	public void stop() {
+		if (workers == null)
+			return;
+		for (DecodeWorker worker: workers) {
+			worker.interrupt();
+		}
+		for (DecodeWorker worker: workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		workers = null;
+	}
+
+	/*
+	 * Wait for the next batch of a tracefile, false at the end of the
+	 * tracefile. The batch before the current one is given back, the
+	 * last event of the current one was just returned.
+	 */
+	private boolean nextBatch(int i) {
+		Batch batch;
+		if (retired[i] != null)
+			workers[i].recycle(retired[i]);
+		retired[i] = batches[i];
+		if (profile != null)
+			profile.countQueueDepth(workers[i].queue.size());
+		try {
+			batch = workers[i].queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while reading " + tracefiles[i].getTracefileName(), e);
+		}
+		if (batch == endOfStream) {
+			if (workers[i].error != null)
+				throw new RuntimeException("Error while decoding " + tracefiles[i].getTracefileName(), workers[i].error);
+			batches[i] = null;
+			return false;
+		}
+		batches[i] = batch;
+		batchPos[i] = 0;
+		return true;
+	}
+
+	/*
+	 * Events of a batch, with the slots their fields are decoded into.
+	 * Records and slots are reused when the batch is recycled.
+	 */
+	static class Batch {
+
+		final JniEvent[] events;
+		final EventRecord[] records;
+		int count;
+		long[] longs;
+		Object[] objects;
+		int slots;
+
+		Batch(int size) {
+			events = new JniEvent[size];
+			records = new EventRecord[size];
+			for (int i = 0; i < size; i++)
+				records[i] = new EventRecord();
+			longs = new long[size * 4];
+			objects = new Object[size * 4];
+		}
+
+		boolean isFull() {
+			return count == events.length;
+		}
+
+		void add(JniEvent event, JniMarker marker, int kind) {
+			if (kind == SNAPSHOT) {
+				events[count++] = new EventSnapshot(event);
+				return;
+			}
+			EventRecord record = records[count];
+			if (kind == UNHOOKED) {
+				record.set(event, marker);
+			} else {
+				int n = marker.getMarkerFieldsArrayList().size();
+				/* records already made keep the slots they were decoded into */
+				if (slots + n > longs.length) {
+					int size = Math.max(slots + n, longs.length * 2);
+					longs = new long[size];
+					objects = new Object[size];
+					slots = 0;
+				}
+				record.set(event, marker, longs, objects, slots);
+				slots += n;
+			}
+			events[count++] = record;
+		}
+
+		/* drop the strings and snapshots of the events read */
+		void clear() {
+			Arrays.fill(events, 0, count, null);
+			Arrays.fill(objects, 0, slots, null);
+			count = 0;
+			slots = 0;
+		}
+	}
+
+	class DecodeWorker extends Thread {
+
+		final JniTracefile tracefile;
+		final BlockingQueue<Batch> queue;
+		/* batches given back by the reader */
+		final BlockingQueue<Batch> free;
+		final IdentityHashMap<JniMarker, Integer> kinds;
+		/* queued, filled and held by the reader, the current and the retired one */
+		final int maxBatches = queueDepth + 3;
+		int batchCount;
+		Throwable error;
+
+		DecodeWorker(JniTracefile tracefile) {
+			super("decode-" + tracefile.getTracefileName() + "-" + tracefile.getCpuNumber());
+			this.tracefile = tracefile;
+			this.queue = new ArrayBlockingQueue<Batch>(queueDepth);
+			this.free = new ArrayBlockingQueue<Batch>(maxBatches);
+			this.kinds = new IdentityHashMap<JniMarker, Integer>();
+			setDaemon(true);
+		}
+
+		void recycle(Batch batch) {
+			batch.clear();
+			free.offer(batch);
+		}
+
+		int kindOf(JniMarker marker) {
+			Integer kind = kinds.get(marker);
+			if (kind == null) {
+				Set<String> events = hookedEvents == null ? null : hookedEvents.get(tracefile.getTracefileName());
+				if (hookedEvents != null && (events == null || marker == null || !events.contains(marker.getName())))
+					kind = UNHOOKED;
+				else if (JniPayload.isDecodable(marker))
+					kind = DECODED;
+				else
+					kind = SNAPSHOT;
+				kinds.put(marker, kind);
+			}
+			return kind;
+		}
+
+		Batch nextFree() throws InterruptedException {
+			Batch batch = free.poll();
+			if (batch != null)
+				return batch;
+			if (batchCount < maxBatches) {
+				batchCount++;
+				return new Batch(batchSize);
+			}
+			return free.take();
+		}
+
+		@Override
+		public void run() {
+			try {
+				Batch batch = nextFree();
+				JniEvent event = tracefile.getCurrentEvent();
+				while (event.getEventState() == Jni_C_Constant.EOK) {
+					JniMarker marker = event.requestEventMarker();
+					batch.add(event, marker, kindOf(marker));
+					if (batch.isFull()) {
+						queue.put(batch);
+						batch = nextFree();
+					}
+					tracefile.readNextEvent();
+				}
+				if (batch.count > 0)
+					queue.put(batch);
+			} catch (InterruptedException e) {
+				return;
+			} catch (Throwable t) {
+				error = t;
+			}
+			try {
+				queue.put(endOfStream);
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+}
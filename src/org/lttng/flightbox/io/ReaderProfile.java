@@ -0,0 +1,275 @@
+package org.lttng.flightbox.io;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+
+/*
+ * Profiling counters of a TraceReader. Hook invocations are counted
+ * exactly, but only one invocation out of samplePeriod is timed, the
+ * total time of a hook is extrapolated from the sampled ones. The size
+ * of events is sampled the same way, it is a native call for events of
+ * a JniTrace. While the reader runs, counters are available as a JMX
+ * MBean. They are only written by the reader thread, and volatile so
+ * that JMX reads their current value.
+ */
+public class ReaderProfile implements ReaderProfileMBean {
+
+	public static final int DEFAULT_SAMPLE_PERIOD = 16;
+	public static final String DOMAIN = "org.lttng.flightbox";
+
+	static class HookProfile {
+		final ReaderProfile owner;
+		final TraceHook hook;
+		volatile long invocations;
+		volatile long sampledCount;
+		volatile long sampledNanos;
+		int countdown;
+
+		HookProfile(ReaderProfile owner, TraceHook hook) {
+			this.owner = owner;
+			this.hook = hook;
+		}
+
+		long getNanos() {
+			if (sampledCount == 0)
+				return 0;
+			return (long) ((double) sampledNanos * invocations / sampledCount);
+		}
+
+		String getName() {
+			String handler = "?";
+			if (hook.instance != null) {
+				handler = hook.instance.getClass().getSimpleName();
+				if (handler.length() == 0)
+					handler = hook.instance.getClass().getName();
+			}
+			if (hook.isAllEvent())
+				return handler + " *";
+			return handler + " " + hook.channelName + "." + hook.eventName;
+		}
+	}
+
+	/* read by JMX while the reader adds hooks */
+	private final List<HookProfile> hookProfiles;
+	private volatile int samplePeriod;
+	private volatile String tracePath;
+	private volatile long eventCount;
+	private volatile long sampledBytes;
+	private volatile long sampledEvents;
+	private int sizeCountdown;
+	private volatile long queueDepthSum;
+	private volatile long queueDepthCount;
+	private volatile int maxQueueDepth;
+	private volatile long startNs;
+	private volatile long endNs;
+	private ObjectName objectName;
+
+	public ReaderProfile() {
+		hookProfiles = new CopyOnWriteArrayList<HookProfile>();
+		samplePeriod = DEFAULT_SAMPLE_PERIOD;
+	}
+
+	void start(String tracePath) {
+		this.tracePath = tracePath;
+		for (HookProfile p: hookProfiles) {
+			p.hook.profile = null;
+		}
+		hookProfiles.clear();
+		eventCount = 0;
+		sampledBytes = 0;
+		sampledEvents = 0;
+		sizeCountdown = 0;
+		queueDepthSum = 0;
+		queueDepthCount = 0;
+		maxQueueDepth = 0;
+		startNs = System.nanoTime();
+		endNs = 0;
+		registerMBean();
+	}
+
+	void stop() {
+		endNs = System.nanoTime();
+		unregisterMBean();
+	}
+
+	void countEvent(JniEvent event) {
+		eventCount++;
+		if (--sizeCountdown > 0)
+			return;
+		sizeCountdown = samplePeriod;
+		sampledBytes += event.getEventDataSize();
+		sampledEvents++;
+	}
+
+	void countQueueDepth(int depth) {
+		queueDepthSum += depth;
+		queueDepthCount++;
+		if (depth > maxQueueDepth)
+			maxQueueDepth = depth;
+	}
+
+	void runHook(TraceReader reader, TraceHook hook, JniEvent event) {
+		HookProfile p = hook.profile;
+		if (p == null || p.owner != this) {
+			p = new HookProfile(this, hook);
+			hook.profile = p;
+			hookProfiles.add(p);
+		}
+		p.invocations++;
+		if (--p.countdown > 0) {
+			hook.callback.handleEvent(reader, event);
+			return;
+		}
+		p.countdown = samplePeriod;
+		long t1 = System.nanoTime();
+		try {
+			hook.callback.handleEvent(reader, event);
+		} finally {
+			p.sampledNanos += System.nanoTime() - t1;
+			p.sampledCount++;
+		}
+	}
+
+	private void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			objectName = new ObjectName(DOMAIN + ":type=TraceReader,trace=" + ObjectName.quote(String.valueOf(tracePath)) + ",id=" + System.identityHashCode(this));
+			server.registerMBean(this, objectName);
+		} catch (Exception e) {
+			System.err.println("Error: can't register profile MBean");
+			e.printStackTrace();
+			objectName = null;
+		}
+	}
+
+	private void unregisterMBean() {
+		if (objectName == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		objectName = null;
+	}
+
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	@Override
+	public String getTracePath() {
+		return tracePath;
+	}
+
+	@Override
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	@Override
+	public double getEventsPerSecond() {
+		long end = endNs == 0 ? System.nanoTime() : endNs;
+		if (end <= startNs)
+			return 0;
+		return eventCount * 1000000000.0 / (end - startNs);
+	}
+
+	@Override
+	public long getBytesRead() {
+		if (sampledEvents == 0)
+			return 0;
+		return (long) ((double) sampledBytes * eventCount / sampledEvents);
+	}
+
+	@Override
+	public double getAverageQueueDepth() {
+		if (queueDepthCount == 0)
+			return 0;
+		return (double) queueDepthSum / queueDepthCount;
+	}
+
+	@Override
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	@Override
+	public int getSamplePeriod() {
+		return samplePeriod;
+	}
+
+	@Override
+	public void setSamplePeriod(int samplePeriod) {
+		this.samplePeriod = Math.max(1, samplePeriod);
+	}
+
+	@Override
+	public String[] getHookNames() {
+		ArrayList<HookProfile> profiles = getSortedHooks();
+		String[] names = new String[profiles.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = profiles.get(i).getName();
+		}
+		return names;
+	}
+
+	@Override
+	public long[] getHookInvocations() {
+		ArrayList<HookProfile> profiles = getSortedHooks();
+		long[] invocations = new long[profiles.size()];
+		for (int i = 0; i < invocations.length; i++) {
+			invocations[i] = profiles.get(i).invocations;
+		}
+		return invocations;
+	}
+
+	@Override
+	public long[] getHookNanos() {
+		ArrayList<HookProfile> profiles = getSortedHooks();
+		long[] nanos = new long[profiles.size()];
+		for (int i = 0; i < nanos.length; i++) {
+			nanos[i] = profiles.get(i).getNanos();
+		}
+		return nanos;
+	}
+
+	/* hooks by decreasing estimated time */
+	private ArrayList<HookProfile> getSortedHooks() {
+		ArrayList<HookProfile> profiles = new ArrayList<HookProfile>(hookProfiles);
+		Collections.sort(profiles, new Comparator<HookProfile>() {
+			@Override
+			public int compare(HookProfile p1, HookProfile p2) {
+				long n1 = p1.getNanos();
+				long n2 = p2.getNanos();
+				return n1 < n2 ? 1 : (n1 > n2 ? -1 : 0);
+			}
+		});
+		return profiles;
+	}
+
+	@Override
+	public String getTable() {
+		StringBuilder str = new StringBuilder();
+		str.append(String.format("%-50s %12s %12s %10s\n", "hook", "calls", "total ms", "avg ns"));
+		for (HookProfile p: getSortedHooks()) {
+			long nanos = p.getNanos();
+			long avg = p.invocations == 0 ? 0 : nanos / p.invocations;
+			str.append(String.format("%-50s %12d %12.3f %10d\n", p.getName(), p.invocations, nanos / 1000000.0, avg));
+		}
+		str.append(String.format("events %d, %.0f events/s, %d bytes read", eventCount, getEventsPerSecond(), getBytesRead()));
+		if (queueDepthCount > 0)
+			str.append(String.format(", queue depth avg %.2f max %d", getAverageQueueDepth(), maxQueueDepth));
+		str.append("\n");
+		return str.toString();
+	}
+}
@@ -0,0 +1,33 @@
+package org.lttng.flightbox.io;
+
+/*
+ * Management interface of ReaderProfile, registered while a profiled
+ * TraceReader is processing a trace.
+ */
+public interface ReaderProfileMBean {
+
+	public String getTracePath();
+
+	public long getEventCount();
+
+	public double getEventsPerSecond();
+
+	/* estimated from one event out of getSamplePeriod() */
+	public long getBytesRead();
+
+	public double getAverageQueueDepth();
+
+	public int getMaxQueueDepth();
+
+	public int getSamplePeriod();
+
+	public void setSamplePeriod(int samplePeriod);
+
+	public String[] getHookNames();
+
+	public long[] getHookInvocations();
+
+	public long[] getHookNanos();
+
+	public String getTable();
+}
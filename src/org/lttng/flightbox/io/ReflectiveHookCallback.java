@@ -0,0 +1,37 @@
+package org.lttng.flightbox.io;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+
+/*
+ * Fallback for handlers that only declare handle_<channel>_<event> methods
+ * without supplying a callback with their hooks.
+ */
+class ReflectiveHookCallback implements ITraceHookCallback {
+
+	private final ITraceEventHandler instance;
+	private final Method method;
+
+	public ReflectiveHookCallback(ITraceEventHandler instance, Method method) {
+		this.instance = instance;
+		this.method = method;
+	}
+
+	@Override
+	public void handleEvent(TraceReader reader, JniEvent event) {
+		try {
+			method.invoke(instance, reader, event);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return method.toString();
+	}
+}
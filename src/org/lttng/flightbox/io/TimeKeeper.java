@@ -1,19 +1,13 @@
 package org.lttng.flightbox.io;
 
+/*
+ * Time of the event being processed, one per AnalysisSession
+ */
 public class TimeKeeper {
 
 	private long currentTime = 0;
 
-	private static TimeKeeper instance = null;
-	
-	private TimeKeeper() {
-	}
-	
-	public static TimeKeeper getInstance() {
-		if (instance == null) {
-			instance = new TimeKeeper();
-		}
-		return instance;
+	public TimeKeeper() {
 	}
 	
 	public void setCurrentTime(long currentTime) {
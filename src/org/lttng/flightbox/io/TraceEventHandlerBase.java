@@ -2,12 +2,13 @@ package org.lttng.flightbox.io;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
 
 public class TraceEventHandlerBase implements ITraceEventHandler {
 
-	private static int autoPriority = 0;
+	private static final AtomicInteger autoPriority = new AtomicInteger();
 	protected Set<TraceHook> hooks;
 	private Integer priority;
 	
@@ -17,7 +18,7 @@ public class TraceEventHandlerBase implements ITraceEventHandler {
 	}
 	
 	public TraceEventHandlerBase() {
-		this(autoPriority++);
+		this(autoPriority.getAndIncrement());
 	}
 
 	@Override
@@ -0,0 +1,114 @@
+package org.lttng.flightbox.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.lttng.flightbox.model.ModelCheckpoint;
+import org.lttng.flightbox.model.SystemModel;
+
+/*
+ * Save checkpoints of the model every eventInterval events or every
+ * timeInterval nanoseconds, whichever comes first. Hooks follow the
+ * events of the handler that builds the model, and run before it, so
+ * a checkpoint doesn't include the event it is taken on.
+ */
+public class TraceEventHandlerCheckpoint extends TraceEventHandlerBase {
+
+	public static final long DEFAULT_EVENT_INTERVAL = 100000;
+	public static final long DEFAULT_TIME_INTERVAL = 1000000000L;
+
+	private SystemModel model;
+	private final File indexFile;
+	private CheckpointWriter writer;
+	private long eventInterval;
+	private long timeInterval;
+	private long eventCount;
+	private long lastTs;
+	private long lastCheckpointTs;
+
+	public TraceEventHandlerCheckpoint(Set<TraceHook> followed, File indexFile) {
+		super(Integer.MIN_VALUE);
+		this.indexFile = indexFile;
+		this.eventInterval = DEFAULT_EVENT_INTERVAL;
+		this.timeInterval = DEFAULT_TIME_INTERVAL;
+		ITraceHookCallback callback = new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_checkpoint(reader, event);
+			}
+		};
+		for (TraceHook hook: followed) {
+			if (!hook.isAllEvent())
+				hooks.add(new TraceHook(hook.channelName, hook.eventName, callback));
+		}
+	}
+
+	@Override
+	public void handleInit(TraceReader reader, JniTrace trace) {
+		if (model == null)
+			throw new RuntimeException("Error: model must not be null");
+		try {
+			writer = new CheckpointWriter(indexFile);
+		} catch (IOException e) {
+			throw new RuntimeException("Error: can't write checkpoints to " + indexFile, e);
+		}
+		eventCount = 0;
+		lastTs = Long.MIN_VALUE;
+	}
+
+	public void handle_checkpoint(TraceReader reader, JniEvent event) {
+		long eventTs = event.getTimestampNs();
+		if (lastTs == Long.MIN_VALUE)
+			lastCheckpointTs = eventTs;
+		/* events at the same time are all in the same side of a checkpoint */
+		if (eventTs > lastTs && (eventCount >= eventInterval || eventTs - lastCheckpointTs >= timeInterval)) {
+			try {
+				writer.append(ModelCheckpoint.save(model, eventTs));
+			} catch (IOException e) {
+				throw new RuntimeException("Error: can't write checkpoints to " + indexFile, e);
+			}
+			eventCount = 0;
+			lastCheckpointTs = eventTs;
+		}
+		eventCount++;
+		lastTs = eventTs;
+	}
+
+	@Override
+	public void handleComplete(TraceReader reader) {
+		if (writer == null)
+			return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		writer = null;
+	}
+
+	public void setEventInterval(long eventInterval) {
+		this.eventInterval = eventInterval;
+	}
+
+	public long getEventInterval() {
+		return eventInterval;
+	}
+
+	public void setTimeInterval(long timeInterval) {
+		this.timeInterval = timeInterval;
+	}
+
+	public long getTimeInterval() {
+		return timeInterval;
+	}
+
+	public void setModel(SystemModel model) {
+		this.model = model;
+	}
+
+	public SystemModel getModel() {
+		return model;
+	}
+}
@@ -9,7 +9,11 @@ public class TraceEventHandlerCounter extends TraceEventHandlerBase {
 
 	public TraceEventHandlerCounter(Integer priority) {
 		super(priority);
-		hooks.add(new TraceHook());
+		hooks.add(new TraceHook(new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_all_event(reader, event);
+			}
+		}));
 	}
 	
 	public TraceEventHandlerCounter() {
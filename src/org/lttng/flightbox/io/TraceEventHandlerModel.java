@@ -4,9 +4,9 @@ import java.util.List;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
-import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer;
 import org.lttng.flightbox.model.RegularFile;
 import org.lttng.flightbox.model.FileDescriptor;
+import org.lttng.flightbox.model.ModelCheckpoint;
 import org.lttng.flightbox.model.Processor;
 import org.lttng.flightbox.model.SocketInet;
 import org.lttng.flightbox.model.StateInfoFactory;
@@ -27,38 +27,240 @@ import com.rits.cloning.Cloner;
 public class TraceEventHandlerModel extends TraceEventHandlerBase {
 
 	private SystemModel model;
-	private static final Cloner cloner = new Cloner();
+	private ModelCheckpoint checkpoint;
+	private final Cloner cloner = new Cloner();
+
+	/* payload fields, resolved once per marker */
+	private final FieldRef schedPrevPid;
+	private final FieldRef schedNextPid;
+	private final FieldRef wakeupPid;
+	private final FieldRef forkParentPid;
+	private final FieldRef forkChildPid;
+	private final FieldRef syscallEntryId;
+	private final FieldRef syscallExitRet;
+	private final FieldRef irqEntryId;
+	private final FieldRef softirqEntryId;
+	private final FieldRef sockCreateFamily;
+	private final FieldRef sockCreateType;
+	private final FieldRef sockCreateProtocol;
+	private final FieldRef sockCreateRet;
+	private final FieldRef sockCreateSock;
+	private final FieldRef sockConnectFd;
+	private final FieldRef sockAcceptRet;
+	private final FieldRef sockAcceptSock;
+	private final FieldRef sockShutdownFd;
+	private final FieldRef sockShutdownRet;
+	private final FieldRef sockRecvSock;
+	private final FieldRef sockRecvSize;
+	private final FieldRef sockSendSock;
+	private final FieldRef sockSendSize;
+	private final FieldRef execFilename;
+	private final FieldRef openFilename;
+	private final FieldRef openFd;
+	private final FieldRef readFd;
+	private final FieldRef selectFd;
+	private final FieldRef writeFd;
+	private final FieldRef closeFd;
+	private final InetFields connectInet;
+	private final InetFields acceptInet;
+
+	private static class InetFields {
+		final FieldRef saddr;
+		final FieldRef sport;
+		final FieldRef daddr;
+		final FieldRef dport;
+		InetFields(TraceHook hook) {
+			saddr = hook.addField("saddr");
+			sport = hook.addField("sport");
+			daddr = hook.addField("daddr");
+			dport = hook.addField("dport");
+		}
+	}
 	
 	public TraceEventHandlerModel() {
 		this(0);
 	}
 	public TraceEventHandlerModel(Integer priority) {
 		super(priority);
-		hooks.add(new TraceHook("kernel", "sched_schedule"));
-		hooks.add(new TraceHook("kernel", "sched_try_wakeup"));
-		hooks.add(new TraceHook("kernel", "process_fork"));
-		hooks.add(new TraceHook("kernel", "process_exit"));
-		hooks.add(new TraceHook("kernel", "syscall_entry"));
-		hooks.add(new TraceHook("kernel", "syscall_exit"));
-		hooks.add(new TraceHook("kernel", "irq_entry"));
-		hooks.add(new TraceHook("kernel", "irq_exit"));
-		hooks.add(new TraceHook("kernel", "softirq_entry"));
-		hooks.add(new TraceHook("kernel", "softirq_exit"));
-		hooks.add(new TraceHook("net", "socket_create"));
-		hooks.add(new TraceHook("net", "socket_bind"));
-		hooks.add(new TraceHook("net", "socket_connect"));
-		hooks.add(new TraceHook("net", "socket_accept"));
-		hooks.add(new TraceHook("net", "socket_shutdown"));
-		hooks.add(new TraceHook("net", "socket_connect_inet"));
-		hooks.add(new TraceHook("net", "socket_accept_inet"));
-		hooks.add(new TraceHook("net", "socket_recvmsg"));
-		hooks.add(new TraceHook("net", "socket_sendmsg"));
-		hooks.add(new TraceHook("fs", "exec"));
-		hooks.add(new TraceHook("fs", "open"));
-		hooks.add(new TraceHook("fs", "read"));
-		hooks.add(new TraceHook("fs", "select"));
-		hooks.add(new TraceHook("fs", "write"));
-		hooks.add(new TraceHook("fs", "close"));
+		TraceHook hook;
+		hook = new TraceHook("kernel", "sched_schedule", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_sched_schedule(reader, event);
+			}
+		});
+		schedPrevPid = hook.addField("prev_pid");
+		schedNextPid = hook.addField("next_pid");
+		hooks.add(hook);
+		hook = new TraceHook("kernel", "sched_try_wakeup", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_sched_try_wakeup(reader, event);
+			}
+		});
+		wakeupPid = hook.addField("pid");
+		hooks.add(hook);
+		hook = new TraceHook("kernel", "process_fork", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_process_fork(reader, event);
+			}
+		});
+		forkParentPid = hook.addField("parent_pid");
+		forkChildPid = hook.addField("child_pid");
+		hooks.add(hook);
+		hooks.add(new TraceHook("kernel", "process_exit", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_process_exit(reader, event);
+			}
+		}));
+		hook = new TraceHook("kernel", "syscall_entry", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_syscall_entry(reader, event);
+			}
+		});
+		syscallEntryId = hook.addField("syscall_id");
+		hooks.add(hook);
+		hook = new TraceHook("kernel", "syscall_exit", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_syscall_exit(reader, event);
+			}
+		});
+		syscallExitRet = hook.addField("ret");
+		hooks.add(hook);
+		hook = new TraceHook("kernel", "irq_entry", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_irq_entry(reader, event);
+			}
+		});
+		irqEntryId = hook.addField("irq_id");
+		hooks.add(hook);
+		hooks.add(new TraceHook("kernel", "irq_exit", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_irq_exit(reader, event);
+			}
+		}));
+		hook = new TraceHook("kernel", "softirq_entry", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_softirq_entry(reader, event);
+			}
+		});
+		softirqEntryId = hook.addField("softirq_id");
+		hooks.add(hook);
+		hooks.add(new TraceHook("kernel", "softirq_exit", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_kernel_softirq_exit(reader, event);
+			}
+		}));
+		hook = new TraceHook("net", "socket_create", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_create(reader, event);
+			}
+		});
+		sockCreateFamily = hook.addField("family");
+		sockCreateType = hook.addField("type");
+		sockCreateProtocol = hook.addField("protocol");
+		sockCreateRet = hook.addField("ret");
+		sockCreateSock = hook.addField("sock");
+		hooks.add(hook);
+		hooks.add(new TraceHook("net", "socket_bind", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_bind(reader, event);
+			}
+		}));
+		hook = new TraceHook("net", "socket_connect", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_connect(reader, event);
+			}
+		});
+		sockConnectFd = hook.addField("fd");
+		hooks.add(hook);
+		hook = new TraceHook("net", "socket_accept", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_accept(reader, event);
+			}
+		});
+		sockAcceptRet = hook.addField("ret");
+		sockAcceptSock = hook.addField("sock");
+		hooks.add(hook);
+		hook = new TraceHook("net", "socket_shutdown", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_shutdown(reader, event);
+			}
+		});
+		sockShutdownFd = hook.addField("fd");
+		sockShutdownRet = hook.addField("ret");
+		hooks.add(hook);
+		hook = new TraceHook("net", "socket_connect_inet", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_connect_inet(reader, event);
+			}
+		});
+		connectInet = new InetFields(hook);
+		hooks.add(hook);
+		hook = new TraceHook("net", "socket_accept_inet", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_accept_inet(reader, event);
+			}
+		});
+		acceptInet = new InetFields(hook);
+		hooks.add(hook);
+		hook = new TraceHook("net", "socket_recvmsg", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_recvmsg(reader, event);
+			}
+		});
+		sockRecvSock = hook.addField("sock");
+		sockRecvSize = hook.addField("size");
+		hooks.add(hook);
+		hook = new TraceHook("net", "socket_sendmsg", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_net_socket_sendmsg(reader, event);
+			}
+		});
+		sockSendSock = hook.addField("sock");
+		sockSendSize = hook.addField("size");
+		hooks.add(hook);
+		hook = new TraceHook("fs", "exec", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fs_exec(reader, event);
+			}
+		});
+		execFilename = hook.addField("filename");
+		hooks.add(hook);
+		hook = new TraceHook("fs", "open", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fs_open(reader, event);
+			}
+		});
+		openFilename = hook.addField("filename");
+		openFd = hook.addField("fd");
+		hooks.add(hook);
+		hook = new TraceHook("fs", "read", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fs_read(reader, event);
+			}
+		});
+		readFd = hook.addField("fd");
+		hooks.add(hook);
+		hook = new TraceHook("fs", "select", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fs_select(reader, event);
+			}
+		});
+		selectFd = hook.addField("fd");
+		hooks.add(hook);
+		hook = new TraceHook("fs", "write", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fs_write(reader, event);
+			}
+		});
+		writeFd = hook.addField("fd");
+		hooks.add(hook);
+		hook = new TraceHook("fs", "close", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fs_close(reader, event);
+			}
+		});
+		closeFd = hook.addField("fd");
+		hooks.add(hook);
 		
 		/* dont clone task class because causes recursive cloning */
 		cloner.dontClone(Task.class);
@@ -69,6 +271,8 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (model == null)
 			throw new RuntimeException("Error: model must not be null");
 		model.initProcessors(trace.getCpuNumber());
+		if (checkpoint != null)
+			checkpoint.restore(model);
 	}
 
 	@Override
@@ -83,11 +287,11 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (currentTask == null)
 			return;
 
-		Long eventTs = event.getEventTime().getTime();
-		Long syscallId = (Long) event.parseFieldByName("syscall_id");
-		SyscallInfo info = (SyscallInfo) StateInfoFactory.makeStateInfo(TaskState.SYSCALL);
+		long eventTs = event.getTimestampNs();
+		int syscallId = syscallEntryId.getInt(event);
+		SyscallInfo info = (SyscallInfo) model.makeStateInfo(TaskState.SYSCALL);
 		info.setStartTime(eventTs);
-		info.setSyscallId(syscallId.intValue());
+		info.setSyscallId(syscallId);
 		currentTask.pushState(info);
 	}
 
@@ -98,8 +302,8 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (currentTask == null)
 			return;
 
-		Long eventTs = event.getEventTime().getTime();
-		Long syscallRet = (Long) event.parseFieldByName("ret");
+		long eventTs = event.getTimestampNs();
+		int syscallRet = syscallExitRet.getInt(event);
 		StateInfo info = currentTask.peekState();
 
 		if (info == null || info.getTaskState() != TaskState.SYSCALL)
@@ -107,7 +311,7 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 
 		SyscallInfo state = (SyscallInfo) info;
 		state.setEndTime(eventTs);
-		state.setRetCode(syscallRet.intValue());
+		state.setRetCode(syscallRet);
 
 		mergeSocketInfo(state);
 		
@@ -130,6 +334,7 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 				sock.getIp().setSrcPort((Integer)state.getField(Field.SRC_PORT));
 			if (state.getField(Field.IS_CLIENT) != null)
 				sock.setClient((Boolean)state.getField(Field.IS_CLIENT));
+			model.addSocket(sock);
 		}
 	}
 
@@ -140,12 +345,12 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (currentTask == null)
 			return;
 
-		Long eventTs = event.getEventTime().getTime();
-		Long irq = (Long) event.parseFieldByName("irq_id");
+		long eventTs = event.getTimestampNs();
+		int irq = irqEntryId.getInt(event);
 
-		IRQInfo info = (IRQInfo) StateInfoFactory.makeStateInfo(TaskState.IRQ);
+		IRQInfo info = (IRQInfo) model.makeStateInfo(TaskState.IRQ);
 		info.setStartTime(eventTs);
-		info.setIRQId(irq.intValue());
+		info.setIRQId(irq);
 		currentTask.pushState(info);
 	}
 
@@ -156,7 +361,7 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (currentTask == null)
 			return;
 
-		Long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		StateInfo info = currentTask.peekState();
 		if (info == null || info.getTaskState() != TaskState.IRQ)
 			return;
@@ -173,12 +378,12 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (currentTask == null)
 			return;
 
-		Long eventTs = event.getEventTime().getTime();
-		Long irq = (Long) event.parseFieldByName("softirq_id");
+		long eventTs = event.getTimestampNs();
+		int irq = softirqEntryId.getInt(event);
 
-		SoftIRQInfo info = (SoftIRQInfo) StateInfoFactory.makeStateInfo(TaskState.SOFTIRQ);
+		SoftIRQInfo info = (SoftIRQInfo) model.makeStateInfo(TaskState.SOFTIRQ);
 		info.setStartTime(eventTs);
-		info.setSoftirqId(irq.intValue());
+		info.setSoftirqId(irq);
 		currentTask.pushState(info);
 	}
 
@@ -189,7 +394,7 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (currentTask == null)
 			return;
 
-		Long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		StateInfo info = currentTask.peekState();
 		if (info == null || info.getTaskState() != TaskState.SOFTIRQ)
 			return;
@@ -201,12 +406,12 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 
 	public void handle_kernel_sched_schedule(TraceReader reader, JniEvent event) {
 		Long cpu = event.getParentTracefile().getCpuNumber();
-		Long eventTs = event.getEventTime().getTime();
-		Long prevPid = (Long) event.parseFieldByName("prev_pid");
-		Long nextPid = (Long) event.parseFieldByName("next_pid");
+		long eventTs = event.getTimestampNs();
+		int prevPid = schedPrevPid.getInt(event);
+		int nextPid = schedNextPid.getInt(event);
 
-		Task nextTask = model.getLatestTaskByPID(nextPid.intValue());
-		Task prevTask = model.getLatestTaskByPID(prevPid.intValue());
+		Task nextTask = model.getLatestTaskByPID(nextPid);
+		Task prevTask = model.getLatestTaskByPID(prevPid);
 
 		if (nextTask == null || prevTask == null)
 			return;
@@ -239,16 +444,16 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		}
 
 		// Push waiting state on the task that is scheduled out
-		WaitInfo waitInfoPrev = (WaitInfo) StateInfoFactory.makeStateInfo(TaskState.WAIT);
+		WaitInfo waitInfoPrev = (WaitInfo) model.makeStateInfo(TaskState.WAIT);
 		waitInfoPrev.setStartTime(eventTs);
 		prevTask.pushState(waitInfoPrev);
 	}
 
 	public void handle_kernel_sched_try_wakeup(TraceReader reader, JniEvent event) {
 		Long cpu = event.getParentTracefile().getCpuNumber();
-		long eventTs = event.getEventTime().getTime();
-		Long pid = (Long) event.parseFieldByName("pid");
-		Task wakedTask = model.getLatestTaskByPID(pid.intValue());
+		long eventTs = event.getTimestampNs();
+		int pid = wakeupPid.getInt(event);
+		Task wakedTask = model.getLatestTaskByPID(pid);
 		Task currentTask = model.getProcessors().get(cpu.intValue()).getCurrentTask();
 		StateInfo info = wakedTask.peekState();
 
@@ -293,20 +498,20 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 
 	public void handle_fs_exec(TraceReader reader, JniEvent event) {
 			Long cpu = event.getParentTracefile().getCpuNumber();
-			String filename = (String) event.parseFieldByName("filename");
+			String filename = execFilename.getString(event);
 			Processor p = model.getProcessors().get(cpu.intValue());
 			Task currentTask = p.getCurrentTask();
 			currentTask.setCmd(filename);
 	}
 
 	public void handle_kernel_process_fork(TraceReader reader, JniEvent event) {
-		Long parentPid = (Long) event.parseFieldByName("parent_pid");
-		Long childPid = (Long) event.parseFieldByName("child_pid");
-		long eventTs = event.getEventTime().getTime();
+		int parentPid = forkParentPid.getInt(event);
+		int childPid = forkChildPid.getInt(event);
+		long eventTs = event.getTimestampNs();
 		Task task = new Task();
-		task.setProcessId(childPid.intValue());
+		task.setProcessId(childPid);
 		task.setStartTime(eventTs);
-		Task parentTask = model.getLatestTaskByPID(parentPid.intValue());
+		Task parentTask = model.getLatestTaskByPID(parentPid);
 		StateInfo info = StateInfoFactory.makeStateInfo(TaskState.ALIVE);
 		info.setStartTime(eventTs);
 		model.addTask(task);
@@ -316,8 +521,12 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 			task.setCmd(parentTask.getCmd());
 			parentTask.addChild(task);
 			task.setParentTask(parentTask);
-			List<FileDescriptor> openedFd = parentTask.getOpenedFileDescriptors();
-			task.addFileDescriptors(cloner.deepClone(openedFd));
+			List<FileDescriptor> inheritedFd = cloner.deepClone(parentTask.getOpenedFileDescriptors());
+			task.addFileDescriptors(inheritedFd);
+			for (FileDescriptor fd: inheritedFd) {
+				if (fd instanceof SocketInet)
+					model.addSocket((SocketInet) fd);
+			}
 			// disable listeners while setting the state of the new task
 			task.setEnableListeners(false);
 			for (StateInfo state :parentTask.getStates()) {
@@ -330,7 +539,7 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	}
 	
 	public void handle_kernel_process_exit(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
@@ -352,30 +561,27 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	}
 
 	public void handle_net_socket_create(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
 		if (currentTask == null)
 			return;
 
-		Long family = (Long) event.parseFieldByName("family");
-		Long type = (Long) event.parseFieldByName("type");
-		Long protocol = (Long) event.parseFieldByName("protocol");
-		Long ret = (Long) event.parseFieldByName("ret");
-		Jni_C_Pointer pointer = (Jni_C_Pointer) event.parseFieldByName("sock");
-		
+		long family = sockCreateFamily.getLong(event);
+		long ret = sockCreateRet.getLong(event);
+
 		if (ret < 0)
 			return;
 
 		if (family == SocketInet.AF_INET) {
 			SocketInet s = new SocketInet();
-			s.setFd(ret.intValue());
+			s.setFd((int) ret);
 			s.setOwner(currentTask);
-			s.setFamily(family.intValue());
-			s.setType(type.intValue());
-			s.setProtocol(protocol.intValue());
-			s.setPointer(pointer.getPointer());
+			s.setFamily((int) family);
+			s.setType(sockCreateType.getInt(event));
+			s.setProtocol(sockCreateProtocol.getInt(event));
+			s.setPointer(sockCreateSock.getLong(event));
 			s.setStartTime(eventTs);
 			currentTask.addFileDescriptor(s);
 		}
@@ -385,7 +591,7 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	}
 
 	public void handle_net_socket_connect(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
@@ -396,8 +602,8 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (state == null || state.getTaskState() != TaskState.SYSCALL)
 			return;
 
-		Long fd = (Long) event.parseFieldByName("fd");
-		FileDescriptor file = currentTask.getLatestFileDescriptor(fd.intValue());
+		int fd = sockConnectFd.getInt(event);
+		FileDescriptor file = currentTask.getLatestFileDescriptor(fd);
 		
 		if (file == null || !(file instanceof SocketInet))
 			return;
@@ -408,7 +614,7 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	}
 
 	public void handle_net_socket_accept(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
@@ -419,12 +625,11 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (state == null || state.getTaskState() != TaskState.SYSCALL)
 			return;
 
-		Long ret = (Long) event.parseFieldByName("ret");
-		Jni_C_Pointer pointer = (Jni_C_Pointer) event.parseFieldByName("sock");
+		int ret = sockAcceptRet.getInt(event);
 
 		SocketInet sock = new SocketInet();
-		sock.setFd(ret.intValue());
-		sock.setPointer(pointer.getPointer());
+		sock.setFd(ret);
+		sock.setPointer(sockAcceptSock.getLong(event));
 		sock.setOwner(currentTask);
 		sock.setStartTime(eventTs);
 		currentTask.addFileDescriptor(sock);
@@ -432,38 +637,39 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	}
 
 	public void handle_net_socket_shutdown(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
 		if (currentTask == null)
 			return;
 
-		Long fd = (Long) event.parseFieldByName("fd");
-		Long ret = (Long) event.parseFieldByName("ret");
+		long ret = sockShutdownRet.getLong(event);
 
 		if (ret != 0)
 			return;
 
-		FileDescriptor file = currentTask.getLatestFileDescriptor(fd.intValue());
+		int fd = sockShutdownFd.getInt(event);
+		FileDescriptor file = currentTask.getLatestFileDescriptor(fd);
 		if (file == null || !(file instanceof SocketInet))
 			return;
 
 		SocketInet sock = (SocketInet) file;
 		sock.setEndTime(eventTs);
+		model.closeSocket(sock);
 
 	}
 
 	public void handle_net_socket_connect_inet(TraceReader reader, JniEvent event) {
-		handle_net_common(reader, event, true);
+		handle_net_common(reader, event, connectInet, true);
 	}
 	
 	public void handle_net_socket_accept_inet(TraceReader reader, JniEvent event) {
-		handle_net_common(reader, event, false);
+		handle_net_common(reader, event, acceptInet, false);
 	}
 
-	public void handle_net_common(TraceReader reader, JniEvent event, Boolean isClient) {
-		long eventTs = event.getEventTime().getTime();
+	private void handle_net_common(TraceReader reader, JniEvent event, InetFields inet, Boolean isClient) {
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
@@ -474,20 +680,15 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (type != TaskState.SYSCALL)
 			return;
 		
-		Long x;
-		x = (Long) event.parseFieldByName("saddr");
-		info.setField(Field.SRC_ADDR, x);
-		x = (Long) event.parseFieldByName("sport");
-		info.setField(Field.SRC_PORT, x.intValue());
-		x = (Long) event.parseFieldByName("daddr");
-		info.setField(Field.DST_ADDR, x);
-		x = (Long) event.parseFieldByName("dport");
-		info.setField(Field.DST_PORT, x.intValue());
+		info.setField(Field.SRC_ADDR, inet.saddr.getLong(event));
+		info.setField(Field.SRC_PORT, inet.sport.getInt(event));
+		info.setField(Field.DST_ADDR, inet.daddr.getLong(event));
+		info.setField(Field.DST_PORT, inet.dport.getInt(event));
 		info.setField(Field.IS_CLIENT, isClient);
 	}
 	
 	public void handle_net_socket_sendmsg(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
@@ -499,17 +700,16 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 			return;
 		
 		/* assumption: send always occurs before recv */
-		Jni_C_Pointer pointer = (Jni_C_Pointer) event.parseFieldByName("sock");
-		Long size = (Long) event.parseFieldByName("size");
-		SocketInet sock = currentTask.getFileDescriptorSet().findSocketByPointer(pointer.getPointer());
+		long pointer = sockSendSock.getLong(event);
+		SocketInet sock = currentTask.getFileDescriptorSet().findSocketByPointer(pointer);
 		if (sock == null)
 			return;
 		
-		sock.incrementSend(size);
+		sock.incrementSend(sockSendSize.getLong(event));
 	}
 
 	public void handle_net_socket_recvmsg(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
@@ -522,27 +722,26 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 		if (type != TaskState.SYSCALL)
 			return;
 		
-		Jni_C_Pointer pointer = (Jni_C_Pointer) event.parseFieldByName("sock");
-		Long size = (Long) event.parseFieldByName("size");
-		SocketInet sock = currentTask.getFileDescriptorSet().findSocketByPointer(pointer.getPointer());
+		long pointer = sockRecvSock.getLong(event);
+		SocketInet sock = currentTask.getFileDescriptorSet().findSocketByPointer(pointer);
 		if (sock == null)
 			return;
 		
-		sock.incrementRecv(size);		
+		sock.incrementRecv(sockRecvSize.getLong(event));		
 	}
 	
 	public void handle_fs_open(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
 		if (currentTask == null)
 			return;
 
-		String filename = (String) event.parseFieldByName("filename");
-		Long fd = (Long) event.parseFieldByName("fd");
+		String filename = openFilename.getString(event);
+		int fd = openFd.getInt(event);
 		RegularFile file = new RegularFile();
-		file.setFd(fd.intValue());
+		file.setFd(fd);
 		file.setFilename(filename);
 		file.setStartTime(eventTs);
 		file.setOwner(currentTask);
@@ -559,28 +758,28 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	}
 
 	public void handle_fs_read(TraceReader reader, JniEvent event) {
-		handle_fs_generic(reader, event, true);
+		handle_fs_generic(reader, event, readFd, true);
 	}
 
 	public void handle_fs_write(TraceReader reader, JniEvent event) {
-		handle_fs_generic(reader, event, false);
+		handle_fs_generic(reader, event, writeFd, false);
 	}
 
 	public void handle_fs_select(TraceReader reader, JniEvent event) {
-		handle_fs_generic(reader, event, false);
+		handle_fs_generic(reader, event, selectFd, false);
 	}
 	
-	public void handle_fs_generic(TraceReader reader, JniEvent event, boolean isRead) {
-		long eventTs = event.getEventTime().getTime();
+	private void handle_fs_generic(TraceReader reader, JniEvent event, FieldRef fdRef, boolean isRead) {
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
 		if (currentTask == null)
 			return;
 		
-		Long fd = (Long) event.parseFieldByName("fd");
+		int fd = fdRef.getInt(event);
 		
-		FileDescriptor file = currentTask.getLatestFileDescriptor(fd.intValue());
+		FileDescriptor file = currentTask.getLatestFileDescriptor(fd);
 		if (file == null)
 			return;
 		file.setOwner(currentTask);
@@ -600,20 +799,23 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	}
 	
 	public void handle_fs_close(TraceReader reader, JniEvent event) {
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long cpu = event.getParentTracefile().getCpuNumber();
 		Processor p = model.getProcessors().get(cpu.intValue());
 		Task currentTask = p.getCurrentTask();
 		if (currentTask == null)
 			return;
 
-		Long fd = (Long) event.parseFieldByName("fd");
-		FileDescriptor file = currentTask.getLatestFileDescriptor(fd.intValue());
+		int fd = closeFd.getInt(event);
+		FileDescriptor file = currentTask.getLatestFileDescriptor(fd);
 		if (file == null)
 			return;
 
 		file.setOwner(currentTask);
 		file.setEndTime(eventTs);
+		currentTask.getFileDescriptorSet().close(file);
+		if (file instanceof SocketInet)
+			model.closeSocket((SocketInet) file);
 		
 		StateInfo state = currentTask.peekState();
 		if (state == null || state.getTaskState() != TaskState.SYSCALL)
@@ -629,4 +831,13 @@ public class TraceEventHandlerModel extends TraceEventHandlerBase {
 	public SystemModel getModel() {
 		return this.model;
 	}
+
+	/* state to restore into the model before the first event */
+	public void setCheckpoint(ModelCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	public ModelCheckpoint getCheckpoint() {
+		return this.checkpoint;
+	}
 }
@@ -1,7 +1,12 @@
 package org.lttng.flightbox.io;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
 import org.lttng.flightbox.model.RegularFile;
 import org.lttng.flightbox.model.StateInfoFactory;
 import org.lttng.flightbox.model.SystemModel;
@@ -11,29 +16,104 @@ import org.lttng.flightbox.model.state.StateInfo;
 
 public class TraceEventHandlerModelMeta extends TraceEventHandlerBase {
 
+	private static final Set<String> statedumpChannels = new HashSet<String>(Arrays.asList(
+			"task_state", "fd_state", "vm_state", "irq_state", "softirq_state", "syscall_state",
+			"module_state", "netif_state", "swap_state", "global_state"));
+
 	private SystemModel model;
+	/* single pass: other handlers wait for the statedump */
+	private boolean exclusive;
 	
 	public TraceEventHandlerModelMeta() {
 		super();
-		hooks.add(new TraceHook("task_state", "process_state"));
-		hooks.add(new TraceHook("fd_state", "file_descriptor"));
-		hooks.add(new TraceHook("metadata", "core_marker_format"));
-		hooks.add(new TraceHook("metadata", "core_marker_id"));
-		hooks.add(new TraceHook("vm_state", "vm_map"));
-		hooks.add(new TraceHook("irq_state", "idt_table"));
-		hooks.add(new TraceHook("irq_state", "interrupt"));
-		hooks.add(new TraceHook("softirq_state", "softirq_vec"));
-		hooks.add(new TraceHook("syscall_state", "sys_call_table"));
-		hooks.add(new TraceHook("module_state", "list_module"));
-		hooks.add(new TraceHook("netif_state", "network_ipv4_interface"));
-		hooks.add(new TraceHook("swap_state", "statedump_swap_files"));
-		hooks.add(new TraceHook("global_state", "statedump_end"));
-	}
-
-
+		hooks.add(new TraceHook("task_state", "process_state", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_task_state_process_state(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("fd_state", "file_descriptor", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_fd_state_file_descriptor(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("metadata", "core_marker_format", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_metadata_core_marker_format(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("metadata", "core_marker_id", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_metadata_core_marker_id(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("vm_state", "vm_map", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_vm_state_vm_map(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("irq_state", "idt_table", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_irq_state_idt_table(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("irq_state", "interrupt", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_irq_state_interrupt(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("softirq_state", "softirq_vec", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_softirq_state_softirq_vec(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("syscall_state", "sys_call_table", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_syscall_state_sys_call_table(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("module_state", "list_module", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_module_state_list_module(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("netif_state", "network_ipv4_interface", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_netif_state_network_ipv4_interface(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("swap_state", "statedump_swap_files", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_swap_state_statedump_swap_files(reader, event);
+			}
+		}));
+		hooks.add(new TraceHook("global_state", "statedump_end", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_global_state_statedump_end(reader, event);
+			}
+		}));
+	}
+
+
+	/*
+	 * In single pass, the other handlers wait for statedump_end, so that 
+	 * they see the same model as in two passes. The reader bounds the 
+	 * events they wait with, see TraceReader.setMaxDeferredBytes(). A 
+	 * trace without any of the statedump channels has nothing to wait 
+	 * for, they are released at init.
+	 */
 	@Override
 	public void handleInit(TraceReader reader, JniTrace trace) {
+		exclusive = reader.getExclusiveHandler() == this;
+		if (exclusive && !hasStatedump(trace))
+			reader.releaseExclusiveHandler();
+	}
 
+	private static boolean hasStatedump(JniTrace trace) {
+		for (JniTracefile tracefile: trace.getTracefilesMap().values()) {
+			if (statedumpChannels.contains(tracefile.getTracefileName()))
+				return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -44,7 +124,7 @@ public class TraceEventHandlerModelMeta extends TraceEventHandlerBase {
 	public void handle_fd_state_file_descriptor(TraceReader reader, JniEvent event) {
 		if (model == null)
 			return;
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long fd = (Long) event.parseFieldByName("fd");
 		Long pid = (Long) event.parseFieldByName("pid");
 		String filename = (String) event.parseFieldByName("filename");
@@ -102,13 +182,20 @@ public class TraceEventHandlerModelMeta extends TraceEventHandlerBase {
 	}
 
 	public void handle_global_state_statedump_end(TraceReader reader, JniEvent event) {
-		reader.cancel();
+		if (exclusive) {
+			/* single pass: let the deferred handlers go */
+			reader.unregister(this);
+			if (reader.getExclusiveHandler() == this)
+				reader.releaseExclusiveHandler();
+		} else {
+			reader.cancel();
+		}
 	}
 
 	public void handle_task_state_process_state(TraceReader reader, JniEvent event) {
 		if (model == null)
 			return;
-		long eventTs = event.getEventTime().getTime();
+		long eventTs = event.getTimestampNs();
 		Long pid = (Long) event.parseFieldByName("pid");
 		Long parentPid = (Long) event.parseFieldByName("parent_pid");
 		Long tgid = (Long) event.parseFieldByName("tgid");
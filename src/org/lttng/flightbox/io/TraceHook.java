@@ -1,23 +1,50 @@
 package org.lttng.flightbox.io;
 
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TraceHook implements Comparable<TraceHook> {
 	
 	public String eventName;
 	public String channelName;
 	public ITraceEventHandler instance;
-	public Method method;
+	public ITraceHookCallback callback;
+	private final List<FieldRef> fields = new ArrayList<FieldRef>();
+	/* counters of the reader that profiles this hook */
+	ReaderProfile.HookProfile profile;
 	
-	public TraceHook(String channelName, String eventName) {
+	public TraceHook(String channelName, String eventName, ITraceHookCallback callback) {
 		this.channelName = channelName; 
 		this.eventName = eventName; 
+		this.callback = callback;
+	}
+	
+	public TraceHook(String channelName, String eventName) {
+		this(channelName, eventName, null);
+	}
+	
+	public TraceHook(ITraceHookCallback callback) {
+		this(null, null, callback);
 	}
 	
 	public TraceHook() {
-		this(null, null);
+		this(null, null, null);
 	}
 	
+	/*
+	 * Declare a payload field used by the callback. The returned 
+	 * reference resolves the field once per marker.
+	 */
+	public FieldRef addField(String name) {
+		FieldRef ref = new FieldRef(name);
+		fields.add(ref);
+		return ref;
+	}
+
+	public List<FieldRef> getFields() {
+		return fields;
+	}
+
 	public boolean isAllEvent() {
 		return this.eventName == null || this.channelName == null;
 	}
@@ -1,7 +1,9 @@
 package org.lttng.flightbox.io;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -9,65 +11,81 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
 import org.eclipse.linuxtools.lttng.jni.factory.JniTraceFactory;
 import org.lttng.flightbox.model.SystemModel;
 
 public class TraceReader {
 
+	private static final TraceHook[] noHooks = new TraceHook[0];
+	/* default bound of the memory of the events kept while an exclusive handler is set */
+	public static final long MAX_DEFERRED_BYTES = 64L << 20;
+
 	protected String tracePath;
 	protected JniTrace trace;
 	private final Map<Class, ITraceEventHandler> handlers;
 	private final Map<String, Map<String, TreeSet<TraceHook>>> traceHookMap;
-	private final Map<String, Map<Integer, TreeSet<TraceHook>>> traceHookMapCache;
 	private final TreeSet<TraceHook> catchAllHook;
-	private final Map<Integer, ArrayList<TreeSet<TraceHook>>> traceHookArrayCache;
+	/* hooks to run in priority order, by tracefile index and marker id */
+	private TraceHook[][][] hookTable;
+	private final Map<String, Integer> tracefileIndexMap;
+	/* while set, hooks of other handlers are deferred */
+	private ITraceEventHandler exclusiveHandler;
+	private final ArrayList<JniEvent> deferredEvents;
+	private final ArrayList<TraceHook[]> deferredHooks;
+	private long deferredBytes;
+	private long maxDeferredBytes = MAX_DEFERRED_BYTES;
+	private boolean deferredOverflow;
 	private static Class[] argTypes = new Class[] { TraceReader.class, JniEvent.class };
+	private final AnalysisSession session;
 	private final TimeKeeper timeKeeper;
-	private SystemModel systemModel;
-	private boolean cancel;
+	private volatile boolean cancel;
+	/* decode tracefiles on worker threads */
+	private boolean pipelined;
+	private ReaderProfile profile;
+	private long eventCount;
+	/* last event dispatched, to resume after the trace is reopened */
+	private long lastTs;
+	private int lastTsCount;
 
 	public TraceReader(String trace_path) {
 		this.tracePath = trace_path;
 		handlers = new HashMap<Class, ITraceEventHandler>();
 		traceHookMap = new HashMap<String, Map<String, TreeSet<TraceHook>>>();
-		traceHookMapCache = new HashMap<String, Map<Integer, TreeSet<TraceHook>>>();
-		traceHookArrayCache = new HashMap<Integer, ArrayList<TreeSet<TraceHook>>>();
+		tracefileIndexMap = new HashMap<String, Integer>();
+		deferredEvents = new ArrayList<JniEvent>();
+		deferredHooks = new ArrayList<TraceHook[]>();
 		catchAllHook = new TreeSet<TraceHook>();
-		timeKeeper = TimeKeeper.getInstance();
+		session = new AnalysisSession();
+		timeKeeper = session.getTimeKeeper();
 	}
 
 	public void loadTrace() throws JniException {
 	    if (trace != null) {
 	        trace.closeTrace();
 	    }
-		trace = JniTraceFactory.getJniTrace(tracePath);
-		systemModel = new SystemModel();
+		trace = openTrace();
+		SystemModel systemModel = new SystemModel();
 		systemModel.initProcessors(trace.getCpuNumber());
+		session.setModel(systemModel);
+	}
+
+	protected JniTrace openTrace() throws JniException {
+		return JniTraceFactory.getJniTrace(tracePath);
 	}
 
 	public void registerHook(ITraceEventHandler handler, TraceHook hook) {
-		String methodName;
-		if (hook.isAllEvent()) {
-			methodName = "handle_all_event";
-		} else {
-			methodName = "handle_" + hook.channelName + "_" + hook.eventName;
-		}
-		boolean isHookOk = true;
 		TreeSet<TraceHook> eventHooks;
 		Map<String, TreeSet<TraceHook>> channelHooks;
 		hook.instance = handler;
-		try {
-			hook.method = handler.getClass().getMethod(methodName, argTypes);
-		} catch (SecurityException e) {
-			e.printStackTrace();
-			isHookOk = false;
-		} catch (NoSuchMethodException e) {
-			System.err.println("Error: hook " + handler.getClass() + "." + methodName + " doesn't exist, disabling");
-			isHookOk = false;
+		if (hook.callback == null) {
+			hook.callback = makeReflectiveCallback(handler, hook);
 		}
-		if (!isHookOk)
+		if (hook.callback == null)
 			return;
 
 		if(hook.isAllEvent()) {
@@ -87,6 +105,30 @@ public class TraceReader {
 		}
 	}
 
+	/* 
+	 * Handlers that don't provide a callback with their hooks are bound 
+	 * by name to their handle_<channel>_<event> method, once per hook
+	 */
+	private ITraceHookCallback makeReflectiveCallback(ITraceEventHandler handler, TraceHook hook) {
+		String methodName;
+		if (hook.isAllEvent()) {
+			methodName = "handle_all_event";
+		} else {
+			methodName = "handle_" + hook.channelName + "_" + hook.eventName;
+		}
+		Method method;
+		try {
+			method = handler.getClass().getMethod(methodName, argTypes);
+		} catch (SecurityException e) {
+			e.printStackTrace();
+			return null;
+		} catch (NoSuchMethodException e) {
+			System.err.println("Error: hook " + handler.getClass() + "." + methodName + " doesn't exist, disabling");
+			return null;
+		}
+		return new ReflectiveHookCallback(handler, method);
+	}
+
 	public void register(ITraceEventHandler handler) {
 		if (handler == null)
 			return;
@@ -105,98 +147,425 @@ public class TraceReader {
 		handlers.put(handler.getClass(), handler);
 	}
 
+	public void unregister(ITraceEventHandler handler) {
+		if (handler == null || handlers.remove(handler.getClass()) == null)
+			return;
+		for (TraceHook hook: handler.getHooks()) {
+			if (hook.isAllEvent()) {
+				catchAllHook.remove(hook);
+			} else {
+				Map<String, TreeSet<TraceHook>> channelHooks = traceHookMap.get(hook.channelName);
+				if (channelHooks != null && channelHooks.get(hook.eventName) != null)
+					channelHooks.get(hook.eventName).remove(hook);
+			}
+		}
+		/* hooks are resolved again on the next event of each marker */
+		if (hookTable != null) {
+			for (int i = 0; i < hookTable.length; i++) {
+				hookTable[i] = new TraceHook[0][];
+			}
+		}
+	}
+
+	/*
+	 * Only the hooks of this handler run while it is set. Other hooks 
+	 * are queued with a copy of their event, and run in trace order 
+	 * once releaseExclusiveHandler() is called, or when the trace ends. 
+	 * Deferred events are kept in memory, the handler is released when 
+	 * their estimated size exceeds the bound of setMaxDeferredBytes(), 
+	 * and isDeferredOverflow() tells it happened.
+	 */
+	public void setExclusiveHandler(ITraceEventHandler handler) {
+		exclusiveHandler = handler;
+	}
+
+	public ITraceEventHandler getExclusiveHandler() {
+		return exclusiveHandler;
+	}
+
+	public void releaseExclusiveHandler() {
+		exclusiveHandler = null;
+	}
+
+	public void setMaxDeferredBytes(long maxDeferredBytes) {
+		this.maxDeferredBytes = maxDeferredBytes;
+	}
+
+	public long getMaxDeferredBytes() {
+		return maxDeferredBytes;
+	}
+
+	/* true if the exclusive handler was released before it was done */
+	public boolean isDeferredOverflow() {
+		return deferredOverflow;
+	}
+
+	/*
+	 * When set, each tracefile is decoded on its own thread while 
+	 * the handlers run. Handlers still see events in time order.
+	 */
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
+	/*
+	 * Count events and time hooks while processing. The counters are
+	 * kept after process(), see ReaderProfile.getTable().
+	 */
+	public void setProfile(ReaderProfile profile) {
+		this.profile = profile;
+	}
+
+	public ReaderProfile getProfile() {
+		return profile;
+	}
+
 	public void process() throws JniException {
+		processWindow(null, Long.MAX_VALUE, 0);
+	}
+
+	/*
+	 * Process only the events between start and end, inclusive. All 
+	 * tracefiles are seeked to the start time, the cost is proportional 
+	 * to the window instead of the trace. Handlers don't see events 
+	 * before start, state built from them (i.e. statedump) is missing.
+	 */
+	public void process(long start, long end) throws JniException {
+		processWindow(start, end, 0);
+	}
+
+	/*
+	 * Process the trace while it is written. Once the current end is
+	 * reached, the trace is reopened every pollInterval milliseconds and
+	 * new events are dispatched to the handlers, without init. Handlers
+	 * that implement ITraceFollowHandler are notified of each reopened 
+	 * trace before its new events, i.e. to extend to its new end. Returns
+	 * when cancel() is called, or when the thread is interrupted, 
+	 * handleComplete is called then.
+	 */
+	public void follow(long pollInterval) throws JniException {
+		processWindow(null, Long.MAX_VALUE, Math.max(1, pollInterval));
+	}
+
+	private void processWindow(Long start, long end, long pollInterval) throws JniException {
 		loadTrace();
-		JniEvent event;
-		int nbEvents = 0;
-		int eventId;
-		TreeSet<TraceHook> hooks;
-		String eventName;
-		String traceFileName;
+		buildHookTable();
+		trace.setEnabledTracefiles(getHookedChannels());
+		if (start != null)
+			trace.seekToTime(new JniTime(start));
 		cancel = false;
+		deferredOverflow = false;
+		eventCount = 0;
+		lastTs = Long.MIN_VALUE;
+		lastTsCount = 0;
 
 		for(ITraceEventHandler handler: handlers.values()) {
 			handler.handleInit(this, trace);
 		}
 
-		while((event=trace.readNextEvent()) != null && cancel != true) {
-			timeKeeper.setCurrentTime(event.getEventTime().getTime());
-			nbEvents++;
-			//eventId = event.getEventMarkerId();
-			traceFileName = event.getParentTracefile().getTracefileName();
-			eventId = event.getEventMarkerId();
-			eventName = event.getMarkersMap().get(event.getEventMarkerId()).getName();
+		if (profile != null)
+			profile.start(tracePath);
+		/* the profile MBean is unregistered even if a handler throws */
+		try {
+			readEvents(end);
+			while (pollInterval > 0 && cancel != true) {
+				try {
+					Thread.sleep(pollInterval);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				/* the end of the trace is known when it is opened */
+				trace.closeTrace();
+				trace = openTrace();
+				buildHookTable();
+				trace.setEnabledTracefiles(getHookedChannels());
+				if (lastTs != Long.MIN_VALUE)
+					trace.seekToTime(new JniTime(lastTs));
+				notifyUpdate();
+				readEvents(end);
+			}
+			releaseExclusiveHandler();
+			runDeferred();
 
-			hooks = getHookSetByIdArrayHashCode(traceFileName, traceFileName.hashCode(), eventName, eventId);
-			runHookSet(hooks, event);
-			runHookSet(catchAllHook, event);
+			for(ITraceEventHandler handler: handlers.values()) {
+				handler.handleComplete(this);
+			}
+		} finally {
+			if (profile != null)
+				profile.stop();
+		}
 
+		trace.closeTrace();
+	}
+
+	/*
+	 * Dispatch events up to end. Events up to the last one dispatched
+	 * are skipped, they are read again when the trace is reopened. 
+	 * Events at the same time are assumed to be read in the same order.
+	 */
+	private long readEvents(long end) {
+		JniEvent event;
+		TraceHook[] hooks;
+		long ts;
+		long count = 0;
+		int skip = lastTsCount;
+		PipelinedEventReader pipeline = null;
+		if (pipelined) {
+			pipeline = new PipelinedEventReader(trace);
+			pipeline.setProfile(profile);
+			pipeline.setHookedEvents(getHookedEvents());
+			pipeline.start();
 		}
+		try {
+			while((event = (pipeline == null ? trace.readNextEvent() : pipeline.readNextEvent())) != null && cancel != true) {
+				ts = event.getTimestampNs();
+				if (ts > end)
+					break;
+				if (ts < lastTs)
+					continue;
+				if (ts == lastTs) {
+					if (skip > 0) {
+						skip--;
+						continue;
+					}
+					lastTsCount++;
+				} else {
+					lastTs = ts;
+					lastTsCount = 1;
+					skip = 0;
+				}
+				count++;
+				eventCount++;
+				if (profile != null)
+					profile.countEvent(event);
+				timeKeeper.setCurrentTime(ts);
+				hooks = getHooks(event);
+				if (exclusiveHandler != null) {
+					runExclusive(hooks, event);
+					continue;
+				}
+				for (int i = 0; i < hooks.length; i++) {
+					runHook(hooks[i], event);
+				}
+			}
+		} finally {
+			if (pipeline != null)
+				pipeline.stop();
+		}
+		return count;
+	}
 
-		for(ITraceEventHandler handler: handlers.values()) {
-			handler.handleComplete(this);
+	private void notifyUpdate() {
+		for (ITraceEventHandler handler: handlers.values()) {
+			if (handler instanceof ITraceFollowHandler)
+				((ITraceFollowHandler) handler).handleUpdate(this, trace);
 		}
+	}
 
-		trace.closeTrace();
+	private void runExclusive(TraceHook[] hooks, JniEvent event) {
+		ITraceEventHandler exclusive = exclusiveHandler;
+		ArrayList<TraceHook> waiting = null;
+		for (int i = 0; i < hooks.length; i++) {
+			if (hooks[i].instance != exclusive) {
+				waiting = new ArrayList<TraceHook>();
+				break;
+			}
+		}
+		for (int i = 0; i < hooks.length; i++) {
+			if (hooks[i].instance == exclusive) {
+				runHook(hooks[i], event);
+			} else {
+				waiting.add(hooks[i]);
+			}
+		}
+		if (waiting != null) {
+			EventSnapshot snapshot;
+			if (event instanceof EventSnapshot)
+				snapshot = (EventSnapshot) event;
+			else
+				snapshot = new EventSnapshot(event);
+			deferredEvents.add(snapshot);
+			deferredHooks.add(waiting.toArray(new TraceHook[waiting.size()]));
+			deferredBytes += snapshot.getMemorySize();
+			if (deferredBytes > maxDeferredBytes && exclusiveHandler != null) {
+				System.err.println("Warning: " + deferredEvents.size() + " events deferred, exclusive handler " 
+						+ exclusive + " released before it completed");
+				deferredOverflow = true;
+				releaseExclusiveHandler();
+			}
+		}
+		if (exclusiveHandler == null)
+			runDeferred();
 	}
 
-	public void runHookSet(TreeSet<TraceHook> hooks, JniEvent event) {
-		for (TraceHook h: hooks){
-			try {
-				h.method.invoke(h.instance, this, event);
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
-				cancel = true;
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
-				cancel = true;
-			} catch (InvocationTargetException e) {
-				System.err.println("error while executing " + h.method + " on " + h.instance);
-				e.printStackTrace();
-				cancel = true;
-			}
-		}		
-	}
-	
-	public TreeSet<TraceHook> getHookSetByName(String channelName, String eventName) {
-		Map<String, TreeSet<TraceHook>> channelHooks;
-		TreeSet<TraceHook> hooks = null;
-		channelHooks = traceHookMap.get(channelName);
-		if (channelHooks == null) {
-			channelHooks = new HashMap<String, TreeSet<TraceHook>>();
-			traceHookMap.put(channelName, channelHooks);
+	private void runDeferred() {
+		JniEvent event;
+		TraceHook[] hooks;
+		for (int i = 0; i < deferredEvents.size() && cancel != true; i++) {
+			event = deferredEvents.get(i);
+			hooks = deferredHooks.get(i);
+			timeKeeper.setCurrentTime(event.getTimestampNs());
+			for (int j = 0; j < hooks.length; j++) {
+				runHook(hooks[j], event);
+			}
+		}
+		deferredEvents.clear();
+		deferredHooks.clear();
+		deferredBytes = 0;
+	}
+
+	public void runHook(TraceHook h, JniEvent event) {
+		try {
+			if (profile == null)
+				h.callback.handleEvent(this, event);
+			else
+				profile.runHook(this, h, event);
+		} catch (RuntimeException e) {
+			System.err.println("error while executing " + h + " on " + h.instance);
+			e.printStackTrace();
+			cancel = true;
 		}
-		hooks = channelHooks.get(eventName);
-		if (hooks == null) {
-			hooks = new TreeSet<TraceHook>();
-			channelHooks.put(eventName, hooks);
+	}
+
+	/*
+	 * Channels that have at least one hook, or null if every channel 
+	 * is needed because of catch-all hooks
+	 */
+	public Set<String> getHookedChannels() {
+		if (!catchAllHook.isEmpty())
+			return null;
+		Set<String> channels = new HashSet<String>();
+		for (String channel: traceHookMap.keySet()) {
+			for (TreeSet<TraceHook> eventHooks: traceHookMap.get(channel).values()) {
+				if (!eventHooks.isEmpty()) {
+					channels.add(channel);
+					break;
+				}
+			}
 		}
-		return hooks;
+		return channels;
 	}
 
-	public TreeSet<TraceHook> getHookSetByIdArrayHashCode(String channelName, Integer channelHC, String eventName, int eventId) {
-		ArrayList<TreeSet<TraceHook>> channelHooksCache;
-		TreeSet<TraceHook> hooks = null;
-		channelHooksCache = traceHookArrayCache.get(channelHC);
+	/*
+	 * Names of the hooked events by channel, or null if every event is
+	 * needed because of catch-all hooks
+	 */
+	public Map<String, Set<String>> getHookedEvents() {
+		if (!catchAllHook.isEmpty())
+			return null;
+		Map<String, Set<String>> events = new HashMap<String, Set<String>>();
+		for (String channel: traceHookMap.keySet()) {
+			Set<String> names = new HashSet<String>();
+			for (Map.Entry<String, TreeSet<TraceHook>> eventHooks: traceHookMap.get(channel).entrySet()) {
+				if (!eventHooks.getValue().isEmpty())
+					names.add(eventHooks.getKey());
+			}
+			events.put(channel, names);
+		}
+		return events;
+	}
 
-		if (channelHooksCache == null) {
-			channelHooksCache = new ArrayList<TreeSet<TraceHook>>();
-			traceHookArrayCache.put(channelHC, channelHooksCache);
+	/*
+	 * Index tracefiles by name and resolve hooks of all markers known 
+	 * when the trace is opened. Markers that show up later are resolved 
+	 * on their first event. Field references of the hooks are resolved
+	 * again, in the markers of this trace.
+	 */
+	protected void buildHookTable() {
+		tracefileIndexMap.clear();
+		hookTable = new TraceHook[0][][];
+		for (Map<String, TreeSet<TraceHook>> channelHooks: traceHookMap.values()) {
+			for (TreeSet<TraceHook> eventHooks: channelHooks.values()) {
+				resetFields(eventHooks);
+			}
 		}
-		if (channelHooksCache.size() <= eventId) {
-			for(int i=channelHooksCache.size(); i<eventId+1; i++) {
-				channelHooksCache.add(null);
+		resetFields(catchAllHook);
+		Map<String, JniTracefile> tracefiles = trace.getTracefilesMap();
+		if (tracefiles == null)
+			return;
+		for (JniTracefile tracefile: tracefiles.values()) {
+			int index = indexTracefile(tracefile);
+			Map<Integer, JniMarker> markers = tracefile.getTracefileMarkersMap();
+			if (markers == null)
+				continue;
+			for (Integer id: markers.keySet()) {
+				setHooks(index, id, makeHooks(tracefile.getTracefileName(), markers.get(id).getName()));
 			}
 		}
-		hooks = channelHooksCache.get(eventId);
-		if (hooks == null) {
-			/* we don't have it in the cache, search for it in the traceHookMap */
-			hooks = getHookSetByName(channelName, eventName);
-			channelHooksCache.set(eventId, hooks);
+	}
+
+	private static void resetFields(Collection<TraceHook> hooks) {
+		for (TraceHook hook: hooks) {
+			for (FieldRef field: hook.getFields()) {
+				field.reset();
+			}
 		}
+	}
+
+	public TraceHook[] getHooks(JniEvent event) {
+		JniTracefile tracefile = event.getParentTracefile();
+		int index = tracefile.getTracefileIndex();
+		if (index < 0)
+			index = indexTracefile(tracefile);
+		int id = event.getEventMarkerId();
+		TraceHook[][] markerHooks = hookTable[index];
+		if (id < markerHooks.length && markerHooks[id] != null)
+			return markerHooks[id];
+		JniMarker marker = event.getMarkersMap().get(id);
+		TraceHook[] hooks = makeHooks(tracefile.getTracefileName(), marker == null ? null : marker.getName());
+		setHooks(index, id, hooks);
 		return hooks;
 	}
 
+	private int indexTracefile(JniTracefile tracefile) {
+		Integer index = tracefileIndexMap.get(tracefile.getTracefileName());
+		if (index == null) {
+			index = tracefileIndexMap.size();
+			tracefileIndexMap.put(tracefile.getTracefileName(), index);
+			TraceHook[][][] table = new TraceHook[index + 1][][];
+			System.arraycopy(hookTable, 0, table, 0, hookTable.length);
+			table[index] = new TraceHook[0][];
+			hookTable = table;
+		}
+		tracefile.setTracefileIndex(index);
+		return index;
+	}
+
+	private void setHooks(int index, int id, TraceHook[] hooks) {
+		TraceHook[][] markerHooks = hookTable[index];
+		if (id >= markerHooks.length) {
+			TraceHook[][] grown = new TraceHook[id + 1][];
+			System.arraycopy(markerHooks, 0, grown, 0, markerHooks.length);
+			markerHooks = grown;
+			hookTable[index] = markerHooks;
+		}
+		markerHooks[id] = hooks;
+	}
+
+	/* 
+	 * Event hooks and catch-all hooks merged by priority. The sort is 
+	 * stable, hence event hooks run first on equal priority.
+	 */
+	private TraceHook[] makeHooks(String channelName, String eventName) {
+		ArrayList<TraceHook> hooks = new ArrayList<TraceHook>();
+		Map<String, TreeSet<TraceHook>> channelHooks = traceHookMap.get(channelName);
+		if (channelHooks != null && eventName != null) {
+			TreeSet<TraceHook> eventHooks = channelHooks.get(eventName);
+			if (eventHooks != null)
+				hooks.addAll(eventHooks);
+		}
+		hooks.addAll(catchAllHook);
+		if (hooks.isEmpty())
+			return noHooks;
+		Collections.sort(hooks);
+		return hooks.toArray(new TraceHook[hooks.size()]);
+	}
+
 	public ITraceEventHandler getHandler(
 			Class<? extends TraceEventHandlerBase> klass) {
 		return handlers.get(klass);
@@ -210,8 +579,21 @@ public class TraceReader {
 		return trace.getEndTime().getTime();
 	}
 
+	public String getTracePath() {
+		return tracePath;
+	}
+
+	public AnalysisSession getSession() {
+		return session;
+	}
+
 	public SystemModel getSystemModel() {
-		return systemModel;
+		return session.getModel();
+	}
+
+	/* events read by the last call to process() */
+	public long getEventCount() {
+		return eventCount;
 	}
 
 	public void cancel() {
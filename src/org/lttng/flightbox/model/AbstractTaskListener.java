@@ -1,5 +1,9 @@
 package org.lttng.flightbox.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.lttng.flightbox.model.Task.TaskState;
 import org.lttng.flightbox.model.state.StateInfo;
 
 
@@ -20,4 +24,12 @@ public class AbstractTaskListener implements ITaskListener {
 		this.model = model;
 	}
 
+	/*
+	 * Types of the states that this listener references after they are
+	 * popped. States of these types are not recycled by the model.
+	 */
+	public Set<TaskState> getRetainedStates() {
+		return EnumSet.allOf(TaskState.class);
+	}
+
 }
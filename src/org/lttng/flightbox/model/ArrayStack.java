@@ -0,0 +1,81 @@
+package org.lttng.flightbox.model;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/*
+ * Unsynchronized stack backed by an array, used for the states of tasks
+ * and processors. As a list, index 0 is the bottom of the stack and add()
+ * is a push. Callers on hot paths should use peek(depth) or get(i) rather
+ * than an iterator.
+ */
+class ArrayStack<T> extends AbstractList<T> implements RandomAccess {
+
+	private Object[] items;
+	private int size;
+
+	ArrayStack() {
+		items = new Object[8];
+	}
+
+	void push(T item) {
+		if (size == items.length) {
+			Object[] grown = new Object[size * 2];
+			System.arraycopy(items, 0, grown, 0, size);
+			items = grown;
+		}
+		items[size++] = item;
+	}
+
+	@SuppressWarnings("unchecked")
+	T pop() {
+		if (size == 0)
+			return null;
+		T item = (T) items[--size];
+		items[size] = null;
+		return item;
+	}
+
+	/* item at depth from the top, null if the stack is not deep enough */
+	@SuppressWarnings("unchecked")
+	T peek(int depth) {
+		if (depth < 0 || depth >= size)
+			return null;
+		return (T) items[size - 1 - depth];
+	}
+
+	T peek() {
+		return peek(0);
+	}
+
+	@Override
+	public boolean add(T item) {
+		push(item);
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return (T) items[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			items[i] = null;
+		size = 0;
+	}
+}
@@ -0,0 +1,78 @@
+package org.lttng.flightbox.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * Tasks by command, keyed by the complete command and by its basename.
+ * Sets are by identity, because the start time of a task, used by
+ * compareTo(), can change after the task is added to the model.
+ */
+class CmdIndex {
+
+	private final HashMap<String, Set<Task>> byCmd;
+	private final HashMap<String, Set<Task>> byBasename;
+
+	CmdIndex() {
+		byCmd = new HashMap<String, Set<Task>>();
+		byBasename = new HashMap<String, Set<Task>>();
+	}
+
+	static String basename(String cmd) {
+		return cmd.substring(cmd.lastIndexOf('/') + 1);
+	}
+
+	void add(Task task, String cmd) {
+		if (cmd == null)
+			return;
+		add(byCmd, cmd, task);
+		add(byBasename, basename(cmd), task);
+	}
+
+	void remove(Task task, String cmd) {
+		if (cmd == null)
+			return;
+		remove(byCmd, cmd, task);
+		remove(byBasename, basename(cmd), task);
+	}
+
+	/* tasks with this command, or with a command ending with it */
+	TreeSet<Task> find(String cmd, boolean basename) {
+		TreeSet<Task> result = new TreeSet<Task>();
+		if (!basename) {
+			Set<Task> set = byCmd.get(cmd);
+			if (set != null)
+				result.addAll(set);
+			return result;
+		}
+		Set<Task> set = byBasename.get(basename(cmd));
+		if (set == null)
+			return result;
+		for (Task t: set) {
+			if (t.getCmd().endsWith(cmd))
+				result.add(t);
+		}
+		return result;
+	}
+
+	private static void add(HashMap<String, Set<Task>> map, String key, Task task) {
+		Set<Task> set = map.get(key);
+		if (set == null) {
+			set = Collections.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+			map.put(key, set);
+		}
+		set.add(task);
+	}
+
+	private static void remove(HashMap<String, Set<Task>> map, String key, Task task) {
+		Set<Task> set = map.get(key);
+		if (set == null)
+			return;
+		set.remove(task);
+		if (set.isEmpty())
+			map.remove(key);
+	}
+}
@@ -11,6 +11,7 @@ public class FileDescriptorSet {
 	private final IdMap<FileDescriptor> fds;
 	private final HashMap<Integer, FileDescriptor> latests;
 	private final HashMap<IPv4Con, SocketInet> con2sock;
+	private final LongMap<SocketInet> ptr2sock;
 	
 	public FileDescriptorSet() {
 		FileDescriptorIdProvider<SocketInet> provSock = new FileDescriptorIdProvider<SocketInet>();
@@ -26,6 +27,7 @@ public class FileDescriptorSet {
 		fds.setProvider(provFd);
 		
 		con2sock = new HashMap<IPv4Con, SocketInet>();
+		ptr2sock = new LongMap<SocketInet>();
 		latests = new HashMap<Integer, FileDescriptor>();
 	}
 	
@@ -33,12 +35,17 @@ public class FileDescriptorSet {
 	 * and no error is thrown. This is acceptable on per-process basis
 	 * because no such duplicate can exists for a single process */
 	public <T extends FileDescriptor> void add(T fd) {
+		/* the fd number is reused, the previous one is closed */
+		FileDescriptor prev = latests.get(fd.getFd());
+		if (prev != null && prev != fd)
+			close(prev);
 		if (fd instanceof RegularFile) {
 			regFiles.add((RegularFile) fd);
 		} else if (fd instanceof SocketInet) {
 			SocketInet sock = (SocketInet) fd;
 			sockets.add(sock);
 			con2sock.put(sock.getIp(), sock);
+			ptr2sock.put(sock.getPointer(), sock);
 		}
 		fds.add(fd);
 		latests.put(fd.getFd(), fd);
@@ -55,8 +62,9 @@ public class FileDescriptorSet {
 			regFiles.remove((RegularFile) fd);
 		} else if (fd instanceof SocketInet) {
 			SocketInet sock = (SocketInet) fd;
-			sockets.add(sock);
+			sockets.remove(sock);
 			con2sock.remove(sock.getIp());
+			ptr2sock.remove(sock.getPointer(), sock);
 		}
 		fds.remove(fd);
 		latests.remove(fd.getFd());
@@ -78,11 +86,15 @@ public class FileDescriptorSet {
 		return con2sock.get(con);
 	}
 	public SocketInet findSocketByPointer(long ptr) {
-		for (SocketInet sock: con2sock.values()) {
-			if (sock.getPointer() == ptr)
-				return sock;
+		return ptr2sock.get(ptr);
+	}
+
+	/* the fd stays in the history, but its kernel pointer can be reused */
+	public void close(FileDescriptor fd) {
+		if (fd instanceof SocketInet) {
+			SocketInet sock = (SocketInet) fd;
+			ptr2sock.remove(sock.getPointer(), sock);
 		}
-		return null;
 	}
 	public FileDescriptor getLatest(int fd) {
 		return latests.get(fd);
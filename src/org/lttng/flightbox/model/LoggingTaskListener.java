@@ -1,7 +1,9 @@
 package org.lttng.flightbox.model;
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Set;
 
 import javax.jws.WebParam.Mode;
 
@@ -49,4 +51,9 @@ public class LoggingTaskListener extends AbstractTaskListener {
 			System.out.println(String.format("%-5s %-6d %s", op, task.getProcessId(), str));
 		}
 	}
+
+	@Override
+	public Set<TaskState> getRetainedStates() {
+		return EnumSet.noneOf(TaskState.class);
+	}
 }
@@ -0,0 +1,91 @@
+package org.lttng.flightbox.model;
+
+/*
+ * Map with primitive long keys, in an open-addressing table with linear
+ * probing. Null values are not allowed, a null value marks an empty slot.
+ */
+class LongMap<T> {
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int count;
+
+	LongMap() {
+		keys = new long[16];
+		values = new Object[16];
+		mask = 15;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int slot(long key) {
+		int i = hash(key) & mask;
+		while (values[i] != null) {
+			if (keys[i] == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	@SuppressWarnings("unchecked")
+	T get(long key) {
+		return (T) values[slot(key)];
+	}
+
+	void put(long key, T value) {
+		int i = slot(key);
+		if (values[i] == null) {
+			keys[i] = key;
+			count++;
+		}
+		values[i] = value;
+		if (count * 2 > values.length)
+			grow();
+	}
+
+	/* remove the key only if it is mapped to value */
+	boolean remove(long key, T value) {
+		int i = slot(key);
+		if (values[i] == null || values[i] != value)
+			return false;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (values[j] == null)
+				break;
+			int k = hash(keys[j]) & mask;
+			if (i <= j ? (i < k && k <= j) : (i < k || k <= j))
+				continue;
+			keys[i] = keys[j];
+			values[i] = values[j];
+			i = j;
+		}
+		values[i] = null;
+		count--;
+		return true;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldValues.length * 2];
+		mask = values.length - 1;
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	int size() {
+		return count;
+	}
+}
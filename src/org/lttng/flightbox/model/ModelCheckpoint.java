@@ -0,0 +1,350 @@
+package org.lttng.flightbox.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lttng.flightbox.model.Processor.ProcessorState;
+import org.lttng.flightbox.model.Task.TaskState;
+import org.lttng.flightbox.model.state.IRQInfo;
+import org.lttng.flightbox.model.state.SoftIRQInfo;
+import org.lttng.flightbox.model.state.StateInfo;
+import org.lttng.flightbox.model.state.SyscallInfo;
+import org.lttng.flightbox.model.state.WaitInfo;
+
+/**
+ * Compact snapshot of the current state of a SystemModel: symbol tables,
+ * latest tasks with their state stack and opened file descriptors, and
+ * state and current task of each processor. Task history, closed file
+ * descriptors and references between states other than the waiting
+ * syscall (wake-up causes, sockets of pending syscalls) are not kept.
+ *
+ * The state at the time of the checkpoint includes every event before
+ * its timestamp, and none of the events at or after it.
+ */
+public class ModelCheckpoint {
+
+	private static final byte FD_PLAIN = 0;
+	private static final byte FD_REGULAR = 1;
+	private static final byte FD_SOCKET = 2;
+
+	private final long timestamp;
+	private final byte[] data;
+
+	public ModelCheckpoint(long timestamp, byte[] data) {
+		this.timestamp = timestamp;
+		this.data = data;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+
+	public static ModelCheckpoint save(SystemModel model, long timestamp) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			writeSymbols(out, model.getSyscallTable());
+			writeSymbols(out, model.getInterruptTable());
+			writeSymbols(out, model.getSoftIRQTable());
+			out.writeInt(model.getLatestTasks().size());
+			for (Task task: model.getLatestTasks().values()) {
+				writeTask(out, task);
+			}
+			out.writeInt(model.getProcessors().size());
+			for (Processor p: model.getProcessors()) {
+				out.writeInt(p.getId());
+				out.writeBoolean(p.isLowPowerMode());
+				writeTaskRef(out, p.getCurrentTask());
+				out.writeInt(p.getStates().size());
+				for (ProcessorState state: p.getStates()) {
+					out.writeByte(state.ordinal());
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Error while saving model checkpoint", e);
+		}
+		return new ModelCheckpoint(timestamp, bytes.toByteArray());
+	}
+
+	/*
+	 * Restore the checkpoint into an empty model. Listeners of the tasks
+	 * are not notified of the restored states.
+	 */
+	public void restore(SystemModel model) {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		try {
+			readSymbols(in, model.getSyscallTable());
+			readSymbols(in, model.getInterruptTable());
+			readSymbols(in, model.getSoftIRQTable());
+			int numTasks = in.readInt();
+			HashMap<Task, Task> tasks = new HashMap<Task, Task>();
+			HashMap<Task, Task> parents = new HashMap<Task, Task>();
+			for (int i = 0; i < numTasks; i++) {
+				Task task = readTask(in, model, parents);
+				tasks.put(task, task);
+			}
+			for (Map.Entry<Task, Task> entry: parents.entrySet()) {
+				Task task = entry.getKey();
+				Task parent = resolve(tasks, entry.getValue());
+				task.setParentTask(parent);
+				if (tasks.containsKey(parent))
+					parent.addChild(task);
+			}
+			int numProcessors = in.readInt();
+			model.initProcessors(numProcessors);
+			for (int i = 0; i < numProcessors; i++) {
+				Processor p = model.getProcessors().get(i);
+				p.setId(in.readInt());
+				if (in.readBoolean())
+					p.setLowPowerMode(true);
+				p.setCurrentTask(resolve(tasks, readTaskRef(in)));
+				int numStates = in.readInt();
+				for (int j = 0; j < numStates; j++) {
+					p.getStates().add(ProcessorState.values()[in.readByte()]);
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error while restoring model checkpoint", e);
+		}
+	}
+
+	private static Task resolve(HashMap<Task, Task> tasks, Task ref) {
+		if (ref == null)
+			return null;
+		Task task = tasks.get(ref);
+		return task == null ? ref : task;
+	}
+
+	private static void writeSymbols(DataOutputStream out, SymbolTable table) throws IOException {
+		Map<Integer, String> symbols = table.getMap();
+		out.writeInt(symbols.size());
+		for (Map.Entry<Integer, String> entry: symbols.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeUTF(entry.getValue());
+		}
+	}
+
+	private static void readSymbols(DataInputStream in, SymbolTable table) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			int id = in.readInt();
+			table.add(id, in.readUTF());
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		out.writeBoolean(str != null);
+		if (str != null)
+			out.writeUTF(str);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		if (!in.readBoolean())
+			return null;
+		return in.readUTF();
+	}
+
+	/* tasks are identified by pid and start time, as in Task.equals() */
+	private static void writeTaskRef(DataOutputStream out, Task task) throws IOException {
+		out.writeBoolean(task != null);
+		if (task != null) {
+			out.writeInt(task.getProcessId());
+			out.writeLong(task.getStartTime());
+		}
+	}
+
+	private static Task readTaskRef(DataInputStream in) throws IOException {
+		if (!in.readBoolean())
+			return null;
+		int pid = in.readInt();
+		return new Task(pid, in.readLong());
+	}
+
+	private static void writeTask(DataOutputStream out, Task task) throws IOException {
+		out.writeInt(task.getProcessId());
+		out.writeLong(task.getStartTime());
+		out.writeLong(task.getEndTime());
+		out.writeInt(task.getThreadGroupId());
+		out.writeInt(task.getExitStatus());
+		out.writeBoolean(task.isKernelThread());
+		writeString(out, task.getCmd());
+		writeTaskRef(out, task.getParentProcess());
+		List<StateInfo> states = task.getStates();
+		out.writeInt(states.size());
+		for (StateInfo info: states) {
+			writeState(out, info, states);
+		}
+		List<FileDescriptor> fds = task.getOpenedFileDescriptors();
+		out.writeInt(fds.size());
+		for (FileDescriptor fd: fds) {
+			writeFileDescriptor(out, fd);
+		}
+	}
+
+	private static Task readTask(DataInputStream in, SystemModel model, HashMap<Task, Task> parents) throws IOException {
+		int pid = in.readInt();
+		Task task = new Task(pid, in.readLong());
+		task.setEndTime(in.readLong());
+		task.setThreadGroupId(in.readInt());
+		task.setExitStatus(in.readInt());
+		task.setKernelThread(in.readBoolean());
+		task.setCmd(readString(in));
+		Task parent = readTaskRef(in);
+		if (parent != null)
+			parents.put(task, parent);
+		model.addTask(task);
+		task.setEnableListeners(false);
+		int numStates = in.readInt();
+		ArrayList<StateInfo> states = new ArrayList<StateInfo>(numStates);
+		for (int i = 0; i < numStates; i++) {
+			StateInfo info = readState(in, states);
+			states.add(info);
+			task.pushState(info);
+		}
+		task.setEnableListeners(true);
+		int numFds = in.readInt();
+		for (int i = 0; i < numFds; i++) {
+			FileDescriptor fd = readFileDescriptor(in);
+			task.addFileDescriptor(fd);
+			if (fd instanceof SocketInet) {
+				model.addSocket((SocketInet) fd);
+				if (!fd.isOpen())
+					model.closeSocket((SocketInet) fd);
+			}
+		}
+		return task;
+	}
+
+	private static void writeState(DataOutputStream out, StateInfo info, List<StateInfo> stack) throws IOException {
+		out.writeByte(info.getTaskState().ordinal());
+		out.writeLong(info.getStartTime());
+		out.writeLong(info.getEndTime());
+		switch (info.getTaskState()) {
+		case SYSCALL:
+			SyscallInfo syscall = (SyscallInfo) info;
+			out.writeInt(syscall.getSyscallId());
+			out.writeInt(syscall.getRetCode());
+			break;
+		case IRQ:
+			out.writeInt(((IRQInfo) info).getIRQId());
+			break;
+		case SOFTIRQ:
+			out.writeInt(((SoftIRQInfo) info).getSoftirqId());
+			break;
+		case WAIT:
+			WaitInfo wait = (WaitInfo) info;
+			out.writeBoolean(wait.isBlocking());
+			out.writeInt(wait.getWaitingSyscall() == null ? -1 : stack.indexOf(wait.getWaitingSyscall()));
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static StateInfo readState(DataInputStream in, List<StateInfo> stack) throws IOException {
+		TaskState taskState = TaskState.values()[in.readByte()];
+		StateInfo info = StateInfoFactory.makeStateInfo(taskState);
+		info.setStartTime(in.readLong());
+		info.setEndTime(in.readLong());
+		switch (taskState) {
+		case SYSCALL:
+			SyscallInfo syscall = (SyscallInfo) info;
+			syscall.setSyscallId(in.readInt());
+			syscall.setRetCode(in.readInt());
+			break;
+		case IRQ:
+			((IRQInfo) info).setIRQId(in.readInt());
+			break;
+		case SOFTIRQ:
+			((SoftIRQInfo) info).setSoftirqId(in.readInt());
+			break;
+		case WAIT:
+			WaitInfo wait = (WaitInfo) info;
+			wait.setBlocking(in.readBoolean());
+			int index = in.readInt();
+			if (index >= 0 && index < stack.size() && stack.get(index) instanceof SyscallInfo)
+				wait.setWaitingSyscall((SyscallInfo) stack.get(index));
+			break;
+		default:
+			break;
+		}
+		return info;
+	}
+
+	private static void writeFileDescriptor(DataOutputStream out, FileDescriptor fd) throws IOException {
+		if (fd instanceof RegularFile) {
+			out.writeByte(FD_REGULAR);
+		} else if (fd instanceof SocketInet) {
+			out.writeByte(FD_SOCKET);
+		} else {
+			out.writeByte(FD_PLAIN);
+		}
+		out.writeInt(fd.getFd());
+		out.writeLong(fd.getStartTime());
+		out.writeLong(fd.getEndTime());
+		out.writeBoolean(fd.isError());
+		if (fd instanceof RegularFile) {
+			writeString(out, ((RegularFile) fd).getFilename());
+		} else if (fd instanceof SocketInet) {
+			SocketInet sock = (SocketInet) fd;
+			out.writeInt(sock.getType());
+			out.writeInt(sock.getFamily());
+			out.writeInt(sock.getProtocol());
+			out.writeBoolean(sock.isClient());
+			out.writeLong(sock.getPointer());
+			out.writeLong(sock.getSend());
+			out.writeLong(sock.getRecv());
+			IPv4Con ip = sock.getIp();
+			out.writeLong(ip.getSrcAddr());
+			out.writeInt(ip.getSrcPort());
+			out.writeLong(ip.getDstAddr());
+			out.writeInt(ip.getDstPort());
+		}
+	}
+
+	private static FileDescriptor readFileDescriptor(DataInputStream in) throws IOException {
+		byte kind = in.readByte();
+		FileDescriptor fd;
+		if (kind == FD_REGULAR) {
+			fd = new RegularFile();
+		} else if (kind == FD_SOCKET) {
+			fd = new SocketInet();
+		} else {
+			fd = new FileDescriptor();
+		}
+		fd.setFd(in.readInt());
+		fd.setStartTime(in.readLong());
+		fd.setEndTime(in.readLong());
+		fd.setError(in.readBoolean());
+		if (kind == FD_REGULAR) {
+			((RegularFile) fd).setFilename(readString(in));
+		} else if (kind == FD_SOCKET) {
+			SocketInet sock = (SocketInet) fd;
+			sock.setType(in.readInt());
+			sock.setFamily(in.readInt());
+			sock.setProtocol(in.readInt());
+			sock.setClient(in.readBoolean());
+			sock.setPointer(in.readLong());
+			sock.setSend(in.readLong());
+			sock.setRecv(in.readLong());
+			IPv4Con ip = sock.getIp();
+			ip.setSrcAddr(in.readLong());
+			ip.setSrcPort(in.readInt());
+			ip.setDstAddr(in.readLong());
+			ip.setDstPort(in.readInt());
+		}
+		return fd;
+	}
+}
@@ -1,7 +1,7 @@
 package org.lttng.flightbox.model;
 
 import java.util.HashSet;
-import java.util.Stack;
+import java.util.List;
 
 
 /**
@@ -17,7 +17,7 @@ public class Processor extends SystemResource implements Comparable<Processor> {
 
 	private boolean isLowPowerMode;
 	private int id;
-	private final Stack<ProcessorState> state;
+	private final ArrayStack<ProcessorState> state;
 	private final HashSet<IProcessorListener> listeners;
 	private Task currentTask;
 
@@ -28,7 +28,7 @@ public class Processor extends SystemResource implements Comparable<Processor> {
 
 	public Processor() {
 		listeners = new HashSet<IProcessorListener>();
-		state = new Stack<ProcessorState>();
+		state = new ArrayStack<ProcessorState>();
 	}
 
 	public boolean isLowPowerMode() {
@@ -49,8 +49,6 @@ public class Processor extends SystemResource implements Comparable<Processor> {
 	}
 
 	public ProcessorState peekState() {
-		if (state.isEmpty())
-			return null;
 		return state.peek();
 	}
 
@@ -59,10 +57,14 @@ public class Processor extends SystemResource implements Comparable<Processor> {
 		state.push(newState);
 	}
 
+	public List<ProcessorState> getStates() {
+		return state;
+	}
+
 	public void popState() {
 		if (state.isEmpty())
 			return;
-		fireStateChange(state.get(state.size()-1));
+		fireStateChange(state.peek());
 		state.pop();
 	}
 
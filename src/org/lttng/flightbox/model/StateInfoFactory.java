@@ -1,5 +1,9 @@
 package org.lttng.flightbox.model;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Set;
+
 import org.lttng.flightbox.model.Task.TaskState;
 import org.lttng.flightbox.model.state.AliveInfo;
 import org.lttng.flightbox.model.state.ExitInfo;
@@ -12,8 +16,57 @@ import org.lttng.flightbox.model.state.UserInfo;
 import org.lttng.flightbox.model.state.WaitInfo;
 import org.lttng.flightbox.model.state.ZombieInfo;
 
+/*
+ * Make StateInfo objects. An instance of the factory keeps pools of
+ * transient states, that are refilled by recycle() when a state is
+ * popped and nothing references it anymore.
+ */
 public class StateInfoFactory {
 
+	/* types of the states that are pooled */
+	public static final Set<TaskState> RECYCLED = EnumSet.of(TaskState.IRQ,
+			TaskState.SOFTIRQ, TaskState.SYSCALL, TaskState.WAIT);
+
+	public static final int POOL_SIZE = 1024;
+
+	private final EnumMap<TaskState, ArrayStack<StateInfo>> pools;
+	private long made;
+	private long reused;
+
+	public StateInfoFactory() {
+		pools = new EnumMap<TaskState, ArrayStack<StateInfo>>(TaskState.class);
+		for (TaskState state: RECYCLED) {
+			pools.put(state, new ArrayStack<StateInfo>());
+		}
+	}
+
+	public StateInfo make(TaskState state) {
+		made++;
+		ArrayStack<StateInfo> pool = pools.get(state);
+		if (pool != null && !pool.isEmpty()) {
+			reused++;
+			return pool.pop();
+		}
+		return makeStateInfo(state);
+	}
+
+	/* the caller guarantees that the state is not referenced anymore */
+	public void recycle(StateInfo info) {
+		ArrayStack<StateInfo> pool = pools.get(info.getTaskState());
+		if (pool == null || pool.size() >= POOL_SIZE)
+			return;
+		info.reset();
+		pool.push(info);
+	}
+
+	public long getMadeCount() {
+		return made;
+	}
+
+	public long getReusedCount() {
+		return reused;
+	}
+
 	public static StateInfo makeStateInfo(TaskState state) {
 		StateInfo info = null;
 		switch(state) {
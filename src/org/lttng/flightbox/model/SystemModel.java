@@ -1,27 +1,37 @@
 package org.lttng.flightbox.model;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
 import org.lttng.flightbox.dep.BlockingModel;
 import org.lttng.flightbox.model.Processor.ProcessorState;
+import org.lttng.flightbox.model.Task.TaskState;
 import org.lttng.flightbox.model.state.StateInfo;
 
 public class SystemModel extends AbstractTaskListener implements IProcessorListener {
 
 	/**
-	 * Current process list
+	 * Process list by pid, with history and latest task
 	 */
-	private final HashMap<Integer, TreeSet<Task>> tasksByPid;
-	
+	private final TaskTable tasksByPid;
+
+	/**
+	 * Process list by command and by basename of the command
+	 */
+	private final CmdIndex tasksByCmd;
+
 	/**
-	 * Latest process list (without history)
+	 * Sockets by connection, keys are copies because IPv4Con is mutable.
+	 * A connection has more than one open socket once a task forked.
 	 */
-	private final HashMap<Integer, Task> latestTaskMap;
+	private final HashMap<IPv4Con, ArrayList<SocketInet>> openSockets;
+	private final HashMap<IPv4Con, SocketInet> closedSockets;
 
 	/**
 	 * All processors
@@ -38,6 +48,16 @@ public class SystemModel extends AbstractTaskListener implements IProcessorListe
 	 */
 	private final ArrayList<ITaskListener> taskListeners;
 
+	/**
+	 * Pools of states, null unless states are recycled
+	 */
+	private StateInfoFactory stateFactory;
+
+	/**
+	 * Types of states referenced by task listeners after their pop
+	 */
+	private final EnumSet<TaskState> retainedStates;
+
 	/**
 	 * Blocking model
 	 */
@@ -66,9 +86,12 @@ public class SystemModel extends AbstractTaskListener implements IProcessorListe
 		syscallTable = new SymbolTable();
 		interruptTable = new SymbolTable();
 		softirqTable = new SymbolTable();
-		tasksByPid = new HashMap<Integer, TreeSet<Task>>();
+		tasksByPid = new TaskTable();
+		tasksByCmd = new CmdIndex();
+		openSockets = new HashMap<IPv4Con, ArrayList<SocketInet>>();
+		closedSockets = new HashMap<IPv4Con, SocketInet>();
+		retainedStates = EnumSet.noneOf(TaskState.class);
 		blockingModel = new BlockingModel();
-		latestTaskMap = new HashMap<Integer, Task>();
 	}
 
 	public void initProcessors(int numOfProcessors) {
@@ -93,26 +116,28 @@ public class SystemModel extends AbstractTaskListener implements IProcessorListe
 	}
 
 	public void addTask(Task task) {
-		int pid = task.getProcessId();
-		TreeSet<Task> taskSet = tasksByPid.get(pid);
-		if (taskSet == null) {
-			taskSet = new TreeSet<Task>();
-			tasksByPid.put(pid, taskSet);
+		if (tasksByPid.add(task) && task.getOwner() == null) {
+			tasksByCmd.add(task, task.getCmd());
+			task.setOwner(this);
 		}
-		taskSet.add(task);
-		latestTaskMap.put(task.getProcessId(), task);
 		task.addListener(this);
 	}
 
 	public void removeTask(Task task) {
-		TreeSet<Task> taskSet = tasksByPid.get(task.getProcessId());
-		if (taskSet != null && taskSet.contains(task)) {
-			taskSet.remove(task);
+		tasksByPid.remove(task);
+		if (task.getOwner() == this) {
+			tasksByCmd.remove(task, task.getCmd());
+			task.setOwner(null);
 		}
-		latestTaskMap.remove(task.getProcessId());
 		task.removeListener(this);
 	}
 
+	/* called by Task.setCmd(), for instance on exec */
+	void cmdChange(Task task, String prev, String next) {
+		tasksByCmd.remove(task, prev);
+		tasksByCmd.add(task, next);
+	}
+
 	@Override
 	public void stateChange(Processor processor, ProcessorState nextState) {
 		for (IProcessorListener listener: processorListeners) {
@@ -144,10 +169,56 @@ public class SystemModel extends AbstractTaskListener implements IProcessorListe
 	public void addTaskListener(ITaskListener listener) {
 		taskListeners.add(listener);
 		listener.setModel(this);
+		updateRetainedStates();
 	}
 
 	public void removeTaskListener(ITaskListener listener) {
 		taskListeners.remove(listener);
+		updateRetainedStates();
+	}
+
+	/* listeners that don't tell what they keep retain everything */
+	private void updateRetainedStates() {
+		retainedStates.clear();
+		for (ITaskListener listener: taskListeners) {
+			if (listener instanceof AbstractTaskListener)
+				retainedStates.addAll(((AbstractTaskListener) listener).getRetainedStates());
+			else
+				retainedStates.addAll(EnumSet.allOf(TaskState.class));
+		}
+	}
+
+	/*
+	 * Recycle the states popped by the tasks of this model, unless a
+	 * listener or another state references them. Off by default.
+	 */
+	public void setRecycleStates(boolean recycle) {
+		if (recycle && stateFactory == null)
+			stateFactory = new StateInfoFactory();
+		else if (!recycle)
+			stateFactory = null;
+	}
+
+	public boolean isRecycleStates() {
+		return stateFactory != null;
+	}
+
+	/* null unless states are recycled */
+	public StateInfoFactory getStateInfoFactory() {
+		return stateFactory;
+	}
+
+	public StateInfo makeStateInfo(TaskState state) {
+		if (stateFactory == null)
+			return StateInfoFactory.makeStateInfo(state);
+		return stateFactory.make(state);
+	}
+
+	/* called by Task.popState() */
+	void recycleState(StateInfo info) {
+		if (stateFactory == null || info.isRetained() || retainedStates.contains(info.getTaskState()))
+			return;
+		stateFactory.recycle(info);
 	}
 
 	public SymbolTable getSyscallTable() {
@@ -162,40 +233,22 @@ public class SystemModel extends AbstractTaskListener implements IProcessorListe
 		return softirqTable;
 	}
 
-	public HashMap<Integer, TreeSet<Task>> getTasks() {
-		return tasksByPid;
+	/* read-only view, tasks of each pid are sorted by start time */
+	public Map<Integer, List<Task>> getTasks() {
+		return tasksByPid.historyView();
 	}
 
-	public HashMap<Integer, Task> getLatestTasks() {
-		return latestTaskMap;
+	/* read-only view of the task added last for each pid */
+	public Map<Integer, Task> getLatestTasks() {
+		return tasksByPid.addedView();
 	}
 	
 	public Task getLatestTaskByPID(int pid) {
-		Task task = null;
-		TreeSet<Task> taskSet = tasksByPid.get(pid);
-		if (taskSet != null)
-			task = taskSet.last();
-		return task;
+		return tasksByPid.getLatest(pid);
 	}
 
 	public TreeSet<Task> getTaskByCmd(String cmd, boolean basename) {
-		TreeSet<Task> resultSet = new TreeSet<Task>();
-		for (TreeSet<Task> set: tasksByPid.values()) {
-			for (Task t: set) {
-				if (t.getCmd() == null)
-					continue;
-				if (basename) {
-					if (t.getCmd().endsWith(cmd)) {
-						resultSet.add(t);
-					}
-				} else {
-					if (t.getCmd().equals(cmd)) {
-						resultSet.add(t);
-					}
-				}
-			}
-		}
-		return resultSet;
+		return tasksByCmd.find(cmd, basename);
 	}
 
 	public TreeSet<Task> getTaskByCmdBasename(String cmd) {
@@ -220,17 +273,60 @@ public class SystemModel extends AbstractTaskListener implements IProcessorListe
 		return blockingModel;
 	}
 
-	/* search into latest tasks only */
+	/* index the socket by its connection, once the connection is set */
+	public void addSocket(SocketInet sock) {
+		IPv4Con con = sock.getIp();
+		if (!con.isSet())
+			return;
+		ArrayList<SocketInet> holders = openSockets.get(con);
+		if (holders == null) {
+			holders = new ArrayList<SocketInet>(1);
+			openSockets.put(copy(con), holders);
+		}
+		for (SocketInet s: holders) {
+			if (s == sock)
+				return;
+		}
+		holders.add(sock);
+	}
+
+	/* the socket stays resolvable until its connection is reused */
+	public void closeSocket(SocketInet sock) {
+		IPv4Con con = sock.getIp();
+		if (!con.isSet())
+			return;
+		ArrayList<SocketInet> holders = openSockets.get(con);
+		if (holders == null)
+			return;
+		for (int i = 0; i < holders.size(); i++) {
+			if (holders.get(i) == sock) {
+				holders.remove(i);
+				if (holders.isEmpty())
+					openSockets.remove(con);
+				closedSockets.put(copy(con), sock);
+				return;
+			}
+		}
+	}
+
+	private static IPv4Con copy(IPv4Con con) {
+		return new IPv4Con(con.getSrcAddr(), con.getSrcPort(), con.getDstAddr(), con.getDstPort());
+	}
+
+	/* 
+	 * open socket with this connection, the last one added if tasks 
+	 * share it, or the last one closed 
+	 */
+	public SocketInet findSocketByIp(IPv4Con con) {
+		ArrayList<SocketInet> holders = openSockets.get(con);
+		if (holders != null)
+			return holders.get(holders.size() - 1);
+		return closedSockets.get(con);
+	}
+
 	public SocketInet findComplementSocket(SocketInet sock) {
 		if (!sock.getIp().isSet())
 			return null;
-		IPv4Con complementCon = sock.getIp().getComplement();
-		HashMap<Integer, Task> tasks = getLatestTasks();
-		for (Task task: tasks.values()) {
-			SocketInet found = task.getSocketByIp(complementCon);
-			if (found != null)
-				return found;
-		}
-		return null;
+		return findSocketByIp(sock.getIp().getComplement());
 	}
 }
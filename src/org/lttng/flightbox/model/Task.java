@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Stack;
 import java.util.TreeSet;
 
 import org.lttng.flightbox.model.state.StateInfo;
@@ -35,17 +34,18 @@ public class Task extends SystemResource implements Comparable<Task> {
 	private int exitStatus;
 	private String cmd;
 	private boolean isKernelThread;
-	private final Stack<StateInfo> stateStack;
+	private final ArrayStack<StateInfo> stateStack;
 	private final HashSet<ITaskListener> listeners;
 	private final FileDescriptorSet fdsSet;
 	private StateInfo lastWakeup;
 	private boolean listenersEnabled;
+	private SystemModel owner;
 
 	public Task(int pid, long createTs) {
 		this.processId = pid;
 		setStartTime(createTs);
 		setEnableListeners(true);
-		stateStack = new Stack<StateInfo>();
+		stateStack = new ArrayStack<StateInfo>();
 		listeners = new HashSet<ITaskListener>();
 		isKernelThread = false;
 		fdsSet = new FileDescriptorSet();
@@ -93,9 +93,20 @@ public class Task extends SystemResource implements Comparable<Task> {
 	}
 
 	public void setCmd(String cmd) {
+		if (owner != null)
+			owner.cmdChange(this, this.cmd, cmd);
 		this.cmd = cmd;
 	}
 
+	/* model that indexes this task by command */
+	SystemModel getOwner() {
+		return owner;
+	}
+
+	void setOwner(SystemModel owner) {
+		this.owner = owner;
+	}
+
 	public int getProcessId() {
 		return processId;
 	}
@@ -153,25 +164,26 @@ public class Task extends SystemResource implements Comparable<Task> {
 		stateStack.push(info);
 	}
 
+	/* when the model recycles states, the returned state can be reused
+	 * by the next state made by the model */
 	public StateInfo popState() {
 		if (stateStack.isEmpty())
 			return null;
 		firePopState();
-		return stateStack.pop();
+		StateInfo info = stateStack.pop();
+		if (owner != null)
+			owner.recycleState(info);
+		return info;
 	}
 
 	public StateInfo peekState() {
-		if (stateStack.isEmpty())
-			return null;
 		return stateStack.peek();
 	}
 
 	public StateInfo peekState(int i) {
 		if (i > 0)
 			return null;
-		if (stateStack.size() <= Math.abs(i))
-			return null;
-		return stateStack.get((stateStack.size()-1)+i);
+		return stateStack.peek(-i);
 	}
 
 	public void firePushState(StateInfo nextState) {
@@ -185,10 +197,7 @@ public class Task extends SystemResource implements Comparable<Task> {
 	private void firePopState() {
 		if (!listenersEnabled)
 			return;
-		StateInfo nextState = null;
-		if (stateStack.size() > 1) {
-			nextState = stateStack.get(stateStack.size() - 2);
-		}
+		StateInfo nextState = stateStack.peek(1);
 		for (ITaskListener l: listeners) {
 			l.popState(this, nextState);
 		}
@@ -253,6 +262,8 @@ public class Task extends SystemResource implements Comparable<Task> {
 	}
 
 	public void setLastWakeUp(StateInfo info) {
+		if (info != null)
+			info.setRetained(true);
 		this.lastWakeup = info;
 	}
 	
@@ -0,0 +1,298 @@
+package org.lttng.flightbox.model;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * Tasks by pid, in an open-addressing table with linear probing. Each
+ * pid has the history of its tasks, in an array sorted by start time,
+ * and the task that was added last. Tasks are added in order of start
+ * time while reading a trace, then adding to the history is an append.
+ */
+class TaskTable {
+
+	/* tasks of one pid, sorted by start time */
+	static class History extends AbstractList<Task> {
+		final int pid;
+		Task[] tasks;
+		int size;
+		Task added;
+
+		History(int pid) {
+			this.pid = pid;
+			this.tasks = new Task[2];
+		}
+
+		/* same as TreeSet.add(), a task with the same start time is kept */
+		boolean insert(Task task) {
+			long ts = task.getStartTime();
+			int i = size;
+			while (i > 0 && tasks[i - 1].getStartTime() > ts)
+				i--;
+			if (i > 0 && tasks[i - 1].getStartTime() == ts)
+				return false;
+			if (size == tasks.length) {
+				Task[] grown = new Task[size * 2];
+				System.arraycopy(tasks, 0, grown, 0, size);
+				tasks = grown;
+			}
+			System.arraycopy(tasks, i, tasks, i + 1, size - i);
+			tasks[i] = task;
+			size++;
+			return true;
+		}
+
+		boolean delete(Task task) {
+			for (int i = size - 1; i >= 0; i--) {
+				if (tasks[i].compareTo(task) == 0) {
+					System.arraycopy(tasks, i + 1, tasks, i, size - i - 1);
+					tasks[--size] = null;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		Task last() {
+			return size == 0 ? null : tasks[size - 1];
+		}
+
+		@Override
+		public Task get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return tasks[index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private int[] keys;
+	private History[] values;
+	private int mask;
+	private int count;
+	private int addedCount;
+
+	TaskTable() {
+		keys = new int[64];
+		values = new History[64];
+		mask = 63;
+	}
+
+	private static int hash(int pid) {
+		int h = pid * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int slot(int pid) {
+		int i = hash(pid) & mask;
+		while (values[i] != null) {
+			if (keys[i] == pid)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	History get(int pid) {
+		return values[slot(pid)];
+	}
+
+	/* the task with the latest start time */
+	Task getLatest(int pid) {
+		History h = values[slot(pid)];
+		return h == null ? null : h.last();
+	}
+
+	/* the task added last, removed by remove() */
+	Task getAdded(int pid) {
+		History h = values[slot(pid)];
+		return h == null ? null : h.added;
+	}
+
+	boolean add(Task task) {
+		int pid = task.getProcessId();
+		int i = slot(pid);
+		History h = values[i];
+		if (h == null) {
+			h = new History(pid);
+			keys[i] = pid;
+			values[i] = h;
+			if (++count * 2 > values.length)
+				grow();
+		}
+		if (h.added == null)
+			addedCount++;
+		h.added = task;
+		return h.insert(task);
+	}
+
+	void remove(Task task) {
+		int i = slot(task.getProcessId());
+		History h = values[i];
+		if (h == null)
+			return;
+		h.delete(task);
+		if (h.added != null) {
+			h.added = null;
+			addedCount--;
+		}
+		if (h.size == 0)
+			delete(i);
+	}
+
+	/* shift back the following entries of the cluster */
+	private void delete(int i) {
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (values[j] == null)
+				break;
+			int k = hash(keys[j]) & mask;
+			if (i <= j ? (i < k && k <= j) : (i < k || k <= j))
+				continue;
+			keys[i] = keys[j];
+			values[i] = values[j];
+			i = j;
+		}
+		values[i] = null;
+		count--;
+	}
+
+	private void grow() {
+		History[] old = values;
+		keys = new int[old.length * 2];
+		values = new History[old.length * 2];
+		mask = values.length - 1;
+		for (History h: old) {
+			if (h != null) {
+				int i = slot(h.pid);
+				keys[i] = h.pid;
+				values[i] = h;
+			}
+		}
+	}
+
+	int size() {
+		return count;
+	}
+
+	/* view of the history by pid */
+	Map<Integer, List<Task>> historyView() {
+		return new AbstractMap<Integer, List<Task>>() {
+			@Override
+			public List<Task> get(Object key) {
+				if (!(key instanceof Integer))
+					return null;
+				return TaskTable.this.get((Integer) key);
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return get(key) != null;
+			}
+
+			@Override
+			public Set<Map.Entry<Integer, List<Task>>> entrySet() {
+				return new AbstractSet<Map.Entry<Integer, List<Task>>>() {
+					@Override
+					public Iterator<Map.Entry<Integer, List<Task>>> iterator() {
+						return new EntryIterator<List<Task>>(false) {
+							@Override
+							List<Task> value(History h) {
+								return h;
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return count;
+					}
+				};
+			}
+		};
+	}
+
+	/* view of the task added last by pid */
+	Map<Integer, Task> addedView() {
+		return new AbstractMap<Integer, Task>() {
+			@Override
+			public Task get(Object key) {
+				if (!(key instanceof Integer))
+					return null;
+				return getAdded((Integer) key);
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return get(key) != null;
+			}
+
+			@Override
+			public Set<Map.Entry<Integer, Task>> entrySet() {
+				return new AbstractSet<Map.Entry<Integer, Task>>() {
+					@Override
+					public Iterator<Map.Entry<Integer, Task>> iterator() {
+						return new EntryIterator<Task>(true) {
+							@Override
+							Task value(History h) {
+								return h.added;
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return addedCount;
+					}
+				};
+			}
+		};
+	}
+
+	private abstract class EntryIterator<V> implements Iterator<Map.Entry<Integer, V>> {
+		private final boolean added;
+		private int next;
+
+		EntryIterator(boolean added) {
+			this.added = added;
+			advance();
+		}
+
+		private void advance() {
+			while (next < values.length && (values[next] == null || (added && values[next].added == null)))
+				next++;
+		}
+
+		abstract V value(History h);
+
+		@Override
+		public boolean hasNext() {
+			return next < values.length;
+		}
+
+		@Override
+		public Map.Entry<Integer, V> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			History h = values[next++];
+			advance();
+			return new AbstractMap.SimpleImmutableEntry<Integer, V>(h.pid, value(h));
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
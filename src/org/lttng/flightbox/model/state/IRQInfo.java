@@ -18,4 +18,10 @@ public class IRQInfo extends StateInfo {
 		return irqId;
 	}
 
+	@Override
+	public void reset() {
+		super.reset();
+		irqId = 0;
+	}
+
 }
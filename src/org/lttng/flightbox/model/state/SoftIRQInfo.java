@@ -18,4 +18,10 @@ public class SoftIRQInfo extends StateInfo {
 		return softirqId;
 	}
 
+	@Override
+	public void reset() {
+		super.reset();
+		softirqId = 0;
+	}
+
 }
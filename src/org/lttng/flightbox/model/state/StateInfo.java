@@ -21,6 +21,7 @@ public abstract class StateInfo {
 	private long start;
 	private long end;
 	private Map<Field, Object> fieldInfo;
+	private boolean retained;
 
 	public StateInfo() {
 	}
@@ -76,4 +77,23 @@ public abstract class StateInfo {
 			return null;
 		return fieldInfo.get(key);
 	}
+
+	/* a retained state is referenced after its pop and is never recycled */
+	public void setRetained(boolean retained) {
+		this.retained = retained;
+	}
+
+	public boolean isRetained() {
+		return retained;
+	}
+
+	/* clear the state before it is recycled, the task state is kept */
+	public void reset() {
+		task = null;
+		start = 0;
+		end = 0;
+		retained = false;
+		if (fieldInfo != null)
+			fieldInfo.clear();
+	}
 }
@@ -37,6 +37,14 @@ public class SyscallInfo extends StateInfo {
 		return fileDescriptor;
 	}
 
+	@Override
+	public void reset() {
+		super.reset();
+		syscallId = 0;
+		retCode = 0;
+		fileDescriptor = null;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "(" + syscallId + ")";
@@ -16,6 +16,8 @@ public class WaitInfo extends StateInfo {
 	}
 
 	public void setWakeUp(StateInfo wakeUp) {
+		if (wakeUp != null)
+			wakeUp.setRetained(true);
 		this.wakeUp = wakeUp;
 	}
 
@@ -36,6 +38,8 @@ public class WaitInfo extends StateInfo {
 	}
 
 	public void setWaitingSyscall(SyscallInfo syscallInfo) {
+		if (syscallInfo != null)
+			syscallInfo.setRetained(true);
 		this.waitingSyscall = syscallInfo;
 	}
 
@@ -46,4 +50,13 @@ public class WaitInfo extends StateInfo {
 	public Task getWakeUpTask() {
 		return this.wakeUpProcess;
 	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		wakeUp = null;
+		isBlocking = false;
+		waitingSyscall = null;
+		wakeUpProcess = null;
+	}
 }
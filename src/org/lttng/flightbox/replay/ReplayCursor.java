@@ -0,0 +1,111 @@
+package org.lttng.flightbox.replay;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Position in the events of a replay file. Only the events of one
+ * stream are returned, or all of them when stream is negative. Blocks
+ * are read with absolute gets, cursors of several threads share them.
+ */
+class ReplayCursor {
+
+	private final ReplayJniTrace trace;
+	private final int stream;
+	private int block;
+	private ByteBuffer buf;
+	private int count;
+	private int index;
+	private int tsPos;
+	private int streamPos;
+	private int typePos;
+	private int dataPos;
+	private int varPos;
+	/* set when seek() found the next event */
+	private boolean peeked;
+
+	/* current event */
+	long ts;
+	int eventStream;
+	ReplayType type;
+	ByteBuffer data;
+	int dataOffset;
+
+	ReplayCursor(ReplayJniTrace trace, int stream) {
+		this.trace = trace;
+		this.stream = stream;
+		this.block = -1;
+	}
+
+	/* the next event is the first one at or after seekTs */
+	void seek(long seekTs) {
+		block = trace.findBlock(seekTs) - 1;
+		count = 0;
+		index = 0;
+		peeked = false;
+		while (advance()) {
+			if (ts >= seekTs) {
+				peeked = true;
+				return;
+			}
+		}
+	}
+
+	boolean next() {
+		if (peeked) {
+			peeked = false;
+			return true;
+		}
+		return advance();
+	}
+
+	private boolean advance() {
+		while (true) {
+			if (index >= count && !nextBlock())
+				return false;
+			long delta = readVarLong(tsPos);
+			tsPos = varPos;
+			ts = (index == 0 ? trace.getBlockFirstTs(block) : ts) + ((delta >>> 1) ^ -(delta & 1));
+			eventStream = (int) readVarLong(streamPos);
+			streamPos = varPos;
+			type = trace.getType((int) readVarLong(typePos));
+			typePos = varPos;
+			dataOffset = dataPos;
+			dataPos += type.width;
+			index++;
+			if (stream < 0 || eventStream == stream) {
+				data = buf;
+				return true;
+			}
+		}
+	}
+
+	private boolean nextBlock() {
+		if (block + 1 >= trace.getBlockCount())
+			return false;
+		block++;
+		buf = trace.getBlock(block);
+		count = buf.getInt(0);
+		int tsLen = buf.getInt(12);
+		int streamLen = buf.getInt(16);
+		int typeLen = buf.getInt(20);
+		tsPos = ReplayWriter.BLOCK_HEADER;
+		streamPos = tsPos + tsLen;
+		typePos = streamPos + streamLen;
+		dataPos = typePos + typeLen;
+		index = 0;
+		return true;
+	}
+
+	private long readVarLong(int pos) {
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buf.get(pos++);
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		varPos = pos;
+		return v;
+	}
+}
@@ -0,0 +1,165 @@
+package org.lttng.flightbox.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.lttng.flightbox.io.ITraceHookCallback;
+import org.lttng.flightbox.io.TraceEventHandlerBase;
+import org.lttng.flightbox.io.TraceHook;
+import org.lttng.flightbox.io.TraceReader;
+
+/*
+ * Write every event of a trace in a replay file. The fields of a
+ * marker are written with the kind of their first values; when the
+ * fields of an event differ, i.e. a null value, another type is added
+ * for the marker. Pointers are written as Long.
+ */
+public class ReplayExporter extends TraceEventHandlerBase {
+
+	/* fields of a type, sorted by name */
+	static class TypeInfo {
+		int id;
+		String[] names;
+		byte[] kinds;
+		Object[] values;
+	}
+
+	private final File file;
+	private ReplayWriter writer;
+	private JniTrace trace;
+	private final IdentityHashMap<JniTracefile, Integer> streams;
+	private final IdentityHashMap<JniMarker, ArrayList<TypeInfo>> types;
+	private long count;
+
+	public ReplayExporter(File file) {
+		super(Integer.MAX_VALUE);
+		this.file = file;
+		this.streams = new IdentityHashMap<JniTracefile, Integer>();
+		this.types = new IdentityHashMap<JniMarker, ArrayList<TypeInfo>>();
+		hooks.add(new TraceHook(new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_all_event(reader, event);
+			}
+		}));
+	}
+
+	public static void export(TraceReader reader, File file) throws JniException {
+		ReplayExporter exporter = new ReplayExporter(file);
+		reader.register(exporter);
+		reader.process();
+		reader.unregister(exporter);
+	}
+
+	@Override
+	public void handleInit(TraceReader reader, JniTrace trace) {
+		this.trace = trace;
+		streams.clear();
+		types.clear();
+		count = 0;
+		try {
+			writer = new ReplayWriter(file);
+		} catch (IOException e) {
+			throw new RuntimeException("Error: can't write replay file " + file, e);
+		}
+	}
+
+	public void handle_all_event(TraceReader reader, JniEvent event) {
+		JniTracefile tracefile = event.getParentTracefile();
+		Integer stream = streams.get(tracefile);
+		if (stream == null) {
+			stream = writer.addStream(tracefile.getTracefileName(), tracefile.getCpuNumber());
+			streams.put(tracefile, stream);
+		}
+		JniMarker marker = event.requestEventMarker();
+		HashMap<String, Object> fields = event.decodeAllFields();
+		TypeInfo type = getType(tracefile.getTracefileName(), marker, fields);
+		try {
+			writer.append(event.getTimestampNs(), stream, type.id, type.values);
+		} catch (IOException e) {
+			throw new RuntimeException("Error: can't write replay file " + file, e);
+		}
+		count++;
+	}
+
+	private TypeInfo getType(String channel, JniMarker marker, HashMap<String, Object> fields) {
+		ArrayList<TypeInfo> candidates = types.get(marker);
+		if (candidates == null) {
+			candidates = new ArrayList<TypeInfo>();
+			types.put(marker, candidates);
+		}
+		for (TypeInfo t: candidates) {
+			if (match(t, fields))
+				return t;
+		}
+		TypeInfo t = new TypeInfo();
+		t.names = fields.keySet().toArray(new String[fields.size()]);
+		Arrays.sort(t.names);
+		t.kinds = new byte[t.names.length];
+		t.values = new Object[t.names.length];
+		for (int i = 0; i < t.names.length; i++) {
+			t.kinds[i] = getKind(fields.get(t.names[i]));
+		}
+		t.id = writer.addType(channel, marker == null ? "" : marker.getName(), t.names, t.kinds);
+		candidates.add(t);
+		match(t, fields);
+		return t;
+	}
+
+	/* fill the values of the type if the fields match it */
+	private boolean match(TypeInfo t, HashMap<String, Object> fields) {
+		if (t.names.length != fields.size())
+			return false;
+		for (int i = 0; i < t.names.length; i++) {
+			Object value = fields.get(t.names[i]);
+			if (value == null && !fields.containsKey(t.names[i]))
+				return false;
+			if (getKind(value) != t.kinds[i])
+				return false;
+			if (value instanceof Jni_C_Pointer)
+				value = ((Jni_C_Pointer) value).getPointer();
+			t.values[i] = value;
+		}
+		return true;
+	}
+
+	static byte getKind(Object value) {
+		if (value == null)
+			return ReplayWriter.NULL;
+		if (value instanceof Long || value instanceof Jni_C_Pointer)
+			return ReplayWriter.LONG;
+		if (value instanceof Integer)
+			return ReplayWriter.INTEGER;
+		if (value instanceof Short || value instanceof Byte)
+			return ReplayWriter.SHORT;
+		if (value instanceof Double || value instanceof Float)
+			return ReplayWriter.DOUBLE;
+		return ReplayWriter.STRING;
+	}
+
+	@Override
+	public void handleComplete(TraceReader reader) {
+		if (writer == null)
+			return;
+		try {
+			writer.close(trace.getCpuNumber(), trace.getStartTime().getTime(), trace.getEndTime().getTime());
+		} catch (IOException e) {
+			throw new RuntimeException("Error: can't write replay file " + file, e);
+		}
+		writer = null;
+	}
+
+	/* events written by the last export */
+	public long getCount() {
+		return count;
+	}
+}
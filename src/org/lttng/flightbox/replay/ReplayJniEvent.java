@@ -0,0 +1,125 @@
+package org.lttng.flightbox.replay;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+
+/*
+ * Event of a replay file. Fields are read from the mapped file when
+ * they are requested, the event is reused for the next one.
+ */
+public class ReplayJniEvent extends JniEvent {
+
+	private final ReplayJniTrace trace;
+	private final JniTime eventTime;
+	private JniTracefile parentTracefile;
+	private ReplayType type;
+	private ByteBuffer data;
+	private int dataOffset;
+	private long timestampNs;
+	private int eventState;
+
+	ReplayJniEvent(ReplayJniTrace trace) {
+		this.trace = trace;
+		this.eventTime = new JniTime();
+		this.eventState = ERANGE;
+	}
+
+	void set(ReplayCursor cursor, JniTracefile tracefile) {
+		parentTracefile = tracefile;
+		type = cursor.type;
+		data = cursor.data;
+		dataOffset = cursor.dataOffset;
+		timestampNs = cursor.ts;
+		eventTime.setTime(timestampNs);
+		eventState = EOK;
+	}
+
+	void setEventState(int eventState) {
+		this.eventState = eventState;
+	}
+
+	@Override
+	public int getEventState() {
+		return eventState;
+	}
+
+	@Override
+	public int getEventMarkerId() {
+		return type.id;
+	}
+
+	@Override
+	public HashMap<Integer, JniMarker> getMarkersMap() {
+		return trace.getMarkersMap();
+	}
+
+	@Override
+	public JniMarker requestEventMarker() {
+		return type.marker;
+	}
+
+	@Override
+	public JniTracefile getParentTracefile() {
+		return parentTracefile;
+	}
+
+	@Override
+	public JniTime getEventTime() {
+		return eventTime;
+	}
+
+	@Override
+	public long getTimestampNs() {
+		return timestampNs;
+	}
+
+	@Override
+	public long getEventDataSize() {
+		return type.width;
+	}
+
+	@Override
+	public Object parseFieldByName(String fieldName) {
+		int i = type.indexOf(fieldName);
+		if (i < 0)
+			return null;
+		return getValue(i);
+	}
+
+	private Object getValue(int i) {
+		int pos = dataOffset + type.offsets[i];
+		switch (type.kinds[i]) {
+		case ReplayWriter.LONG:
+			return Long.valueOf(data.getLong(pos));
+		case ReplayWriter.INTEGER:
+			return Integer.valueOf(data.getInt(pos));
+		case ReplayWriter.SHORT:
+			return Short.valueOf(data.getShort(pos));
+		case ReplayWriter.DOUBLE:
+			return Double.valueOf(data.getDouble(pos));
+		case ReplayWriter.STRING:
+			return trace.getString(data.getInt(pos));
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public HashMap<String, Object> parseAllFields() {
+		HashMap<String, Object> fields = new HashMap<String, Object>();
+		for (int i = 0; i < type.fieldNames.length; i++) {
+			fields.put(type.fieldNames[i], getValue(i));
+		}
+		return fields;
+	}
+
+	@Override
+	public HashMap<String, Object> decodeAllFields() {
+		return parseAllFields();
+	}
+}
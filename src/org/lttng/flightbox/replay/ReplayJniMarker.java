@@ -0,0 +1,27 @@
+package org.lttng.flightbox.replay;
+
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniMarkerField;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+
+public class ReplayJniMarker extends JniMarker {
+
+	private final String name;
+
+	public ReplayJniMarker(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public JniMarkerField allocateNewJniMarkerField(
+			Jni_C_Pointer_And_Library_Id newMarkerFieldPtr)
+			throws JniException {
+		return null;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,260 @@
+package org.lttng.flightbox.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+
+/*
+ * Trace read from a replay file written by ReplayWriter. Blocks of the
+ * file are memory mapped when they are first read, events are returned
+ * in the order they were written.
+ */
+public class ReplayJniTrace extends JniTrace {
+
+	private final File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private int cpus;
+	private long startTime;
+	private long endTime;
+	private String[] strings;
+	private ReplayType[] types;
+	private final HashMap<Integer, JniMarker> markersMap;
+	private ReplayJniTracefile[] streams;
+	private boolean[] streamEnabled;
+	private final HashMap<String, JniTracefile> tracefiles;
+	private long[] blockOffsets;
+	private long[] blockFirstTs;
+	private long[] blockLastTs;
+	private MappedByteBuffer[] blocks;
+	private long footerOffset;
+	private ReplayCursor cursor;
+	private final ReplayJniEvent event;
+
+	public ReplayJniTrace(File file) throws IOException {
+		this.file = file;
+		this.markersMap = new HashMap<Integer, JniMarker>();
+		this.tracefiles = new HashMap<String, JniTracefile>();
+		this.event = new ReplayJniEvent(this);
+		raf = new RandomAccessFile(file, "r");
+		try {
+			channel = raf.getChannel();
+			readFooter();
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		} catch (RuntimeException e) {
+			raf.close();
+			throw new IOException("Error: " + file + " is not a valid replay file", e);
+		}
+		cursor = new ReplayCursor(this, -1);
+	}
+
+	private void readFooter() throws IOException {
+		long size = channel.size();
+		if (size < 20)
+			throw new IOException("Error: " + file + " is not a replay file");
+		ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, 8);
+		if (buf.getInt() != ReplayWriter.MAGIC)
+			throw new IOException("Error: " + file + " is not a replay file");
+		if (buf.getInt() != ReplayWriter.VERSION)
+			throw new IOException("Error: unsupported version of replay file " + file);
+		buf = channel.map(FileChannel.MapMode.READ_ONLY, size - 12, 12);
+		footerOffset = buf.getLong();
+		if (buf.getInt() != ReplayWriter.MAGIC)
+			throw new IOException("Error: replay file " + file + " is truncated");
+
+		buf = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, size - 12 - footerOffset);
+		cpus = buf.getInt();
+		startTime = buf.getLong();
+		endTime = buf.getLong();
+		strings = new String[buf.getInt()];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] b = new byte[buf.getInt()];
+			buf.get(b);
+			strings[i] = new String(b, "UTF-8");
+		}
+		streams = new ReplayJniTracefile[buf.getInt()];
+		streamEnabled = new boolean[streams.length];
+		for (int i = 0; i < streams.length; i++) {
+			String name = strings[buf.getInt()];
+			long cpu = buf.getLong();
+			streams[i] = new ReplayJniTracefile(this, i, name, cpu);
+			tracefiles.put(name + "_" + cpu, streams[i]);
+			streamEnabled[i] = true;
+		}
+		types = new ReplayType[buf.getInt()];
+		for (int i = 0; i < types.length; i++) {
+			String channelName = strings[buf.getInt()];
+			String name = strings[buf.getInt()];
+			String[] fieldNames = new String[buf.getInt()];
+			byte[] kinds = new byte[fieldNames.length];
+			for (int j = 0; j < fieldNames.length; j++) {
+				fieldNames[j] = strings[buf.getInt()];
+				kinds[j] = buf.get();
+			}
+			types[i] = new ReplayType(i, channelName, name, fieldNames, kinds);
+			markersMap.put(i, types[i].marker);
+		}
+		int nBlocks = buf.getInt();
+		blockOffsets = new long[nBlocks];
+		blockFirstTs = new long[nBlocks];
+		blockLastTs = new long[nBlocks];
+		blocks = new MappedByteBuffer[nBlocks];
+		for (int i = 0; i < nBlocks; i++) {
+			blockOffsets[i] = buf.getLong();
+			blockFirstTs[i] = buf.getLong();
+			blockLastTs[i] = buf.getLong();
+			buf.getInt();
+		}
+	}
+
+	@Override
+	public int initializeLibrary() {
+		return 0;
+	}
+
+	@Override
+	public JniTracefile allocateNewJniTracefile(
+			Jni_C_Pointer_And_Library_Id newPtr, JniTrace newParentTrace)
+			throws JniException {
+		return null;
+	}
+
+	@Override
+	public JniEvent readNextEvent() {
+		if (cursor == null)
+			return null;
+		while (cursor.next()) {
+			if (streamEnabled[cursor.eventStream]) {
+				event.set(cursor, streams[cursor.eventStream]);
+				return event;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void seekToTime(JniTime seekTime) {
+		if (cursor == null)
+			return;
+		cursor.seek(seekTime.getTime());
+		for (ReplayJniTracefile tracefile: streams) {
+			if (isTracefileEnabled(tracefile.getTracefileName()))
+				tracefile.reset(seekTime.getTime());
+		}
+	}
+
+	@Override
+	public void setEnabledTracefiles(Set<String> tracefileNames) {
+		super.setEnabledTracefiles(tracefileNames);
+		for (int i = 0; i < streams.length; i++) {
+			streamEnabled[i] = isTracefileEnabled(streams[i].getTracefileName());
+		}
+	}
+
+	@Override
+	public JniTracefile[] getMergedTracefiles() {
+		ArrayList<JniTracefile> merged = new ArrayList<JniTracefile>();
+		for (int i = 0; i < streams.length; i++) {
+			if (streamEnabled[i])
+				merged.add(streams[i]);
+		}
+		return merged.toArray(new JniTracefile[merged.size()]);
+	}
+
+	@Override
+	public HashMap<String, JniTracefile> getTracefilesMap() {
+		return tracefiles;
+	}
+
+	/* mapped blocks stay valid once the file is closed */
+	@Override
+	public void closeTrace() {
+		cursor = null;
+		try {
+			raf.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	synchronized ByteBuffer getBlock(int i) {
+		if (blocks[i] == null) {
+			long end = i + 1 < blockOffsets.length ? blockOffsets[i + 1] : footerOffset;
+			try {
+				blocks[i] = channel.map(FileChannel.MapMode.READ_ONLY, blockOffsets[i], end - blockOffsets[i]);
+			} catch (IOException e) {
+				throw new RuntimeException("Error: can't map block " + i + " of " + file, e);
+			}
+		}
+		return blocks[i];
+	}
+
+	int getBlockCount() {
+		return blockOffsets.length;
+	}
+
+	long getBlockFirstTs(int i) {
+		return blockFirstTs[i];
+	}
+
+	/* first block that has events at or after ts */
+	int findBlock(long ts) {
+		int low = 0;
+		int high = blockLastTs.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (blockLastTs[mid] < ts)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	ReplayType getType(int i) {
+		return types[i];
+	}
+
+	String getString(int i) {
+		return strings[i];
+	}
+
+	HashMap<Integer, JniMarker> getMarkersMap() {
+		return markersMap;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public int getCpuNumber() {
+		return cpus;
+	}
+
+	@Override
+	public JniTime getStartTime() {
+		return new JniTime(startTime);
+	}
+
+	@Override
+	public JniTime getEndTime() {
+		return new JniTime(endTime);
+	}
+}
@@ -0,0 +1,93 @@
+package org.lttng.flightbox.replay;
+
+import java.util.HashMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+
+/*
+ * Events of one channel and cpu of a replay file, read on their own
+ */
+public class ReplayJniTracefile extends JniTracefile {
+
+	private final ReplayJniTrace trace;
+	private final int stream;
+	private final String tracefileName;
+	private final long cpu;
+	private final ReplayJniEvent event;
+	private ReplayCursor cursor;
+	private long startTs;
+	private boolean started;
+
+	ReplayJniTracefile(ReplayJniTrace trace, int stream, String tracefileName, long cpu) {
+		this.trace = trace;
+		this.stream = stream;
+		this.tracefileName = tracefileName;
+		this.cpu = cpu;
+		this.event = new ReplayJniEvent(trace);
+		this.startTs = Long.MIN_VALUE;
+	}
+
+	@Override
+	public int readNextEvent() {
+		if (cursor == null) {
+			cursor = new ReplayCursor(trace, stream);
+			cursor.seek(startTs);
+		}
+		started = true;
+		if (cursor.next()) {
+			event.set(cursor, this);
+		} else {
+			event.setEventState(ERANGE);
+		}
+		return event.getEventState();
+	}
+
+	@Override
+	public int seekToTime(JniTime seekTime) {
+		reset(seekTime.getTime());
+		return readNextEvent();
+	}
+
+	/* the next event read is the first one at or after ts */
+	void reset(long ts) {
+		cursor = null;
+		startTs = ts;
+		started = false;
+	}
+
+	@Override
+	public JniEvent getCurrentEvent() {
+		if (!started)
+			readNextEvent();
+		return event;
+	}
+
+	@Override
+	public String getTracefileName() {
+		return tracefileName;
+	}
+
+	@Override
+	public long getCpuNumber() {
+		return cpu;
+	}
+
+	@Override
+	public JniEvent allocateNewJniEvent(
+			Jni_C_Pointer_And_Library_Id newEventPtr,
+			HashMap<Integer, JniMarker> newMarkersMap,
+			JniTracefile newParentTracefile) throws JniException {
+		return null;
+	}
+
+	@Override
+	public JniMarker allocateNewJniMarker(
+			Jni_C_Pointer_And_Library_Id newMarkerPtr) throws JniException {
+		return null;
+	}
+}
@@ -0,0 +1,58 @@
+package org.lttng.flightbox.replay;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.lttng.flightbox.io.TraceReader;
+
+/*
+ * Reader of a replay file written by ReplayExporter, handlers see the
+ * same events as with the original trace
+ */
+public class ReplayTraceReader extends TraceReader {
+
+	public ReplayTraceReader(String tracePath) {
+		super(tracePath);
+	}
+
+	@Override
+	protected JniTrace openTrace() throws JniException {
+		try {
+			return new ReplayJniTrace(new File(tracePath));
+		} catch (IOException e) {
+			throw new JniException("Error: can't open replay file " + tracePath + ": " + e.getMessage());
+		}
+	}
+
+	/* a replay file is a file, a trace is a directory */
+	public static boolean isReplayFile(String path) {
+		File file = new File(path);
+		if (!file.isFile())
+			return false;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			return in.readInt() == ReplayWriter.MAGIC;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/* reader of a trace directory or of a replay file */
+	public static TraceReader makeReader(String path) {
+		if (isReplayFile(path))
+			return new ReplayTraceReader(path);
+		return new TraceReader(path);
+	}
+}
@@ -0,0 +1,44 @@
+package org.lttng.flightbox.replay;
+
+import java.util.HashMap;
+
+/*
+ * Event type of a replay file, fields are at fixed offsets in the data
+ * of an event
+ */
+class ReplayType {
+
+	final String channel;
+	final String name;
+	final String[] fieldNames;
+	final byte[] kinds;
+	final int[] offsets;
+	final int width;
+	final int id;
+	final ReplayJniMarker marker;
+	private final HashMap<String, Integer> fieldIndex;
+
+	ReplayType(int id, String channel, String name, String[] fieldNames, byte[] kinds) {
+		this.id = id;
+		this.channel = channel;
+		this.name = name;
+		this.fieldNames = fieldNames;
+		this.kinds = kinds;
+		this.offsets = new int[kinds.length];
+		this.marker = new ReplayJniMarker(name);
+		this.fieldIndex = new HashMap<String, Integer>();
+		int w = 0;
+		for (int i = 0; i < kinds.length; i++) {
+			offsets[i] = w;
+			w += ReplayWriter.getWidth(kinds[i]);
+			fieldIndex.put(fieldNames[i], i);
+		}
+		this.width = w;
+	}
+
+	/* -1 if the type has no such field */
+	int indexOf(String fieldName) {
+		Integer i = fieldIndex.get(fieldName);
+		return i == null ? -1 : i;
+	}
+}
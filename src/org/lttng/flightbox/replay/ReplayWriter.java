@@ -0,0 +1,238 @@
+package org.lttng.flightbox.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * Write events in the replay format. Events are written by blocks of
+ * BLOCK_SIZE events, each block has one column per attribute:
+ * timestamps as deltas, streams, types, and field values at fixed
+ * offsets given by the type. Strings are stored once in a table. The
+ * tables and the index of blocks are written by close(), after the
+ * blocks.
+ *
+ * header:  MAGIC, VERSION
+ * block:   count, first timestamp, length of each column, columns
+ * footer:  cpus, start, end, strings, streams, types, blocks
+ * end:     offset of the footer, MAGIC
+ */
+public class ReplayWriter {
+
+	public static final int MAGIC = 0x46425250;
+	public static final int VERSION = 1;
+	public static final String SUFFIX = ".fbr";
+	public static final int BLOCK_SIZE = 65536;
+	public static final int BLOCK_HEADER = 28;
+
+	/* kinds of fields */
+	public static final byte LONG = 0;
+	public static final byte INTEGER = 1;
+	public static final byte SHORT = 2;
+	public static final byte DOUBLE = 3;
+	public static final byte STRING = 4;
+	public static final byte NULL = 5;
+
+	private final DataOutputStream out;
+	private long offset;
+	private final HashMap<String, Integer> stringIndex;
+	private final ArrayList<String> strings;
+	private final ArrayList<long[]> streams;
+	private final ArrayList<int[]> types;
+	private final ArrayList<long[]> blocks;
+	private int blockSize;
+
+	/* current block */
+	private int count;
+	private long firstTs;
+	private long lastTs;
+	private final ByteArrayOutputStream tsColumn;
+	private final ByteArrayOutputStream streamColumn;
+	private final ByteArrayOutputStream typeColumn;
+	private final ByteArrayOutputStream dataBytes;
+	private final DataOutputStream dataColumn;
+
+	public ReplayWriter(File file) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		stringIndex = new HashMap<String, Integer>();
+		strings = new ArrayList<String>();
+		streams = new ArrayList<long[]>();
+		types = new ArrayList<int[]>();
+		blocks = new ArrayList<long[]>();
+		tsColumn = new ByteArrayOutputStream();
+		streamColumn = new ByteArrayOutputStream();
+		typeColumn = new ByteArrayOutputStream();
+		dataBytes = new ByteArrayOutputStream();
+		dataColumn = new DataOutputStream(dataBytes);
+		blockSize = BLOCK_SIZE;
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		offset = 8;
+	}
+
+	/* events of a block, a block is the unit of seek */
+	public void setBlockSize(int blockSize) {
+		this.blockSize = Math.max(1, blockSize);
+	}
+
+	public int addString(String s) {
+		Integer index = stringIndex.get(s);
+		if (index == null) {
+			index = strings.size();
+			strings.add(s);
+			stringIndex.put(s, index);
+		}
+		return index;
+	}
+
+	/* returns the id of the stream */
+	public int addStream(String channel, long cpu) {
+		streams.add(new long[] { addString(channel), cpu });
+		return streams.size() - 1;
+	}
+
+	/* returns the id of the type, kinds are given for each field */
+	public int addType(String channel, String name, String[] fieldNames, byte[] kinds) {
+		int[] type = new int[3 + fieldNames.length * 2];
+		type[0] = addString(channel);
+		type[1] = addString(name);
+		type[2] = fieldNames.length;
+		for (int i = 0; i < fieldNames.length; i++) {
+			type[3 + i * 2] = addString(fieldNames[i]);
+			type[4 + i * 2] = kinds[i];
+		}
+		types.add(type);
+		return types.size() - 1;
+	}
+
+	/* values are in the order of the fields of the type */
+	public void append(long ts, int stream, int type, Object[] values) throws IOException {
+		if (count == 0) {
+			firstTs = ts;
+			lastTs = ts;
+		}
+		writeVarLong(tsColumn, zigzag(ts - lastTs));
+		writeVarLong(streamColumn, stream);
+		writeVarLong(typeColumn, type);
+		int[] t = types.get(type);
+		for (int i = 0; i < t[2]; i++) {
+			Object value = values[i];
+			switch (t[4 + i * 2]) {
+			case LONG:
+				dataColumn.writeLong(((Number) value).longValue());
+				break;
+			case INTEGER:
+				dataColumn.writeInt(((Number) value).intValue());
+				break;
+			case SHORT:
+				dataColumn.writeShort(((Number) value).shortValue());
+				break;
+			case DOUBLE:
+				dataColumn.writeDouble(((Number) value).doubleValue());
+				break;
+			case STRING:
+				dataColumn.writeInt(addString(value.toString()));
+				break;
+			default:
+				break;
+			}
+		}
+		lastTs = ts;
+		count++;
+		if (count >= blockSize)
+			flushBlock();
+	}
+
+	private void flushBlock() throws IOException {
+		if (count == 0)
+			return;
+		blocks.add(new long[] { offset, firstTs, lastTs, count });
+		out.writeInt(count);
+		out.writeLong(firstTs);
+		out.writeInt(tsColumn.size());
+		out.writeInt(streamColumn.size());
+		out.writeInt(typeColumn.size());
+		out.writeInt(dataBytes.size());
+		tsColumn.writeTo(out);
+		streamColumn.writeTo(out);
+		typeColumn.writeTo(out);
+		dataBytes.writeTo(out);
+		offset += BLOCK_HEADER + tsColumn.size() + streamColumn.size() + typeColumn.size() + dataBytes.size();
+		tsColumn.reset();
+		streamColumn.reset();
+		typeColumn.reset();
+		dataBytes.reset();
+		count = 0;
+	}
+
+	public void close(int cpus, long startTime, long endTime) throws IOException {
+		flushBlock();
+		long footer = offset;
+		out.writeInt(cpus);
+		out.writeLong(startTime);
+		out.writeLong(endTime);
+		out.writeInt(strings.size());
+		for (String s: strings) {
+			byte[] b = s.getBytes("UTF-8");
+			out.writeInt(b.length);
+			out.write(b);
+		}
+		out.writeInt(streams.size());
+		for (long[] s: streams) {
+			out.writeInt((int) s[0]);
+			out.writeLong(s[1]);
+		}
+		out.writeInt(types.size());
+		for (int[] t: types) {
+			out.writeInt(t[0]);
+			out.writeInt(t[1]);
+			out.writeInt(t[2]);
+			for (int i = 0; i < t[2]; i++) {
+				out.writeInt(t[3 + i * 2]);
+				out.writeByte(t[4 + i * 2]);
+			}
+		}
+		out.writeInt(blocks.size());
+		for (long[] b: blocks) {
+			out.writeLong(b[0]);
+			out.writeLong(b[1]);
+			out.writeLong(b[2]);
+			out.writeInt((int) b[3]);
+		}
+		out.writeLong(footer);
+		out.writeInt(MAGIC);
+		out.close();
+	}
+
+	static long zigzag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	static void writeVarLong(ByteArrayOutputStream out, long v) {
+		while ((v & ~0x7FL) != 0) {
+			out.write((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.write((int) v);
+	}
+
+	public static int getWidth(byte kind) {
+		switch (kind) {
+		case LONG:
+		case DOUBLE:
+			return 8;
+		case INTEGER:
+		case STRING:
+			return 4;
+		case SHORT:
+			return 2;
+		default:
+			return 0;
+		}
+	}
+}
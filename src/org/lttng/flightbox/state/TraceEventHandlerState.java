@@ -8,6 +8,7 @@ import java.util.Stack;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.lttng.flightbox.io.ITraceHookCallback;
 import org.lttng.flightbox.io.TraceEventHandlerBase;
 import org.lttng.flightbox.io.TraceHook;
 import org.lttng.flightbox.io.TraceReader;
@@ -20,7 +21,11 @@ public class TraceEventHandlerState extends TraceEventHandlerBase {
 	
 	public TraceEventHandlerState() {
 		super();
-		hooks.add(new TraceHook());
+		hooks.add(new TraceHook(new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				handle_all_event(reader, event);
+			}
+		}));
 		machines = new HashMap<String, StackMachine>();
 	}
 
@@ -34,7 +39,7 @@ public class TraceEventHandlerState extends TraceEventHandlerBase {
 	public void handle_all_event(TraceReader reader, JniEvent event) {
 		
 		String eventName = event.getMarkersMap().get(event.getEventMarkerId()).getName();
-		Long eventTs = event.getEventTime().getTime();
+		Long eventTs = event.getTimestampNs();
 		
 		for (StackMachine machine: machines.values()) {
 			VersionizedStack stack = objectStates.get(machine.getName());
@@ -109,6 +109,37 @@ public class BucketSeries {
 		}
 	}
 
+	/*
+	 * Extend the series up to t, the number of buckets doesn't change.
+	 * Buckets are merged by pairs until t fits, the duration of buckets
+	 * doubles each time.
+	 */
+	public void extendTo(double t) {
+		int nb = buckets.size();
+		if (nb == 0 || t <= t2)
+			return;
+		if (bucketDuration <= 0) {
+			Bucket first = buckets.get(0);
+			init(t1, t, nb);
+			buckets.get(0).add(first);
+			return;
+		}
+		while (t1 + bucketDuration * nb < t) {
+			bucketDuration *= 2;
+			ArrayList<Bucket> merged = new ArrayList<Bucket>(nb);
+			for (int i = 0; i < nb; i++) {
+				merged.add(new Bucket(t1 + (bucketDuration * i), t1 + (bucketDuration * (i + 1))));
+			}
+			for (int i = 0; i < nb; i++) {
+				for (TaskState mode: TaskState.values()) {
+					merged.get(i / 2).addTime(buckets.get(i).getTime(mode), mode);
+				}
+			}
+			buckets = merged;
+		}
+		t2 = t1 + bucketDuration * nb;
+	}
+
 	public Bucket getInterval(int index) {
 		return buckets.get(index);
 	}
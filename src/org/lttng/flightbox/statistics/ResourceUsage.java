@@ -91,6 +91,23 @@ public class ResourceUsage <T> {
 		this.end = end;
 	}
 	
+	/*
+	 * Extend all series up to end, for traces that are still written.
+	 * The end may be rounded up to keep the same buckets in all series.
+	 */
+	public void extendTo(double end) {
+		if (end <= this.end)
+			return;
+		if (timeStats.isEmpty()) {
+			this.end = end;
+			return;
+		}
+		for (BucketSeries series: timeStats.values()) {
+			series.extendTo(end);
+			this.end = series.getEndTime();
+		}
+	}
+
 	public double getDuration() {
 		return this.end - this.start;
 	}
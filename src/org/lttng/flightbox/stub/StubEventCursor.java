@@ -0,0 +1,125 @@
+package org.lttng.flightbox.stub;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/*
+ * Pull events of a stub trace in document order, without building the
+ * document. Only the events of one stream are returned, or all of them
+ * when stream is negative. Fields are kept as strings until the event
+ * is decoded.
+ */
+class StubEventCursor {
+
+	/* event as read from the document */
+	static class RawEvent {
+		long ts;
+		int stream;
+		StubEventType type;
+		int count;
+		String[] names = new String[8];
+		String[] values = new String[8];
+
+		void copy(RawEvent e) {
+			ts = e.ts;
+			stream = e.stream;
+			type = e.type;
+			count = 0;
+			for (int i = 0; i < e.count; i++)
+				addField(e.names[i], e.values[i]);
+		}
+
+		void addField(String name, String value) {
+			if (count == names.length) {
+				String[] grown = new String[count * 2];
+				System.arraycopy(names, 0, grown, 0, count);
+				names = grown;
+				grown = new String[count * 2];
+				System.arraycopy(values, 0, grown, 0, count);
+				values = grown;
+			}
+			names[count] = name;
+			values[count] = value;
+			count++;
+		}
+	}
+
+	private final StubJniTrace trace;
+	private final int stream;
+	private final InputStream in;
+	private final XMLStreamReader reader;
+
+	StubEventCursor(StubJniTrace trace, int stream) throws IOException {
+		this.trace = trace;
+		this.stream = stream;
+		this.in = trace.openSource();
+		try {
+			this.reader = trace.createReader(in);
+		} catch (XMLStreamException e) {
+			in.close();
+			throw new IOException("Error: can't parse stub trace " + trace.getSourceName(), e);
+		}
+	}
+
+	/* read the next event into e, returns false at the end of the trace */
+	boolean next(RawEvent e) {
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("event"))
+					continue;
+				if (read(e))
+					return true;
+			}
+		} catch (XMLStreamException x) {
+			throw new RuntimeException("Error: can't parse stub trace " + trace.getSourceName(), x);
+		}
+		return false;
+	}
+
+	private boolean read(RawEvent e) {
+		String ts = null;
+		String cpu = null;
+		String channel = null;
+		String name = null;
+		int n = reader.getAttributeCount();
+		for (int i = 0; i < n; i++) {
+			String attr = reader.getAttributeLocalName(i);
+			if (attr.equals("ts"))
+				ts = reader.getAttributeValue(i);
+			else if (attr.equals("cpu"))
+				cpu = reader.getAttributeValue(i);
+			else if (attr.equals("channel"))
+				channel = reader.getAttributeValue(i);
+			else if (attr.equals("name"))
+				name = reader.getAttributeValue(i);
+		}
+		int s = trace.getStream(channel, cpu);
+		if (stream >= 0 && s != stream)
+			return false;
+		e.stream = s;
+		e.ts = Long.parseLong(ts);
+		e.type = trace.getEventType(channel, name);
+		e.count = 0;
+		for (int i = 0; i < n; i++) {
+			String attr = reader.getAttributeLocalName(i);
+			if (!attr.equals("ts") && !attr.equals("cpu") && !attr.equals("channel") && !attr.equals("name"))
+				e.addField(attr, reader.getAttributeValue(i));
+		}
+		return true;
+	}
+
+	void close() {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+		}
+		try {
+			in.close();
+		} catch (IOException e) {
+		}
+	}
+}
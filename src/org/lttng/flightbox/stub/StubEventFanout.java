@@ -0,0 +1,116 @@
+package org.lttng.flightbox.stub;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import org.lttng.flightbox.stub.StubEventCursor.RawEvent;
+
+/*
+ * One cursor shared by the tracefiles of a stub trace read on their own,
+ * i.e. by PipelinedEventReader. The document is parsed once for all the
+ * streams, events of the other enabled streams are queued for them as
+ * the cursor passes them. Tracefiles may be read from several threads.
+ *
+ * A stream can seek forward from what it already read. A stream that
+ * seeks back is detached, its tracefile reads with its own cursor.
+ */
+class StubEventFanout {
+
+	private final StubJniTrace trace;
+	private StubEventCursor cursor;
+	private final ArrayList<ArrayDeque<RawEvent>> queues;
+	/* first time of each stream, and time of the last event it read */
+	private final long[] startTs;
+	private final long[] lastTs;
+	private final boolean[] started;
+	private final boolean[] detached;
+	private final ArrayList<RawEvent> free;
+	private boolean closed;
+
+	StubEventFanout(StubJniTrace trace, long[] startTs) {
+		this.trace = trace;
+		this.startTs = startTs;
+		lastTs = new long[startTs.length];
+		started = new boolean[startTs.length];
+		detached = new boolean[startTs.length];
+		queues = new ArrayList<ArrayDeque<RawEvent>>();
+		for (int i = 0; i < startTs.length; i++)
+			queues.add(new ArrayDeque<RawEvent>());
+		free = new ArrayList<RawEvent>();
+	}
+
+	/* read the next event of the stream into e, false at the end of the stream */
+	synchronized boolean next(int stream, RawEvent e) {
+		RawEvent queued = queues.get(stream).poll();
+		if (queued != null) {
+			e.copy(queued);
+			free.add(queued);
+			return read(stream, e);
+		}
+		if (closed)
+			return false;
+		if (cursor == null) {
+			try {
+				cursor = trace.openCursor(-1);
+			} catch (IOException x) {
+				throw new RuntimeException("Error: can't read stub trace " + trace.getSourceName(), x);
+			}
+		}
+		RawEvent next = free.isEmpty() ? new RawEvent() : free.remove(free.size() - 1);
+		while (cursor.next(next)) {
+			int s = next.stream;
+			if (detached[s] || next.ts < startTs[s] || !trace.isStreamEnabled(s))
+				continue;
+			if (s == stream) {
+				e.copy(next);
+				free.add(next);
+				return read(stream, e);
+			}
+			queues.get(s).add(next);
+			next = free.isEmpty() ? new RawEvent() : free.remove(free.size() - 1);
+		}
+		free.add(next);
+		return false;
+	}
+
+	private boolean read(int stream, RawEvent e) {
+		started[stream] = true;
+		lastTs[stream] = e.ts;
+		return true;
+	}
+
+	/*
+	 * The next event of the stream is the first one at or after ts.
+	 * False if events before were dropped or read already, the stream
+	 * is detached then.
+	 */
+	synchronized boolean seek(int stream, long ts) {
+		if (detached[stream])
+			return false;
+		if (ts < startTs[stream] || (started[stream] && ts <= lastTs[stream])) {
+			detach(stream);
+			return false;
+		}
+		ArrayDeque<RawEvent> queue = queues.get(stream);
+		while (!queue.isEmpty() && queue.peek().ts < ts)
+			free.add(queue.poll());
+		startTs[stream] = ts;
+		return true;
+	}
+
+	private void detach(int stream) {
+		detached[stream] = true;
+		free.addAll(queues.get(stream));
+		queues.get(stream).clear();
+	}
+
+	synchronized void close() {
+		if (cursor != null)
+			cursor.close();
+		cursor = null;
+		closed = true;
+		for (ArrayDeque<RawEvent> queue: queues)
+			queue.clear();
+	}
+}
@@ -0,0 +1,94 @@
+package org.lttng.flightbox.stub;
+
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+
+/*
+ * Definition of an event of the inventory. Fields are parsed according
+ * to their type, resolved once when the inventory is loaded. Types 
+ * other than the usual ones are built with their String constructor.
+ */
+class StubEventType {
+
+	static final int LONG = 0;
+	static final int INTEGER = 1;
+	static final int SHORT = 2;
+	static final int DOUBLE = 3;
+	static final int STRING = 4;
+	static final int OTHER = 5;
+
+	final String channel;
+	final String name;
+	final int markerId;
+	/* false for events found in the trace but not in the inventory */
+	boolean defined;
+	private final HashMap<String, Integer> fieldKinds;
+	/* String constructors of the fields of other types */
+	private final HashMap<String, Constructor<?>> fieldConstructors;
+
+	StubEventType(String channel, String name, int markerId) {
+		this.channel = channel;
+		this.name = name;
+		this.markerId = markerId;
+		fieldKinds = new HashMap<String, Integer>();
+		fieldConstructors = new HashMap<String, Constructor<?>>();
+	}
+
+	void addField(String fieldName, Class<?> type) {
+		if (fieldKinds.containsKey(fieldName))
+			return;
+		int kind = OTHER;
+		if (type == Long.class)
+			kind = LONG;
+		else if (type == Integer.class)
+			kind = INTEGER;
+		else if (type == Short.class)
+			kind = SHORT;
+		else if (type == Double.class)
+			kind = DOUBLE;
+		else if (type == String.class)
+			kind = STRING;
+		else
+			fieldConstructors.put(fieldName, getStringConstructor(type));
+		fieldKinds.put(fieldName, kind);
+	}
+
+	/* null if the type can't be built from a string */
+	private static Constructor<?> getStringConstructor(Class<?> type) {
+		try {
+			return type.getConstructor(String.class);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	boolean hasField(String fieldName) {
+		return fieldKinds.containsKey(fieldName);
+	}
+
+	/* null if the value can't be parsed */
+	Object parse(String fieldName, String value) {
+		int kind = fieldKinds.get(fieldName);
+		try {
+			switch (kind) {
+			case LONG:
+				return Long.valueOf(value);
+			case INTEGER:
+				return Integer.valueOf(value);
+			case SHORT:
+				return Short.valueOf(value);
+			case DOUBLE:
+				return Double.valueOf(value);
+			case STRING:
+				return value;
+			default:
+				Constructor<?> constructor = fieldConstructors.get(fieldName);
+				if (constructor == null)
+					return null;
+				return constructor.newInstance(value);
+			}
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package org.lttng.flightbox.stub;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniMarker;
@@ -12,10 +13,12 @@ public class StubJniEvent extends JniEvent {
 	
 	private HashMap<Integer, JniMarker> markersMap;
 	JniTracefile parentTrace;
-	static int index = 0;
+	static final AtomicInteger index = new AtomicInteger();
 	String name;
 	private int id;
 	JniTime eventTime = null;
+	long timestampNs;
+	int eventState = EOK;
 	Map<String, Object> fieldValues;
 	
 	public StubJniEvent() {
@@ -32,6 +35,18 @@ public class StubJniEvent extends JniEvent {
 		return markersMap;
 	}
 	
+	public int getEventState() {
+		return eventState;
+	}
+
+	public void setEventState(int eventState) {
+		this.eventState = eventState;
+	}
+
+	public JniMarker requestEventMarker() {
+		return markersMap.get(id);
+	}
+
 	public JniTracefile getParentTracefile() {
 		return this.parentTrace;
 	}
@@ -51,21 +66,45 @@ public class StubJniEvent extends JniEvent {
 		}
 		StubJniMarker marker = new StubJniMarker();
 		marker.setName(name);
-		id = index++;
+		id = index.getAndIncrement();
 		markersMap.put(id, marker);
 	}
 
+	/* marker of an event type of the trace, markers are shared by events */
+	void setMarker(HashMap<Integer, JniMarker> markersMap, int id) {
+		this.markersMap = markersMap;
+		this.id = id;
+		this.name = markersMap.get(id).getName();
+	}
+
+	public void clearFieldValues() {
+		fieldValues.clear();
+	}
+
 	public void setFieldValue(String fieldName, Object value) {
 		fieldValues.put(fieldName, value);
 	}
 	
-	public void setEventTime(Long ts) {
+	public void setEventTime(long ts) {
 		eventTime.setTime(ts);
+		timestampNs = ts;
 	}
 	public JniTime getEventTime() {
 		return eventTime;
 	}
+	public long getTimestampNs() {
+		return timestampNs;
+	}
+	public long getEventDataSize() {
+		return 0;
+	}
 	public Object parseFieldByName(String fieldName) {
 		return fieldValues.get(fieldName);
 	}
+	public HashMap<String, Object> parseAllFields() {
+		return new HashMap<String, Object>(fieldValues);
+	}
+	public HashMap<String, Object> decodeAllFields() {
+		return parseAllFields();
+	}
 }
\ No newline at end of file
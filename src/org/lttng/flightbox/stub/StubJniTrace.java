@@ -1,40 +1,93 @@
 package org.lttng.flightbox.stub;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 import javax.management.RuntimeErrorException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
 import org.eclipse.linuxtools.lttng.jni.JniTrace;
 import org.eclipse.linuxtools.lttng.jni.JniTracefile;
 import org.eclipse.linuxtools.lttng.jni.common.JniTime;
 import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
-import org.jdom.Attribute;
 import org.jdom.Document;
 import org.jdom.Element;
-import org.lttng.flightbox.io.TraceReader;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
+import org.lttng.flightbox.stub.StubEventCursor.RawEvent;
 
+/*
+ * Trace read from an XML file. Events are pulled from the file while
+ * the trace is read, only the inventory and one event per stream
+ * (channel and cpu) are kept in memory. Events of the document must be
+ * sorted by time, events at the same time are returned by stream, like
+ * tracefiles of a real trace. Tracefiles read on their own share one
+ * cursor, events of a stream are kept until its tracefile reads them,
+ * see StubEventFanout.
+ */
 public class StubJniTrace extends JniTrace {
 
-	private List<Element> events;
-	private int pos;
+	private File sourceFile;
+	private byte[] sourceData;
+	private final XMLInputFactory inputFactory;
+
+	/* streams by channel and cpu, in order of their first event */
+	private ArrayList<StubJniTracefile> streamTracefiles;
+	private HashMap<String, HashMap<String, Integer>> streamIndex;
+	private boolean[] streamEnabled;
+	/* event definitions of the inventory by channel and name */
+	private HashMap<String, HashMap<String, StubEventType>> eventTypes;
+	private HashSet<String> definedChannels;
+	private HashMap<Integer, JniMarker> markersMap;
+	private long endTime;
+
+	/* merged reading */
+	private StubEventCursor cursor;
+	private RawEvent next;
+	private final ArrayList<RawEvent> group;
+	private int groupPos;
+	private final ArrayList<RawEvent> free;
 	StubJniEvent event;
-	HashMap<String, HashMap<String, HashMap<String, Class>>> channelMap;
+	private HashMap<String, JniTracefile> tracefiles;
 	private int cpu;
-	
+	/* cursor of the tracefiles read on their own */
+	private StubEventFanout fanout;
+
 	public StubJniTrace() {
 		 event = new StubJniEvent();
-		 event.setParentTracefile(new StubJniTracefile());
-		 channelMap = new HashMap<String, HashMap<String, HashMap<String, Class>>>();
+		 tracefiles = new HashMap<String, JniTracefile>();
+		 streamTracefiles = new ArrayList<StubJniTracefile>();
+		 streamIndex = new HashMap<String, HashMap<String, Integer>>();
+		 streamEnabled = new boolean[0];
+		 eventTypes = new HashMap<String, HashMap<String, StubEventType>>();
+		 definedChannels = new HashSet<String>();
+		 markersMap = new HashMap<Integer, JniMarker>();
+		 group = new ArrayList<RawEvent>();
+		 free = new ArrayList<RawEvent>();
+		 inputFactory = XMLInputFactory.newInstance();
+		 inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
 		 cpu = 0;
 	}
-	
+
 	@Override
 	public int initializeLibrary() {
 		return 0;
@@ -46,117 +99,356 @@ public class StubJniTrace extends JniTrace {
 			throws JniException {
 		return null;
 	}
-	
+
 	public JniEvent readNextEvent() {
-		if (events == null || pos >= events.size())
+		if (cursor == null)
+			return null;
+		if (groupPos >= group.size() && !readGroup())
 			return null;
+		decode(group.get(groupPos++), event);
+		return event;
+	}
 
-		String eventName;
-		String traceFileName;
-		Element e = events.get(pos++);
-		traceFileName = e.getAttributeValue("channel");
-		((StubJniTracefile)event.getParentTracefile()).setTracefileName(traceFileName);
-		eventName = e.getAttributeValue("name");
-		event.setName(eventName);
-		Long cpu = Long.parseLong(e.getAttributeValue("cpu"));
-		((StubJniTracefile)event.getParentTracefile()).setCpuNumber(cpu);
-		Long ts = Long.parseLong(e.getAttributeValue("ts"));
-		event.setEventTime(ts);
-		
-		for(Attribute a: (List<Attribute>) e.getAttributes()) {
-			if(a.getName().equals("channel")) {
-			} else if (a.getName().equals("name")) {
-			} else if (a.getName().equals("cpu")){
-			} else if (a.getName().equals("ts")){
-			} else {
-				Object val = null;
-				HashMap<String, HashMap<String, Class>> eventMap = channelMap.get(traceFileName);
-				if (eventMap == null)
-					throw new RuntimeErrorException(null, "Definition for tracefile " + traceFileName + " not found");
-				HashMap<String, Class> fieldMap = eventMap.get(eventName);
-				if (fieldMap == null)
-					throw new RuntimeErrorException(null, "Definition for event " + eventName + " not found");
-				Class klass = fieldMap.get(a.getName());
-				if (klass == null)
-					throw new RuntimeErrorException(null, "Definition for event " + eventName + " not found");
-				try {
-					val = castString(a.getValue(), klass);
-				} catch (Exception exception) {
-					
-				}
-				event.setFieldValue(a.getName(), val);
+	/*
+	 * Read the events at the next timestamp, sorted by stream
+	 */
+	private boolean readGroup() {
+		free.addAll(group);
+		group.clear();
+		groupPos = 0;
+		if (next == null)
+			next = readEnabled();
+		if (next == null)
+			return false;
+		long ts = next.ts;
+		group.add(next);
+		next = null;
+		RawEvent e;
+		while ((e = readEnabled()) != null) {
+			if (e.ts != ts) {
+				if (e.ts < ts)
+					throw new RuntimeException("Error: events of stub trace " + getSourceName() + " are not sorted by time at " + e.ts);
+				next = e;
+				break;
 			}
+			int i = group.size();
+			while (i > 0 && group.get(i - 1).stream > e.stream)
+				i--;
+			group.add(i, e);
 		}
-		return event;
+		return true;
+	}
+
+	private RawEvent readEnabled() {
+		RawEvent e = free.isEmpty() ? new RawEvent() : free.remove(free.size() - 1);
+		while (cursor.next(e)) {
+			if (streamEnabled[e.stream])
+				return e;
+		}
+		free.add(e);
+		return null;
+	}
+
+	/*
+	 * Fill the event from the raw event, fields are parsed according to
+	 * the inventory. Called by tracefiles from their own thread.
+	 */
+	void decode(RawEvent e, StubJniEvent event) {
+		StubJniTracefile tracefile = streamTracefiles.get(e.stream);
+		event.setEventTime(e.ts);
+		event.setParentTracefile(tracefile);
+		event.setMarker(markersMap, e.type.markerId);
+		event.clearFieldValues();
+		for (int i = 0; i < e.count; i++) {
+			if (!e.type.defined && !definedChannels.contains(e.type.channel))
+				throw new RuntimeErrorException(null, "Definition for tracefile " + tracefile.getTracefileName() + " not found");
+			if (!e.type.hasField(e.names[i]))
+				throw new RuntimeErrorException(null, "Definition for event " + e.type.name + " not found");
+			event.setFieldValue(e.names[i], e.type.parse(e.names[i], e.values[i]));
+		}
+	}
+
+	int getStream(String channel, String cpu) {
+		HashMap<String, Integer> cpus = streamIndex.get(channel);
+		Integer index = cpus == null ? null : cpus.get(cpu);
+		if (index == null)
+			throw new RuntimeException("Error: stream " + channel + cpu + " of stub trace " + getSourceName() + " changed while reading");
+		return index;
+	}
+
+	StubEventType getEventType(String channel, String name) {
+		return eventTypes.get(channel).get(name);
+	}
+
+	boolean isStreamEnabled(int stream) {
+		return streamEnabled[stream];
+	}
+
+	/* opened on the first event read by a tracefile, from their own thread */
+	synchronized StubEventFanout getFanout() {
+		if (fanout == null) {
+			long[] startTs = new long[streamTracefiles.size()];
+			for (int i = 0; i < startTs.length; i++)
+				startTs[i] = streamTracefiles.get(i).startTs;
+			fanout = new StubEventFanout(this, startTs);
+		}
+		return fanout;
+	}
+
+	/* false if the tracefile must read the stream with its own cursor */
+	synchronized boolean seekStream(int stream, long ts) {
+		return fanout == null || fanout.seek(stream, ts);
+	}
+
+	private synchronized void closeFanout() {
+		if (fanout != null)
+			fanout.close();
+		fanout = null;
+	}
+
+	StubEventCursor openCursor(int stream) throws IOException {
+		return new StubEventCursor(this, stream);
+	}
+
+	InputStream openSource() throws IOException {
+		if (sourceFile != null)
+			return new BufferedInputStream(new FileInputStream(sourceFile));
+		return new ByteArrayInputStream(sourceData);
+	}
+
+	XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+		synchronized (inputFactory) {
+			return inputFactory.createXMLStreamReader(in);
+		}
+	}
+
+	String getSourceName() {
+		return sourceFile == null ? "<document>" : sourceFile.getPath();
+	}
+
+	@Override
+	public void seekToTime(JniTime seekTime) {
+		if (cursor == null)
+			return;
+		long ts = seekTime.getTime();
+		rewind();
+		while ((next = readEnabled()) != null && next.ts < ts) {
+			free.add(next);
+		}
+		closeFanout();
+		for (StubJniTracefile tracefile: streamTracefiles) {
+			if (isTracefileEnabled(tracefile.getTracefileName()))
+				tracefile.reset(ts);
+		}
+	}
+
+	private void rewind() {
+		if (cursor != null)
+			cursor.close();
+		try {
+			cursor = openCursor(-1);
+		} catch (IOException e) {
+			throw new RuntimeException("Error: can't read stub trace " + getSourceName(), e);
+		}
+		free.addAll(group);
+		group.clear();
+		groupPos = 0;
+		if (next != null)
+			free.add(next);
+		next = null;
 	}
-	
+
+	@Override
+	public void setEnabledTracefiles(Set<String> tracefileNames) {
+		super.setEnabledTracefiles(tracefileNames);
+		for (int i = 0; i < streamTracefiles.size(); i++) {
+			streamEnabled[i] = isTracefileEnabled(streamTracefiles.get(i).getTracefileName());
+		}
+	}
+
+	@Override
+	public JniTracefile[] getMergedTracefiles() {
+		ArrayList<JniTracefile> merged = new ArrayList<JniTracefile>();
+		for (StubJniTracefile tracefile: streamTracefiles) {
+			if (isTracefileEnabled(tracefile.getTracefileName()))
+				merged.add(tracefile);
+		}
+		return merged.toArray(new JniTracefile[merged.size()]);
+	}
+
+	@Override
+	public HashMap<String, JniTracefile> getTracefilesMap() {
+		return tracefiles;
+	}
+
+	@Override
+	public void closeTrace() {
+		if (cursor != null)
+			cursor.close();
+		cursor = null;
+		closeFanout();
+		for (StubJniTracefile tracefile: streamTracefiles) {
+			tracefile.close();
+		}
+	}
+
 	public Object castString(String s, Class type) throws SecurityException, NoSuchMethodException, IllegalArgumentException, InstantiationException, IllegalAccessException, InvocationTargetException {
 		Class[] argTypes = new Class[] { String.class };
 		Constructor cst = type.getConstructor(argTypes);
-		if (cst == null) 
+		if (cst == null)
 			throw new ClassCastException("Unknown constructor " + type.toString() + "(String s)");
 		return cst.newInstance(s);
 	}
-	
+
+	/*
+	 * Read events from a file, the inventory is the file named by the
+	 * inventory attribute of the trace, relative to the trace or absolute.
+	 */
+	public void setEventsSource(File traceFile) throws IOException {
+		sourceFile = traceFile;
+		sourceData = null;
+		scan(null);
+	}
+
 	public void setEventsSource(Document doc, Document inventory) {
-		Element root = doc.getRootElement();
-		cpu = Integer.parseInt(root.getAttributeValue("cpus"));
-		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			new XMLOutputter().output(doc, out);
+			sourceFile = null;
+			sourceData = out.toByteArray();
+			scan(inventory);
+		} catch (IOException e) {
+			throw new RuntimeException("Error: can't read stub trace document", e);
+		}
+	}
+
+	/*
+	 * Read the inventory and find the streams, the first pass over the
+	 * events doesn't keep them
+	 */
+	private void scan(Document inventory) throws IOException {
+		InputStream in = openSource();
+		try {
+			XMLStreamReader reader = createReader(in);
+			long lastTs = Long.MIN_VALUE;
+			endTime = 0;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+				String element = reader.getLocalName();
+				if (element.equals("trace")) {
+					cpu = Integer.parseInt(reader.getAttributeValue(null, "cpus"));
+					if (inventory == null)
+						inventory = loadInventory(reader.getAttributeValue(null, "inventory"));
+					loadEventTypes(inventory);
+				} else if (element.equals("event")) {
+					long ts = Long.parseLong(reader.getAttributeValue(null, "ts"));
+					if (ts < lastTs)
+						throw new IOException("Error: events of stub trace " + getSourceName() + " are not sorted by time at " + ts);
+					lastTs = ts;
+					endTime = Math.max(endTime, ts);
+					String channel = reader.getAttributeValue(null, "channel");
+					addStream(channel, reader.getAttributeValue(null, "cpu"));
+					addEventType(channel, reader.getAttributeValue(null, "name"));
+				}
+			}
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Error: can't parse stub trace " + getSourceName(), e);
+		} finally {
+			in.close();
+		}
+		streamEnabled = new boolean[streamTracefiles.size()];
+		for (int i = 0; i < streamEnabled.length; i++) {
+			streamEnabled[i] = isTracefileEnabled(streamTracefiles.get(i).getTracefileName());
+		}
+		rewind();
+	}
+
+	private Document loadInventory(String name) throws IOException {
+		File file = new File(name);
+		if (!file.isAbsolute())
+			file = new File(sourceFile.getParentFile(), name);
+		try {
+			return new SAXBuilder(false).build(file);
+		} catch (JDOMException e) {
+			throw new IOException("Error: can't parse inventory " + name, e);
+		}
+	}
+
+	private void addStream(String channel, String cpuName) {
+		HashMap<String, Integer> cpus = streamIndex.get(channel);
+		if (cpus == null) {
+			cpus = new HashMap<String, Integer>();
+			streamIndex.put(channel, cpus);
+		}
+		if (cpus.containsKey(cpuName))
+			return;
+		int index = streamTracefiles.size();
+		cpus.put(cpuName, index);
+		StubJniTracefile tracefile = new StubJniTracefile(this, index);
+		tracefile.setTracefileName(channel);
+		tracefile.setCpuNumber(Long.parseLong(cpuName));
+		tracefiles.put(channel + cpuName, tracefile);
+		streamTracefiles.add(tracefile);
+	}
+
+	private StubEventType addEventType(String channel, String name) {
+		HashMap<String, StubEventType> types = eventTypes.get(channel);
+		if (types == null) {
+			types = new HashMap<String, StubEventType>();
+			eventTypes.put(channel, types);
+		}
+		StubEventType type = types.get(name);
+		if (type == null) {
+			StubJniMarker marker = new StubJniMarker();
+			marker.setName(name);
+			type = new StubEventType(channel, name, markersMap.size());
+			markersMap.put(type.markerId, marker);
+			types.put(name, type);
+		}
+		return type;
+	}
+
+	private void loadEventTypes(Document inventory) {
 		Element invRoot = inventory.getRootElement();
 		List<Element> channels = invRoot.getChildren("channel");
-		String channelName;
-		String eventName;
-		String fieldName;
-		Class fieldType;
 		for (Element channel: channels) {
-			
-			/* Add channel */
-			channelName = channel.getAttributeValue("name");
-			HashMap<String, HashMap<String, Class>> eventMap = channelMap.get(channelName); 
-			if (eventMap == null) {
-				eventMap = new HashMap<String, HashMap<String, Class>>();
-				channelMap.put(channelName, eventMap);
-			}
-
+			String channelName = channel.getAttributeValue("name");
+			definedChannels.add(channelName);
 			for (Element event: (List<Element>)channel.getChildren("event")) {
-				
-				/* Add event */
-				eventName = event.getAttributeValue("name");
-				HashMap<String, Class> fieldMap = eventMap.get(eventName);
-				if (fieldMap == null) {
-					fieldMap = new HashMap<String, Class>();
-					eventMap.put(eventName, fieldMap);
-				}
-				
+				StubEventType type = addEventType(channelName, event.getAttributeValue("name"));
+				type.defined = true;
 				for (Element field: (List<Element>)event.getChildren("field")) {
-					/* Add field */
-					fieldName = field.getAttributeValue("name");
+					Class<?> fieldType;
 					try {
 						fieldType = Class.forName("java.lang." + field.getAttributeValue("type"));
 					} catch (ClassNotFoundException e) {
 						e.printStackTrace();
 						fieldType = Object.class;
 					}
-					if (fieldMap.get(fieldName) == null) {
-						fieldMap.put(fieldName, fieldType);
-					}
+					type.addField(field.getAttributeValue("name"), fieldType);
 				}
 			}
 		}
-		events = root.getChild("events").getChildren("event");
 	}
-	
+
 	@Override
 	public int getCpuNumber() {
 		return cpu;
 	}
 
 	public void setInventory(Document inventory) {
-		
+
 	}
-	
+
 	@Override
 	public JniTime getStartTime() {
 		return new JniTime();
 	}
-}
\ No newline at end of file
+
+	@Override
+	public JniTime getEndTime() {
+		return new JniTime(endTime);
+	}
+}
@@ -1,17 +1,107 @@
 package org.lttng.flightbox.stub;
 
+import java.io.IOException;
 import java.util.HashMap;
 
 import org.eclipse.linuxtools.lttng.jni.JniEvent;
 import org.eclipse.linuxtools.lttng.jni.JniMarker;
 import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
 import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
 import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+import org.lttng.flightbox.stub.StubEventCursor.RawEvent;
 
 public class StubJniTracefile extends JniTracefile {
 
 	String traceFileName;
 	long cpu;
+	/* 
+	 * Read on its own, the tracefile reads the cursor shared with the 
+	 * other tracefiles. Once it seeks back, it reads its own cursor.
+	 */
+	StubJniTrace trace;
+	int stream;
+	StubEventCursor cursor;
+	boolean detached;
+	RawEvent raw;
+	long startTs;
+	boolean started;
+	StubJniEvent event;
+
+	public StubJniTracefile() {
+		this(null, -1);
+	}
+
+	public StubJniTracefile(StubJniTrace trace, int stream) {
+		this.trace = trace;
+		this.stream = stream;
+		this.raw = new RawEvent();
+		this.startTs = Long.MIN_VALUE;
+		this.event = new StubJniEvent();
+	}
+
+	/* the file is opened on the first event read */
+	@Override
+	public int readNextEvent() {
+		started = true;
+		if (trace != null && nextRaw()) {
+			trace.decode(raw, event);
+			event.setEventState(EOK);
+		} else {
+			event.setEventState(ERANGE);
+		}
+		return event.getEventState();
+	}
+
+	private boolean nextRaw() {
+		if (!detached)
+			return trace.getFanout().next(stream, raw);
+		if (cursor == null) {
+			try {
+				cursor = trace.openCursor(stream);
+			} catch (IOException e) {
+				throw new RuntimeException("Error: can't read tracefile " + traceFileName, e);
+			}
+		}
+		while (cursor.next(raw)) {
+			if (raw.ts >= startTs)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int seekToTime(JniTime seekTime) {
+		long ts = seekTime.getTime();
+		close();
+		startTs = ts;
+		started = false;
+		if (trace != null && !trace.seekStream(stream, ts))
+			detached = true;
+		return readNextEvent();
+	}
+
+	/* the next event read is the first one at or after ts, the trace seeks the shared cursor */
+	void reset(long ts) {
+		close();
+		startTs = ts;
+		started = false;
+		detached = false;
+	}
+
+	void close() {
+		if (cursor != null)
+			cursor.close();
+		cursor = null;
+	}
+
+	@Override
+	public JniEvent getCurrentEvent() {
+		if (!started)
+			readNextEvent();
+		return event;
+	}
+
 	@Override
 	public JniEvent allocateNewJniEvent(
 			Jni_C_Pointer_And_Library_Id newEventPtr,
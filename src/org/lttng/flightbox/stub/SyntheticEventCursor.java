@@ -0,0 +1,457 @@
+package org.lttng.flightbox.stub;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/*
+ * Simulation of a kernel workload. Events are generated in time order
+ * from the seed of the generator: a statedump, then bursts of events of
+ * the task running on a random cpu (syscalls, blocking, preemption,
+ * fork and exit, irqs, sockets), and softirqs that wake up blocked
+ * tasks. Every cursor runs its own copy of the simulation, a cursor of
+ * one stream discards the events of the other streams.
+ */
+class SyntheticEventCursor {
+
+	static final String[] CHANNELS = { "kernel", "net", "task_state", "global_state" };
+	static final int KERNEL = 0;
+	static final int NET = 1;
+	static final int TASK_STATE = 2;
+	static final int GLOBAL_STATE = 3;
+
+	/* event types, fields are in the order of the inventory */
+	static final int PROCESS_STATE = 0;
+	static final int STATEDUMP_END = 1;
+	static final int SCHED_SCHEDULE = 2;
+	static final int SCHED_TRY_WAKEUP = 3;
+	static final int PROCESS_FORK = 4;
+	static final int PROCESS_EXIT = 5;
+	static final int SYSCALL_ENTRY = 6;
+	static final int SYSCALL_EXIT = 7;
+	static final int IRQ_ENTRY = 8;
+	static final int IRQ_EXIT = 9;
+	static final int SOFTIRQ_ENTRY = 10;
+	static final int SOFTIRQ_EXIT = 11;
+	static final int SOCKET_CREATE = 12;
+	static final int SOCKET_CONNECT = 13;
+	static final int SOCKET_CONNECT_INET = 14;
+	static final int SOCKET_ACCEPT = 15;
+	static final int SOCKET_ACCEPT_INET = 16;
+	static final int SOCKET_SENDMSG = 17;
+	static final int SOCKET_RECVMSG = 18;
+	static final int SOCKET_SHUTDOWN = 19;
+
+	static final int[] TYPE_CHANNEL = { TASK_STATE, GLOBAL_STATE, KERNEL, KERNEL,
+		KERNEL, KERNEL, KERNEL, KERNEL, KERNEL, KERNEL, KERNEL, KERNEL, NET, NET,
+		NET, NET, NET, NET, NET, NET };
+	static final String[] TYPE_NAME = { "process_state", "statedump_end",
+		"sched_schedule", "sched_try_wakeup", "process_fork", "process_exit",
+		"syscall_entry", "syscall_exit", "irq_entry", "irq_exit", "softirq_entry",
+		"softirq_exit", "socket_create", "socket_connect", "socket_connect_inet",
+		"socket_accept", "socket_accept_inet", "socket_sendmsg", "socket_recvmsg",
+		"socket_shutdown" };
+	static final String[][] TYPE_FIELDS = {
+		{ "pid", "parent_pid", "name", "type", "mode", "submode", "status", "tgid" },
+		{},
+		{ "prev_pid", "next_pid", "prev_state" },
+		{ "pid", "cpu_id", "state" },
+		{ "parent_pid", "child_pid", "child_tgid" },
+		{ "pid" },
+		{ "ip", "syscall_id" },
+		{ "ret" },
+		{ "ip", "handler", "irq_id", "kernel_mode" },
+		{ "handled" },
+		{ "softirq_id" },
+		{ "softirq_id" },
+		{ "family", "type", "protocol", "sock", "ret" },
+		{ "fd", "uservaddr", "addrlen", "ret", "sock" },
+		{ "daddr", "saddr", "dport", "sport" },
+		{ "fd", "upeer_sockaddr", "upeer_addrlen", "flags", "ret", "sock" },
+		{ "daddr", "saddr", "dport", "sport" },
+		{ "sock", "msg", "size", "ret" },
+		{ "sock", "msg", "size", "flags", "ret" },
+		{ "fd", "how", "ret" } };
+	/* the only string field, of process_state */
+	static final int NAME_FIELD = 2;
+	static final int MAX_FIELDS = 8;
+
+	static final int FIRST_PID = 1000;
+	static final String[] COMMANDS = { "httpd", "mysqld", "java", "bash",
+		"sshd", "postgres", "nginx", "python" };
+
+	private static final long SYSCALL_IP = 0xffffffff8100b072L;
+	private static final long IRQ_HANDLER = 0xffffffff81350e20L;
+	private static final long FIRST_POINTER = 0xffff880000000000L;
+	private static final int[] SYSCALLS = { 0, 1, 3, 7, 9, 202 };
+	private static final int[] BLOCKING_SYSCALLS = { 0, 7, 202 };
+	private static final int[] IRQS = { 0, 19, 24 };
+	private static final int MAX_SOCKETS = 8;
+	private static final int TIMER_SOFTIRQ = 1;
+	private static final int NET_RX_SOFTIRQ = 3;
+
+	private static class SimTask {
+		final int pid;
+		final String cmd;
+		/* syscall to exit when the task runs again */
+		boolean resume;
+		long resumeRet;
+		int nextFd;
+		int aliveIndex;
+		/* fd and pointer */
+		final ArrayList<long[]> sockets;
+		/* connections to accept: saddr, sport, daddr, dport */
+		final ArrayList<long[]> accepts;
+
+		SimTask(int pid, String cmd) {
+			this.pid = pid;
+			this.cmd = cmd;
+			this.nextFd = 4;
+			this.sockets = new ArrayList<long[]>();
+			this.accepts = new ArrayList<long[]>();
+		}
+	}
+
+	private final int cpus;
+	private final int tasks;
+	private final long events;
+	private final long startTime;
+	private final int interval;
+	private final int stream;
+	private final long startTs;
+	private final Random random;
+
+	/* state of the simulation */
+	private long generated;
+	private int dumpIndex;
+	private int nextPid;
+	private long nextPointer;
+	private int nextPort;
+	private final SimTask[] running;
+	private final ArrayList<SimTask> alive;
+	private final ArrayList<SimTask> runnable;
+	private final ArrayList<SimTask> blocked;
+
+	/* events of the current burst */
+	private int pendingCount;
+	private int pendingPos;
+	private final long[] pendingTs;
+	private final int[] pendingStream;
+	private final int[] pendingType;
+	private final long[][] pendingValues;
+	private final String[] pendingName;
+
+	/* current event */
+	long ts;
+	int eventStream;
+	int type;
+	long[] values;
+	String name;
+
+	SyntheticEventCursor(SyntheticTraceGenerator generator, int stream, long startTs) {
+		this.cpus = generator.getCpus();
+		this.tasks = generator.getTasks();
+		this.events = generator.getEvents();
+		this.startTime = generator.getStartTime();
+		this.interval = generator.getInterval();
+		this.stream = stream;
+		this.startTs = startTs;
+		this.random = new Random(generator.getSeed());
+		this.nextPid = FIRST_PID + tasks;
+		this.nextPointer = FIRST_POINTER;
+		this.running = new SimTask[cpus];
+		this.alive = new ArrayList<SimTask>();
+		this.runnable = new ArrayList<SimTask>();
+		this.blocked = new ArrayList<SimTask>();
+		this.pendingTs = new long[16];
+		this.pendingStream = new int[16];
+		this.pendingType = new int[16];
+		this.pendingValues = new long[16][MAX_FIELDS];
+		this.pendingName = new String[16];
+	}
+
+	/* returns false at the end of the trace */
+	boolean next() {
+		while (true) {
+			if (pendingPos == pendingCount) {
+				if (generated >= events)
+					return false;
+				pendingPos = 0;
+				pendingCount = 0;
+				step();
+				continue;
+			}
+			int i = pendingPos++;
+			if ((stream >= 0 && pendingStream[i] != stream) || pendingTs[i] < startTs)
+				continue;
+			ts = pendingTs[i];
+			eventStream = pendingStream[i];
+			type = pendingType[i];
+			values = pendingValues[i];
+			name = pendingName[i];
+			return true;
+		}
+	}
+
+	private void step() {
+		if (dumpIndex <= tasks + 2) {
+			statedump();
+			return;
+		}
+		int cpu = random.nextInt(cpus);
+		if (!blocked.isEmpty() && random.nextInt(100) < 10) {
+			wakeup(cpu);
+			return;
+		}
+		SimTask task = running[cpu];
+		if (task == null) {
+			idle(cpu);
+			return;
+		}
+		if (task.resume) {
+			task.resume = false;
+			emit(cpu, SYSCALL_EXIT, task.resumeRet);
+			return;
+		}
+		if (!task.accepts.isEmpty()) {
+			accept(cpu, task);
+			return;
+		}
+		int r = random.nextInt(100);
+		if (r < 35)
+			syscall(cpu);
+		else if (r < 50)
+			block(cpu, task);
+		else if (r < 62)
+			preempt(cpu, task);
+		else if (r < 74)
+			transfer(cpu, task);
+		else if (r < 78)
+			connect(cpu, task);
+		else if (r < 82)
+			fork(cpu, task);
+		else if (r < 86)
+			exit(cpu, task);
+		else
+			irq(cpu);
+	}
+
+	/* swapper, init, the tasks of the workload, one event per step */
+	private void statedump() {
+		int i = dumpIndex++;
+		if (i == 0) {
+			emitState(0, 0, "swapper", 1);
+		} else if (i == 1) {
+			emitState(1, 0, "init", 0);
+		} else if (i < tasks + 2) {
+			SimTask task = newTask(FIRST_PID + i - 2, COMMANDS[(i - 2) % COMMANDS.length]);
+			runnable.add(task);
+			emitState(task.pid, 1, task.cmd, 0);
+		} else {
+			emit(0, STATEDUMP_END);
+		}
+	}
+
+	private void emitState(int pid, int parentPid, String cmd, int kernelThread) {
+		if (emit(0, PROCESS_STATE, pid, parentPid, 0, kernelThread, 0, 0, 0, pid))
+			pendingName[pendingCount - 1] = cmd;
+	}
+
+	private void syscall(int cpu) {
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, SYSCALLS[random.nextInt(SYSCALLS.length)]);
+		emit(cpu, SYSCALL_EXIT, 0);
+	}
+
+	private void block(int cpu, SimTask task) {
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, BLOCKING_SYSCALLS[random.nextInt(BLOCKING_SYSCALLS.length)]);
+		task.resume = true;
+		task.resumeRet = 0;
+		switchOut(cpu, task, 1);
+		blocked.add(task);
+	}
+
+	private void preempt(int cpu, SimTask task) {
+		if (runnable.isEmpty()) {
+			syscall(cpu);
+			return;
+		}
+		switchOut(cpu, task, 0);
+		runnable.add(task);
+	}
+
+	/* schedule a runnable task, or the idle task */
+	private void switchOut(int cpu, SimTask prev, int prevState) {
+		SimTask next = removeRandom(runnable);
+		emit(cpu, SCHED_SCHEDULE, prev.pid, next == null ? 0 : next.pid, prevState);
+		running[cpu] = next;
+	}
+
+	private void idle(int cpu) {
+		if (runnable.isEmpty()) {
+			emit(cpu, SOFTIRQ_ENTRY, TIMER_SOFTIRQ);
+			emit(cpu, SOFTIRQ_EXIT, TIMER_SOFTIRQ);
+			return;
+		}
+		SimTask next = removeRandom(runnable);
+		emit(cpu, SCHED_SCHEDULE, 0, next.pid, 0);
+		running[cpu] = next;
+	}
+
+	private void wakeup(int cpu) {
+		SimTask task = removeRandom(blocked);
+		emit(cpu, SOFTIRQ_ENTRY, NET_RX_SOFTIRQ);
+		emit(cpu, SCHED_TRY_WAKEUP, task.pid, cpu, 1);
+		emit(cpu, SOFTIRQ_EXIT, NET_RX_SOFTIRQ);
+		runnable.add(task);
+	}
+
+	private void irq(int cpu) {
+		emit(cpu, IRQ_ENTRY, SYSCALL_IP, IRQ_HANDLER, IRQS[random.nextInt(IRQS.length)], 0);
+		emit(cpu, IRQ_EXIT, 1);
+	}
+
+	private void fork(int cpu, SimTask parent) {
+		if (alive.size() >= tasks * 2) {
+			syscall(cpu);
+			return;
+		}
+		SimTask child = newTask(nextPid++, parent.cmd);
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 56);
+		emit(cpu, PROCESS_FORK, parent.pid, child.pid, child.pid);
+		emit(cpu, SYSCALL_EXIT, child.pid);
+		/* the child returns from clone when it first runs */
+		child.resume = true;
+		child.resumeRet = 0;
+		runnable.add(child);
+	}
+
+	private void exit(int cpu, SimTask task) {
+		if (alive.size() <= Math.max(1, tasks / 2)) {
+			syscall(cpu);
+			return;
+		}
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 231);
+		emit(cpu, PROCESS_EXIT, task.pid);
+		removeAlive(task);
+		switchOut(cpu, task, 64);
+	}
+
+	private void connect(int cpu, SimTask client) {
+		if (alive.size() < 2) {
+			syscall(cpu);
+			return;
+		}
+		if (client.sockets.size() >= MAX_SOCKETS) {
+			shutdown(cpu, client, random.nextInt(client.sockets.size()));
+			return;
+		}
+		int i = random.nextInt(alive.size());
+		SimTask server = alive.get(i);
+		if (server == client)
+			server = alive.get((i + 1) % alive.size());
+		long fd = client.nextFd++;
+		long sock = nextPointer += 0x100;
+		long saddr = getAddr(client);
+		long sport = 32768 + (nextPort++ % 28232);
+		long daddr = getAddr(server);
+		long dport = 8000 + server.pid % 1000;
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 41);
+		emit(cpu, SOCKET_CREATE, 2, 1, 6, sock, fd);
+		emit(cpu, SYSCALL_EXIT, fd);
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 42);
+		emit(cpu, SOCKET_CONNECT, fd, 0, 16, 0, sock);
+		emit(cpu, SOCKET_CONNECT_INET, daddr, saddr, dport, sport);
+		emit(cpu, SYSCALL_EXIT, 0);
+		client.sockets.add(new long[] { fd, sock });
+		server.accepts.add(new long[] { daddr, dport, saddr, sport });
+	}
+
+	private void accept(int cpu, SimTask server) {
+		long[] con = server.accepts.remove(server.accepts.size() - 1);
+		long fd = server.nextFd++;
+		long sock = nextPointer += 0x100;
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 43);
+		emit(cpu, SOCKET_ACCEPT, 3, 0, 0, 0, fd, sock);
+		emit(cpu, SOCKET_ACCEPT_INET, con[2], con[0], con[3], con[1]);
+		emit(cpu, SYSCALL_EXIT, fd);
+		server.sockets.add(new long[] { fd, sock });
+	}
+
+	private void transfer(int cpu, SimTask task) {
+		if (task.sockets.isEmpty()) {
+			connect(cpu, task);
+			return;
+		}
+		int i = random.nextInt(task.sockets.size());
+		if (task.sockets.size() > MAX_SOCKETS / 2 && random.nextInt(8) == 0) {
+			shutdown(cpu, task, i);
+			return;
+		}
+		long sock = task.sockets.get(i)[1];
+		long size = 1 + random.nextInt(4096);
+		if (random.nextBoolean()) {
+			emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 44);
+			emit(cpu, SOCKET_SENDMSG, sock, 0, size, size);
+		} else {
+			emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 45);
+			emit(cpu, SOCKET_RECVMSG, sock, 0, size, 0, size);
+		}
+		emit(cpu, SYSCALL_EXIT, size);
+	}
+
+	private void shutdown(int cpu, SimTask task, int i) {
+		long[] s = task.sockets.remove(i);
+		emit(cpu, SYSCALL_ENTRY, SYSCALL_IP, 48);
+		emit(cpu, SOCKET_SHUTDOWN, s[0], 2, 0);
+		emit(cpu, SYSCALL_EXIT, 0);
+	}
+
+	/* 10.0.0.0/16, by pid */
+	private static long getAddr(SimTask task) {
+		return 0x0a000000L + (task.pid & 0xffff);
+	}
+
+	private SimTask newTask(int pid, String cmd) {
+		SimTask task = new SimTask(pid, cmd);
+		task.aliveIndex = alive.size();
+		alive.add(task);
+		return task;
+	}
+
+	private void removeAlive(SimTask task) {
+		SimTask last = alive.remove(alive.size() - 1);
+		if (last != task) {
+			alive.set(task.aliveIndex, last);
+			last.aliveIndex = task.aliveIndex;
+		}
+	}
+
+	private SimTask removeRandom(ArrayList<SimTask> list) {
+		if (list.isEmpty())
+			return null;
+		int i = random.nextInt(list.size());
+		SimTask last = list.remove(list.size() - 1);
+		if (i == list.size())
+			return last;
+		SimTask task = list.get(i);
+		list.set(i, last);
+		return task;
+	}
+
+	/*
+	 * Events are spaced by interval, with a jitter of half the interval,
+	 * the trace ends once all events are generated
+	 */
+	private boolean emit(int cpu, int type, long... values) {
+		if (generated >= events)
+			return false;
+		long jitter = interval > 1 ? random.nextInt(interval / 2) : 0;
+		int i = pendingCount++;
+		pendingTs[i] = startTime + generated * interval + jitter;
+		pendingStream[i] = TYPE_CHANNEL[type] * cpus + cpu;
+		pendingType[i] = type;
+		System.arraycopy(values, 0, pendingValues[i], 0, values.length);
+		pendingName[i] = null;
+		generated++;
+		return true;
+	}
+}
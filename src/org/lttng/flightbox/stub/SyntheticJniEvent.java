@@ -0,0 +1,115 @@
+package org.lttng.flightbox.stub;
+
+import java.util.HashMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+
+/*
+ * Event of a synthetic trace, the event is reused for the next one
+ */
+public class SyntheticJniEvent extends JniEvent {
+
+	private final HashMap<Integer, JniMarker> markersMap;
+	private final JniTime eventTime;
+	private final long[] values;
+	private JniTracefile parentTracefile;
+	private int type;
+	private String name;
+	private long timestampNs;
+	private int eventState;
+
+	SyntheticJniEvent(HashMap<Integer, JniMarker> markersMap) {
+		this.markersMap = markersMap;
+		this.eventTime = new JniTime();
+		this.values = new long[SyntheticEventCursor.MAX_FIELDS];
+		this.eventState = ERANGE;
+	}
+
+	void set(SyntheticEventCursor cursor, JniTracefile tracefile) {
+		parentTracefile = tracefile;
+		type = cursor.type;
+		name = cursor.name;
+		System.arraycopy(cursor.values, 0, values, 0, SyntheticEventCursor.TYPE_FIELDS[type].length);
+		timestampNs = cursor.ts;
+		eventTime.setTime(timestampNs);
+		eventState = EOK;
+	}
+
+	void setEventState(int eventState) {
+		this.eventState = eventState;
+	}
+
+	@Override
+	public int getEventState() {
+		return eventState;
+	}
+
+	@Override
+	public int getEventMarkerId() {
+		return type;
+	}
+
+	@Override
+	public HashMap<Integer, JniMarker> getMarkersMap() {
+		return markersMap;
+	}
+
+	@Override
+	public JniMarker requestEventMarker() {
+		return markersMap.get(type);
+	}
+
+	@Override
+	public JniTracefile getParentTracefile() {
+		return parentTracefile;
+	}
+
+	@Override
+	public JniTime getEventTime() {
+		return eventTime;
+	}
+
+	@Override
+	public long getTimestampNs() {
+		return timestampNs;
+	}
+
+	@Override
+	public long getEventDataSize() {
+		return SyntheticEventCursor.TYPE_FIELDS[type].length * 8;
+	}
+
+	@Override
+	public Object parseFieldByName(String fieldName) {
+		String[] fields = SyntheticEventCursor.TYPE_FIELDS[type];
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i].equals(fieldName))
+				return getValue(i);
+		}
+		return null;
+	}
+
+	private Object getValue(int i) {
+		if (type == SyntheticEventCursor.PROCESS_STATE && i == SyntheticEventCursor.NAME_FIELD)
+			return name;
+		return Long.valueOf(values[i]);
+	}
+
+	@Override
+	public HashMap<String, Object> parseAllFields() {
+		String[] fields = SyntheticEventCursor.TYPE_FIELDS[type];
+		HashMap<String, Object> all = new HashMap<String, Object>();
+		for (int i = 0; i < fields.length; i++) {
+			all.put(fields[i], getValue(i));
+		}
+		return all;
+	}
+
+	@Override
+	public HashMap<String, Object> decodeAllFields() {
+		return parseAllFields();
+	}
+}
@@ -0,0 +1,130 @@
+package org.lttng.flightbox.stub;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+
+/*
+ * Trace generated by a SyntheticTraceGenerator while it is read, events
+ * are never stored. Tracefiles are named by channel, like stub traces.
+ * Seeking generates the events before the seek time again.
+ */
+public class SyntheticJniTrace extends JniTrace {
+
+	private final SyntheticTraceGenerator generator;
+	private final HashMap<Integer, JniMarker> markersMap;
+	private final SyntheticJniTracefile[] streams;
+	private final boolean[] streamEnabled;
+	private final HashMap<String, JniTracefile> tracefiles;
+	private final SyntheticJniEvent event;
+	private SyntheticEventCursor cursor;
+
+	public SyntheticJniTrace(SyntheticTraceGenerator generator) {
+		this.generator = generator;
+		markersMap = new HashMap<Integer, JniMarker>();
+		for (int i = 0; i < SyntheticEventCursor.TYPE_NAME.length; i++) {
+			StubJniMarker marker = new StubJniMarker();
+			marker.setName(SyntheticEventCursor.TYPE_NAME[i]);
+			markersMap.put(i, marker);
+		}
+		int cpus = generator.getCpus();
+		tracefiles = new HashMap<String, JniTracefile>();
+		streams = new SyntheticJniTracefile[SyntheticEventCursor.CHANNELS.length * cpus];
+		streamEnabled = new boolean[streams.length];
+		for (int i = 0; i < streams.length; i++) {
+			String channel = SyntheticEventCursor.CHANNELS[i / cpus];
+			long cpu = i % cpus;
+			streams[i] = new SyntheticJniTracefile(generator, markersMap, i, channel, cpu);
+			tracefiles.put(channel + cpu, streams[i]);
+			streamEnabled[i] = true;
+		}
+		event = new SyntheticJniEvent(markersMap);
+		cursor = new SyntheticEventCursor(generator, -1, Long.MIN_VALUE);
+	}
+
+	@Override
+	public int initializeLibrary() {
+		return 0;
+	}
+
+	@Override
+	public JniTracefile allocateNewJniTracefile(
+			Jni_C_Pointer_And_Library_Id newPtr, JniTrace newParentTrace)
+			throws JniException {
+		return null;
+	}
+
+	@Override
+	public JniEvent readNextEvent() {
+		if (cursor == null)
+			return null;
+		while (cursor.next()) {
+			if (streamEnabled[cursor.eventStream]) {
+				event.set(cursor, streams[cursor.eventStream]);
+				return event;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void seekToTime(JniTime seekTime) {
+		if (cursor == null)
+			return;
+		cursor = new SyntheticEventCursor(generator, -1, seekTime.getTime());
+		for (SyntheticJniTracefile tracefile: streams) {
+			tracefile.reset(seekTime.getTime());
+		}
+	}
+
+	@Override
+	public void setEnabledTracefiles(Set<String> tracefileNames) {
+		super.setEnabledTracefiles(tracefileNames);
+		for (int i = 0; i < streams.length; i++) {
+			streamEnabled[i] = isTracefileEnabled(streams[i].getTracefileName());
+		}
+	}
+
+	@Override
+	public JniTracefile[] getMergedTracefiles() {
+		ArrayList<JniTracefile> merged = new ArrayList<JniTracefile>();
+		for (int i = 0; i < streams.length; i++) {
+			if (streamEnabled[i])
+				merged.add(streams[i]);
+		}
+		return merged.toArray(new JniTracefile[merged.size()]);
+	}
+
+	@Override
+	public HashMap<String, JniTracefile> getTracefilesMap() {
+		return tracefiles;
+	}
+
+	@Override
+	public void closeTrace() {
+		cursor = null;
+	}
+
+	@Override
+	public int getCpuNumber() {
+		return generator.getCpus();
+	}
+
+	@Override
+	public JniTime getStartTime() {
+		return new JniTime(generator.getStartTime());
+	}
+
+	@Override
+	public JniTime getEndTime() {
+		return new JniTime(generator.getEndTime());
+	}
+}
@@ -0,0 +1,92 @@
+package org.lttng.flightbox.stub;
+
+import java.util.HashMap;
+
+import org.eclipse.linuxtools.lttng.jni.JniEvent;
+import org.eclipse.linuxtools.lttng.jni.JniMarker;
+import org.eclipse.linuxtools.lttng.jni.JniTracefile;
+import org.eclipse.linuxtools.lttng.jni.common.JniTime;
+import org.eclipse.linuxtools.lttng.jni.common.Jni_C_Pointer_And_Library_Id;
+import org.eclipse.linuxtools.lttng.jni.exception.JniException;
+
+/*
+ * Events of one channel and cpu of a synthetic trace, read on their own
+ */
+public class SyntheticJniTracefile extends JniTracefile {
+
+	private final SyntheticTraceGenerator generator;
+	private final int stream;
+	private final String tracefileName;
+	private final long cpu;
+	private final SyntheticJniEvent event;
+	private SyntheticEventCursor cursor;
+	private long startTs;
+	private boolean started;
+
+	SyntheticJniTracefile(SyntheticTraceGenerator generator, HashMap<Integer, JniMarker> markersMap,
+			int stream, String tracefileName, long cpu) {
+		this.generator = generator;
+		this.stream = stream;
+		this.tracefileName = tracefileName;
+		this.cpu = cpu;
+		this.event = new SyntheticJniEvent(markersMap);
+		this.startTs = Long.MIN_VALUE;
+	}
+
+	@Override
+	public int readNextEvent() {
+		if (cursor == null)
+			cursor = new SyntheticEventCursor(generator, stream, startTs);
+		started = true;
+		if (cursor.next()) {
+			event.set(cursor, this);
+		} else {
+			event.setEventState(ERANGE);
+		}
+		return event.getEventState();
+	}
+
+	@Override
+	public int seekToTime(JniTime seekTime) {
+		reset(seekTime.getTime());
+		return readNextEvent();
+	}
+
+	/* the next event read is the first one at or after ts */
+	void reset(long ts) {
+		cursor = null;
+		startTs = ts;
+		started = false;
+	}
+
+	@Override
+	public JniEvent getCurrentEvent() {
+		if (!started)
+			readNextEvent();
+		return event;
+	}
+
+	@Override
+	public String getTracefileName() {
+		return tracefileName;
+	}
+
+	@Override
+	public long getCpuNumber() {
+		return cpu;
+	}
+
+	@Override
+	public JniEvent allocateNewJniEvent(
+			Jni_C_Pointer_And_Library_Id newEventPtr,
+			HashMap<Integer, JniMarker> newMarkersMap,
+			JniTracefile newParentTracefile) throws JniException {
+		return null;
+	}
+
+	@Override
+	public JniMarker allocateNewJniMarker(
+			Jni_C_Pointer_And_Library_Id newMarkerPtr) throws JniException {
+		return null;
+	}
+}
@@ -0,0 +1,151 @@
+package org.lttng.flightbox.stub;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+
+/*
+ * Generate kernel traces of any size, to test and measure the analysis
+ * at scale. The workload has cpus processors and about tasks tasks that
+ * make syscalls, block and are woken up by softirqs, fork and exit, and
+ * talk to each other through sockets. The same seed gives the same
+ * trace. Events are generated while the trace is read, the trace can
+ * also be written as a stub trace, or exported to a replay file.
+ */
+public class SyntheticTraceGenerator {
+
+	public static final String DEFAULT_INVENTORY = "inventory-linux-2.6.35.xml";
+
+	private int cpus;
+	private int tasks;
+	private long events;
+	private long seed;
+	private long startTime;
+	private int interval;
+
+	public SyntheticTraceGenerator() {
+		cpus = 4;
+		tasks = 64;
+		events = 1000000;
+		seed = 1;
+		startTime = 0;
+		interval = 100;
+	}
+
+	public JniTrace makeTrace() {
+		return new SyntheticJniTrace(this);
+	}
+
+	/*
+	 * Write the trace in the format of stub traces, the inventory is
+	 * relative to the file, or absolute. The name of process_state is
+	 * left out, it would be the name of the event.
+	 */
+	public void writeStub(File file, String inventory) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+		try {
+			XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+			writer.writeStartDocument("UTF-8", "1.0");
+			writer.writeCharacters("\n");
+			writer.writeStartElement("trace");
+			writer.writeAttribute("cpus", Integer.toString(cpus));
+			writer.writeAttribute("inventory", inventory);
+			writer.writeCharacters("\n  ");
+			writer.writeStartElement("events");
+			SyntheticEventCursor cursor = new SyntheticEventCursor(this, -1, Long.MIN_VALUE);
+			while (cursor.next()) {
+				writer.writeCharacters("\n    ");
+				writer.writeEmptyElement("event");
+				writer.writeAttribute("ts", Long.toString(cursor.ts));
+				writer.writeAttribute("cpu", Integer.toString(cursor.eventStream % cpus));
+				writer.writeAttribute("channel", SyntheticEventCursor.CHANNELS[cursor.eventStream / cpus]);
+				writer.writeAttribute("name", SyntheticEventCursor.TYPE_NAME[cursor.type]);
+				String[] fields = SyntheticEventCursor.TYPE_FIELDS[cursor.type];
+				for (int i = 0; i < fields.length; i++) {
+					if (cursor.type == SyntheticEventCursor.PROCESS_STATE && i == SyntheticEventCursor.NAME_FIELD)
+						continue;
+					writer.writeAttribute(fields[i], Long.toString(cursor.values[i]));
+				}
+			}
+			writer.writeCharacters("\n  ");
+			writer.writeEndElement();
+			writer.writeCharacters("\n");
+			writer.writeEndElement();
+			writer.writeCharacters("\n");
+			writer.writeEndDocument();
+			writer.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Error: can't write stub trace " + file, e);
+		} finally {
+			out.close();
+		}
+	}
+
+	public int getCpus() {
+		return cpus;
+	}
+
+	public void setCpus(int cpus) {
+		this.cpus = cpus;
+	}
+
+	/* tasks of the statedump, forks and exits keep between half and twice as many */
+	public int getTasks() {
+		return tasks;
+	}
+
+	public void setTasks(int tasks) {
+		this.tasks = tasks;
+	}
+
+	public long getEvents() {
+		return events;
+	}
+
+	public void setEvents(long events) {
+		this.events = events;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public void setStartTime(long startTime) {
+		this.startTime = startTime;
+	}
+
+	/* mean time between events, in ns */
+	public int getInterval() {
+		return interval;
+	}
+
+	public void setInterval(int interval) {
+		this.interval = interval;
+	}
+
+	/* no event is after the end time */
+	public long getEndTime() {
+		return startTime + events * interval;
+	}
+
+	@Override
+	public String toString() {
+		return "synthetic cpus=" + cpus + " tasks=" + tasks + " events=" + events + " seed=" + seed;
+	}
+}
@@ -0,0 +1,23 @@
+package org.lttng.flightbox.stub;
+
+import org.eclipse.linuxtools.lttng.jni.JniTrace;
+import org.lttng.flightbox.io.TraceReader;
+
+/*
+ * Reader of a synthetic trace, the trace is generated again each time
+ * it is opened
+ */
+public class SyntheticTraceReader extends TraceReader {
+
+	private final SyntheticTraceGenerator generator;
+
+	public SyntheticTraceReader(SyntheticTraceGenerator generator) {
+		super(generator.toString());
+		this.generator = generator;
+	}
+
+	@Override
+	protected JniTrace openTrace() {
+		return generator.makeTrace();
+	}
+}
@@ -1,8 +1,8 @@
 package org.lttng.flightbox.ui;
 
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CTabFolder;
@@ -50,12 +50,12 @@ public class DependencyView extends Composite {
             @Override
             public void widgetSelected(SelectionEvent arg0) {
                 TableData data = (TableData) arg0.item.getData();
-                HashMap<Integer, TreeSet<Task>> tasks = depTreeView.getModel().getTasks();
+                Map<Integer, List<Task>> tasks = depTreeView.getModel().getTasks();
                 Integer pid = new Long(data.pid).intValue();
                 if (tasks.containsKey(pid)) {
-                    TreeSet<Task> taskSet = tasks.get(pid);
+                    List<Task> taskSet = tasks.get(pid);
                     if (taskSet != null && !taskSet.isEmpty()) {
-                        Task latest = taskSet.last();
+                        Task latest = taskSet.get(taskSet.size() - 1);
                         depTreeView.setRootTask(latest);
                         dependencySummaryView.setTask(latest);
                     }
@@ -22,9 +22,8 @@ import org.eclipse.swt.widgets.Shell;
 import org.lttng.flightbox.cpu.TraceEventHandlerProcess;
 import org.lttng.flightbox.cpu.TraceEventHandlerStats;
 import org.lttng.flightbox.dep.BlockingTaskListener;
-import org.lttng.flightbox.io.TraceEventHandlerModel;
-import org.lttng.flightbox.io.TraceEventHandlerModelMeta;
-import org.lttng.flightbox.io.TraceReader;
+import org.lttng.flightbox.io.ITraceEventHandler;
+import org.lttng.flightbox.io.ModelBuilder;
 import org.lttng.flightbox.model.SystemModel;
 import org.lttng.flightbox.model.Task;
 import org.lttng.flightbox.statistics.ResourceUsage;
@@ -140,34 +139,12 @@ public class MainWindow {
 		model.addTaskListener(listener);
 		listener.setModel(model);
 
-		TraceEventHandlerModelMeta metaHandler = new TraceEventHandlerModelMeta();
-		metaHandler.setModel(model);
-		TraceReader reader = new TraceReader(this.traceDir.toString());
-		reader.register(metaHandler);
-
-		// FIXME: this should be a function
-		try {
-			reader.process();
-		} catch (JniException e) {
-			e.printStackTrace();
-			MessageBox msg = new MessageBox(shell);
-			msg.setMessage("Error while reading the trace");
-			msg.setText("Error");
-			msg.open();
-			return;
-		}
-
 		TraceEventHandlerStats cpuHandler = new TraceEventHandlerStats();
 		TraceEventHandlerProcess procHandler = new TraceEventHandlerProcess();
-		TraceEventHandlerModel modelHandler = new TraceEventHandlerModel();
-		modelHandler.setModel(model);
-		reader = new TraceReader(this.traceDir.toString());
-		reader.register(cpuHandler);
-		reader.register(procHandler);
-		reader.register(modelHandler);
+		ITraceEventHandler[] handlers = new ITraceEventHandler[] { cpuHandler, procHandler };
 
 		try {
-			reader.process();
+			ModelBuilder.buildFromTrace(this.traceDir.toString(), model, handlers);
 		} catch (JniException e) {
 			e.printStackTrace();
 			MessageBox msg = new MessageBox(shell);
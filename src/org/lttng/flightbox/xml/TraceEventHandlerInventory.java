@@ -12,6 +12,7 @@ import org.eclipse.linuxtools.lttng.jni.JniTrace;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
+import org.lttng.flightbox.io.ITraceHookCallback;
 import org.lttng.flightbox.io.TraceEventHandlerBase;
 import org.lttng.flightbox.io.TraceHook;
 import org.lttng.flightbox.io.TraceReader;
@@ -22,7 +23,15 @@ public class TraceEventHandlerInventory extends TraceEventHandlerBase {
 	
 	public TraceEventHandlerInventory() {
 		super();
-		hooks.add(new TraceHook("metadata", "core_marker_format"));
+		hooks.add(new TraceHook("metadata", "core_marker_format", new ITraceHookCallback() {
+			public void handleEvent(TraceReader reader, JniEvent event) {
+				try {
+					handle_metadata_core_marker_format(reader, event);
+				} catch (JDOMException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}));
 		inventory = new MarkerInventoryJDOM();
 	}
 	